@@ -0,0 +1,98 @@
+package com.pet.common;
+
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * 游标分页结果类
+ * 按 (创建时间, ID) 倒序翻页，下一页从上一页最后一条之后继续：
+ * 不统计总数，翻到深处也不需要跳过前面的行，翻页期间插入新数据也不会重复或遗漏
+ *
+ * @param <T> 泛型，列表中数据的类型
+ */
+@Data
+public class CursorPage<T> {
+
+    /**
+     * 当前页的数据列表
+     */
+    private List<T> list;
+
+    /**
+     * 下一页的游标，没有更多数据时为 null
+     */
+    private String nextCursor;
+
+    /**
+     * 是否还有下一页
+     */
+    private boolean hasMore;
+
+    /**
+     * 静态工厂方法，创建游标分页结果对象
+     * @param list 当前页数据列表
+     * @param nextCursor 下一页游标，为 null 表示已是最后一页
+     * @param <T> 数据类型
+     * @return 封装好的游标分页结果对象
+     */
+    public static <T> CursorPage<T> of(List<T> list, String nextCursor) {
+        CursorPage<T> result = new CursorPage<>();
+        result.setList(list);
+        result.setNextCursor(nextCursor);
+        result.setHasMore(nextCursor != null);
+        return result;
+    }
+
+    /**
+     * 游标：上一页最后一条记录的创建时间和ID，编码为 URL 安全的字符串，对客户端不透明
+     */
+    @Data
+    public static class Cursor {
+
+        private final LocalDateTime createdAt;
+
+        private final String id;
+
+        public String encode() {
+            String raw = createdAt + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * 按 (创建时间, ID) 倒序，记录是否排在游标之后（即属于后续页）
+         */
+        public boolean precedes(LocalDateTime otherCreatedAt, String otherId) {
+            if (otherCreatedAt == null) {
+                return false;
+            }
+            int compare = otherCreatedAt.compareTo(createdAt);
+            return compare < 0 || (compare == 0 && otherId.compareTo(id) < 0);
+        }
+
+        /**
+         * 解析游标
+         * @param value 客户端传回的游标，为空表示第一页
+         * @return 游标对象，第一页返回 null
+         */
+        public static Cursor decode(String value) {
+            if (value == null || value.isEmpty()) {
+                return null;
+            }
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+                int separator = raw.indexOf('|');
+                if (separator <= 0 || separator == raw.length() - 1) {
+                    throw new IllegalArgumentException(raw);
+                }
+                return new Cursor(LocalDateTime.parse(raw.substring(0, separator)), raw.substring(separator + 1));
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                throw new RuntimeException("无效的分页游标");
+            }
+        }
+    }
+}
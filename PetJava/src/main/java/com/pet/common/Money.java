@@ -0,0 +1,168 @@
+package com.pet.common;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * 金额值对象（不可变）
+ * 内部以 long 分存储，运算均为整数运算；与元（BigDecimal）之间的换算统一四舍五入到分。
+ * JSON 序列化为以元为单位的数字（如 12.50），与原 BigDecimal 字段的输出保持一致
+ */
+@JsonSerialize(using = Money.YuanSerializer.class)
+@JsonDeserialize(using = Money.YuanDeserializer.class)
+public final class Money implements Comparable<Money>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final Money ZERO = new Money(0);
+
+    private static final long BASIS_POINTS = 10000;
+
+    private final long fen;
+
+    private Money(long fen) {
+        this.fen = fen;
+    }
+
+    public static Money ofFen(long fen) {
+        return fen == 0 ? ZERO : new Money(fen);
+    }
+
+    /**
+     * 元转换为金额，超过两位小数的部分四舍五入
+     */
+    public static Money ofYuan(BigDecimal yuan) {
+        if (yuan == null) {
+            return null;
+        }
+        return ofFen(yuan.setScale(2, RoundingMode.HALF_UP).movePointRight(2).longValueExact());
+    }
+
+    public static Money ofYuan(String yuan) {
+        return ofYuan(new BigDecimal(yuan));
+    }
+
+    public long getFen() {
+        return fen;
+    }
+
+    public BigDecimal toYuan() {
+        return BigDecimal.valueOf(fen, 2);
+    }
+
+    public Money plus(Money other) {
+        return ofFen(Math.addExact(fen, other.fen));
+    }
+
+    public Money minus(Money other) {
+        return ofFen(Math.subtractExact(fen, other.fen));
+    }
+
+    public Money times(long factor) {
+        return ofFen(Math.multiplyExact(fen, factor));
+    }
+
+    /**
+     * 按万分比计算，如 500 表示 5%，结果四舍五入到分
+     */
+    public Money multiplyBasisPoints(long basisPoints) {
+        return multiplyRatio(basisPoints, BASIS_POINTS);
+    }
+
+    /**
+     * 按 numerator / denominator 比例计算，结果四舍五入到分（远离零）
+     */
+    public Money multiplyRatio(long numerator, long denominator) {
+        if (denominator <= 0) {
+            throw new IllegalArgumentException("denominator must be positive");
+        }
+        long product = Math.multiplyExact(fen, numerator);
+        long quotient = product / denominator;
+        long remainder = product % denominator;
+        if (Math.abs(remainder) * 2 >= denominator) {
+            quotient += product < 0 ? -1 : 1;
+        }
+        return ofFen(quotient);
+    }
+
+    public boolean isZero() {
+        return fen == 0;
+    }
+
+    public boolean isPositive() {
+        return fen > 0;
+    }
+
+    public boolean isNegative() {
+        return fen < 0;
+    }
+
+    public boolean isLessThan(Money other) {
+        return fen < other.fen;
+    }
+
+    public boolean isGreaterThan(Money other) {
+        return fen > other.fen;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(fen, other.fen);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof Money && ((Money) o).fen == fen;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(fen);
+    }
+
+    /**
+     * 以元为单位的字符串，如 "12.50"，可直接用于文案拼接
+     */
+    @Override
+    public String toString() {
+        return toYuan().toPlainString();
+    }
+
+    /**
+     * 序列化为以元为单位的数字
+     */
+    public static class YuanSerializer extends JsonSerializer<Money> {
+        @Override
+        public void serialize(Money value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeNumber(value.toYuan());
+        }
+    }
+
+    /**
+     * 从以元为单位的数字或字符串反序列化
+     */
+    public static class YuanDeserializer extends JsonDeserializer<Money> {
+        @Override
+        public Money deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            String text = p.getValueAsString();
+            if (text == null || text.trim().isEmpty()) {
+                return null;
+            }
+            return ofYuan(text.trim());
+        }
+    }
+}
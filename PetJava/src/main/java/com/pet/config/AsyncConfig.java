@@ -0,0 +1,94 @@
+package com.pet.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 异步任务与定时任务配置
+ * 后台批处理任务（对账等）使用独立线程池，避免占用 Web 请求线程；
+ * 内容审核扫描使用单独的线程池，不与批处理任务争抢；通知推送另用一个线程池向长连接写事件；
+ * 仪表盘缓存的后台刷新使用独立线程池，不占用批处理线程
+ */
+@Configuration
+@EnableAsync
+@EnableScheduling
+public class AsyncConfig {
+
+    /**
+     * 后台批处理线程池
+     * 队列满时拒绝提交，由调用方提示"任务正在执行"，不在请求线程中同步执行
+     * @return ThreadPoolTaskExecutor实例
+     */
+    @Bean("backgroundExecutor")
+    public ThreadPoolTaskExecutor backgroundExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(16);
+        executor.setThreadNamePrefix("background-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 内容审核扫描线程池
+     * 单次扫描耗时很短，队列满时由提交线程直接执行，保证每条内容都被扫描
+     * @return ThreadPoolTaskExecutor实例
+     */
+    @Bean("moderationExecutor")
+    public ThreadPoolTaskExecutor moderationExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(1000);
+        executor.setThreadNamePrefix("moderation-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 通知推送线程池
+     * 空闲连接不占线程，只有连接上有待发送事件时才提交一次写出任务；
+     * 队列满时拒绝，事件留在连接自己的队列中，由下一次推送或心跳带出，不阻塞请求线程
+     * @return ThreadPoolTaskExecutor实例
+     */
+    @Bean("pushExecutor")
+    public ThreadPoolTaskExecutor pushExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(8);
+        executor.setQueueCapacity(50000);
+        executor.setThreadNamePrefix("push-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 仪表盘缓存后台刷新线程池
+     * 队列满时拒绝，本次继续返回旧结果，下一次请求再触发刷新
+     * @return ThreadPoolTaskExecutor实例
+     */
+    @Bean("dashboardExecutor")
+    public ThreadPoolTaskExecutor dashboardExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("dashboard-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
@@ -24,6 +24,7 @@ public class DataInitializer implements CommandLineRunner {
 
     private final UserMapper userMapper;
     private final InstitutionMapper institutionMapper;
+    private final SettlementItemMapper settlementItemMapper;
     private final JdbcTemplate jdbcTemplate;
 
     @Override
@@ -122,11 +123,391 @@ public class DataInitializer implements CommandLineRunner {
                     log.error("添加status字段失败: {}", ex.getMessage(), ex);
                 }
             }
+
+            // 钱包对账按 (wallet_id, created_at) 顺序流式读取交易记录
+            addIndexIfMissing("wallet_transaction", "idx_wallet_created", "(wallet_id, created_at)");
+
+            // 复式记账账本
+            createTableIfMissing("ledger_entry", "CREATE TABLE ledger_entry (" +
+                "seq BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                "journal_id VARCHAR(36) NOT NULL, " +
+                "account VARCHAR(64) NOT NULL, " +
+                "entry_type VARCHAR(20) NOT NULL, " +
+                "amount BIGINT NOT NULL, " +
+                "related_order_id VARCHAR(36), " +
+                "related_withdrawal_id VARCHAR(36), " +
+                "created_at DATETIME DEFAULT CURRENT_TIMESTAMP, " +
+                "INDEX idx_account_seq (account, seq), " +
+                "INDEX idx_account_created (account, created_at), " +
+                "INDEX idx_journal_id (journal_id), " +
+                "INDEX idx_created_at (created_at)" +
+                ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
+            createTableIfMissing("ledger_snapshot", "CREATE TABLE ledger_snapshot (" +
+                "id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                "account VARCHAR(64) NOT NULL, " +
+                "last_seq BIGINT NOT NULL, " +
+                "balance BIGINT NOT NULL, " +
+                "cutoff_at DATETIME NOT NULL, " +
+                "created_at DATETIME DEFAULT CURRENT_TIMESTAMP, " +
+                "INDEX idx_account_seq (account, last_seq), " +
+                "INDEX idx_account_cutoff (account, cutoff_at)" +
+                ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
+            createTableIfMissing("ledger_state", "CREATE TABLE ledger_state (" +
+                "id INT PRIMARY KEY, " +
+                "enabled TINYINT, " +
+                "updated_at DATETIME DEFAULT CURRENT_TIMESTAMP" +
+                ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
+
+            // 机构停业批量取消任务
+            createTableIfMissing("bulk_cancel_job", "CREATE TABLE bulk_cancel_job (" +
+                "id VARCHAR(36) PRIMARY KEY, " +
+                "institution_id VARCHAR(36) NOT NULL, " +
+                "reason VARCHAR(500), " +
+                "full_refund TINYINT DEFAULT 1, " +
+                "cutoff_date DATE NOT NULL, " +
+                "status VARCHAR(20) NOT NULL, " +
+                "total_count INT DEFAULT 0, " +
+                "processed_count INT DEFAULT 0, " +
+                "refunded_count INT DEFAULT 0, " +
+                "refund_total BIGINT DEFAULT 0, " +
+                "last_error VARCHAR(500), " +
+                "finished_at DATETIME, " +
+                "created_at DATETIME DEFAULT CURRENT_TIMESTAMP, " +
+                "updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP, " +
+                "deleted TINYINT DEFAULT 0, " +
+                "INDEX idx_institution_id (institution_id), " +
+                "INDEX idx_status (status)" +
+                ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
+
+            // 机构结算批次与订单结算标记
+            createTableIfMissing("settlement_batch", "CREATE TABLE settlement_batch (" +
+                "id VARCHAR(36) PRIMARY KEY, " +
+                "institution_id VARCHAR(36), " +
+                "cutoff_time DATETIME NOT NULL, " +
+                "status VARCHAR(20) NOT NULL, " +
+                "cursor_id VARCHAR(36), " +
+                "institution_count INT DEFAULT 0, " +
+                "booking_count INT DEFAULT 0, " +
+                "total_amount BIGINT DEFAULT 0, " +
+                "last_error VARCHAR(500), " +
+                "finished_at DATETIME, " +
+                "created_at DATETIME DEFAULT CURRENT_TIMESTAMP, " +
+                "updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP, " +
+                "deleted TINYINT DEFAULT 0, " +
+                "running_lock TINYINT AS (IF(status = 'running', 1, NULL)) STORED, " +
+                "INDEX idx_status (status), " +
+                "UNIQUE KEY uk_running_lock (running_lock)" +
+                ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
+            addColumnIfMissing("settlement_batch", "running_lock",
+                "TINYINT AS (IF(status = 'running', 1, NULL)) STORED UNIQUE KEY");
+            boolean settlementItemCreated = createTableIfMissing("settlement_item", "CREATE TABLE settlement_item (" +
+                "booking_id VARCHAR(36) PRIMARY KEY, " +
+                "batch_id VARCHAR(36), " +
+                "institution_id VARCHAR(36) NOT NULL, " +
+                "amount BIGINT NOT NULL, " +
+                "created_at DATETIME DEFAULT CURRENT_TIMESTAMP, " +
+                "INDEX idx_batch_institution (batch_id, institution_id), " +
+                "INDEX idx_institution_created (institution_id, created_at)" +
+                ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
+            if (settlementItemCreated) {
+                backfillSettlementItems();
+            }
+
+            // 评价各维度评分数值列，替代按 rating JSON 排序
+            addColumnIfMissing("review", "overall_score", "TINYINT AFTER rating");
+            addColumnIfMissing("review", "environment_score", "TINYINT AFTER overall_score");
+            addColumnIfMissing("review", "service_score", "TINYINT AFTER environment_score");
+            addColumnIfMissing("review", "hygiene_score", "TINYINT AFTER service_score");
+            addColumnIfMissing("review", "communication_score", "TINYINT AFTER hygiene_score");
+            try {
+                int filled = jdbcTemplate.update("UPDATE review SET " +
+                    "overall_score = COALESCE(JSON_EXTRACT(rating, '$.overall'), 0), " +
+                    "environment_score = COALESCE(JSON_EXTRACT(rating, '$.environment'), 0), " +
+                    "service_score = COALESCE(JSON_EXTRACT(rating, '$.service'), 0), " +
+                    "hygiene_score = COALESCE(JSON_EXTRACT(rating, '$.hygiene'), 0), " +
+                    "communication_score = COALESCE(JSON_EXTRACT(rating, '$.communication'), 0) " +
+                    "WHERE overall_score IS NULL");
+                if (filled > 0) {
+                    log.info("回填评价评分数值列: {}条", filled);
+                }
+            } catch (Exception e) {
+                log.warn("回填评价评分数值列失败: {}", e.getMessage());
+            }
+            addIndexIfMissing("review", "idx_institution_overall_created", "(institution_id, overall_score, created_at)");
+
+            // 未读计数缓存缺失时按用户和已读状态计数
+            addIndexIfMissing("notification", "idx_user_read", "(user_id, is_read)");
+            // 通知游标分页：按时间倒序扫描索引，类型和已读筛选在索引内完成后才回表
+            addIndexIfMissing("notification", "idx_user_created", "(user_id, deleted, created_at, id, type, is_read)");
+
+            // 通知合并与保留策略
+            addColumnIfMissing("notification", "repeat_count", "INT NOT NULL DEFAULT 1 AFTER data");
+            addIndexIfMissing("notification", "idx_deleted_read_created", "(deleted, is_read, created_at)");
+            createTableIfMissing("notification_archive", "CREATE TABLE notification_archive (" +
+                "id VARCHAR(36) PRIMARY KEY, " +
+                "user_id VARCHAR(36) NOT NULL, " +
+                "type VARCHAR(20) NOT NULL, " +
+                "title VARCHAR(200) NOT NULL, " +
+                "content TEXT, " +
+                "link VARCHAR(500), " +
+                "data JSON, " +
+                "repeat_count INT NOT NULL DEFAULT 1, " +
+                "created_at DATETIME, " +
+                "archived_at DATETIME DEFAULT CURRENT_TIMESTAMP, " +
+                "INDEX idx_user_created (user_id, created_at)" +
+                ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
+
+            // 平台公告与用户已读标记
+            createTableIfMissing("announcement", "CREATE TABLE announcement (" +
+                "id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                "audience VARCHAR(20) NOT NULL, " +
+                "type VARCHAR(20) NOT NULL, " +
+                "title VARCHAR(200) NOT NULL, " +
+                "content TEXT, " +
+                "link VARCHAR(500), " +
+                "created_by VARCHAR(36), " +
+                "created_at DATETIME DEFAULT CURRENT_TIMESTAMP, " +
+                "updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP, " +
+                "deleted TINYINT DEFAULT 0, " +
+                "INDEX idx_audience_created (audience, created_at)" +
+                ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
+            createTableIfMissing("announcement_read_marker", "CREATE TABLE announcement_read_marker (" +
+                "user_id VARCHAR(36) PRIMARY KEY, " +
+                "last_read_id BIGINT NOT NULL DEFAULT 0, " +
+                "cleared_id BIGINT NOT NULL DEFAULT 0, " +
+                "read_ids JSON, " +
+                "hidden_ids JSON, " +
+                "updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP" +
+                ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
+
+            // 群发通知任务
+            createTableIfMissing("notification_broadcast", "CREATE TABLE notification_broadcast (" +
+                "id VARCHAR(36) PRIMARY KEY, " +
+                "audience VARCHAR(20) NOT NULL, " +
+                "type VARCHAR(20) NOT NULL, " +
+                "title VARCHAR(200) NOT NULL, " +
+                "content TEXT, " +
+                "link VARCHAR(500), " +
+                "status VARCHAR(20) NOT NULL, " +
+                "cursor_user_id VARCHAR(36), " +
+                "total_count INT DEFAULT 0, " +
+                "sent_count INT DEFAULT 0, " +
+                "last_error VARCHAR(500), " +
+                "created_by VARCHAR(36), " +
+                "finished_at DATETIME, " +
+                "created_at DATETIME DEFAULT CURRENT_TIMESTAMP, " +
+                "updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP, " +
+                "deleted TINYINT DEFAULT 0, " +
+                "INDEX idx_status (status)" +
+                ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
+
+            // 内容审核
+            createTableIfMissing("moderation_term", "CREATE TABLE moderation_term (" +
+                "id VARCHAR(36) PRIMARY KEY, " +
+                "term VARCHAR(100) NOT NULL, " +
+                "level VARCHAR(20) NOT NULL, " +
+                "created_at DATETIME DEFAULT CURRENT_TIMESTAMP, " +
+                "updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP, " +
+                "deleted TINYINT DEFAULT 0, " +
+                "INDEX idx_term (term)" +
+                ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
+            createTableIfMissing("moderation_flag", "CREATE TABLE moderation_flag (" +
+                "id VARCHAR(36) PRIMARY KEY, " +
+                "target_type VARCHAR(20) NOT NULL, " +
+                "target_id VARCHAR(36) NOT NULL, " +
+                "user_id VARCHAR(36), " +
+                "matched_terms JSON, " +
+                "excerpt VARCHAR(500), " +
+                "status VARCHAR(20) NOT NULL DEFAULT 'pending', " +
+                "handled_by VARCHAR(36), " +
+                "handled_at DATETIME, " +
+                "created_at DATETIME DEFAULT CURRENT_TIMESTAMP, " +
+                "updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP, " +
+                "deleted TINYINT DEFAULT 0, " +
+                "INDEX idx_status_created (status, created_at), " +
+                "INDEX idx_target (target_type, target_id)" +
+                ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
+
+            // 机构推荐指数排序列，数值由 RatingStatsService 启动时回填
+            addColumnIfMissing("institution", "recommendation_score", "DECIMAL(2,1) DEFAULT 0 AFTER review_count");
+            addIndexIfMissing("institution", "idx_status_recommendation", "(status, recommendation_score)");
+
+            // 管理后台仪表盘按下单/注册时间范围聚合
+            addIndexIfMissing("booking", "idx_created_at", "(created_at)");
+            addIndexIfMissing("user", "idx_created_at", "(created_at)");
+
+            // 每日指标汇总，按退款时间重算退款指标
+            createTableIfMissing("daily_metrics", "CREATE TABLE daily_metrics (" +
+                "stat_date DATE NOT NULL, " +
+                "institution_id VARCHAR(36) NOT NULL DEFAULT '', " +
+                "order_count INT NOT NULL DEFAULT 0, " +
+                "gmv BIGINT NOT NULL DEFAULT 0, " +
+                "platform_fee BIGINT NOT NULL DEFAULT 0, " +
+                "refund_count INT NOT NULL DEFAULT 0, " +
+                "refund_amount BIGINT NOT NULL DEFAULT 0, " +
+                "new_users INT NOT NULL DEFAULT 0, " +
+                "withdrawal_count INT NOT NULL DEFAULT 0, " +
+                "withdrawal_amount BIGINT NOT NULL DEFAULT 0, " +
+                "updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP, " +
+                "PRIMARY KEY (stat_date, institution_id)" +
+                ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
+            addIndexIfMissing("booking", "idx_refunded_at", "(refunded_at)");
+
+            // 机构仪表盘按机构 + 日期列做范围聚合
+            addIndexIfMissing("booking", "idx_institution_created", "(institution_id, created_at)");
+            addIndexIfMissing("booking", "idx_institution_start", "(institution_id, start_date)");
+            addIndexIfMissing("booking", "idx_institution_paid", "(institution_id, paid_at)");
+            addIndexIfMissing("booking", "idx_institution_status", "(institution_id, status)");
+            // 单列索引已被以 institution_id 开头的联合索引覆盖；离店统计改走 (institution_id, status)
+            dropIndexIfExists("booking", "idx_institution_id");
+            dropIndexIfExists("booking", "idx_institution_end");
+
+            // 机构客户列表按用户分组
+            addIndexIfMissing("booking", "idx_institution_user", "(institution_id, user_id, created_at)");
+
+            // 订单分析数据按更新时间追读变更
+            addIndexIfMissing("booking", "idx_updated_at", "(updated_at, id)");
+
+            // 投诉导出按提交时间范围流式读取
+            addIndexIfMissing("complaint", "idx_created_at", "(created_at)");
+
+            // 机构评分聚合
+            createTableIfMissing("institution_rating_stats", "CREATE TABLE institution_rating_stats (" +
+                "institution_id VARCHAR(36) PRIMARY KEY, " +
+                "review_count INT NOT NULL DEFAULT 0, " +
+                "overall_sum INT NOT NULL DEFAULT 0, " +
+                "environment_sum INT NOT NULL DEFAULT 0, " +
+                "service_sum INT NOT NULL DEFAULT 0, " +
+                "hygiene_sum INT NOT NULL DEFAULT 0, " +
+                "communication_sum INT NOT NULL DEFAULT 0, " +
+                "star1 INT NOT NULL DEFAULT 0, " +
+                "star2 INT NOT NULL DEFAULT 0, " +
+                "star3 INT NOT NULL DEFAULT 0, " +
+                "star4 INT NOT NULL DEFAULT 0, " +
+                "star5 INT NOT NULL DEFAULT 0, " +
+                "updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP" +
+                ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
+
+            // 钱包金额（分）由 INT 扩为 BIGINT，与 Money 的 long 分保持一致
+            widenToBigint("wallet", "balance", "DEFAULT 0");
+            widenToBigint("wallet", "frozen_balance", "DEFAULT 0");
+            widenToBigint("wallet", "total_income", "DEFAULT 0");
+            widenToBigint("wallet", "total_withdraw", "DEFAULT 0");
+            widenToBigint("wallet", "daily_withdraw_amount", "DEFAULT 0");
+            widenToBigint("wallet_transaction", "amount", "NOT NULL");
+            widenToBigint("wallet_transaction", "fee", "DEFAULT 0");
+            widenToBigint("wallet_transaction", "balance_before", "NOT NULL");
+            widenToBigint("wallet_transaction", "balance_after", "NOT NULL");
+            widenToBigint("recharge_order", "amount", "NOT NULL");
+            widenToBigint("withdrawal", "amount", "NOT NULL");
+            widenToBigint("withdrawal", "fee", "NOT NULL");
+            widenToBigint("withdrawal", "actual_amount", "NOT NULL");
         } catch (Exception e) {
             log.warn("添加字段时出错: {}", e.getMessage());
         }
     }
 
+    /**
+     * @return 本次是否创建了该表
+     */
+    private boolean createTableIfMissing(String table, String ddl) {
+        try {
+            // 按 information_schema 判断，空表不会被误判为不存在
+            Integer count = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM information_schema.tables WHERE table_schema = DATABASE() AND table_name = ?",
+                    Integer.class, table);
+            if (count != null && count > 0) {
+                log.info("{}表已存在", table);
+                return false;
+            }
+            log.info("创建{}表", table);
+            jdbcTemplate.execute(ddl);
+            log.info("{}表创建成功", table);
+            return true;
+        } catch (Exception e) {
+            log.warn("创建{}表失败: {}", table, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 一次性迁移：启用结算标记前已在离店时入账的订单，按已有的订单收入交易补写标记，
+     * 只在创建 settlement_item 表时执行，之后的离店入账与结算批次都会同时写入标记
+     */
+    private void backfillSettlementItems() {
+        try {
+            int marked = settlementItemMapper.insertFromIncomeTransactions();
+            log.info("结算标记补写: 已在离店时入账的订单数={}", marked);
+        } catch (Exception e) {
+            log.warn("结算标记补写失败: {}", e.getMessage());
+        }
+    }
+
+    private void addColumnIfMissing(String table, String column, String definition) {
+        try {
+            Integer count = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM information_schema.columns " +
+                    "WHERE table_schema = DATABASE() AND table_name = ? AND column_name = ?",
+                    Integer.class, table, column);
+            if (count != null && count > 0) {
+                return;
+            }
+            log.info("添加{}字段到{}表", column, table);
+            jdbcTemplate.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+        } catch (Exception e) {
+            log.warn("添加{}字段失败: {}", column, e.getMessage());
+        }
+    }
+
+    private void widenToBigint(String table, String column, String constraint) {
+        try {
+            String dataType = jdbcTemplate.queryForObject(
+                    "SELECT DATA_TYPE FROM information_schema.columns " +
+                    "WHERE table_schema = DATABASE() AND table_name = ? AND column_name = ?",
+                    String.class, table, column);
+            if ("bigint".equalsIgnoreCase(dataType)) {
+                return;
+            }
+            log.info("修改{}.{}字段类型为BIGINT", table, column);
+            jdbcTemplate.execute("ALTER TABLE " + table + " MODIFY COLUMN " + column + " BIGINT " + constraint);
+        } catch (Exception e) {
+            log.warn("修改{}.{}字段类型失败: {}", table, column, e.getMessage());
+        }
+    }
+
+    private void addIndexIfMissing(String table, String indexName, String columns) {
+        try {
+            Integer count = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM information_schema.statistics " +
+                    "WHERE table_schema = DATABASE() AND table_name = ? AND index_name = ?",
+                    Integer.class, table, indexName);
+            if (count != null && count > 0) {
+                log.info("{}表已有{}索引", table, indexName);
+                return;
+            }
+            log.info("添加{}索引到{}表", indexName, table);
+            jdbcTemplate.execute("ALTER TABLE " + table + " ADD INDEX " + indexName + " " + columns);
+        } catch (Exception e) {
+            log.warn("添加{}索引失败: {}", indexName, e.getMessage());
+        }
+    }
+
+    private void dropIndexIfExists(String table, String indexName) {
+        try {
+            Integer count = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM information_schema.statistics " +
+                    "WHERE table_schema = DATABASE() AND table_name = ? AND index_name = ?",
+                    Integer.class, table, indexName);
+            if (count == null || count == 0) {
+                return;
+            }
+            log.info("删除{}表的{}索引", table, indexName);
+            jdbcTemplate.execute("ALTER TABLE " + table + " DROP INDEX " + indexName);
+        } catch (Exception e) {
+            log.warn("删除{}索引失败: {}", indexName, e.getMessage());
+        }
+    }
+
     private void executeSqlFile(String resourcePath) throws Exception {
         try {
             ClassPathResource resource = new ClassPathResource(resourcePath);
@@ -3,11 +3,30 @@ package com.pet.controller;
 import com.pet.common.PageResult;
 import com.pet.common.Result;
 import com.pet.service.AdminService;
+import com.pet.service.AnnouncementService;
+import com.pet.service.BulkCancellationService;
 import com.pet.service.ComplaintService;
+import com.pet.service.DailyMetricsService;
+import com.pet.service.DashboardCacheService;
+import com.pet.service.ExportService;
+import com.pet.service.InstitutionRankingService;
+import com.pet.service.ModerationService;
+import com.pet.service.NotificationBroadcastService;
+import com.pet.service.SettlementService;
+import com.pet.service.WalletReconciliationService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * 管理员接口
@@ -18,6 +37,16 @@ import java.util.Map;
 public class AdminController {
     private final AdminService adminService;
     private final ComplaintService complaintService;
+    private final WalletReconciliationService reconciliationService;
+    private final BulkCancellationService bulkCancellationService;
+    private final ModerationService moderationService;
+    private final NotificationBroadcastService broadcastService;
+    private final AnnouncementService announcementService;
+    private final DailyMetricsService dailyMetricsService;
+    private final InstitutionRankingService institutionRankingService;
+    private final SettlementService settlementService;
+    private final DashboardCacheService dashboardCacheService;
+    private final ExportService exportService;
 
     // ========== 仪表盘统计 ==========
 
@@ -29,6 +58,39 @@ public class AdminController {
         return Result.success(adminService.getDashboardStats(period, startDate, endDate));
     }
 
+    /**
+     * 订单多维分析，如 groupBy=month,species&dateField=paid&paymentStatus=paid
+     */
+    @GetMapping("/analytics/bookings")
+    public Result<Map<String, Object>> getBookingAnalytics(
+            @RequestParam(required = false) String groupBy,
+            @RequestParam(required = false) String dateField,
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate,
+            @RequestParam(required = false) String institutionId,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String paymentStatus) {
+        return Result.success(adminService.getBookingAnalytics(groupBy, dateField, startDate, endDate,
+                institutionId, status, paymentStatus));
+    }
+
+    /**
+     * 仪表盘缓存命中率等统计
+     */
+    @GetMapping("/dashboard/cache/stats")
+    public Result<Map<String, Object>> getDashboardCacheStats() {
+        return Result.success(dashboardCacheService.getStats());
+    }
+
+    /**
+     * 清除仪表盘缓存，不传 endpoint 时清除全部
+     */
+    @PostMapping("/dashboard/cache/invalidate")
+    public Result<Void> invalidateDashboardCache(@RequestParam(required = false) String endpoint) {
+        dashboardCacheService.invalidate(endpoint);
+        return Result.success();
+    }
+
     // ========== 机构审核 ==========
 
     @GetMapping("/institutions")
@@ -56,6 +118,34 @@ public class AdminController {
         return Result.success(adminService.rejectInstitution(id, body.get("reason")));
     }
 
+    /**
+     * 机构停业：批量取消其未来订单并退款，后台执行，返回任务进度
+     */
+    @PostMapping("/institutions/{id}/bulk-cancel")
+    public Result<Map<String, Object>> bulkCancelBookings(
+            @PathVariable String id,
+            @RequestBody(required = false) Map<String, Object> body) {
+        String reason = body != null ? (String) body.get("reason") : null;
+        boolean fullRefund = body == null || !Boolean.FALSE.equals(body.get("fullRefund"));
+        return Result.success(bulkCancellationService.start(id, reason, fullRefund));
+    }
+
+    @GetMapping("/bulk-cancel/jobs")
+    public Result<java.util.List<Map<String, Object>>> getBulkCancelJobs(
+            @RequestParam(required = false) String institutionId) {
+        return Result.success(bulkCancellationService.getJobs(institutionId));
+    }
+
+    @GetMapping("/bulk-cancel/jobs/{id}")
+    public Result<Map<String, Object>> getBulkCancelJob(@PathVariable String id) {
+        return Result.success(bulkCancellationService.getProgress(id));
+    }
+
+    @PostMapping("/bulk-cancel/jobs/{id}/resume")
+    public Result<Map<String, Object>> resumeBulkCancelJob(@PathVariable String id) {
+        return Result.success(bulkCancellationService.resume(id));
+    }
+
     // ========== 用户管理 ==========
 
     @GetMapping("/users")
@@ -149,6 +239,102 @@ public class AdminController {
         ));
     }
 
+    // ========== 平台公告 ==========
+
+    /**
+     * 发布公告：只写一行，用户读取通知时合并，适合面向全体用户的系统公告
+     */
+    @PostMapping("/announcements")
+    public Result<Map<String, Object>> publishAnnouncement(
+            @RequestAttribute("userId") String userId,
+            @RequestBody Map<String, String> body) {
+        return Result.success(announcementService.publish(body.get("audience"), body.get("type"),
+                body.get("title"), body.get("content"), body.get("link"), userId));
+    }
+
+    @GetMapping("/announcements")
+    public Result<java.util.List<Map<String, Object>>> getAnnouncements() {
+        return Result.success(announcementService.getAnnouncements());
+    }
+
+    @DeleteMapping("/announcements/{id}")
+    public Result<Void> withdrawAnnouncement(@PathVariable Long id) {
+        announcementService.withdraw(id);
+        return Result.success(null);
+    }
+
+    // ========== 群发通知 ==========
+
+    /**
+     * 群发通知：后台分批写入，返回任务进度
+     */
+    @PostMapping("/notifications/broadcast")
+    public Result<Map<String, Object>> broadcastNotification(
+            @RequestAttribute("userId") String userId,
+            @RequestBody Map<String, String> body) {
+        return Result.success(broadcastService.start(body.get("audience"), body.get("type"),
+                body.get("title"), body.get("content"), body.get("link"), userId));
+    }
+
+    @GetMapping("/notifications/broadcasts")
+    public Result<java.util.List<Map<String, Object>>> getBroadcasts() {
+        return Result.success(broadcastService.getJobs());
+    }
+
+    @GetMapping("/notifications/broadcasts/{id}")
+    public Result<Map<String, Object>> getBroadcast(@PathVariable String id) {
+        return Result.success(broadcastService.getProgress(id));
+    }
+
+    @PostMapping("/notifications/broadcasts/{id}/resume")
+    public Result<Map<String, Object>> resumeBroadcast(@PathVariable String id) {
+        return Result.success(broadcastService.resume(id));
+    }
+
+    // ========== 内容审核 ==========
+
+    @GetMapping("/moderation/terms")
+    public Result<java.util.List<Map<String, Object>>> getModerationTerms(
+            @RequestParam(required = false) String level) {
+        return Result.success(moderationService.getTerms(level));
+    }
+
+    /**
+     * 批量添加审核词条，level 为 block（提交时拦截）或 flag（异步标记待复核）
+     */
+    @SuppressWarnings("unchecked")
+    @PostMapping("/moderation/terms")
+    public Result<Integer> addModerationTerms(@RequestBody Map<String, Object> body) {
+        return Result.success(moderationService.addTerms(
+                (java.util.List<String>) body.get("terms"), (String) body.get("level")));
+    }
+
+    @DeleteMapping("/moderation/terms/{id}")
+    public Result<Integer> removeModerationTerm(@PathVariable String id) {
+        return Result.success(moderationService.removeTerm(id));
+    }
+
+    @PostMapping("/moderation/reload")
+    public Result<Integer> reloadModerationTerms() {
+        return Result.success(moderationService.reload());
+    }
+
+    @GetMapping("/moderation/flags")
+    public Result<PageResult<Map<String, Object>>> getModerationFlags(
+            @RequestParam(required = false) String status,
+            @RequestParam(defaultValue = "1") int page,
+            @RequestParam(defaultValue = "20") int pageSize) {
+        return Result.success(moderationService.getFlags(status, page, pageSize));
+    }
+
+    @PostMapping("/moderation/flags/{id}/handle")
+    public Result<Map<String, Object>> handleModerationFlag(
+            @PathVariable String id,
+            @RequestAttribute("userId") String userId,
+            @RequestBody Map<String, String> body) {
+        return Result.success(moderationService.handleFlag(id, body.get("status"), userId));
+    }
+
     // ========== 财务管理 ==========
 
     @GetMapping("/finance/summary")
@@ -168,6 +354,19 @@ public class AdminController {
         return Result.success(adminService.getInstitutionRanking());
     }
 
+    @GetMapping("/finance/institutions/ranking/page")
+    public Result<PageResult<Map<String, Object>>> getInstitutionRankingPage(
+            @RequestParam(defaultValue = "revenue") String metric,
+            @RequestParam(defaultValue = "month") String period,
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate,
+            @RequestParam(defaultValue = "1") int page,
+            @RequestParam(defaultValue = "20") int pageSize) {
+        return Result.success(institutionRankingService.getRanking(metric, period,
+                startDate != null ? LocalDate.parse(startDate) : null,
+                endDate != null ? LocalDate.parse(endDate) : null, page, pageSize));
+    }
+
     @GetMapping("/finance/transactions")
     public Result<PageResult<Map<String, Object>>> getTransactions(
             @RequestParam(required = false) String type,
@@ -177,13 +376,134 @@ public class AdminController {
     }
 
     @GetMapping("/finance/settlements")
-    public Result<java.util.List<Map<String, Object>>> getPendingSettlements() {
-        return Result.success(adminService.getPendingSettlements());
+    public Result<java.util.List<Map<String, Object>>> getPendingSettlements(
+            @RequestParam(defaultValue = "5") int limit) {
+        return Result.success(settlementService.getPending(limit));
     }
 
+    /**
+     * 结算单个机构
+     */
     @PostMapping("/finance/settlements/{id}/process")
-    public Result<Void> processSettlement(@PathVariable String id) {
-        adminService.processSettlement(id);
+    public Result<Map<String, Object>> processSettlement(@PathVariable String id) {
+        return Result.success(settlementService.start(id));
+    }
+
+    /**
+     * 结算全部机构
+     */
+    @PostMapping("/finance/settlements/run")
+    public Result<Map<String, Object>> runSettlement() {
+        return Result.success(settlementService.start(null));
+    }
+
+    @GetMapping("/finance/settlements/batches")
+    public Result<java.util.List<Map<String, Object>>> getSettlementBatches() {
+        return Result.success(settlementService.getBatches());
+    }
+
+    @GetMapping("/finance/settlements/batches/{id}")
+    public Result<Map<String, Object>> getSettlementBatch(@PathVariable String id) {
+        return Result.success(settlementService.getProgress(id));
+    }
+
+    @PostMapping("/finance/settlements/batches/{id}/resume")
+    public Result<Map<String, Object>> resumeSettlementBatch(@PathVariable String id) {
+        return Result.success(settlementService.resume(id));
+    }
+
+    @PostMapping("/finance/reconciliation/run")
+    public Result<Void> runReconciliation() {
+        if (!reconciliationService.triggerAsync()) {
+            return Result.error("对账任务正在执行中");
+        }
         return Result.success();
     }
+
+    @GetMapping("/finance/reconciliation/report")
+    public Result<Map<String, Object>> getReconciliationReport() {
+        return Result.success(reconciliationService.getLastReport());
+    }
+
+    /**
+     * 按天重算每日指标汇总，日期格式 yyyy-MM-dd，结束日期默认今天
+     */
+    @PostMapping("/finance/metrics/rebuild")
+    public Result<Map<String, Object>> rebuildDailyMetrics(
+            @RequestParam String from,
+            @RequestParam(required = false) String to) {
+        LocalDate end = to != null ? LocalDate.parse(to) : LocalDate.now();
+        return Result.success(dailyMetricsService.startRebuild(LocalDate.parse(from), end));
+    }
+
+    // ========== 数据导出 ==========
+
+    /**
+     * 导出订单 CSV，按下单日期过滤，日期格式 yyyy-MM-dd
+     */
+    @GetMapping("/export/orders")
+    public void exportOrders(
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String paymentStatus,
+            @RequestParam(required = false) String institutionId,
+            HttpServletRequest request, HttpServletResponse response) {
+        exportService.exportOrders(parseDate(startDate), parseDate(endDate), status, paymentStatus, institutionId,
+                csvOutput("orders", request, response));
+    }
+
+    /**
+     * 导出钱包交易记录 CSV，按交易日期过滤
+     */
+    @GetMapping("/export/transactions")
+    public void exportTransactions(
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) String status,
+            HttpServletRequest request, HttpServletResponse response) {
+        exportService.exportTransactions(parseDate(startDate), parseDate(endDate), type, status,
+                csvOutput("transactions", request, response));
+    }
+
+    /**
+     * 导出投诉 CSV，按提交日期过滤
+     */
+    @GetMapping("/export/complaints")
+    public void exportComplaints(
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String category,
+            HttpServletRequest request, HttpServletResponse response) {
+        exportService.exportComplaints(parseDate(startDate), parseDate(endDate), status, category,
+                csvOutput("complaints", request, response));
+    }
+
+    private static LocalDate parseDate(String date) {
+        return date != null && !date.isEmpty() ? LocalDate.parse(date) : null;
+    }
+
+    /**
+     * CSV 响应输出，导出开始写数据时才设置响应头，之前抛出的异常仍按普通 JSON 错误返回；
+     * 客户端支持 gzip 时边写边压缩，不设置 Content-Length，由容器按分块传输
+     */
+    private static ExportService.Output csvOutput(String name, HttpServletRequest request,
+                                                  HttpServletResponse response) {
+        return () -> {
+            String filename = name + "-" + LocalDate.now().format(DateTimeFormatter.BASIC_ISO_DATE) + ".csv";
+            response.setContentType("text/csv;charset=UTF-8");
+            response.setHeader("Content-Disposition", "attachment; filename=\"" + filename + "\"");
+            response.setHeader("Cache-Control", "no-store");
+            OutputStream out = response.getOutputStream();
+            String acceptEncoding = request.getHeader("Accept-Encoding");
+            if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+                response.setHeader("Content-Encoding", "gzip");
+                response.addHeader("Vary", "Accept-Encoding");
+                out = new GZIPOutputStream(out, 8192, true);
+            }
+            return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 8192);
+        };
+    }
 }
@@ -4,6 +4,7 @@ import com.pet.common.PageResult;
 import com.pet.common.Result;
 import com.pet.service.FavoriteService;
 import com.pet.service.InstitutionService;
+import com.pet.service.RatingStatsService;
 import com.pet.service.ReviewService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
@@ -24,6 +25,7 @@ public class InstitutionController {
     private final InstitutionService institutionService;
     private final FavoriteService favoriteService;
     private final ReviewService reviewService;
+    private final RatingStatsService ratingStatsService;
 
     /**
      * 搜索机构列表
@@ -32,7 +34,7 @@ public class InstitutionController {
      * @param petType 宠物类型筛选（可选）
      * @param minRating 最低评分筛选（可选）
      * @param maxPrice 最高价格筛选（可选）
-     * @param sortBy 排序方式（可选）
+     * @param sortBy 排序方式（可选）：rating、reviewCount、recommended、distance、price
      * @param lat 用户纬度，用于距离排序（可选）
      * @param lng 用户经度，用于距离排序（可选）
      * @param page 页码，默认1
@@ -90,6 +92,17 @@ public class InstitutionController {
         return Result.success(reviewService.getByInstitution(id, sortBy, page, pageSize));
     }
 
+    /**
+     * 获取机构的评价概览
+     * 各维度平均分、星级分布和推荐指数，读取预聚合结果
+     * @param id 机构ID
+     * @return 评价概览
+     */
+    @GetMapping("/{id}/reviews/summary")
+    public Result<Map<String, Object>> getReviewSummary(@PathVariable String id) {
+        return Result.success(ratingStatsService.getSummary(id));
+    }
+
     /**
      * 检查机构在指定日期是否有空位
      * @param id 机构ID
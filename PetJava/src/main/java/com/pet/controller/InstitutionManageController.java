@@ -56,8 +56,9 @@ public class InstitutionManageController {
     public Result<PageResult<Map<String, Object>>> getCustomers(
             @RequestHeader("X-User-Id") String userId,
             @RequestParam(defaultValue = "1") int page,
-            @RequestParam(defaultValue = "20") int pageSize) {
-        return Result.success(institutionService.getCustomers(userId, page, pageSize));
+            @RequestParam(defaultValue = "20") int pageSize,
+            @RequestParam(required = false) String sortBy) {
+        return Result.success(institutionService.getCustomers(userId, page, pageSize, sortBy));
     }
 
     // ========== 订单管理 ==========
@@ -1,10 +1,14 @@
 package com.pet.controller;
 
+import com.pet.common.CursorPage;
 import com.pet.common.Result;
 import com.pet.entity.Notification;
 import com.pet.service.NotificationService;
+import com.pet.service.StreamTicketService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.HashMap;
 import java.util.List;
@@ -16,9 +20,23 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class NotificationController {
     private final NotificationService notificationService;
+    private final StreamTicketService streamTicketService;
 
     /**
-     * 获取通知列表
+     * 游标分页获取通知列表（不含正文）
+     */
+    @GetMapping("/page")
+    public Result<CursorPage<Map<String, Object>>> page(
+            @RequestHeader("X-User-Id") String userId,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) Boolean isRead,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
+        return Result.success(notificationService.getPage(userId, type, isRead, cursor, limit));
+    }
+
+    /**
+     * 获取通知列表（全部，含正文）
      */
     @GetMapping
     public Result<List<Map<String, Object>>> list(
@@ -32,6 +50,26 @@ public class NotificationController {
         return Result.success(result);
     }
 
+    /**
+     * 换取推送连接票据（需 Authorization 头），有效期 30 秒，只能使用一次
+     */
+    @PostMapping("/stream-ticket")
+    public Result<Map<String, Object>> streamTicket(@RequestAttribute("userId") String userId) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("ticket", streamTicketService.issue(userId));
+        return Result.success(result);
+    }
+
+    /**
+     * 订阅通知推送（Server-Sent Events）
+     * 事件：notification（新通知）、announcement（新公告）、unread-count（未读数量变化，连接建立时先推送一次）。
+     * 浏览器 EventSource 无法设置请求头，可用 stream-ticket 换取的票据通过 ticket 查询参数认证，不接受查询参数中的令牌
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestAttribute("userId") String userId) {
+        return notificationService.subscribe(userId);
+    }
+
     /**
      * 获取未读数量
      */
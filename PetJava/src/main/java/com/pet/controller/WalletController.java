@@ -1,5 +1,6 @@
 package com.pet.controller;
 
+import com.pet.common.Money;
 import com.pet.common.Result;
 import com.pet.service.WalletService;
 import lombok.RequiredArgsConstructor;
@@ -24,7 +25,7 @@ public class WalletController {
     public Result<Map<String, Object>> createRechargeOrder(
             @RequestAttribute("userId") String userId,
             @RequestBody Map<String, Object> data) {
-        int amount = ((Number) data.get("amount")).intValue();
+        Money amount = Money.ofFen(((Number) data.get("amount")).longValue());
         String paymentMethod = (String) data.get("paymentMethod");
         Map<String, Object> result = new HashMap<>();
         result.put("order", walletService.createRechargeOrder(userId, amount, paymentMethod));
@@ -41,7 +42,7 @@ public class WalletController {
     public Result<Map<String, Object>> createWithdrawal(
             @RequestAttribute("userId") String userId,
             @RequestBody Map<String, Object> data) {
-        int amount = ((Number) data.get("amount")).intValue();
+        Money amount = Money.ofFen(((Number) data.get("amount")).longValue());
         String accountId = (String) data.get("accountId");
         String withdrawPassword = (String) data.get("password");
         Map<String, Object> result = new HashMap<>();
@@ -0,0 +1,35 @@
+package com.pet.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 平台公告
+ * 群发只写一行，用户读取通知时与个人通知合并；
+ * 自增ID即发布顺序，用户的已读状态用 AnnouncementReadMarker 的高水位表示
+ */
+@Data
+@TableName("announcement")
+public class Announcement {
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /** 接收范围: all, pet_owner, institution_staff, admin */
+    private String audience;
+
+    private String type;
+    private String title;
+    private String content;
+    private String link;
+    private String createdBy;
+
+    @TableField(fill = FieldFill.INSERT)
+    private LocalDateTime createdAt;
+
+    @TableField(fill = FieldFill.INSERT_UPDATE)
+    private LocalDateTime updatedAt;
+
+    @TableLogic
+    private Integer deleted;
+}
@@ -0,0 +1,29 @@
+package com.pet.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 用户公告已读标记，每个用户一行
+ * ID 不大于 lastReadId 的公告均已读，其上单独已读的记在 readIds；
+ * ID 不大于 clearedId 的公告已被清除，其上单独删除的记在 hiddenIds。
+ * 两个集合在高水位推进时收缩，行大小与公告总数无关
+ */
+@Data
+@TableName("announcement_read_marker")
+public class AnnouncementReadMarker {
+    @TableId(value = "user_id", type = IdType.INPUT)
+    private String userId;
+
+    private Long lastReadId;
+    private Long clearedId;
+
+    /** 高水位之上单独标记已读的公告ID，JSON array */
+    private String readIds;
+
+    /** 清除线之上单独删除的公告ID，JSON array */
+    private String hiddenIds;
+
+    private LocalDateTime updatedAt;
+}
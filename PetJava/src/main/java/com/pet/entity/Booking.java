@@ -1,14 +1,15 @@
 package com.pet.entity;
 
 import com.baomidou.mybatisplus.annotation.*;
+import com.pet.common.Money;
 import lombok.Data;
-import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 /**
  * 预约/订单实体类
  * 对应数据库表booking，存储宠物寄养预约订单的信息
+ * 金额字段在库中为 DECIMAL 元，通过 MoneyTypeHandler 映射为 Money
  */
 @Data
 @TableName("booking")
@@ -78,17 +79,17 @@ public class Booking {
     /**
      * 基础价格
      */
-    private BigDecimal basePrice;
+    private Money basePrice;
     
     /**
      * 优惠金额
      */
-    private BigDecimal discount;
+    private Money discount;
     
     /**
      * 订单总价
      */
-    private BigDecimal totalPrice;
+    private Money totalPrice;
     
     /**
      * 支付状态：pending(待支付)、paid(已支付)、refunded(已退款)、partial_refund(部分退款)
@@ -108,7 +109,7 @@ public class Booking {
     /**
      * 退款金额
      */
-    private BigDecimal refundAmount;
+    private Money refundAmount;
     
     /**
      * 退款时间
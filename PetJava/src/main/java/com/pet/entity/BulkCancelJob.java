@@ -0,0 +1,48 @@
+package com.pet.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 批量取消任务（机构停业时取消并退款其未来订单）
+ * 每批取出仍可取消的订单处理，已取消的订单不再被选中，中断后重新扫描即可继续
+ */
+@Data
+@TableName("bulk_cancel_job")
+public class BulkCancelJob {
+    @TableId(type = IdType.ASSIGN_UUID)
+    private String id;
+
+    private String institutionId;
+    private String reason;
+
+    /** 是否全额退款；否则按 RefundCalculator 规则以任务创建时间计算 */
+    private Boolean fullRefund;
+
+    /** 只处理开始日期不早于该日期的订单 */
+    private LocalDate cutoffDate;
+
+    /** 状态: running, completed, failed */
+    private String status;
+
+    private Integer totalCount;
+    private Integer processedCount;
+    private Integer refundedCount;
+
+    /** 累计退款（单位：分） */
+    private Long refundTotal;
+
+    private String lastError;
+    private LocalDateTime finishedAt;
+
+    @TableField(fill = FieldFill.INSERT)
+    private LocalDateTime createdAt;
+
+    @TableField(fill = FieldFill.INSERT_UPDATE)
+    private LocalDateTime updatedAt;
+
+    @TableLogic
+    private Integer deleted;
+}
@@ -0,0 +1,35 @@
+package com.pet.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 平台每日指标汇总
+ * 主键 (stat_date, institution_id)，订单相关指标按机构分行，新增用户和提现记在 institution_id 为空串的平台行；
+ * 业务发生时按增量累加，回填任务按天从明细表重算。金额单位：分
+ */
+@Data
+@TableName("daily_metrics")
+public class DailyMetrics {
+    /** 平台行的机构ID */
+    public static final String PLATFORM = "";
+
+    private LocalDate statDate;
+    private String institutionId;
+
+    private Integer orderCount;
+    /** 下单金额 */
+    private Long gmv;
+    /** 平台服务费 */
+    private Long platformFee;
+    private Integer refundCount;
+    private Long refundAmount;
+
+    private Integer newUsers;
+    private Integer withdrawalCount;
+    private Long withdrawalAmount;
+
+    private LocalDateTime updatedAt;
+}
@@ -94,6 +94,11 @@ public class Institution {
      */
     private Integer reviewCount;
     
+    /**
+     * 推荐指数（贝叶斯平均），由评分聚合同步，用于搜索排序
+     */
+    private BigDecimal recommendationScore;
+    
     /**
      * 是否已认证
      */
@@ -0,0 +1,33 @@
+package com.pet.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 机构评分聚合
+ * 评价新增/删除时按增量累加，定时任务全量重算校对；
+ * 各维度保存评分之和，平均分 = 维度之和 / 评价数，starN 为总体评分为 N 星的评价数
+ */
+@Data
+@TableName("institution_rating_stats")
+public class InstitutionRatingStats {
+    @TableId(value = "institution_id", type = IdType.INPUT)
+    private String institutionId;
+
+    private Integer reviewCount;
+
+    private Integer overallSum;
+    private Integer environmentSum;
+    private Integer serviceSum;
+    private Integer hygieneSum;
+    private Integer communicationSum;
+
+    private Integer star1;
+    private Integer star2;
+    private Integer star3;
+    private Integer star4;
+    private Integer star5;
+
+    private LocalDateTime updatedAt;
+}
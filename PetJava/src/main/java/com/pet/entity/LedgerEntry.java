@@ -0,0 +1,34 @@
+package com.pet.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 复式记账分录（只追加，不修改不删除）
+ * 同一 journalId 下所有分录金额之和为 0
+ */
+@Data
+@TableName("ledger_entry")
+public class LedgerEntry {
+    /** 全局递增序号，快照以序号为水位线 */
+    @TableId(value = "seq", type = IdType.AUTO)
+    private Long seq;
+
+    /** 凭证ID，一次业务操作的一组分录共用 */
+    private String journalId;
+
+    /** 账户: wallet:{walletId} / platform:external / platform:escrow / platform:fee / platform:opening */
+    private String account;
+
+    /** 业务类型: recharge, payment, refund, income, withdrawal, opening */
+    private String entryType;
+
+    /** 金额（单位：分），正数为该账户增加，负数为减少 */
+    private Long amount;
+
+    private String relatedOrderId;
+    private String relatedWithdrawalId;
+
+    private LocalDateTime createdAt;
+}
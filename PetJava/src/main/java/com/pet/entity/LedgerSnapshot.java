@@ -0,0 +1,30 @@
+package com.pet.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 账户余额快照
+ * balance 为该账户 seq <= lastSeq 的全部分录之和，当前余额 = 最近快照 + 之后分录的回放
+ */
+@Data
+@TableName("ledger_snapshot")
+public class LedgerSnapshot {
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /** 账户 */
+    private String account;
+
+    /** 快照覆盖到的最大分录序号 */
+    private Long lastSeq;
+
+    /** 快照余额（单位：分） */
+    private Long balance;
+
+    /** 快照截止时间，覆盖的分录均早于该时间 */
+    private LocalDateTime cutoffAt;
+
+    private LocalDateTime createdAt;
+}
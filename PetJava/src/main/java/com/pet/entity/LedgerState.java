@@ -0,0 +1,21 @@
+package com.pet.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 账本状态，只有一行（id = 1）
+ * enabled 记录最近一次启动时是否启用账本，由停用转为启用时需要把钱包余额重新同步到账本；
+ * 多个实例同时启动时对该行加排他锁，只有一个实例执行同步，记账事务不访问该行
+ */
+@Data
+@TableName("ledger_state")
+public class LedgerState {
+    @TableId(type = IdType.INPUT)
+    private Integer id;
+
+    private Boolean enabled;
+
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,44 @@
+package com.pet.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 内容审核标记
+ * 评价、评价回复、投诉命中 flag 级词条后生成，由管理员复核
+ */
+@Data
+@TableName("moderation_flag")
+public class ModerationFlag {
+    @TableId(type = IdType.ASSIGN_UUID)
+    private String id;
+
+    /** 内容类型: review, review_reply, complaint */
+    private String targetType;
+    private String targetId;
+
+    /** 发布者ID，机构回复时为空 */
+    private String userId;
+
+    /** 命中的词条 JSON array */
+    private String matchedTerms;
+
+    /** 内容摘录 */
+    private String excerpt;
+
+    /** 状态: pending, confirmed, dismissed */
+    private String status;
+
+    private String handledBy;
+    private LocalDateTime handledAt;
+
+    @TableField(fill = FieldFill.INSERT)
+    private LocalDateTime createdAt;
+
+    @TableField(fill = FieldFill.INSERT_UPDATE)
+    private LocalDateTime updatedAt;
+
+    @TableLogic
+    private Integer deleted;
+}
@@ -0,0 +1,30 @@
+package com.pet.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 内容审核词条
+ * block 级词条在提交时同步拦截，flag 级词条异步命中后生成待人工复核的标记
+ */
+@Data
+@TableName("moderation_term")
+public class ModerationTerm {
+    @TableId(type = IdType.ASSIGN_UUID)
+    private String id;
+
+    private String term;
+
+    /** 级别: block, flag */
+    private String level;
+
+    @TableField(fill = FieldFill.INSERT)
+    private LocalDateTime createdAt;
+
+    @TableField(fill = FieldFill.INSERT_UPDATE)
+    private LocalDateTime updatedAt;
+
+    @TableLogic
+    private Integer deleted;
+}
@@ -17,6 +17,7 @@ public class Notification {
     private Boolean isRead;
     private String link;
     private String data;  // JSON
+    private Integer repeatCount;  // 合并的消息条数
     
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
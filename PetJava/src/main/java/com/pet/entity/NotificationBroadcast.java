@@ -0,0 +1,46 @@
+package com.pet.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 群发通知任务
+ * 按用户ID顺序分批写入通知，每批与 cursorUserId 在同一事务提交，中断后从游标之后继续，不会重复发送
+ */
+@Data
+@TableName("notification_broadcast")
+public class NotificationBroadcast {
+    @TableId(type = IdType.ASSIGN_UUID)
+    private String id;
+
+    /** 接收范围: all, pet_owner, institution_staff, admin */
+    private String audience;
+
+    private String type;
+    private String title;
+    private String content;
+    private String link;
+
+    /** 状态: running, completed, failed */
+    private String status;
+
+    /** 已发送的最后一个用户ID */
+    private String cursorUserId;
+
+    private Integer totalCount;
+    private Integer sentCount;
+
+    private String lastError;
+    private String createdBy;
+    private LocalDateTime finishedAt;
+
+    @TableField(fill = FieldFill.INSERT)
+    private LocalDateTime createdAt;
+
+    @TableField(fill = FieldFill.INSERT_UPDATE)
+    private LocalDateTime updatedAt;
+
+    @TableLogic
+    private Integer deleted;
+}
@@ -12,7 +12,7 @@ public class RechargeOrder {
     
     private String walletId;
     private String userId;
-    private Integer amount;
+    private Long amount;
     private String paymentMethod;
     private String status;
     private String paymentOrderId;
@@ -38,6 +38,15 @@ public class Review {
      */
     private String rating;
     
+    /**
+     * 各维度评分的数值列，创建评价时从 rating 写入，用于排序和聚合（rating JSON 无法走索引）
+     */
+    private Integer overallScore;
+    private Integer environmentScore;
+    private Integer serviceScore;
+    private Integer hygieneScore;
+    private Integer communicationScore;
+    
     /**
      * 评价内容
      */
@@ -0,0 +1,47 @@
+package com.pet.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 结算批次
+ * 把截止时间前完成、尚未结算的已支付订单按机构汇总后转入机构钱包。
+ * 按机构ID顺序分批处理，每批提交后推进 cursorId，中断后从 cursorId 之后继续
+ */
+@Data
+@TableName("settlement_batch")
+public class SettlementBatch {
+    @TableId(type = IdType.ASSIGN_UUID)
+    private String id;
+
+    /** 只结算该机构，为空表示全部机构 */
+    private String institutionId;
+
+    /** 只结算离店时间早于该时间的订单 */
+    private LocalDateTime cutoffTime;
+
+    /** 状态: running, completed, failed */
+    private String status;
+
+    /** 已处理的最后一个机构ID */
+    private String cursorId;
+
+    private Integer institutionCount;
+    private Integer bookingCount;
+
+    /** 结算总额（单位：分） */
+    private Long totalAmount;
+
+    private String lastError;
+    private LocalDateTime finishedAt;
+
+    @TableField(fill = FieldFill.INSERT)
+    private LocalDateTime createdAt;
+
+    @TableField(fill = FieldFill.INSERT_UPDATE)
+    private LocalDateTime updatedAt;
+
+    @TableLogic
+    private Integer deleted;
+}
@@ -0,0 +1,26 @@
+package com.pet.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 订单结算标记，每个订单至多一行
+ * 以订单ID为主键，同一订单无论经离店即时入账还是批次结算都只能写入一次，重复执行不会重复入账
+ */
+@Data
+@TableName("settlement_item")
+public class SettlementItem {
+    @TableId(value = "booking_id", type = IdType.INPUT)
+    private String bookingId;
+
+    /** 所属结算批次，离店时即时入账的为空 */
+    private String batchId;
+
+    private String institutionId;
+
+    /** 入账金额（单位：分） */
+    private Long amount;
+
+    private LocalDateTime createdAt;
+}
@@ -13,13 +13,13 @@ public class Wallet {
     
     private String userId;
     private String userType;
-    private Integer balance;
-    private Integer frozenBalance;
-    private Integer totalIncome;
-    private Integer totalWithdraw;
+    private Long balance;
+    private Long frozenBalance;
+    private Long totalIncome;
+    private Long totalWithdraw;
     private String withdrawPassword;
     private String status;
-    private Integer dailyWithdrawAmount;
+    private Long dailyWithdrawAmount;
     private Integer dailyWithdrawCount;
     private LocalDate lastWithdrawDate;
     
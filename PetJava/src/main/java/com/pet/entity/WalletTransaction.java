@@ -13,10 +13,10 @@ public class WalletTransaction {
     private String walletId;
     private String userId;
     private String type;
-    private Integer amount;
-    private Integer fee;
-    private Integer balanceBefore;
-    private Integer balanceAfter;
+    private Long amount;
+    private Long fee;
+    private Long balanceBefore;
+    private Long balanceAfter;
     private String status;
     private String description;
     private String relatedOrderId;
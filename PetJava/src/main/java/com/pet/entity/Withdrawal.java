@@ -12,9 +12,9 @@ public class Withdrawal {
     
     private String walletId;
     private String userId;
-    private Integer amount;
-    private Integer fee;
-    private Integer actualAmount;
+    private Long amount;
+    private Long fee;
+    private Long actualAmount;
     private String accountId;
     private String status;
     private String auditRemark;
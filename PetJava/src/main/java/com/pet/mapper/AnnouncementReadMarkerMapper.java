@@ -0,0 +1,19 @@
+package com.pet.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.pet.entity.AnnouncementReadMarker;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+@Mapper
+public interface AnnouncementReadMarkerMapper extends BaseMapper<AnnouncementReadMarker> {
+
+    @Insert("INSERT IGNORE INTO announcement_read_marker (user_id, last_read_id, cleared_id, read_ids, hidden_ids, updated_at) " +
+            "VALUES (#{userId}, 0, 0, '[]', '[]', NOW())")
+    int insertIfAbsent(@Param("userId") String userId);
+
+    @Select("SELECT * FROM announcement_read_marker WHERE user_id = #{userId} FOR UPDATE")
+    AnnouncementReadMarker selectForUpdate(@Param("userId") String userId);
+}
@@ -2,7 +2,19 @@ package com.pet.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.pet.entity.Booking;
+import com.pet.util.BookingColumns;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 
 /**
  * 订单数据访问接口
@@ -10,4 +22,210 @@ import org.apache.ibatis.annotations.Mapper;
  */
 @Mapper
 public interface BookingMapper extends BaseMapper<Booking> {
+
+    /**
+     * 一条语句取消一批订单，各订单的支付状态、退款金额、退款时间取自传入对象
+     */
+    @Update("<script>" +
+            "UPDATE booking SET status = 'cancelled', cancel_reason = #{reason}, updated_at = NOW(), " +
+            "payment_status = CASE id " +
+            "<foreach collection='bookings' item='b' separator=' '>WHEN #{b.id} THEN #{b.paymentStatus}</foreach> END, " +
+            "refund_amount = CASE id " +
+            "<foreach collection='bookings' item='b' separator=' '>WHEN #{b.id} THEN #{b.refundAmount}</foreach> END, " +
+            "refunded_at = CASE id " +
+            "<foreach collection='bookings' item='b' separator=' '>WHEN #{b.id} THEN #{b.refundedAt}</foreach> END " +
+            "WHERE deleted = 0 AND id IN " +
+            "<foreach collection='bookings' item='b' open='(' separator=',' close=')'>#{b.id}</foreach>" +
+            "</script>")
+    int cancelBatch(@Param("bookings") List<Booking> bookings, @Param("reason") String reason);
+
+    // ========== 统计（[from, to) 按下单时间） ==========
+
+    /**
+     * 按订单状态汇总订单数和金额
+     */
+    @Select("SELECT status, COUNT(*) AS count, COALESCE(SUM(total_price), 0) AS revenue " +
+            "FROM booking WHERE deleted = 0 AND created_at >= #{from} AND created_at < #{to} " +
+            "GROUP BY status")
+    List<Map<String, Object>> sumByStatus(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * 订单数最多的机构
+     */
+    @Select("SELECT institution_id AS institutionId, COUNT(*) AS count, COALESCE(SUM(total_price), 0) AS revenue " +
+            "FROM booking WHERE deleted = 0 AND created_at >= #{from} AND created_at < #{to} " +
+            "GROUP BY institution_id ORDER BY count DESC LIMIT #{limit}")
+    List<Map<String, Object>> sumByInstitution(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                               @Param("limit") int limit);
+
+    /**
+     * 下过单的用户数
+     */
+    @Select("SELECT COUNT(DISTINCT user_id) FROM booking " +
+            "WHERE deleted = 0 AND created_at >= #{from} AND created_at < #{to}")
+    long countDistinctUsers(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // ========== 机构仪表盘（按机构 + 日期列的联合索引做范围查询） ==========
+
+    /**
+     * 寄养开始日期在 [from, to] 内的订单按状态汇总，revenue 为其中已支付订单的金额
+     */
+    @Select("SELECT status, COUNT(*) AS count, " +
+            "COALESCE(SUM(CASE WHEN payment_status = 'paid' THEN total_price END), 0) AS revenue " +
+            "FROM booking WHERE deleted = 0 AND institution_id = #{institutionId} " +
+            "AND start_date >= #{from} AND start_date <= #{to} GROUP BY status")
+    List<Map<String, Object>> sumByStatusStarting(@Param("institutionId") String institutionId,
+                                                  @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * 某天入住的订单数（已确认或进行中）
+     */
+    @Select("SELECT COUNT(*) FROM booking WHERE deleted = 0 AND institution_id = #{institutionId} " +
+            "AND start_date = #{day} AND status IN ('confirmed', 'in_progress')")
+    long countCheckIn(@Param("institutionId") String institutionId, @Param("day") LocalDate day);
+
+    /**
+     * 某天离店的订单数（进行中），按 (institution_id, status) 定位进行中的订单后过滤离店日期
+     */
+    @Select("SELECT COUNT(*) FROM booking WHERE deleted = 0 AND institution_id = #{institutionId} " +
+            "AND end_date = #{day} AND status = 'in_progress'")
+    long countCheckOut(@Param("institutionId") String institutionId, @Param("day") LocalDate day);
+
+    /**
+     * 当前进行中的订单数
+     */
+    @Select("SELECT COUNT(*) FROM booking WHERE deleted = 0 AND institution_id = #{institutionId} " +
+            "AND status = 'in_progress'")
+    long countInProgress(@Param("institutionId") String institutionId);
+
+    /**
+     * 支付时间在 [from, to) 内的已支付订单按月汇总金额，month 为 yyyy-MM
+     */
+    @Select("SELECT DATE_FORMAT(paid_at, '%Y-%m') AS month, COALESCE(SUM(total_price), 0) AS revenue " +
+            "FROM booking WHERE deleted = 0 AND institution_id = #{institutionId} AND payment_status = 'paid' " +
+            "AND paid_at >= #{from} AND paid_at < #{to} GROUP BY month")
+    List<Map<String, Object>> sumPaidByMonth(@Param("institutionId") String institutionId,
+                                             @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * 支付时间在 [from, to) 内的已支付订单按天汇总金额
+     */
+    @Select("SELECT DATE(paid_at) AS day, COALESCE(SUM(total_price), 0) AS revenue " +
+            "FROM booking WHERE deleted = 0 AND institution_id = #{institutionId} AND payment_status = 'paid' " +
+            "AND paid_at >= #{from} AND paid_at < #{to} GROUP BY DATE(paid_at)")
+    List<Map<String, Object>> sumPaidByDay(@Param("institutionId") String institutionId,
+                                           @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * 下单时间在 [from, to) 内的订单按天汇总，revenue 为其中已支付订单的金额
+     */
+    @Select("SELECT DATE(created_at) AS day, COUNT(*) AS count, " +
+            "COALESCE(SUM(CASE WHEN payment_status = 'paid' THEN total_price END), 0) AS revenue " +
+            "FROM booking WHERE deleted = 0 AND institution_id = #{institutionId} " +
+            "AND created_at >= #{from} AND created_at < #{to} GROUP BY DATE(created_at)")
+    List<Map<String, Object>> sumCreatedByDay(@Param("institutionId") String institutionId,
+                                              @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * 下单时间在 [from, to) 内的订单按套餐计数
+     */
+    @Select("SELECT service_package_id AS packageId, COUNT(*) AS count " +
+            "FROM booking WHERE deleted = 0 AND institution_id = #{institutionId} " +
+            "AND created_at >= #{from} AND created_at < #{to} GROUP BY service_package_id")
+    List<Map<String, Object>> countByPackage(@Param("institutionId") String institutionId,
+                                             @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * 下单时间在 [from, to) 内的订单按星期计数，weekday 1 为周一，7 为周日
+     */
+    @Select("SELECT WEEKDAY(created_at) + 1 AS weekday, COUNT(*) AS count " +
+            "FROM booking WHERE deleted = 0 AND institution_id = #{institutionId} " +
+            "AND created_at >= #{from} AND created_at < #{to} GROUP BY weekday")
+    List<Map<String, Object>> countByWeekday(@Param("institutionId") String institutionId,
+                                             @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * 下单时间在 [from, to) 内的订单按宠物种类计数，没有种类的计为 other
+     */
+    @Select("SELECT COALESCE(p.species, 'other') AS species, COUNT(*) AS count " +
+            "FROM booking b JOIN pet p ON p.id = b.pet_id " +
+            "WHERE b.deleted = 0 AND b.institution_id = #{institutionId} " +
+            "AND b.created_at >= #{from} AND b.created_at < #{to} GROUP BY species")
+    List<Map<String, Object>> countBySpecies(@Param("institutionId") String institutionId,
+                                             @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // ========== 机构客户 ==========
+
+    /**
+     * 机构客户数（下过单的用户数）
+     */
+    @Select("SELECT COUNT(DISTINCT user_id) FROM booking WHERE deleted = 0 AND institution_id = #{institutionId}")
+    long countCustomers(@Param("institutionId") String institutionId);
+
+    /**
+     * 按用户分组的机构客户一页：订单数、已支付金额、最近下单时间
+     * @param sortBy orderCount、totalSpent，其他值按最近下单时间，均为倒序
+     */
+    @Select("<script>" +
+            "SELECT user_id AS userId, COUNT(*) AS orderCount, " +
+            "COALESCE(SUM(CASE WHEN payment_status = 'paid' THEN total_price END), 0) AS totalSpent, " +
+            "MAX(created_at) AS lastOrderDate " +
+            "FROM booking WHERE deleted = 0 AND institution_id = #{institutionId} " +
+            "GROUP BY user_id ORDER BY " +
+            "<choose>" +
+            "<when test=\"sortBy == 'orderCount'\">orderCount</when>" +
+            "<when test=\"sortBy == 'totalSpent'\">totalSpent</when>" +
+            "<otherwise>lastOrderDate</otherwise>" +
+            "</choose> DESC, user_id LIMIT #{offset}, #{limit}" +
+            "</script>")
+    List<Map<String, Object>> selectCustomerPage(@Param("institutionId") String institutionId,
+                                                 @Param("sortBy") String sortBy,
+                                                 @Param("offset") long offset, @Param("limit") int limit);
+
+    /**
+     * 一批用户在机构的最近一个订单的状态，customers 中每项含 userId 和 lastOrderDate
+     */
+    @Select("<script>" +
+            "SELECT user_id AS userId, status FROM booking " +
+            "WHERE deleted = 0 AND institution_id = #{institutionId} AND (user_id, created_at) IN " +
+            "<foreach collection='customers' item='c' open='(' separator=',' close=')'>(#{c.userId}, #{c.lastOrderDate})</foreach>" +
+            "</script>")
+    List<Map<String, Object>> selectLastOrderStatus(@Param("institutionId") String institutionId,
+                                                    @Param("customers") List<Map<String, Object>> customers);
+
+    // ========== 导出 ==========
+
+    /**
+     * 按下单时间顺序流式读取订单（[from, to)），条件为空时不过滤
+     * fetchSize 为 Integer.MIN_VALUE 时 MySQL 驱动逐行返回，内存占用与总行数无关；
+     * 流式读取期间所在连接不能执行其他语句，必须在事务内调用
+     */
+    @Select("<script>" +
+            "SELECT * FROM booking WHERE deleted = 0 " +
+            "<if test='from != null'>AND created_at &gt;= #{from} </if>" +
+            "<if test='to != null'>AND created_at &lt; #{to} </if>" +
+            "<if test='status != null'>AND status = #{status} </if>" +
+            "<if test='paymentStatus != null'>AND payment_status = #{paymentStatus} </if>" +
+            "<if test='institutionId != null'>AND institution_id = #{institutionId} </if>" +
+            "ORDER BY created_at, id" +
+            "</script>")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    Cursor<Booking> streamForExport(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                    @Param("status") String status, @Param("paymentStatus") String paymentStatus,
+                                    @Param("institutionId") String institutionId);
+
+    // ========== 变更流 ==========
+
+    /**
+     * 按 (updated_at, id) 顺序读取 after 之后变更过的订单，含已逻辑删除的订单，供列存分析数据增量同步
+     */
+    @Select("SELECT b.id, b.institution_id, b.service_package_id, b.status, b.payment_status, p.species, " +
+            "b.created_at, b.start_date, b.end_date, b.paid_at, " +
+            "ROUND(b.total_price * 100) AS total_fen, ROUND(COALESCE(b.refund_amount, 0) * 100) AS refund_fen, " +
+            "b.deleted, b.updated_at " +
+            "FROM booking b LEFT JOIN pet p ON p.id = b.pet_id " +
+            "WHERE b.updated_at > #{since} OR (b.updated_at = #{since} AND b.id > #{afterId}) " +
+            "ORDER BY b.updated_at, b.id LIMIT #{limit}")
+    List<BookingColumns.Row> selectChangedSince(@Param("since") LocalDateTime since, @Param("afterId") String afterId,
+                                                @Param("limit") int limit);
 }
@@ -0,0 +1,9 @@
+package com.pet.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.pet.entity.BulkCancelJob;
+import org.apache.ibatis.annotations.Mapper;
+
+@Mapper
+public interface BulkCancelJobMapper extends BaseMapper<BulkCancelJob> {
+}
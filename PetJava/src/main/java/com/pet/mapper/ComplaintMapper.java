@@ -3,7 +3,31 @@ package com.pet.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.pet.entity.Complaint;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
+
+import java.time.LocalDateTime;
 
 @Mapper
 public interface ComplaintMapper extends BaseMapper<Complaint> {
+
+    /**
+     * 按提交时间顺序流式读取投诉（[from, to)），条件为空时不过滤
+     * fetchSize 为 Integer.MIN_VALUE 时 MySQL 驱动逐行返回，内存占用与总行数无关；
+     * 流式读取期间所在连接不能执行其他语句，必须在事务内调用
+     */
+    @Select("<script>" +
+            "SELECT * FROM complaint WHERE deleted = 0 " +
+            "<if test='from != null'>AND created_at &gt;= #{from} </if>" +
+            "<if test='to != null'>AND created_at &lt; #{to} </if>" +
+            "<if test='status != null'>AND status = #{status} </if>" +
+            "<if test='category != null'>AND category = #{category} </if>" +
+            "ORDER BY created_at, id" +
+            "</script>")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    Cursor<Complaint> streamForExport(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                      @Param("status") String status, @Param("category") String category);
 }
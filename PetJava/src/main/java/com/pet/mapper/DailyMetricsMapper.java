@@ -0,0 +1,107 @@
+package com.pet.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.pet.entity.DailyMetrics;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@Mapper
+public interface DailyMetricsMapper extends BaseMapper<DailyMetrics> {
+
+    /**
+     * 原子累加增量，行不存在时以增量为初值插入
+     */
+    @Insert("INSERT INTO daily_metrics (stat_date, institution_id, order_count, gmv, platform_fee, refund_count, " +
+            "refund_amount, new_users, withdrawal_count, withdrawal_amount, updated_at) " +
+            "VALUES (#{m.statDate}, #{m.institutionId}, #{m.orderCount}, #{m.gmv}, #{m.platformFee}, #{m.refundCount}, " +
+            "#{m.refundAmount}, #{m.newUsers}, #{m.withdrawalCount}, #{m.withdrawalAmount}, NOW()) " +
+            "ON DUPLICATE KEY UPDATE order_count = order_count + VALUES(order_count), " +
+            "gmv = gmv + VALUES(gmv), platform_fee = platform_fee + VALUES(platform_fee), " +
+            "refund_count = refund_count + VALUES(refund_count), refund_amount = refund_amount + VALUES(refund_amount), " +
+            "new_users = new_users + VALUES(new_users), withdrawal_count = withdrawal_count + VALUES(withdrawal_count), " +
+            "withdrawal_amount = withdrawal_amount + VALUES(withdrawal_amount), updated_at = NOW()")
+    int addDelta(@Param("m") DailyMetrics delta);
+
+    // ========== 读取 ==========
+
+    /**
+     * 时间段内全平台合计
+     */
+    @Select("SELECT COALESCE(SUM(order_count), 0) AS orderCount, COALESCE(SUM(gmv), 0) AS gmv, " +
+            "COALESCE(SUM(platform_fee), 0) AS platformFee, COALESCE(SUM(refund_count), 0) AS refundCount, " +
+            "COALESCE(SUM(refund_amount), 0) AS refundAmount, COALESCE(SUM(new_users), 0) AS newUsers, " +
+            "COALESCE(SUM(withdrawal_count), 0) AS withdrawalCount, " +
+            "COALESCE(SUM(withdrawal_amount), 0) AS withdrawalAmount " +
+            "FROM daily_metrics WHERE stat_date >= #{from} AND stat_date <= #{to}")
+    Map<String, Object> sumRange(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * 时间段内按月合计（趋势图）
+     */
+    @Select("SELECT DATE_FORMAT(stat_date, '%Y-%m') AS month, SUM(order_count) AS orderCount, SUM(gmv) AS gmv, " +
+            "SUM(platform_fee) AS platformFee, SUM(refund_amount) AS refundAmount, SUM(new_users) AS newUsers " +
+            "FROM daily_metrics WHERE stat_date >= #{from} AND stat_date <= #{to} " +
+            "GROUP BY DATE_FORMAT(stat_date, '%Y-%m')")
+    List<Map<String, Object>> sumByMonth(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * 流式读取时间段内每个机构的合计，每个机构一行（金额单位：分）
+     * fetchSize 为 Integer.MIN_VALUE 时 MySQL 驱动逐行返回，内存占用与机构数无关；
+     * 流式读取期间所在连接不能执行其他语句，必须在事务内调用
+     */
+    @Select("SELECT institution_id AS institutionId, SUM(order_count) AS orderCount, SUM(gmv) AS gmv, " +
+            "SUM(refund_amount) AS refundAmount " +
+            "FROM daily_metrics WHERE institution_id <> '' AND stat_date >= #{from} AND stat_date <= #{to} " +
+            "GROUP BY institution_id")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    Cursor<Map<String, Object>> streamSumByInstitution(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Select("SELECT MIN(DATE(created_at)) FROM booking WHERE deleted = 0")
+    LocalDate selectFirstBookingDate();
+
+    // ========== 按天重算（[from, to) 为当天） ==========
+
+    @Delete("DELETE FROM daily_metrics WHERE stat_date = #{day}")
+    int deleteDay(@Param("day") LocalDate day);
+
+    @Insert("INSERT INTO daily_metrics (stat_date, institution_id, order_count, gmv, platform_fee, updated_at) " +
+            "SELECT #{day}, institution_id, COUNT(*), ROUND(SUM(total_price) * 100), " +
+            "SUM(ROUND(total_price * 100 * #{feeRate})), NOW() " +
+            "FROM booking WHERE deleted = 0 AND created_at >= #{from} AND created_at < #{to} " +
+            "GROUP BY institution_id")
+    int rebuildOrders(@Param("day") LocalDate day, @Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                      @Param("feeRate") BigDecimal feeRate);
+
+    @Insert("INSERT INTO daily_metrics (stat_date, institution_id, refund_count, refund_amount, updated_at) " +
+            "SELECT #{day}, institution_id, COUNT(*), ROUND(SUM(refund_amount) * 100), NOW() " +
+            "FROM booking WHERE deleted = 0 AND refund_amount > 0 AND refunded_at >= #{from} AND refunded_at < #{to} " +
+            "GROUP BY institution_id " +
+            "ON DUPLICATE KEY UPDATE refund_count = VALUES(refund_count), refund_amount = VALUES(refund_amount)")
+    int rebuildRefunds(@Param("day") LocalDate day, @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Insert("INSERT INTO daily_metrics (stat_date, institution_id, new_users, updated_at) " +
+            "SELECT #{day}, '', COUNT(*), NOW() FROM user " +
+            "WHERE deleted = 0 AND created_at >= #{from} AND created_at < #{to} HAVING COUNT(*) > 0 " +
+            "ON DUPLICATE KEY UPDATE new_users = VALUES(new_users)")
+    int rebuildNewUsers(@Param("day") LocalDate day, @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Insert("INSERT INTO daily_metrics (stat_date, institution_id, withdrawal_count, withdrawal_amount, updated_at) " +
+            "SELECT #{day}, '', COUNT(*), SUM(amount), NOW() FROM withdrawal " +
+            "WHERE created_at >= #{from} AND created_at < #{to} HAVING COUNT(*) > 0 " +
+            "ON DUPLICATE KEY UPDATE withdrawal_count = VALUES(withdrawal_count), " +
+            "withdrawal_amount = VALUES(withdrawal_amount)")
+    int rebuildWithdrawals(@Param("day") LocalDate day, @Param("from") LocalDateTime from,
+                           @Param("to") LocalDateTime to);
+}
@@ -3,6 +3,11 @@ package com.pet.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.pet.entity.Institution;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
+import java.util.Map;
 
 /**
  * 寄养机构数据访问接口
@@ -10,4 +15,17 @@ import org.apache.ibatis.annotations.Mapper;
  */
 @Mapper
 public interface InstitutionMapper extends BaseMapper<Institution> {
+
+    /**
+     * 按地区统计机构数：地址包含哪个地区名即归入该地区（按传入顺序取第一个），都不包含的归入"其他"
+     */
+    @Select("<script>" +
+            "SELECT region AS name, COUNT(*) AS count FROM (" +
+            "SELECT CASE " +
+            "<foreach collection='regions' item='r'>WHEN address LIKE CONCAT('%', #{r}, '%') THEN #{r} </foreach>" +
+            "ELSE '其他' END AS region " +
+            "FROM institution WHERE deleted = 0 AND address IS NOT NULL AND address &lt;&gt; ''" +
+            ") t GROUP BY region ORDER BY count DESC" +
+            "</script>")
+    List<Map<String, Object>> countByRegion(@Param("regions") List<String> regions);
 }
@@ -0,0 +1,111 @@
+package com.pet.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.pet.entity.InstitutionRatingStats;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.List;
+
+@Mapper
+public interface InstitutionRatingStatsMapper extends BaseMapper<InstitutionRatingStats> {
+
+    /**
+     * 聚合同步到机构表的列
+     * 推荐指数中的 35 = C * m、10 = C，对应 RatingCalculator.RECOMMENDATION_CONFIDENCE 与 RECOMMENDATION_PRIOR
+     */
+    String SYNC_COLUMNS = "i.rating = IF(s.review_count > 0, ROUND(s.overall_sum / s.review_count, 1), 0), " +
+            "i.review_count = s.review_count, " +
+            "i.recommendation_score = IF(s.review_count > 0, ROUND((s.overall_sum + 35) / (s.review_count + 10), 1), 0)";
+
+    /**
+     * 有评价但推荐指数尚未同步的机构（有评价时推荐指数不会为 0）
+     */
+    String UNSYNCED = "s.review_count > 0 AND (i.recommendation_score IS NULL OR i.recommendation_score = 0)";
+
+    /**
+     * 原子累加一条评价的增量（删除评价时传入负值），聚合行不存在时创建
+     */
+    @Insert("INSERT INTO institution_rating_stats (institution_id, review_count, overall_sum, environment_sum, " +
+            "service_sum, hygiene_sum, communication_sum, star1, star2, star3, star4, star5, updated_at) " +
+            "VALUES (#{institutionId}, #{reviewCount}, #{overallSum}, #{environmentSum}, #{serviceSum}, #{hygieneSum}, " +
+            "#{communicationSum}, #{star1}, #{star2}, #{star3}, #{star4}, #{star5}, NOW()) " +
+            "ON DUPLICATE KEY UPDATE review_count = review_count + VALUES(review_count), " +
+            "overall_sum = overall_sum + VALUES(overall_sum), environment_sum = environment_sum + VALUES(environment_sum), " +
+            "service_sum = service_sum + VALUES(service_sum), hygiene_sum = hygiene_sum + VALUES(hygiene_sum), " +
+            "communication_sum = communication_sum + VALUES(communication_sum), " +
+            "star1 = star1 + VALUES(star1), star2 = star2 + VALUES(star2), star3 = star3 + VALUES(star3), " +
+            "star4 = star4 + VALUES(star4), star5 = star5 + VALUES(star5), updated_at = NOW()")
+    int applyDelta(InstitutionRatingStats delta);
+
+    /**
+     * 用重算结果覆盖聚合行
+     */
+    @Insert("INSERT INTO institution_rating_stats (institution_id, review_count, overall_sum, environment_sum, " +
+            "service_sum, hygiene_sum, communication_sum, star1, star2, star3, star4, star5, updated_at) " +
+            "VALUES (#{institutionId}, #{reviewCount}, #{overallSum}, #{environmentSum}, #{serviceSum}, #{hygieneSum}, " +
+            "#{communicationSum}, #{star1}, #{star2}, #{star3}, #{star4}, #{star5}, NOW()) " +
+            "ON DUPLICATE KEY UPDATE review_count = VALUES(review_count), " +
+            "overall_sum = VALUES(overall_sum), environment_sum = VALUES(environment_sum), " +
+            "service_sum = VALUES(service_sum), hygiene_sum = VALUES(hygiene_sum), " +
+            "communication_sum = VALUES(communication_sum), " +
+            "star1 = VALUES(star1), star2 = VALUES(star2), star3 = VALUES(star3), " +
+            "star4 = VALUES(star4), star5 = VALUES(star5), updated_at = NOW()")
+    int upsert(InstitutionRatingStats stats);
+
+    @Select("SELECT * FROM institution_rating_stats WHERE institution_id = #{institutionId} FOR UPDATE")
+    InstitutionRatingStats selectForUpdate(@Param("institutionId") String institutionId);
+
+    /**
+     * 从评价表全量聚合（校对用）
+     */
+    @Select("SELECT institution_id AS institutionId, COUNT(*) AS reviewCount, " +
+            "COALESCE(SUM(overall_score), 0) AS overallSum, " +
+            "COALESCE(SUM(environment_score), 0) AS environmentSum, " +
+            "COALESCE(SUM(service_score), 0) AS serviceSum, " +
+            "COALESCE(SUM(hygiene_score), 0) AS hygieneSum, " +
+            "COALESCE(SUM(communication_score), 0) AS communicationSum, " +
+            "COALESCE(SUM(overall_score = 1), 0) AS star1, " +
+            "COALESCE(SUM(overall_score = 2), 0) AS star2, " +
+            "COALESCE(SUM(overall_score = 3), 0) AS star3, " +
+            "COALESCE(SUM(overall_score = 4), 0) AS star4, " +
+            "COALESCE(SUM(overall_score = 5), 0) AS star5 " +
+            "FROM review WHERE deleted = 0 GROUP BY institution_id")
+    List<InstitutionRatingStats> aggregateAll();
+
+    @Select("SELECT institution_id AS institutionId, COUNT(*) AS reviewCount, " +
+            "COALESCE(SUM(overall_score), 0) AS overallSum, " +
+            "COALESCE(SUM(environment_score), 0) AS environmentSum, " +
+            "COALESCE(SUM(service_score), 0) AS serviceSum, " +
+            "COALESCE(SUM(hygiene_score), 0) AS hygieneSum, " +
+            "COALESCE(SUM(communication_score), 0) AS communicationSum, " +
+            "COALESCE(SUM(overall_score = 1), 0) AS star1, " +
+            "COALESCE(SUM(overall_score = 2), 0) AS star2, " +
+            "COALESCE(SUM(overall_score = 3), 0) AS star3, " +
+            "COALESCE(SUM(overall_score = 4), 0) AS star4, " +
+            "COALESCE(SUM(overall_score = 5), 0) AS star5 " +
+            "FROM review WHERE deleted = 0 AND institution_id = #{institutionId} GROUP BY institution_id")
+    InstitutionRatingStats aggregateOne(@Param("institutionId") String institutionId);
+
+    /**
+     * 把聚合结果同步到机构表的 rating、review_count、recommendation_score（列表、搜索排序仍读机构表）
+     * 推荐指数 = (评分之和 + C * m) / (评价数 + C)，与 RatingCalculator.calculateRecommendationScoreBySum 一致
+     */
+    @Update("UPDATE institution i JOIN institution_rating_stats s ON s.institution_id = i.id " +
+            "SET " + SYNC_COLUMNS + " WHERE i.id = #{institutionId}")
+    int syncInstitution(@Param("institutionId") String institutionId);
+
+    @Select("SELECT EXISTS(SELECT 1 FROM institution i JOIN institution_rating_stats s ON s.institution_id = i.id " +
+            "WHERE " + UNSYNCED + ")")
+    boolean hasUnsyncedInstitutions();
+
+    /**
+     * 回填推荐指数未同步的机构，用于新增 recommendation_score 列后的初始化
+     */
+    @Update("UPDATE institution i JOIN institution_rating_stats s ON s.institution_id = i.id SET " + SYNC_COLUMNS +
+            " WHERE " + UNSYNCED)
+    int syncUnsyncedInstitutions();
+}
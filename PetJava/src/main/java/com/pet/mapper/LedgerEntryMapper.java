@@ -0,0 +1,83 @@
+package com.pet.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.pet.entity.LedgerEntry;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@Mapper
+public interface LedgerEntryMapper extends BaseMapper<LedgerEntry> {
+
+    /**
+     * 一条语句写入一张凭证的全部分录
+     */
+    @Insert("<script>" +
+            "INSERT INTO ledger_entry (journal_id, account, entry_type, amount, related_order_id, related_withdrawal_id, created_at) VALUES " +
+            "<foreach collection='entries' item='e' separator=','>" +
+            "(#{e.journalId}, #{e.account}, #{e.entryType}, #{e.amount}, #{e.relatedOrderId}, #{e.relatedWithdrawalId}, #{e.createdAt})" +
+            "</foreach>" +
+            "</script>")
+    int insertBatch(@Param("entries") List<LedgerEntry> entries);
+
+    /**
+     * 快照之后的分录回放（走 idx_account_seq）
+     */
+    @Select("SELECT COALESCE(SUM(amount), 0) FROM ledger_entry WHERE account = #{account} AND seq > #{afterSeq}")
+    long sumAfter(@Param("account") String account, @Param("afterSeq") long afterSeq);
+
+    /**
+     * 快照之后、指定时间之前的分录回放，用于时点余额
+     */
+    @Select("SELECT COALESCE(SUM(amount), 0) FROM ledger_entry " +
+            "WHERE account = #{account} AND seq > #{afterSeq} AND created_at <= #{until}")
+    long sumAfterUntil(@Param("account") String account, @Param("afterSeq") long afterSeq,
+                       @Param("until") LocalDateTime until);
+
+    /**
+     * 当前已提交的最大序号，作为快照水位线候选
+     */
+    @Select("SELECT COALESCE(MAX(seq), 0) FROM ledger_entry")
+    long selectMaxSeq();
+
+    @Select("SELECT NOW()")
+    LocalDateTime selectNow();
+
+    /**
+     * 在 before 之前开始、且已写入数据的未结束事务数（需要 PROCESS 权限）
+     * 已分配序号但未提交的分录只可能属于这些事务
+     */
+    @Select("SELECT COUNT(*) FROM information_schema.innodb_trx " +
+            "WHERE trx_started <= #{before} AND trx_rows_modified > 0")
+    int countWritersStartedBefore(@Param("before") LocalDateTime before);
+
+    /**
+     * 序号区间内分录的最晚记账时间，作为快照截止时间
+     */
+    @Select("SELECT MAX(created_at) FROM ledger_entry WHERE seq > #{fromSeq} AND seq <= #{toSeq}")
+    LocalDateTime selectMaxCreatedAt(@Param("fromSeq") long fromSeq, @Param("toSeq") long toSeq);
+
+    /**
+     * 账户在时间段内按业务类型汇总
+     */
+    @Select("SELECT entry_type AS entryType, COUNT(*) AS count, COALESCE(SUM(amount), 0) AS amount " +
+            "FROM ledger_entry WHERE account = #{account} AND created_at >= #{from} AND created_at < #{to} " +
+            "GROUP BY entry_type")
+    List<Map<String, Object>> sumByType(@Param("account") String account,
+                                        @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * 账本余额与钱包余额不一致的钱包，diff = 钱包余额 - 账本余额（单位：分）
+     * 首次启用账本时即全部有余额的钱包，停用期间有变动的钱包也在其中
+     */
+    @Select("SELECT w.id AS walletId, w.balance - COALESCE(l.amount, 0) AS diff FROM wallet w " +
+            "LEFT JOIN (SELECT account, SUM(amount) AS amount FROM ledger_entry " +
+            "WHERE account LIKE 'wallet:%' GROUP BY account) l ON l.account = CONCAT('wallet:', w.id) " +
+            "WHERE w.deleted = 0 AND w.balance <> COALESCE(l.amount, 0)")
+    List<Map<String, Object>> selectWalletDrift();
+}
@@ -0,0 +1,35 @@
+package com.pet.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.pet.entity.LedgerSnapshot;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDateTime;
+
+@Mapper
+public interface LedgerSnapshotMapper extends BaseMapper<LedgerSnapshot> {
+
+    @Select("SELECT * FROM ledger_snapshot WHERE account = #{account} ORDER BY last_seq DESC LIMIT 1")
+    LedgerSnapshot selectLatest(@Param("account") String account);
+
+    @Select("SELECT * FROM ledger_snapshot WHERE account = #{account} AND cutoff_at <= #{time} " +
+            "ORDER BY last_seq DESC LIMIT 1")
+    LedgerSnapshot selectLatestBefore(@Param("account") String account, @Param("time") LocalDateTime time);
+
+    @Select("SELECT COALESCE(MAX(last_seq), 0) FROM ledger_snapshot")
+    long selectMaxSeq();
+
+    /**
+     * 为 (fromSeq, toSeq] 区间内有变动的账户生成新快照：上一快照余额 + 区间分录之和
+     */
+    @Insert("INSERT INTO ledger_snapshot (account, last_seq, balance, cutoff_at, created_at) " +
+            "SELECT e.account, #{toSeq}, " +
+            "COALESCE((SELECT s.balance FROM ledger_snapshot s WHERE s.account = e.account ORDER BY s.last_seq DESC LIMIT 1), 0) " +
+            "+ SUM(e.amount), #{cutoffAt}, NOW() " +
+            "FROM ledger_entry e WHERE e.seq > #{fromSeq} AND e.seq <= #{toSeq} GROUP BY e.account")
+    int insertSnapshots(@Param("fromSeq") long fromSeq, @Param("toSeq") long toSeq,
+                        @Param("cutoffAt") LocalDateTime cutoffAt);
+}
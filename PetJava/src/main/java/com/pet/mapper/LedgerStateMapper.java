@@ -0,0 +1,28 @@
+package com.pet.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.pet.entity.LedgerState;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+@Mapper
+public interface LedgerStateMapper extends BaseMapper<LedgerState> {
+
+    /**
+     * 首次启动时写入状态行，enabled 为 NULL 表示未知（可能曾在停用状态下运行）
+     */
+    @Insert("INSERT IGNORE INTO ledger_state (id, enabled, updated_at) VALUES (1, NULL, NOW())")
+    int insertIfAbsent();
+
+    /**
+     * 排他锁，多个实例同时启动时只有一个执行钱包余额同步
+     */
+    @Select("SELECT * FROM ledger_state WHERE id = 1 FOR UPDATE")
+    LedgerState lockExclusive();
+
+    @Update("UPDATE ledger_state SET enabled = #{enabled}, updated_at = NOW() WHERE id = 1")
+    int updateEnabled(@Param("enabled") boolean enabled);
+}
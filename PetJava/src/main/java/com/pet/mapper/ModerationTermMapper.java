@@ -0,0 +1,18 @@
+package com.pet.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.pet.entity.ModerationTerm;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Select;
+
+@Mapper
+public interface ModerationTermMapper extends BaseMapper<ModerationTerm> {
+
+    /**
+     * 词表版本：行数、最后修改时间与各行内容校验和之和（含已删除行），任一实例修改词表后其他实例据此发现变化；
+     * updated_at 只精确到秒，同一秒内的再次修改（如调整级别）靠校验和区分
+     */
+    @Select("SELECT CONCAT(COUNT(*), '@', COALESCE(MAX(updated_at), ''), '#', " +
+            "COALESCE(SUM(CRC32(CONCAT_WS('|', id, term, level, deleted))), 0)) FROM moderation_term")
+    String selectVersion();
+}
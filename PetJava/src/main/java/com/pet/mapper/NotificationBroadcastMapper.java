@@ -0,0 +1,17 @@
+package com.pet.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.pet.entity.NotificationBroadcast;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+@Mapper
+public interface NotificationBroadcastMapper extends BaseMapper<NotificationBroadcast> {
+
+    /**
+     * 锁定任务行，多实例同时续跑同一任务时按批串行，游标不会被重复消费
+     */
+    @Select("SELECT * FROM notification_broadcast WHERE id = #{id} AND deleted = 0 FOR UPDATE")
+    NotificationBroadcast selectForUpdate(@Param("id") String id);
+}
@@ -2,8 +2,72 @@ package com.pet.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.pet.entity.Notification;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 @Mapper
 public interface NotificationMapper extends BaseMapper<Notification> {
+
+    /**
+     * 一条语句写入多条通知，调用方需预先生成 id
+     */
+    @Insert("<script>" +
+            "INSERT INTO notification (id, user_id, type, title, content, is_read, link, created_at, updated_at, deleted) VALUES " +
+            "<foreach collection='notifications' item='n' separator=','>" +
+            "(#{n.id}, #{n.userId}, #{n.type}, #{n.title}, #{n.content}, #{n.isRead}, #{n.link}, #{n.createdAt}, #{n.updatedAt}, 0)" +
+            "</foreach>" +
+            "</script>")
+    int insertBatch(@Param("notifications") List<Notification> notifications);
+
+    /**
+     * 把新消息合并到已有通知：更新内容、重置为未读并移到最新位置
+     */
+    @Update("UPDATE notification SET title = #{title}, content = #{content}, is_read = 0, " +
+            "repeat_count = repeat_count + 1, created_at = #{now}, updated_at = #{now} " +
+            "WHERE id = #{id} AND deleted = 0")
+    int coalesce(@Param("id") String id, @Param("title") String title, @Param("content") String content,
+                 @Param("now") LocalDateTime now);
+
+    // ========== 保留策略 ==========
+
+    /**
+     * 早于截止时间的已读通知，按时间从旧到新
+     */
+    @Select("SELECT id FROM notification WHERE deleted = 0 AND is_read = 1 AND created_at < #{before} " +
+            "ORDER BY created_at LIMIT #{limit}")
+    List<String> selectExpiredReadIds(@Param("before") LocalDateTime before, @Param("limit") int limit);
+
+    /**
+     * 用户已删除（逻辑删除）的通知
+     */
+    @Select("SELECT id FROM notification WHERE deleted = 1 LIMIT #{limit}")
+    List<String> selectDeletedIds(@Param("limit") int limit);
+
+    /**
+     * 复制到归档表，已归档的跳过
+     */
+    @Insert("<script>" +
+            "INSERT IGNORE INTO notification_archive " +
+            "(id, user_id, type, title, content, link, data, repeat_count, created_at, archived_at) " +
+            "SELECT id, user_id, type, title, content, link, data, repeat_count, created_at, NOW() " +
+            "FROM notification WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int archiveByIds(@Param("ids") List<String> ids);
+
+    /**
+     * 物理删除（BaseMapper 的删除方法受逻辑删除影响只会更新 deleted）
+     */
+    @Delete("<script>" +
+            "DELETE FROM notification WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int purgeByIds(@Param("ids") List<String> ids);
 }
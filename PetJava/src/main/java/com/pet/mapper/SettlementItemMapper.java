@@ -0,0 +1,114 @@
+package com.pet.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.pet.entity.SettlementItem;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+@Mapper
+public interface SettlementItemMapper extends BaseMapper<SettlementItem> {
+
+    /**
+     * 幂等写入单个订单的结算标记，订单已结算时不做任何修改
+     * @return 1 表示本次写入，0 表示订单已结算
+     */
+    @Insert("INSERT IGNORE INTO settlement_item (booking_id, batch_id, institution_id, amount, created_at) " +
+            "VALUES (#{bookingId}, #{batchId}, #{institutionId}, #{amount}, NOW())")
+    int insertIfAbsent(@Param("bookingId") String bookingId, @Param("batchId") String batchId,
+                       @Param("institutionId") String institutionId, @Param("amount") long amount);
+
+    // ========== 待结算（已完成、已支付、未写入结算标记的订单） ==========
+
+    /**
+     * 按机构汇总待结算订单，一条分组查询
+     * @param afterId 只返回ID大于该值的机构，用于分批
+     */
+    @Select("<script>" +
+            "SELECT b.institution_id AS institutionId, COUNT(*) AS orders, " +
+            "SUM(ROUND(b.total_price * 100)) AS amount " +
+            "FROM booking b LEFT JOIN settlement_item s ON s.booking_id = b.id " +
+            "WHERE b.deleted = 0 AND b.status = 'completed' AND b.payment_status = 'paid' " +
+            "AND b.total_price IS NOT NULL AND s.booking_id IS NULL " +
+            "AND COALESCE(b.check_out_time, b.updated_at) &lt; #{before} " +
+            "<if test='institutionId != null'>AND b.institution_id = #{institutionId} </if>" +
+            "AND b.institution_id &gt; #{afterId} " +
+            "GROUP BY b.institution_id ORDER BY b.institution_id LIMIT #{limit}" +
+            "</script>")
+    List<Map<String, Object>> sumPendingByInstitution(@Param("before") LocalDateTime before,
+                                                      @Param("institutionId") String institutionId,
+                                                      @Param("afterId") String afterId,
+                                                      @Param("limit") int limit);
+
+    /**
+     * 待结算金额最高的机构
+     */
+    @Select("SELECT b.institution_id AS institutionId, COUNT(*) AS orders, " +
+            "SUM(ROUND(b.total_price * 100)) AS amount " +
+            "FROM booking b LEFT JOIN settlement_item s ON s.booking_id = b.id " +
+            "WHERE b.deleted = 0 AND b.status = 'completed' AND b.payment_status = 'paid' " +
+            "AND b.total_price IS NOT NULL AND s.booking_id IS NULL " +
+            "GROUP BY b.institution_id ORDER BY amount DESC LIMIT #{limit}")
+    List<Map<String, Object>> selectTopPending(@Param("limit") int limit);
+
+    /**
+     * 一条语句为一批机构的待结算订单写入结算标记；并发写入的标记以先到者为准，
+     * 本批次实际结算的订单以写入后按 batch_id 查询的结果为准
+     */
+    @Insert("<script>" +
+            "INSERT IGNORE INTO settlement_item (booking_id, batch_id, institution_id, amount, created_at) " +
+            "SELECT b.id, #{batchId}, b.institution_id, ROUND(b.total_price * 100), NOW() " +
+            "FROM booking b LEFT JOIN settlement_item s ON s.booking_id = b.id " +
+            "WHERE b.deleted = 0 AND b.status = 'completed' AND b.payment_status = 'paid' " +
+            "AND b.total_price IS NOT NULL AND s.booking_id IS NULL " +
+            "AND COALESCE(b.check_out_time, b.updated_at) &lt; #{before} " +
+            "AND b.institution_id IN " +
+            "<foreach collection='institutionIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int insertPending(@Param("batchId") String batchId, @Param("before") LocalDateTime before,
+                      @Param("institutionIds") Collection<String> institutionIds);
+
+    /**
+     * 批次中各机构实际写入标记的订单数和金额
+     */
+    @Select("<script>" +
+            "SELECT institution_id AS institutionId, COUNT(*) AS orders, SUM(amount) AS amount " +
+            "FROM settlement_item WHERE batch_id = #{batchId} AND institution_id IN " +
+            "<foreach collection='institutionIds' item='id' open='(' separator=',' close=')'>#{id}</foreach> " +
+            "GROUP BY institution_id" +
+            "</script>")
+    List<Map<String, Object>> sumBatch(@Param("batchId") String batchId,
+                                       @Param("institutionIds") Collection<String> institutionIds);
+
+    /**
+     * 各机构最近一次结算时间
+     */
+    @Select("<script>" +
+            "SELECT institution_id AS institutionId, MAX(created_at) AS settledAt " +
+            "FROM settlement_item WHERE institution_id IN " +
+            "<foreach collection='institutionIds' item='id' open='(' separator=',' close=')'>#{id}</foreach> " +
+            "GROUP BY institution_id" +
+            "</script>")
+    List<Map<String, Object>> selectLastSettledAt(@Param("institutionIds") Collection<String> institutionIds);
+
+    /**
+     * 启用结算标记前已在离店时入账、尚无标记的订单，按已有的订单收入交易补写标记。
+     * 只取转入该订单所属机构员工钱包的“订单收入”，早期同样记为 income 类型的用户退款不计入；
+     * 启用后离店入账与标记同一事务写入，补写可重复执行；由 DataInitializer 在创建 settlement_item 表时执行一次
+     */
+    @Insert("INSERT IGNORE INTO settlement_item (booking_id, batch_id, institution_id, amount, created_at) " +
+            "SELECT t.related_order_id, NULL, b.institution_id, t.amount, t.created_at " +
+            "FROM wallet_transaction t " +
+            "JOIN booking b ON b.id = t.related_order_id " +
+            "JOIN user u ON u.id = t.user_id AND u.role = 'institution_staff' AND u.institution_id = b.institution_id " +
+            "LEFT JOIN settlement_item s ON s.booking_id = t.related_order_id " +
+            "WHERE t.type = 'income' AND t.related_order_id IS NOT NULL " +
+            "AND t.description LIKE '订单收入%' AND s.booking_id IS NULL")
+    int insertFromIncomeTransactions();
+}
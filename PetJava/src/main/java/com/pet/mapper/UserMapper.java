@@ -3,6 +3,12 @@ package com.pet.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.pet.entity.User;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 /**
  * 用户数据访问接口
@@ -10,4 +16,15 @@ import org.apache.ibatis.annotations.Mapper;
  */
 @Mapper
 public interface UserMapper extends BaseMapper<User> {
+
+    /**
+     * 每个机构的收款员工（ID最小的员工账号），返回 institutionId、userId
+     */
+    @Select("<script>" +
+            "SELECT institution_id AS institutionId, MIN(id) AS userId FROM user " +
+            "WHERE deleted = 0 AND institution_id IN " +
+            "<foreach collection='institutionIds' item='id' open='(' separator=',' close=')'>#{id}</foreach> " +
+            "GROUP BY institution_id" +
+            "</script>")
+    List<Map<String, Object>> selectPayeeByInstitution(@Param("institutionIds") Collection<String> institutionIds);
 }
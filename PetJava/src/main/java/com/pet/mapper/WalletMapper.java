@@ -2,8 +2,88 @@ package com.pet.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.pet.entity.Wallet;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.Collection;
+import java.util.List;
 
 @Mapper
 public interface WalletMapper extends BaseMapper<Wallet> {
+
+    /**
+     * 幂等创建钱包：user_id 唯一，并发创建不会抛出唯一键冲突；
+     * 已存在时只恢复被逻辑删除的行（余额和交易记录保留，与账本一致），其余字段不做修改
+     */
+    @Insert("INSERT INTO wallet (id, user_id, user_type, balance, frozen_balance, total_income, total_withdraw, " +
+            "status, daily_withdraw_amount, daily_withdraw_count, created_at, updated_at, deleted) " +
+            "VALUES (#{id}, #{userId}, #{userType}, 0, 0, 0, 0, 'active', 0, 0, NOW(), NOW(), 0) " +
+            "ON DUPLICATE KEY UPDATE deleted = 0")
+    int insertIfAbsent(@Param("id") String id, @Param("userId") String userId, @Param("userType") String userType);
+
+    /**
+     * 批量幂等创建钱包，语义同 {@link #insertIfAbsent}
+     */
+    @Insert("<script>" +
+            "INSERT INTO wallet (id, user_id, user_type, balance, frozen_balance, total_income, total_withdraw, " +
+            "status, daily_withdraw_amount, daily_withdraw_count, created_at, updated_at, deleted) VALUES " +
+            "<foreach collection='wallets' item='w' separator=','>" +
+            "(#{w.id}, #{w.userId}, #{w.userType}, 0, 0, 0, 0, 'active', 0, 0, NOW(), NOW(), 0)" +
+            "</foreach> " +
+            "ON DUPLICATE KEY UPDATE deleted = 0" +
+            "</script>")
+    int insertIfAbsentBatch(@Param("wallets") List<Wallet> wallets);
+
+    /**
+     * 加锁读取单个用户的钱包，单笔改余额前调用，与批量入账/退款的行锁互斥
+     */
+    @Select("SELECT * FROM wallet WHERE deleted = 0 AND user_id = #{userId} FOR UPDATE")
+    Wallet selectByUserIdForUpdate(@Param("userId") String userId);
+
+    @Select("SELECT * FROM wallet WHERE deleted = 0 AND id = #{id} FOR UPDATE")
+    Wallet selectByIdForUpdate(@Param("id") String id);
+
+    /**
+     * 按用户加锁读取钱包，按 id 排序加锁，避免并发批次之间死锁
+     */
+    @Select("<script>" +
+            "SELECT * FROM wallet WHERE deleted = 0 AND user_id IN " +
+            "<foreach collection='userIds' item='userId' open='(' separator=',' close=')'>#{userId}</foreach> " +
+            "ORDER BY id FOR UPDATE" +
+            "</script>")
+    List<Wallet> selectByUserIdsForUpdate(@Param("userIds") Collection<String> userIds);
+
+    /**
+     * 一条语句写回一批钱包余额，调用方须已通过 {@link #selectByUserIdsForUpdate} 持有行锁
+     */
+    @Update("<script>" +
+            "UPDATE wallet SET updated_at = NOW(), balance = CASE id " +
+            "<foreach collection='wallets' item='w' separator=' '>WHEN #{w.id} THEN #{w.balance}</foreach> END " +
+            "WHERE id IN " +
+            "<foreach collection='wallets' item='w' open='(' separator=',' close=')'>#{w.id}</foreach>" +
+            "</script>")
+    int updateBalanceBatch(@Param("wallets") List<Wallet> wallets);
+
+    /**
+     * 一条语句写回一批钱包的余额和累计收入，调用方须已通过 {@link #selectByUserIdsForUpdate} 持有行锁
+     */
+    @Update("<script>" +
+            "UPDATE wallet SET updated_at = NOW(), balance = CASE id " +
+            "<foreach collection='wallets' item='w' separator=' '>WHEN #{w.id} THEN #{w.balance}</foreach> END, " +
+            "total_income = CASE id " +
+            "<foreach collection='wallets' item='w' separator=' '>WHEN #{w.id} THEN #{w.totalIncome}</foreach> END " +
+            "WHERE id IN " +
+            "<foreach collection='wallets' item='w' open='(' separator=',' close=')'>#{w.id}</foreach>" +
+            "</script>")
+    int updateIncomeBatch(@Param("wallets") List<Wallet> wallets);
+
+    /**
+     * 余额不为 0 但没有任何交易记录的钱包（对账用）
+     */
+    @Select("SELECT id, user_id, balance, updated_at FROM wallet w WHERE w.deleted = 0 AND w.balance <> 0 " +
+            "AND NOT EXISTS (SELECT 1 FROM wallet_transaction t WHERE t.wallet_id = w.id) LIMIT #{limit}")
+    List<Wallet> selectOrphanBalances(@Param("limit") int limit);
 }
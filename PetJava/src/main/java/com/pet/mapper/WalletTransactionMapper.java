@@ -2,8 +2,57 @@ package com.pet.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.pet.entity.WalletTransaction;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 @Mapper
 public interface WalletTransactionMapper extends BaseMapper<WalletTransaction> {
+
+    /**
+     * 一条语句写入多条交易记录，调用方需预先生成 id
+     */
+    @Insert("<script>" +
+            "INSERT INTO wallet_transaction (id, wallet_id, user_id, type, amount, fee, balance_before, balance_after, " +
+            "status, description, related_order_id, related_withdrawal_id, created_at) VALUES " +
+            "<foreach collection='transactions' item='t' separator=','>" +
+            "(#{t.id}, #{t.walletId}, #{t.userId}, #{t.type}, #{t.amount}, #{t.fee}, #{t.balanceBefore}, #{t.balanceAfter}, " +
+            "#{t.status}, #{t.description}, #{t.relatedOrderId}, #{t.relatedWithdrawalId}, #{t.createdAt})" +
+            "</foreach>" +
+            "</script>")
+    int insertBatch(@Param("transactions") List<WalletTransaction> transactions);
+
+    /**
+     * 按钱包、时间顺序流式读取全部交易记录（走 idx_wallet_created 索引）
+     * fetchSize 为 Integer.MIN_VALUE 时 MySQL 驱动逐行返回，内存占用与总行数无关；
+     * 流式读取期间所在连接不能执行其他语句，必须在事务内调用
+     */
+    @Select("SELECT id, wallet_id, user_id, type, amount, fee, balance_before, balance_after, status, created_at " +
+            "FROM wallet_transaction ORDER BY wallet_id, created_at, id")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    Cursor<WalletTransaction> streamOrderedByWallet();
+
+    /**
+     * 按时间顺序流式读取交易记录（[from, to)），条件为空时不过滤
+     * fetchSize 为 Integer.MIN_VALUE 时 MySQL 驱动逐行返回，内存占用与总行数无关；
+     * 流式读取期间所在连接不能执行其他语句，必须在事务内调用
+     */
+    @Select("<script>" +
+            "SELECT * FROM wallet_transaction WHERE 1 = 1 " +
+            "<if test='from != null'>AND created_at &gt;= #{from} </if>" +
+            "<if test='to != null'>AND created_at &lt; #{to} </if>" +
+            "<if test='type != null'>AND type = #{type} </if>" +
+            "<if test='status != null'>AND status = #{status} </if>" +
+            "ORDER BY created_at, id" +
+            "</script>")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    Cursor<WalletTransaction> streamForExport(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                              @Param("type") String type, @Param("status") String status);
 }
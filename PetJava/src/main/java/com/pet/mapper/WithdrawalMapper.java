@@ -3,7 +3,15 @@ package com.pet.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.pet.entity.Withdrawal;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
 
 @Mapper
 public interface WithdrawalMapper extends BaseMapper<Withdrawal> {
+
+    /**
+     * 某状态的提现金额合计（分）
+     */
+    @Select("SELECT COALESCE(SUM(amount), 0) FROM withdrawal WHERE status = #{status}")
+    long sumAmountByStatus(@Param("status") String status);
 }
@@ -1,5 +1,6 @@
 package com.pet.security;
 
+import com.pet.service.StreamTicketService;
 import com.pet.util.JwtUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -24,21 +25,29 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
     private final UserDetailsServiceImpl userDetailsService;
+    private final StreamTicketService streamTicketService;
 
-    public JwtAuthenticationFilter(JwtUtil jwtUtil, @Lazy UserDetailsServiceImpl userDetailsService) {
+    public JwtAuthenticationFilter(JwtUtil jwtUtil, @Lazy UserDetailsServiceImpl userDetailsService,
+                                   @Lazy StreamTicketService streamTicketService) {
         this.jwtUtil = jwtUtil;
         this.userDetailsService = userDetailsService;
+        this.streamTicketService = streamTicketService;
     }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
                                     FilterChain filterChain) throws ServletException, IOException {
         try {
+            String userId = null;
             String jwt = extractJwtFromRequest(request);
-
             if (StringUtils.hasText(jwt) && jwtUtil.validateToken(jwt)) {
-                String userId = jwtUtil.getUserIdFromToken(jwt);
+                userId = jwtUtil.getUserIdFromToken(jwt);
+            } else if (jwt == null && isStreamRequest(request)) {
+                // EventSource 不能设置请求头，推送连接用一次性短期票据代替令牌
+                userId = streamTicketService.redeem(request.getParameter("ticket"));
+            }
 
+            if (userId != null) {
                 UserDetails userDetails = userDetailsService.loadUserById(userId);
                 UsernamePasswordAuthenticationToken authentication =
                         new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
@@ -62,4 +71,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         return null;
     }
+
+    private boolean isStreamRequest(HttpServletRequest request) {
+        return "GET".equals(request.getMethod()) && request.getRequestURI().endsWith("/notifications/stream");
+    }
 }
@@ -4,19 +4,23 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pet.common.Money;
 import com.pet.common.PageResult;
 import com.pet.entity.Booking;
 import com.pet.entity.Institution;
+import com.pet.entity.ServicePackage;
 import com.pet.entity.User;
 import com.pet.entity.Withdrawal;
 import com.pet.entity.WalletTransaction;
 import com.pet.entity.Wallet;
 import com.pet.mapper.BookingMapper;
 import com.pet.mapper.InstitutionMapper;
+import com.pet.mapper.ServicePackageMapper;
 import com.pet.mapper.UserMapper;
 import com.pet.mapper.WithdrawalMapper;
 import com.pet.mapper.WalletTransactionMapper;
 import com.pet.mapper.WalletMapper;
+import com.pet.util.BookingColumns;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
@@ -34,302 +38,33 @@ public class AdminService {
     private final InstitutionMapper institutionMapper;
     private final UserMapper userMapper;
     private final BookingMapper bookingMapper;
+    private final ServicePackageMapper servicePackageMapper;
     private final WithdrawalMapper withdrawalMapper;
     private final WalletMapper walletMapper;
     private final WalletTransactionMapper transactionMapper;
     private final ObjectMapper objectMapper;
+    private final LedgerService ledgerService;
+    private final DailyMetricsService dailyMetricsService;
+    private final BookingCubeService bookingCubeService;
+    private final InstitutionRankingService institutionRankingService;
+    private final DashboardCacheService dashboardCacheService;
     private final org.springframework.security.crypto.password.PasswordEncoder passwordEncoder;
 
+    /** 机构地区分布统计的地区 */
+    private static final List<String> REGIONS = Arrays.asList(
+            "天河区", "越秀区", "海珠区", "荔湾区", "白云区", "黄埔区", "番禺区", "花都区", "南沙区", "从化区", "增城区");
+
+    /**
+     * 仪表盘统计；计算失败时返回零值，零值不写入缓存，也不会替换缓存中已有的结果
+     */
     public Map<String, Object> getDashboardStats(String period, String startDateStr, String endDateStr) {
-        log.info("开始获取仪表盘统计数据，周期: {}, 开始日期: {}, 结束日期: {}", period, startDateStr, endDateStr);
-        Map<String, Object> stats = new HashMap<>();
-        
         try {
-            java.time.LocalDate now = java.time.LocalDate.now();
-            java.time.LocalDate startDate = null;
-            java.time.LocalDate endDate = now;
-            
-            if (startDateStr != null && !startDateStr.isEmpty()) {
-                startDate = java.time.LocalDate.parse(startDateStr);
-                if (endDateStr != null && !endDateStr.isEmpty()) {
-                    endDate = java.time.LocalDate.parse(endDateStr);
-                }
-            } else {
-                switch (period.toLowerCase()) {
-                    case "today":
-                        startDate = now;
-                        break;
-                    case "week":
-                        startDate = now.minusDays(now.getDayOfWeek().getValue() - 1);
-                        break;
-                    case "month":
-                        startDate = now.withDayOfMonth(1);
-                        break;
-                    case "quarter":
-                        int month = now.getMonthValue();
-                        int quarterMonth = ((month - 1) / 3) * 3 + 1;
-                        startDate = now.withMonth(quarterMonth).withDayOfMonth(1);
-                        break;
-                    case "year":
-                        startDate = now.withDayOfYear(1);
-                        break;
-                    default:
-                        startDate = now.withDayOfMonth(1);
-                }
-            }
-            
-            final java.time.LocalDate sDate = startDate;
-            final java.time.LocalDate eDate = endDate;
-            
-            log.info("统计周期: {} 至 {}", sDate, eDate);
-            
-            // 统计所有用户数（总数，不受周期影响）
-            long totalUsers = userMapper.selectCount(null);
-            stats.put("totalUsers", totalUsers);
-            log.info("总用户数: {}", totalUsers);
-            
-            // 统计所有机构数（总数，不受周期影响）
-            long totalInstitutions = institutionMapper.selectCount(null);
-            stats.put("totalInstitutions", totalInstitutions);
-            log.info("总机构数: {}", totalInstitutions);
-            
-            // 待审核机构数
-            long pendingInstitutions = institutionMapper.selectCount(new LambdaQueryWrapper<Institution>()
-                    .eq(Institution::getStatus, "pending"));
-            stats.put("pendingInstitutions", pendingInstitutions);
-            log.info("待审核机构数: {}", pendingInstitutions);
-            
-            // 资质更新审核数（暂时设为0，后续如有专门字段再调整）
-            long pendingQualifications = 0;
-            stats.put("pendingQualifications", pendingQualifications);
-            log.info("资质更新审核数: {}", pendingQualifications);
-            
-            // 退款申请数 - 从 Withdrawal 表中统计待审核状态
-            long pendingRefunds = withdrawalMapper.selectCount(new LambdaQueryWrapper<Withdrawal>()
-                    .eq(Withdrawal::getStatus, "pending"));
-            stats.put("pendingRefunds", pendingRefunds);
-            log.info("退款申请数: {}", pendingRefunds);
-            
-            // 获取所有订单
-            List<Booking> allBookings = bookingMapper.selectList(null);
-            
-            // 筛选周期内的订单
-            List<Booking> periodBookings = new ArrayList<>();
-            for (Booking b : allBookings) {
-                if (b != null && b.getCreatedAt() != null) {
-                    java.time.LocalDate createdDate = b.getCreatedAt().toLocalDate();
-                    if (!createdDate.isBefore(sDate) && !createdDate.isAfter(eDate)) {
-                        periodBookings.add(b);
-                    }
-                }
-            }
-            log.info("周期内订单数: {}", periodBookings.size());
-            
-            // 周期内的用户（有订单的用户）
-            Set<String> activeUserIds = new HashSet<>();
-            for (Booking b : periodBookings) {
-                if (b != null && b.getUserId() != null) activeUserIds.add(b.getUserId());
-            }
-            stats.put("activeUsers", activeUserIds.size());
-            log.info("活跃用户数: {}", activeUserIds.size());
-            
-            // 周期内新增用户
-            long newUsersToday = userMapper.selectCount(new LambdaQueryWrapper<User>()
-                    .ge(User::getCreatedAt, sDate.atStartOfDay())
-                    .le(User::getCreatedAt, eDate.atTime(23, 59, 59)));
-            stats.put("newUsersToday", newUsersToday);
-            log.info("新增用户数: {}", newUsersToday);
-            
-            // 周期内订单数
-            long periodOrders = periodBookings.size();
-            stats.put("totalOrders", periodOrders);
-            stats.put("monthlyOrders", periodOrders);
-            log.info("周期内订单数: {}", periodOrders);
-            
-            // 周期内已完成订单
-            long completedOrders = periodBookings.stream()
-                    .filter(b -> b != null && "completed".equals(b.getStatus()))
-                    .count();
-            stats.put("completedOrders", completedOrders);
-            
-            // 周期内已取消订单
-            long cancelledOrders = periodBookings.stream()
-                    .filter(b -> b != null && "cancelled".equals(b.getStatus()))
-                    .count();
-            stats.put("cancelledOrders", cancelledOrders);
-            
-            // 周期内收入
-            BigDecimal periodRevenue = periodBookings.stream()
-                    .map(Booking::getTotalPrice)
-                    .filter(Objects::nonNull)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-            stats.put("totalRevenue", periodRevenue);
-            stats.put("monthlyRevenue", periodRevenue);
-            log.info("周期内收入: {}", periodRevenue);
-            
-            // 平均客单价
-            BigDecimal avgOrderValue = periodBookings.isEmpty() ? BigDecimal.ZERO :
-                    periodRevenue.divide(BigDecimal.valueOf(periodBookings.size()), 2, BigDecimal.ROUND_HALF_UP);
-            stats.put("avgOrderValue", avgOrderValue);
-            
-            // 收入趋势（近6个月）
-            List<Map<String, Object>> revenueTrend = new ArrayList<>();
-            for (int i = 5; i >= 0; i--) {
-                java.time.LocalDate mStart = now.minusMonths(i).withDayOfMonth(1);
-                java.time.LocalDate mEnd = mStart.plusMonths(1).minusDays(1);
-                final java.time.LocalDate ms = mStart;
-                final java.time.LocalDate me = mEnd;
-                BigDecimal monthRevenue = allBookings.stream()
-                        .filter(b -> b != null && b.getCreatedAt() != null)
-                        .filter(b -> {
-                            java.time.LocalDate createdDate = b.getCreatedAt().toLocalDate();
-                            return !createdDate.isBefore(ms) && !createdDate.isAfter(me);
-                        })
-                        .map(Booking::getTotalPrice)
-                        .filter(Objects::nonNull)
-                        .reduce(BigDecimal.ZERO, BigDecimal::add);
-                Map<String, Object> point = new HashMap<>();
-                point.put("name", mStart.getMonthValue() + "月");
-                point.put("value", monthRevenue);
-                revenueTrend.add(point);
-            }
-            stats.put("revenueTrend", revenueTrend);
-            
-            // 用户增长趋势（近6个月）
-            List<Map<String, Object>> userGrowthTrend = new ArrayList<>();
-            List<User> allUsers = userMapper.selectList(null);
-            for (int i = 5; i >= 0; i--) {
-                java.time.LocalDate mStart = now.minusMonths(i).withDayOfMonth(1);
-                java.time.LocalDate mEnd = mStart.plusMonths(1).minusDays(1);
-                final java.time.LocalDate ms = mStart;
-                final java.time.LocalDate me = mEnd;
-                long monthUsers = allUsers.stream()
-                        .filter(u -> u != null && u.getCreatedAt() != null)
-                        .filter(u -> {
-                            java.time.LocalDate createdDate = u.getCreatedAt().toLocalDate();
-                            return !createdDate.isBefore(ms) && !createdDate.isAfter(me);
-                        })
-                        .count();
-                Map<String, Object> point = new HashMap<>();
-                point.put("name", mStart.getMonthValue() + "月");
-                point.put("value", monthUsers);
-                userGrowthTrend.add(point);
-            }
-            stats.put("userGrowthTrend", userGrowthTrend);
-            
-            // 订单状态分布（周期内）
-            List<Map<String, Object>> orderDistribution = new ArrayList<>();
-            long pendingCount = periodBookings.stream().filter(b -> b != null && "pending".equals(b.getStatus())).count();
-            long inProgressCount = periodBookings.stream().filter(b -> b != null && "in_progress".equals(b.getStatus())).count();
-            
-            Map<String, Object> item1 = new HashMap<>();
-            item1.put("name", "待确认");
-            item1.put("value", pendingCount);
-            orderDistribution.add(item1);
-            
-            Map<String, Object> item2 = new HashMap<>();
-            item2.put("name", "进行中");
-            item2.put("value", inProgressCount);
-            orderDistribution.add(item2);
-            
-            Map<String, Object> item3 = new HashMap<>();
-            item3.put("name", "已完成");
-            item3.put("value", completedOrders);
-            orderDistribution.add(item3);
-            
-            Map<String, Object> item4 = new HashMap<>();
-            item4.put("name", "已取消");
-            item4.put("value", cancelledOrders);
-            orderDistribution.add(item4);
-            
-            stats.put("orderDistribution", orderDistribution);
-            
-            // 机构订单排名（TOP 5，周期内）
-            Map<String, Long> instOrderCount = new HashMap<>();
-            Map<String, BigDecimal> instRevenue = new HashMap<>();
-            for (Booking booking : periodBookings) {
-                if (booking != null && booking.getInstitutionId() != null) {
-                    instOrderCount.merge(booking.getInstitutionId(), 1L, Long::sum);
-                    if (booking.getTotalPrice() != null) {
-                        instRevenue.merge(booking.getInstitutionId(), booking.getTotalPrice(), BigDecimal::add);
-                    }
-                }
-            }
-            List<Map<String, Object>> institutionRanking = new ArrayList<>();
-            instOrderCount.entrySet().stream()
-                    .sorted((a, b) -> Long.compare(b.getValue(), a.getValue()))
-                    .limit(5)
-                    .forEach(entry -> {
-                        Institution inst = institutionMapper.selectById(entry.getKey());
-                        if (inst != null) {
-                            Map<String, Object> item = new HashMap<>();
-                            item.put("name", inst.getName());
-                            item.put("value", entry.getValue());
-                            item.put("rating", inst.getRating() != null ? inst.getRating() : 4.5);
-                            item.put("revenue", instRevenue.getOrDefault(entry.getKey(), BigDecimal.ZERO));
-                            institutionRanking.add(item);
-                        }
-                    });
-            stats.put("institutionRanking", institutionRanking);
-            
-            // 最近订单（周期内）
-            List<Booking> recentBookings = periodBookings.stream()
-                    .sorted((a, b) -> {
-                        if (a == null || a.getCreatedAt() == null) return 1;
-                        if (b == null || b.getCreatedAt() == null) return -1;
-                        return b.getCreatedAt().compareTo(a.getCreatedAt());
-                    })
-                    .limit(10)
-                    .collect(Collectors.toList());
-            List<Map<String, Object>> recentOrders = new ArrayList<>();
-            for (Booking booking : recentBookings) {
-                if (booking == null) continue;
-                Map<String, Object> order = new HashMap<>();
-                order.put("id", booking.getOrderNumber() != null ? booking.getOrderNumber() : booking.getId());
-                order.put("status", booking.getStatus());
-                order.put("amount", booking.getTotalPrice());
-                order.put("paymentMethod", booking.getPaymentMethod() != null ? booking.getPaymentMethod() : "微信支付");
-                
-                User user = userMapper.selectById(booking.getUserId());
-                order.put("user", user != null ? user.getName() : "未知");
-                
-                Institution inst = institutionMapper.selectById(booking.getInstitutionId());
-                order.put("institution", inst != null ? inst.getName() : "未知");
-                
-                order.put("pet", "宠物");
-                order.put("petType", "dog");
-                
-                recentOrders.add(order);
-            }
-            stats.put("recentOrders", recentOrders);
-            
-            // 地区分布统计
-            List<Map<String, Object>> regionDistribution = new ArrayList<>();
-            List<Institution> allInstitutions = institutionMapper.selectList(null);
-            if (!allInstitutions.isEmpty()) {
-                Map<String, Long> regionCount = new HashMap<>();
-                for (Institution inst : allInstitutions) {
-                    String address = inst.getAddress();
-                    if (address != null && !address.isEmpty()) {
-                        String region = extractRegion(address);
-                        regionCount.merge(region, 1L, Long::sum);
-                    }
-                }
-                regionCount.entrySet().stream()
-                        .sorted((a, b) -> Long.compare(b.getValue(), a.getValue()))
-                        .forEach(entry -> {
-                            Map<String, Object> item = new HashMap<>();
-                            item.put("name", entry.getKey());
-                            item.put("value", entry.getValue());
-                            regionDistribution.add(item);
-                        });
-            }
-            stats.put("regionDistribution", regionDistribution);
-            
-            log.info("仪表盘统计数据获取完成: {}", stats);
+            return dashboardCacheService.get("admin-dashboard",
+                    DashboardCacheService.key("platform", period, startDateStr, endDateStr, java.time.LocalDate.now()),
+                    () -> computeDashboardStats(period, startDateStr, endDateStr));
         } catch (Exception e) {
             log.error("获取仪表盘统计数据失败", e);
-            // 设置默认值
+            Map<String, Object> stats = new HashMap<>();
             stats.put("totalUsers", 0);
             stats.put("totalInstitutions", 0);
             stats.put("totalOrders", 0);
@@ -350,7 +85,246 @@ public class AdminService {
             stats.put("institutionRanking", new ArrayList<>());
             stats.put("recentOrders", new ArrayList<>());
             stats.put("regionDistribution", new ArrayList<>());
+            return stats;
         }
+    }
+
+    private Map<String, Object> computeDashboardStats(String period, String startDateStr, String endDateStr) {
+        log.info("开始获取仪表盘统计数据，周期: {}, 开始日期: {}, 结束日期: {}", period, startDateStr, endDateStr);
+        Map<String, Object> stats = new HashMap<>();
+        
+        java.time.LocalDate now = java.time.LocalDate.now();
+        java.time.LocalDate startDate = null;
+        java.time.LocalDate endDate = now;
+        
+        if (startDateStr != null && !startDateStr.isEmpty()) {
+            startDate = java.time.LocalDate.parse(startDateStr);
+            if (endDateStr != null && !endDateStr.isEmpty()) {
+                endDate = java.time.LocalDate.parse(endDateStr);
+            }
+        } else {
+            switch (period.toLowerCase()) {
+                case "today":
+                    startDate = now;
+                    break;
+                case "week":
+                    startDate = now.minusDays(now.getDayOfWeek().getValue() - 1);
+                    break;
+                case "month":
+                    startDate = now.withDayOfMonth(1);
+                    break;
+                case "quarter":
+                    int month = now.getMonthValue();
+                    int quarterMonth = ((month - 1) / 3) * 3 + 1;
+                    startDate = now.withMonth(quarterMonth).withDayOfMonth(1);
+                    break;
+                case "year":
+                    startDate = now.withDayOfYear(1);
+                    break;
+                default:
+                    startDate = now.withDayOfMonth(1);
+            }
+        }
+        
+        final java.time.LocalDate sDate = startDate;
+        final java.time.LocalDate eDate = endDate;
+        
+        log.info("统计周期: {} 至 {}", sDate, eDate);
+        
+        // 统计所有用户数（总数，不受周期影响）
+        long totalUsers = userMapper.selectCount(null);
+        stats.put("totalUsers", totalUsers);
+        log.info("总用户数: {}", totalUsers);
+        
+        // 统计所有机构数（总数，不受周期影响）
+        long totalInstitutions = institutionMapper.selectCount(null);
+        stats.put("totalInstitutions", totalInstitutions);
+        log.info("总机构数: {}", totalInstitutions);
+        
+        // 待审核机构数
+        long pendingInstitutions = institutionMapper.selectCount(new LambdaQueryWrapper<Institution>()
+                .eq(Institution::getStatus, "pending"));
+        stats.put("pendingInstitutions", pendingInstitutions);
+        log.info("待审核机构数: {}", pendingInstitutions);
+        
+        // 资质更新审核数（暂时设为0，后续如有专门字段再调整）
+        long pendingQualifications = 0;
+        stats.put("pendingQualifications", pendingQualifications);
+        log.info("资质更新审核数: {}", pendingQualifications);
+        
+        // 退款申请数 - 从 Withdrawal 表中统计待审核状态
+        long pendingRefunds = withdrawalMapper.selectCount(new LambdaQueryWrapper<Withdrawal>()
+                .eq(Withdrawal::getStatus, "pending"));
+        stats.put("pendingRefunds", pendingRefunds);
+        log.info("退款申请数: {}", pendingRefunds);
+        
+        // 周期内订单按状态汇总，订单数、收入、状态分布都由这一条聚合得出
+        java.time.LocalDateTime from = sDate.atStartOfDay();
+        java.time.LocalDateTime to = eDate.plusDays(1).atStartOfDay();
+        Map<String, Long> statusCount = new HashMap<>();
+        BigDecimal periodRevenue = BigDecimal.ZERO;
+        long periodOrders = 0;
+        for (Map<String, Object> row : bookingMapper.sumByStatus(from, to)) {
+            long count = ((Number) row.get("count")).longValue();
+            statusCount.put((String) row.get("status"), count);
+            periodOrders += count;
+            periodRevenue = periodRevenue.add(toDecimal(row.get("revenue")));
+        }
+        log.info("周期内订单数: {}", periodOrders);
+        
+        // 周期内的用户（有订单的用户）
+        long activeUsers = bookingMapper.countDistinctUsers(from, to);
+        stats.put("activeUsers", activeUsers);
+        log.info("活跃用户数: {}", activeUsers);
+        
+        // 周期内新增用户
+        long newUsersToday = userMapper.selectCount(new LambdaQueryWrapper<User>()
+                .ge(User::getCreatedAt, from)
+                .lt(User::getCreatedAt, to));
+        stats.put("newUsersToday", newUsersToday);
+        log.info("新增用户数: {}", newUsersToday);
+        
+        // 周期内订单数
+        stats.put("totalOrders", periodOrders);
+        stats.put("monthlyOrders", periodOrders);
+        
+        // 周期内已完成订单
+        long completedOrders = statusCount.getOrDefault("completed", 0L);
+        stats.put("completedOrders", completedOrders);
+        
+        // 周期内已取消订单
+        long cancelledOrders = statusCount.getOrDefault("cancelled", 0L);
+        stats.put("cancelledOrders", cancelledOrders);
+        
+        // 周期内收入
+        stats.put("totalRevenue", periodRevenue);
+        stats.put("monthlyRevenue", periodRevenue);
+        log.info("周期内收入: {}", periodRevenue);
+        
+        // 平均客单价
+        BigDecimal avgOrderValue = periodOrders == 0 ? BigDecimal.ZERO :
+                periodRevenue.divide(BigDecimal.valueOf(periodOrders), 2, BigDecimal.ROUND_HALF_UP);
+        stats.put("avgOrderValue", avgOrderValue);
+        
+        // 收入趋势与用户增长趋势（近6个月），读每日汇总行
+        List<Map<String, Object>> revenueTrend = new ArrayList<>();
+        List<Map<String, Object>> userGrowthTrend = new ArrayList<>();
+        for (Map<String, Object> month : dailyMetricsService.monthlyTrend(6)) {
+            String name = ((java.time.LocalDate) month.get("month")).getMonthValue() + "月";
+            Map<String, Object> revenuePoint = new HashMap<>();
+            revenuePoint.put("name", name);
+            revenuePoint.put("value", Money.ofFen((Long) month.get("gmv")).toYuan());
+            revenueTrend.add(revenuePoint);
+
+            Map<String, Object> userPoint = new HashMap<>();
+            userPoint.put("name", name);
+            userPoint.put("value", month.get("newUsers"));
+            userGrowthTrend.add(userPoint);
+        }
+        stats.put("revenueTrend", revenueTrend);
+        stats.put("userGrowthTrend", userGrowthTrend);
+        
+        // 订单状态分布（周期内）
+        List<Map<String, Object>> orderDistribution = new ArrayList<>();
+        
+        Map<String, Object> item1 = new HashMap<>();
+        item1.put("name", "待确认");
+        item1.put("value", statusCount.getOrDefault("pending", 0L));
+        orderDistribution.add(item1);
+        
+        Map<String, Object> item2 = new HashMap<>();
+        item2.put("name", "进行中");
+        item2.put("value", statusCount.getOrDefault("in_progress", 0L));
+        orderDistribution.add(item2);
+        
+        Map<String, Object> item3 = new HashMap<>();
+        item3.put("name", "已完成");
+        item3.put("value", completedOrders);
+        orderDistribution.add(item3);
+        
+        Map<String, Object> item4 = new HashMap<>();
+        item4.put("name", "已取消");
+        item4.put("value", cancelledOrders);
+        orderDistribution.add(item4);
+        
+        stats.put("orderDistribution", orderDistribution);
+        
+        // 机构订单排名（TOP 5，周期内）
+        List<Map<String, Object>> topInstitutions = bookingMapper.sumByInstitution(from, to, 5);
+        Map<String, Institution> rankedInstitutions = new HashMap<>();
+        if (!topInstitutions.isEmpty()) {
+            List<String> ids = new ArrayList<>();
+            for (Map<String, Object> row : topInstitutions) {
+                ids.add((String) row.get("institutionId"));
+            }
+            for (Institution inst : institutionMapper.selectBatchIds(ids)) {
+                rankedInstitutions.put(inst.getId(), inst);
+            }
+        }
+        List<Map<String, Object>> institutionRanking = new ArrayList<>();
+        for (Map<String, Object> row : topInstitutions) {
+            Institution inst = rankedInstitutions.get((String) row.get("institutionId"));
+            if (inst != null) {
+                Map<String, Object> item = new HashMap<>();
+                item.put("name", inst.getName());
+                item.put("value", ((Number) row.get("count")).longValue());
+                item.put("rating", inst.getRating() != null ? inst.getRating() : 4.5);
+                item.put("revenue", toDecimal(row.get("revenue")));
+                institutionRanking.add(item);
+            }
+        }
+        stats.put("institutionRanking", institutionRanking);
+        
+        // 最近订单（周期内）
+        List<Booking> recentBookings = bookingMapper.selectList(new LambdaQueryWrapper<Booking>()
+                .ge(Booking::getCreatedAt, from)
+                .lt(Booking::getCreatedAt, to)
+                .orderByDesc(Booking::getCreatedAt)
+                .last("LIMIT 10"));
+        Set<String> recentUserIds = new HashSet<>();
+        Set<String> recentInstitutionIds = new HashSet<>();
+        for (Booking booking : recentBookings) {
+            recentUserIds.add(booking.getUserId());
+            recentInstitutionIds.add(booking.getInstitutionId());
+        }
+        Map<String, String> userNames = new HashMap<>();
+        if (!recentUserIds.isEmpty()) {
+            for (User user : userMapper.selectBatchIds(recentUserIds)) {
+                userNames.put(user.getId(), user.getName());
+            }
+        }
+        Map<String, String> institutionNames = new HashMap<>();
+        if (!recentInstitutionIds.isEmpty()) {
+            for (Institution inst : institutionMapper.selectBatchIds(recentInstitutionIds)) {
+                institutionNames.put(inst.getId(), inst.getName());
+            }
+        }
+        List<Map<String, Object>> recentOrders = new ArrayList<>();
+        for (Booking booking : recentBookings) {
+            Map<String, Object> order = new HashMap<>();
+            order.put("id", booking.getOrderNumber() != null ? booking.getOrderNumber() : booking.getId());
+            order.put("status", booking.getStatus());
+            order.put("amount", booking.getTotalPrice());
+            order.put("paymentMethod", booking.getPaymentMethod() != null ? booking.getPaymentMethod() : "微信支付");
+            order.put("user", userNames.getOrDefault(booking.getUserId(), "未知"));
+            order.put("institution", institutionNames.getOrDefault(booking.getInstitutionId(), "未知"));
+            order.put("pet", "宠物");
+            order.put("petType", "dog");
+            recentOrders.add(order);
+        }
+        stats.put("recentOrders", recentOrders);
+        
+        // 地区分布统计
+        List<Map<String, Object>> regionDistribution = new ArrayList<>();
+        for (Map<String, Object> row : institutionMapper.countByRegion(REGIONS)) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("name", row.get("name"));
+            item.put("value", ((Number) row.get("count")).longValue());
+            regionDistribution.add(item);
+        }
+        stats.put("regionDistribution", regionDistribution);
+        
+        log.info("仪表盘统计数据获取完成: {}", stats);
         
         return stats;
     }
@@ -523,6 +497,7 @@ public class AdminService {
         user.setStatus((String) data.getOrDefault("status", "active"));
         user.setPassword(passwordEncoder.encode("123456"));
         userMapper.insert(user);
+        dailyMetricsService.recordNewUser();
         return toUserVO(user);
     }
 
@@ -589,62 +564,143 @@ public class AdminService {
         return vo;
     }
 
-    // ========== 财务管理方法 ==========
+    // ========== 订单多维分析 ==========
 
-    public Map<String, Object> getFinanceSummary(String period) {
-        log.info("开始获取财务概览，周期: {}", period);
-        Map<String, Object> summary = new HashMap<>();
-        
+    /**
+     * 订单多维分析：按日期列和条件过滤后按维度分组，在内存列存上计算
+     * @param groupBy 分组维度，逗号分隔，最多 3 个：day、month、weekday、institution、status、payment_status、package、species
+     * @param dateField 日期列：created（默认）、start、end、paid，也决定 day/month/weekday 的取值
+     */
+    public Map<String, Object> getBookingAnalytics(String groupBy, String dateField, String startDate, String endDate,
+                                                   String institutionId, String status, String paymentStatus) {
+        BookingColumns.Query query = new BookingColumns.Query();
+        List<BookingColumns.Dimension> dimensions = new ArrayList<>();
+        if (StringUtils.hasText(groupBy)) {
+            for (String name : groupBy.split(",")) {
+                try {
+                    dimensions.add(BookingColumns.Dimension.valueOf(name.trim().toUpperCase()));
+                } catch (IllegalArgumentException e) {
+                    throw new RuntimeException("不支持的分组维度: " + name.trim());
+                }
+            }
+            query.groupBy(dimensions.toArray(new BookingColumns.Dimension[0]));
+        }
+        BookingColumns.DateField field;
         try {
-            java.time.LocalDate now = java.time.LocalDate.now();
-            java.time.LocalDate startDate = getStartDate(now, period);
-            java.time.LocalDate endDate = now;
-            
-            final java.time.LocalDate sDate = startDate;
-            final java.time.LocalDate eDate = endDate;
-            
-            List<Booking> allBookings = bookingMapper.selectList(null);
-            List<WalletTransaction> allTransactions = transactionMapper.selectList(null);
-            List<Withdrawal> allWithdrawals = withdrawalMapper.selectList(null);
-            
-            BigDecimal totalRevenue = BigDecimal.ZERO;
-            BigDecimal platformFee = BigDecimal.ZERO;
-            BigDecimal pendingSettlement = BigDecimal.ZERO;
-            BigDecimal refundAmount = BigDecimal.ZERO;
-            int refundCount = 0;
-            
-            for (Booking b : allBookings) {
-                if (b != null && b.getTotalPrice() != null && b.getCreatedAt() != null) {
-                    java.time.LocalDate createdDate = b.getCreatedAt().toLocalDate();
-                    if (!createdDate.isBefore(sDate) && !createdDate.isAfter(eDate)) {
-                        totalRevenue = totalRevenue.add(b.getTotalPrice());
-                        platformFee = platformFee.add(b.getTotalPrice().multiply(new BigDecimal("0.1")));
-                    }
+            field = StringUtils.hasText(dateField)
+                    ? BookingColumns.DateField.valueOf(dateField.trim().toUpperCase()) : BookingColumns.DateField.CREATED;
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("不支持的日期字段: " + dateField);
+        }
+        query.dates(field,
+                StringUtils.hasText(startDate) ? java.time.LocalDate.parse(startDate) : null,
+                StringUtils.hasText(endDate) ? java.time.LocalDate.parse(endDate) : null);
+        if (StringUtils.hasText(institutionId)) {
+            query.institution(institutionId);
+        }
+        if (StringUtils.hasText(status)) {
+            query.status(status.split(","));
+        }
+        if (StringUtils.hasText(paymentStatus)) {
+            query.paymentStatus(paymentStatus.split(","));
+        }
+
+        List<BookingColumns.Group> groups = bookingCubeService.aggregate(query);
+
+        // 机构名、套餐名一次批量查出
+        Map<String, String> institutionNames = new HashMap<>();
+        Map<String, String> packageNames = new HashMap<>();
+        if (dimensions.contains(BookingColumns.Dimension.INSTITUTION)) {
+            Set<String> ids = new HashSet<>();
+            for (BookingColumns.Group group : groups) {
+                Object id = group.get(BookingColumns.Dimension.INSTITUTION);
+                if (id != null) {
+                    ids.add((String) id);
                 }
             }
-            
-            for (Withdrawal w : allWithdrawals) {
-                if (w != null && w.getAmount() != null) {
-                    if ("pending".equals(w.getStatus())) {
-                        pendingSettlement = pendingSettlement.add(new BigDecimal(w.getAmount()));
-                    }
-                    refundAmount = refundAmount.add(new BigDecimal(w.getAmount()));
-                    refundCount++;
+            if (!ids.isEmpty()) {
+                for (Institution inst : institutionMapper.selectBatchIds(ids)) {
+                    institutionNames.put(inst.getId(), inst.getName());
                 }
             }
-            
-            summary.put("totalRevenue", totalRevenue.intValue());
-            summary.put("revenueTrend", 18.5);
-            summary.put("platformFee", platformFee.intValue());
-            summary.put("feeTrend", 15.2);
-            summary.put("pendingSettlement", pendingSettlement.intValue());
-            summary.put("completedSettlement", totalRevenue.subtract(pendingSettlement).intValue());
-            summary.put("refundAmount", refundAmount.intValue());
-            summary.put("refundCount", refundCount);
-            
-            log.info("财务概览获取成功: {}", summary);
+        }
+        if (dimensions.contains(BookingColumns.Dimension.PACKAGE)) {
+            Set<String> ids = new HashSet<>();
+            for (BookingColumns.Group group : groups) {
+                Object id = group.get(BookingColumns.Dimension.PACKAGE);
+                if (id != null) {
+                    ids.add((String) id);
+                }
+            }
+            if (!ids.isEmpty()) {
+                for (ServicePackage pkg : servicePackageMapper.selectBatchIds(ids)) {
+                    packageNames.put(pkg.getId(), pkg.getName());
+                }
+            }
+        }
+
+        // 首个维度是时间时按时间先后排列，否则按金额从高到低
+        if (!dimensions.isEmpty() && dimensions.get(0).ordinal() <= BookingColumns.Dimension.WEEKDAY.ordinal()) {
+            BookingColumns.Dimension first = dimensions.get(0);
+            groups.sort((a, b) -> compareKeys(a.get(first), b.get(first)));
+        } else {
+            groups.sort((a, b) -> Long.compare(b.getGmv(), a.getGmv()));
+        }
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (BookingColumns.Group group : groups) {
+            Map<String, Object> row = new HashMap<>();
+            for (BookingColumns.Dimension dimension : dimensions) {
+                Object value = group.get(dimension);
+                switch (dimension) {
+                    case INSTITUTION:
+                        row.put("institutionId", value);
+                        row.put("institutionName", institutionNames.get(value));
+                        break;
+                    case PACKAGE:
+                        row.put("packageId", value);
+                        row.put("packageName", packageNames.get(value));
+                        break;
+                    case PAYMENT_STATUS:
+                        row.put("paymentStatus", value);
+                        break;
+                    default:
+                        row.put(dimension.name().toLowerCase(), value);
+                }
+            }
+            row.put("count", group.getCount());
+            row.put("gmv", Money.ofFen(group.getGmv()).toYuan());
+            row.put("refundAmount", Money.ofFen(group.getRefund()).toYuan());
+            rows.add(row);
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("rows", rows);
+        result.put("status", bookingCubeService.getStatus());
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compareKeys(Object a, Object b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : 1) : -1;
+        }
+        return ((Comparable<Object>) a).compareTo(b);
+    }
+
+    // ========== 财务管理方法 ==========
+
+    /**
+     * 财务概览；计算失败时返回零值，零值不写入缓存
+     */
+    public Map<String, Object> getFinanceSummary(String period) {
+        try {
+            return dashboardCacheService.get("admin-finance-summary",
+                    DashboardCacheService.key("platform", period, java.time.LocalDate.now()),
+                    () -> computeFinanceSummary(period));
         } catch (Exception e) {
             log.error("获取财务概览失败", e);
+            Map<String, Object> summary = new HashMap<>();
             summary.put("totalRevenue", 0);
             summary.put("revenueTrend", 0);
             summary.put("platformFee", 0);
@@ -653,44 +709,85 @@ public class AdminService {
             summary.put("completedSettlement", 0);
             summary.put("refundAmount", 0);
             summary.put("refundCount", 0);
+            return summary;
         }
+    }
+
+    private Map<String, Object> computeFinanceSummary(String period) {
+        log.info("开始获取财务概览，周期: {}", period);
+        Map<String, Object> summary = new HashMap<>();
+        
+        java.time.LocalDate now = java.time.LocalDate.now();
+        java.time.LocalDate startDate = getStartDate(now, period);
+        java.time.LocalDate endDate = now;
+        
+        final java.time.LocalDate sDate = startDate;
+        final java.time.LocalDate eDate = endDate;
+        
+        // 账本模式下以复式账本为唯一数据源（金额单位：分，对外输出元）
+        if (ledgerService.isEnabled()) {
+            Map<String, Object> ledger = ledgerService.getPlatformSummary(
+                    sDate.atStartOfDay(), eDate.plusDays(1).atStartOfDay());
+            long payment = (Long) ledger.get("payment");
+            summary.put("totalRevenue", payment / 100);
+            summary.put("revenueTrend", 18.5);
+            summary.put("platformFee", payment / 1000);
+            summary.put("feeTrend", 15.2);
+            summary.put("withdrawalFee", (Long) ledger.get("withdrawalFee") / 100);
+            summary.put("pendingSettlement", (Long) ledger.get("escrowBalance") / 100);
+            summary.put("completedSettlement", (Long) ledger.get("income") / 100);
+            summary.put("refundAmount", (Long) ledger.get("refund") / 100);
+            summary.put("refundCount", ledger.get("refundCount"));
+            log.info("财务概览获取成功（账本）: {}", summary);
+            return summary;
+        }
+        
+        // 读每日汇总行，不再加载订单、流水和提现明细（金额单位：分，对外输出元）
+        Map<String, Object> metrics = dailyMetricsService.sumRange(sDate, eDate);
+        long gmv = (Long) metrics.get("gmv");
+        long pendingSettlement = withdrawalMapper.sumAmountByStatus("pending");
+        summary.put("totalRevenue", gmv / 100);
+        summary.put("revenueTrend", 18.5);
+        summary.put("platformFee", (Long) metrics.get("platformFee") / 100);
+        summary.put("feeTrend", 15.2);
+        summary.put("pendingSettlement", pendingSettlement / 100);
+        summary.put("completedSettlement", (gmv - pendingSettlement) / 100);
+        summary.put("refundAmount", (Long) metrics.get("refundAmount") / 100);
+        summary.put("refundCount", metrics.get("refundCount"));
+        summary.put("withdrawalAmount", (Long) metrics.get("withdrawalAmount") / 100);
+        summary.put("withdrawalCount", metrics.get("withdrawalCount"));
+        
+        log.info("财务概览获取成功: {}", summary);
         
         return summary;
     }
 
+    /**
+     * 财务趋势；计算失败时返回空列表，空列表不写入缓存
+     */
     public List<Map<String, Object>> getFinanceTrends(String period) {
-        log.info("开始获取财务趋势，周期: {}", period);
-        List<Map<String, Object>> trends = new ArrayList<>();
-        
         try {
-            java.time.LocalDate now = java.time.LocalDate.now();
-            List<Booking> allBookings = bookingMapper.selectList(null);
-            
-            for (int i = 5; i >= 0; i--) {
-                java.time.LocalDate mStart = now.minusMonths(i).withDayOfMonth(1);
-                java.time.LocalDate mEnd = mStart.plusMonths(1).minusDays(1);
-                final java.time.LocalDate ms = mStart;
-                final java.time.LocalDate me = mEnd;
-                
-                BigDecimal monthRevenue = allBookings.stream()
-                        .filter(b -> b != null && b.getCreatedAt() != null && b.getTotalPrice() != null)
-                        .filter(b -> {
-                            java.time.LocalDate createdDate = b.getCreatedAt().toLocalDate();
-                            return !createdDate.isBefore(ms) && !createdDate.isAfter(me);
-                        })
-                        .map(Booking::getTotalPrice)
-                        .reduce(BigDecimal.ZERO, BigDecimal::add);
-                
-                Map<String, Object> point = new HashMap<>();
-                point.put("name", mStart.getMonthValue() + "月");
-                point.put("value", monthRevenue.intValue());
-                trends.add(point);
-            }
-            
-            log.info("财务趋势获取成功，共{}条数据", trends.size());
+            return dashboardCacheService.get("admin-finance-trends",
+                    DashboardCacheService.key("platform", period, java.time.LocalDate.now()),
+                    () -> computeFinanceTrends(period));
         } catch (Exception e) {
             log.error("获取财务趋势失败", e);
+            return new ArrayList<>();
         }
+    }
+
+    private List<Map<String, Object>> computeFinanceTrends(String period) {
+        log.info("开始获取财务趋势，周期: {}", period);
+        List<Map<String, Object>> trends = new ArrayList<>();
+        
+        for (Map<String, Object> month : dailyMetricsService.monthlyTrend(6)) {
+            Map<String, Object> point = new HashMap<>();
+            point.put("name", ((java.time.LocalDate) month.get("month")).getMonthValue() + "月");
+            point.put("value", (Long) month.get("gmv") / 100);
+            trends.add(point);
+        }
+        
+        log.info("财务趋势获取成功，共{}条数据", trends.size());
         
         return trends;
     }
@@ -700,28 +797,7 @@ public class AdminService {
         List<Map<String, Object>> ranking = new ArrayList<>();
         
         try {
-            List<Booking> allBookings = bookingMapper.selectList(null);
-            Map<String, BigDecimal> instRevenue = new HashMap<>();
-            
-            for (Booking booking : allBookings) {
-                if (booking != null && booking.getInstitutionId() != null && booking.getTotalPrice() != null) {
-                    instRevenue.merge(booking.getInstitutionId(), booking.getTotalPrice(), BigDecimal::add);
-                }
-            }
-            
-            instRevenue.entrySet().stream()
-                    .sorted((a, b) -> b.getValue().compareTo(a.getValue()))
-                    .limit(5)
-                    .forEach(entry -> {
-                        Institution inst = institutionMapper.selectById(entry.getKey());
-                        if (inst != null) {
-                            Map<String, Object> item = new HashMap<>();
-                            item.put("name", inst.getName());
-                            item.put("value", entry.getValue().intValue());
-                            ranking.add(item);
-                        }
-                    });
-            
+            ranking = institutionRankingService.topByGmv(5);
             log.info("机构收入排名获取成功，共{}条数据", ranking.size());
         } catch (Exception e) {
             log.error("获取机构收入排名失败", e);
@@ -768,61 +844,6 @@ public class AdminService {
         return PageResult.of(list, page, pageSize, pageResult.getTotal());
     }
 
-    public List<Map<String, Object>> getPendingSettlements() {
-        log.info("开始获取待结算机构");
-        List<Map<String, Object>> settlements = new ArrayList<>();
-        
-        try {
-            List<Institution> institutions = institutionMapper.selectList(
-                new LambdaQueryWrapper<Institution>().eq(Institution::getStatus, "active")
-            );
-            
-            for (Institution inst : institutions) {
-                List<Booking> instBookings = bookingMapper.selectList(
-                    new LambdaQueryWrapper<Booking>()
-                        .eq(Booking::getInstitutionId, inst.getId())
-                        .eq(Booking::getStatus, "completed")
-                );
-                
-                if (!instBookings.isEmpty()) {
-                    BigDecimal totalAmount = instBookings.stream()
-                        .map(Booking::getTotalPrice)
-                        .filter(Objects::nonNull)
-                        .reduce(BigDecimal.ZERO, BigDecimal::add);
-                    
-                    Map<String, Object> item = new HashMap<>();
-                    item.put("id", inst.getId());
-                    item.put("institution", inst.getName());
-                    item.put("amount", totalAmount.intValue());
-                    item.put("orders", instBookings.size());
-                    item.put("lastSettlement", inst.getUpdatedAt() != null ? 
-                        inst.getUpdatedAt().toLocalDate().toString() : "");
-                    
-                    settlements.add(item);
-                }
-                
-                if (settlements.size() >= 5) break;
-            }
-            
-            log.info("待结算机构获取成功，共{}条", settlements.size());
-        } catch (Exception e) {
-            log.error("获取待结算机构失败", e);
-        }
-        
-        return settlements;
-    }
-
-    public void processSettlement(String id) {
-        log.info("开始处理结算，机构ID: {}", id);
-        
-        Institution inst = institutionMapper.selectById(id);
-        if (inst == null) {
-            throw new RuntimeException("机构不存在");
-        }
-        
-        log.info("结算处理完成，机构: {}", inst.getName());
-    }
-
     private java.time.LocalDate getStartDate(java.time.LocalDate now, String period) {
         switch (period.toLowerCase()) {
             case "week":
@@ -839,17 +860,14 @@ public class AdminService {
                 return now.withDayOfMonth(1);
         }
     }
-    
-    private String extractRegion(String address) {
-        if (address == null || address.isEmpty()) {
-            return "其他";
-        }
-        String[] regions = {"天河区", "越秀区", "海珠区", "荔湾区", "白云区", "黄埔区", "番禺区", "花都区", "南沙区", "从化区", "增城区"};
-        for (String region : regions) {
-            if (address.contains(region)) {
-                return region;
-            }
+
+    /**
+     * 聚合查询返回的金额列（DECIMAL 元）
+     */
+    private BigDecimal toDecimal(Object value) {
+        if (value == null) {
+            return BigDecimal.ZERO;
         }
-        return "其他";
+        return value instanceof BigDecimal ? (BigDecimal) value : new BigDecimal(value.toString());
     }
 }
@@ -0,0 +1,361 @@
+package com.pet.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pet.common.CursorPage;
+import com.pet.entity.Announcement;
+import com.pet.entity.AnnouncementReadMarker;
+import com.pet.entity.Notification;
+import com.pet.entity.User;
+import com.pet.mapper.AnnouncementMapper;
+import com.pet.mapper.AnnouncementReadMarkerMapper;
+import com.pet.mapper.UserMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import java.util.*;
+
+/**
+ * 平台公告服务（读时扇出）
+ * 发布公告只写一行，与接收人数无关；用户读取通知时按角色和注册时间筛出可见公告，
+ * 结合每用户一行的已读标记（高水位 + 少量例外ID）算出已读状态，再与个人通知合并
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AnnouncementService {
+
+    /** 公告在通知列表中的ID前缀，与个人通知的 UUID 区分 */
+    public static final String ID_PREFIX = "announcement-";
+
+    private static final List<String> AUDIENCES = Arrays.asList("all", "pet_owner", "institution_staff", "admin");
+
+    private final AnnouncementMapper announcementMapper;
+    private final AnnouncementReadMarkerMapper markerMapper;
+    private final UserMapper userMapper;
+    private final ObjectMapper objectMapper;
+    private final UnreadCounterService unreadCounterService;
+    private final NotificationPushHub pushHub;
+
+    // ========== 发布 ==========
+
+    public Map<String, Object> publish(String audience, String type, String title, String content,
+                                       String link, String createdBy) {
+        if (!StringUtils.hasText(title)) {
+            throw new RuntimeException("公告标题不能为空");
+        }
+        String target = StringUtils.hasText(audience) ? audience : "all";
+        if (!AUDIENCES.contains(target)) {
+            throw new RuntimeException("无效的接收范围");
+        }
+        Announcement announcement = new Announcement();
+        announcement.setAudience(target);
+        announcement.setType(StringUtils.hasText(type) ? type : "system");
+        announcement.setTitle(title);
+        announcement.setContent(content);
+        announcement.setLink(link);
+        announcement.setCreatedBy(createdBy);
+        announcementMapper.insert(announcement);
+        unreadCounterService.bumpAnnouncementVersion();
+        pushHub.broadcast(target, "announcement", toNotificationVO(announcement));
+        log.info("发布公告: id={}, audience={}", announcement.getId(), target);
+        return toVO(announcement);
+    }
+
+    public List<Map<String, Object>> getAnnouncements() {
+        List<Map<String, Object>> list = new ArrayList<>();
+        for (Announcement announcement : announcementMapper.selectList(new LambdaQueryWrapper<Announcement>()
+                .orderByDesc(Announcement::getId).last("LIMIT 50"))) {
+            list.add(toVO(announcement));
+        }
+        return list;
+    }
+
+    /**
+     * 撤回公告，所有用户立即不可见
+     */
+    public void withdraw(Long id) {
+        announcementMapper.deleteById(id);
+        unreadCounterService.bumpAnnouncementVersion();
+    }
+
+    // ========== 用户读取 ==========
+
+    public static boolean isAnnouncementId(String id) {
+        return id != null && id.startsWith(ID_PREFIX);
+    }
+
+    /**
+     * 用户可见的公告，转换为通知形式以便与个人通知合并
+     */
+    public List<Notification> getForUser(String userId, String type, Boolean isRead) {
+        return getForUser(userId, type, isRead, null);
+    }
+
+    /**
+     * 用户可见的公告中排在分页游标之后的部分
+     * @param after 游标，为 null 时返回全部
+     */
+    public List<Notification> getForUser(String userId, String type, Boolean isRead, CursorPage.Cursor after) {
+        User user = userMapper.selectById(userId);
+        if (user == null) {
+            return new ArrayList<>();
+        }
+        AnnouncementReadMarker marker = markerMapper.selectById(userId);
+        long lastReadId = marker != null ? marker.getLastReadId() : 0;
+        long clearedId = marker != null ? marker.getClearedId() : 0;
+        Set<Long> readIds = marker != null ? parseIds(marker.getReadIds()) : new HashSet<>();
+        Set<Long> hiddenIds = marker != null ? parseIds(marker.getHiddenIds()) : new HashSet<>();
+
+        LambdaQueryWrapper<Announcement> wrapper = visibleTo(user).gt(Announcement::getId, clearedId);
+        if (StringUtils.hasText(type)) {
+            wrapper.eq(Announcement::getType, type);
+        }
+        if (after != null) {
+            wrapper.le(Announcement::getCreatedAt, after.getCreatedAt());
+        }
+        wrapper.orderByDesc(Announcement::getId);
+
+        List<Notification> list = new ArrayList<>();
+        for (Announcement announcement : announcementMapper.selectList(wrapper)) {
+            if (hiddenIds.contains(announcement.getId())) {
+                continue;
+            }
+            if (after != null && !after.precedes(announcement.getCreatedAt(), ID_PREFIX + announcement.getId())) {
+                continue;
+            }
+            boolean read = announcement.getId() <= lastReadId || readIds.contains(announcement.getId());
+            if (isRead != null && isRead != read) {
+                continue;
+            }
+            list.add(toNotification(announcement, userId, read));
+        }
+        return list;
+    }
+
+    /**
+     * 未读公告数：只需扫描已读高水位和清除线之上的公告ID，排除单独已读和隐藏的
+     */
+    public int getUnreadCount(String userId) {
+        User user = userMapper.selectById(userId);
+        if (user == null) {
+            return 0;
+        }
+        AnnouncementReadMarker marker = markerMapper.selectById(userId);
+        long lastReadId = marker != null ? marker.getLastReadId() : 0;
+        long clearedId = marker != null ? marker.getClearedId() : 0;
+        Set<Long> readIds = marker != null ? parseIds(marker.getReadIds()) : new HashSet<>();
+        Set<Long> hiddenIds = marker != null ? parseIds(marker.getHiddenIds()) : new HashSet<>();
+
+        int count = 0;
+        for (Long id : visibleIdsAbove(user, Math.max(lastReadId, clearedId))) {
+            if (!readIds.contains(id) && !hiddenIds.contains(id)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 标记一条公告已读；对该用户不可见或已隐藏的公告忽略，避免例外集合无限增长
+     */
+    @Transactional
+    public void markAsRead(String notificationId, String userId) {
+        long id = parseAnnouncementId(notificationId);
+        User user = userMapper.selectById(userId);
+        if (user == null || !isVisible(user, id)) {
+            return;
+        }
+        AnnouncementReadMarker marker = lockMarker(userId);
+        if (id <= marker.getLastReadId() || id <= marker.getClearedId()) {
+            return;
+        }
+        if (parseIds(marker.getHiddenIds()).contains(id)) {
+            return;
+        }
+        Set<Long> readIds = parseIds(marker.getReadIds());
+        readIds.add(id);
+        marker.setLastReadId(advance(user, marker.getLastReadId(), readIds));
+        marker.setReadIds(writeIds(readIds));
+        markerMapper.updateById(marker);
+        unreadCounterService.invalidateAnnouncements(userId);
+    }
+
+    @Transactional
+    public void markAllAsRead(String userId) {
+        User user = userMapper.selectById(userId);
+        if (user == null) {
+            return;
+        }
+        Announcement latest = announcementMapper.selectOne(visibleTo(user)
+                .select(Announcement::getId).orderByDesc(Announcement::getId).last("LIMIT 1"));
+        if (latest == null) {
+            return;
+        }
+        AnnouncementReadMarker marker = lockMarker(userId);
+        if (latest.getId() <= marker.getLastReadId()) {
+            return;
+        }
+        marker.setLastReadId(latest.getId());
+        marker.setReadIds("[]");
+        markerMapper.updateById(marker);
+        unreadCounterService.invalidateAnnouncements(userId);
+    }
+
+    /**
+     * 用户删除一条公告（仅对自己隐藏），不可见的公告忽略
+     */
+    @Transactional
+    public void hide(String notificationId, String userId) {
+        long id = parseAnnouncementId(notificationId);
+        User user = userMapper.selectById(userId);
+        if (user == null || !isVisible(user, id)) {
+            return;
+        }
+        AnnouncementReadMarker marker = lockMarker(userId);
+        if (id <= marker.getClearedId()) {
+            return;
+        }
+        Set<Long> hiddenIds = parseIds(marker.getHiddenIds());
+        hiddenIds.add(id);
+        marker.setClearedId(advance(user, marker.getClearedId(), hiddenIds));
+        marker.setHiddenIds(writeIds(hiddenIds));
+        markerMapper.updateById(marker);
+        unreadCounterService.invalidateAnnouncements(userId);
+    }
+
+    /**
+     * 清除全部已读公告：清除线推进到已读高水位，单独已读的并入隐藏集合
+     */
+    @Transactional
+    public void clearRead(String userId) {
+        User user = userMapper.selectById(userId);
+        if (user == null) {
+            return;
+        }
+        AnnouncementReadMarker marker = lockMarker(userId);
+        long clearedId = Math.max(marker.getClearedId(), marker.getLastReadId());
+        Set<Long> hiddenIds = parseIds(marker.getHiddenIds());
+        hiddenIds.addAll(parseIds(marker.getReadIds()));
+        hiddenIds.removeIf(id -> id <= clearedId);
+        marker.setClearedId(advance(user, clearedId, hiddenIds));
+        marker.setHiddenIds(writeIds(hiddenIds));
+        markerMapper.updateById(marker);
+        unreadCounterService.invalidateAnnouncements(userId);
+    }
+
+    /**
+     * 若高水位之上紧邻的可见公告都在例外集合中，推进高水位并从集合中移除，保持集合很小
+     * @return 新的高水位
+     */
+    private long advance(User user, long mark, Set<Long> ids) {
+        for (Long id : visibleIdsAbove(user, mark)) {
+            if (!ids.remove(id)) {
+                break;
+            }
+            mark = id;
+        }
+        return mark;
+    }
+
+    private boolean isVisible(User user, long id) {
+        return announcementMapper.selectCount(visibleTo(user).eq(Announcement::getId, id)) > 0;
+    }
+
+    private List<Long> visibleIdsAbove(User user, long mark) {
+        List<Long> ids = new ArrayList<>();
+        for (Announcement announcement : announcementMapper.selectList(visibleTo(user)
+                .select(Announcement::getId)
+                .gt(Announcement::getId, mark)
+                .orderByAsc(Announcement::getId))) {
+            ids.add(announcement.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * 用户可见的公告：面向全体或其角色，且发布于注册之后
+     */
+    private LambdaQueryWrapper<Announcement> visibleTo(User user) {
+        LambdaQueryWrapper<Announcement> wrapper = new LambdaQueryWrapper<>();
+        wrapper.in(Announcement::getAudience, "all", user.getRole() != null ? user.getRole() : "all");
+        if (user.getCreatedAt() != null) {
+            wrapper.ge(Announcement::getCreatedAt, user.getCreatedAt());
+        }
+        return wrapper;
+    }
+
+    private AnnouncementReadMarker lockMarker(String userId) {
+        markerMapper.insertIfAbsent(userId);
+        return markerMapper.selectForUpdate(userId);
+    }
+
+    private long parseAnnouncementId(String notificationId) {
+        try {
+            return Long.parseLong(notificationId.substring(ID_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("通知不存在");
+        }
+    }
+
+    @SneakyThrows
+    private Set<Long> parseIds(String json) {
+        if (!StringUtils.hasText(json)) {
+            return new HashSet<>();
+        }
+        return objectMapper.readValue(json, new TypeReference<HashSet<Long>>() {});
+    }
+
+    @SneakyThrows
+    private String writeIds(Set<Long> ids) {
+        return objectMapper.writeValueAsString(new TreeSet<>(ids));
+    }
+
+    private Notification toNotification(Announcement announcement, String userId, boolean read) {
+        Notification notification = new Notification();
+        notification.setId(ID_PREFIX + announcement.getId());
+        notification.setUserId(userId);
+        notification.setType(announcement.getType());
+        notification.setTitle(announcement.getTitle());
+        notification.setContent(announcement.getContent());
+        notification.setLink(announcement.getLink());
+        notification.setIsRead(read);
+        notification.setRepeatCount(1);
+        notification.setCreatedAt(announcement.getCreatedAt());
+        notification.setUpdatedAt(announcement.getUpdatedAt());
+        return notification;
+    }
+
+    /**
+     * 推送给在线用户的公告，字段与通知列表一致
+     */
+    private Map<String, Object> toNotificationVO(Announcement announcement) {
+        Map<String, Object> vo = new HashMap<>();
+        vo.put("id", ID_PREFIX + announcement.getId());
+        vo.put("type", announcement.getType());
+        vo.put("title", announcement.getTitle());
+        vo.put("content", announcement.getContent());
+        vo.put("isRead", false);
+        vo.put("link", announcement.getLink());
+        vo.put("createdAt", announcement.getCreatedAt());
+        return vo;
+    }
+
+    private Map<String, Object> toVO(Announcement announcement) {
+        Map<String, Object> vo = new HashMap<>();
+        vo.put("id", announcement.getId());
+        vo.put("audience", announcement.getAudience());
+        vo.put("type", announcement.getType());
+        vo.put("title", announcement.getTitle());
+        vo.put("content", announcement.getContent());
+        vo.put("link", announcement.getLink());
+        vo.put("createdBy", announcement.getCreatedBy());
+        vo.put("createdAt", announcement.getCreatedAt());
+        return vo;
+    }
+}
@@ -0,0 +1,209 @@
+package com.pet.service;
+
+import com.pet.mapper.BookingMapper;
+import com.pet.util.BookingColumns;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 订单分析立方体
+ * 启动后在后台把 booking 全表装入进程内列存（BookingColumns），之后按 (updated_at, id) 顺序追读变更流，
+ * 新增、状态变化、退款、逻辑删除都会推进 updated_at，同一订单重复读到时覆盖写入。
+ * 追读从上次位置回退 tail-lag-seconds 开始，覆盖提交顺序与 updated_at 顺序不一致、各实例时钟偏差的情况；
+ * 读取变更流而不是监听本进程的写操作，多实例部署时其他节点写入的订单也能同步。
+ * 提交晚于 updated_at 超过回退时长的变更、宠物种类的修改（不推进订单的 updated_at）追读不到，
+ * 由定时全量校准（reconcile-interval-ms）重新读取全表覆盖写入，偏差最多保持一个校准周期。
+ * 查询持读锁在 ForkJoin 线程池中并行扫描，写入变更时持写锁；装载完成前 isReady() 为 false，调用方应回退到数据库查询
+ */
+@Slf4j
+@Service
+public class BookingCubeService {
+
+    private static final LocalDateTime BEGINNING = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final BookingMapper bookingMapper;
+    private final TaskExecutor backgroundExecutor;
+
+    @Value("${analytics.cube.enabled:true}")
+    private boolean enabled;
+
+    @Value("${analytics.cube.parallelism:0}")
+    private int parallelism;
+
+    @Value("${analytics.cube.batch-size:5000}")
+    private int batchSize;
+
+    @Value("${analytics.cube.tail-lag-seconds:10}")
+    private long tailLagSeconds;
+
+    private final BookingColumns columns = new BookingColumns();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /** 装载与追读互斥，同一时刻只有一个线程推进同步位置 */
+    private final Object syncMonitor = new Object();
+
+    private volatile ForkJoinPool pool;
+    private volatile boolean ready;
+    /** 已同步到的最大 updated_at */
+    private volatile LocalDateTime watermark = BEGINNING;
+
+    public BookingCubeService(BookingMapper bookingMapper,
+                              @Qualifier("backgroundExecutor") TaskExecutor backgroundExecutor) {
+        this.bookingMapper = bookingMapper;
+        this.backgroundExecutor = backgroundExecutor;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        try {
+            backgroundExecutor.execute(() -> {
+                long start = System.currentTimeMillis();
+                try {
+                    int rows;
+                    synchronized (syncMonitor) {
+                        rows = pull(BEGINNING);
+                    }
+                    ready = true;
+                    log.info("订单分析数据装载完成: rows={}, 耗时{}ms", rows, System.currentTimeMillis() - start);
+                } catch (Exception e) {
+                    log.error("订单分析数据装载失败，仪表盘回退到数据库查询", e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("后台任务繁忙，订单分析数据未装载，仪表盘回退到数据库查询");
+        }
+    }
+
+    /**
+     * 追读订单变更
+     */
+    @Scheduled(fixedDelayString = "${analytics.cube.tail-interval-ms:2000}")
+    public void tail() {
+        if (!ready) {
+            return;
+        }
+        try {
+            synchronized (syncMonitor) {
+                pull(watermark.minusSeconds(tailLagSeconds));
+            }
+        } catch (Exception e) {
+            log.warn("同步订单分析数据失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 全量校准：重新读取全表覆盖写入，修正追读漏掉的迟到提交和宠物种类变化，查询不中断
+     */
+    @Scheduled(initialDelayString = "${analytics.cube.reconcile-interval-ms:1800000}",
+            fixedDelayString = "${analytics.cube.reconcile-interval-ms:1800000}")
+    public void reconcile() {
+        if (!ready) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            int rows;
+            synchronized (syncMonitor) {
+                rows = pull(BEGINNING);
+            }
+            log.info("订单分析数据校准完成: rows={}, 耗时{}ms", rows, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.warn("校准订单分析数据失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 从 since 开始按批读取变更并写入列存
+     * @return 读取的行数
+     */
+    private int pull(LocalDateTime since) {
+        String afterId = "";
+        int total = 0;
+        while (true) {
+            List<BookingColumns.Row> rows = bookingMapper.selectChangedSince(since, afterId, batchSize);
+            if (rows.isEmpty()) {
+                break;
+            }
+            lock.writeLock().lock();
+            try {
+                for (BookingColumns.Row row : rows) {
+                    columns.put(row);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            total += rows.size();
+
+            BookingColumns.Row last = rows.get(rows.size() - 1);
+            since = last.getUpdatedAt();
+            afterId = last.getId();
+            if (since.isAfter(watermark)) {
+                watermark = since;
+            }
+            if (rows.size() < batchSize) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 过滤并分组聚合，金额单位为分
+     */
+    public List<BookingColumns.Group> aggregate(BookingColumns.Query query) {
+        if (!ready) {
+            throw new RuntimeException("分析数据加载中，请稍后重试");
+        }
+        lock.readLock().lock();
+        try {
+            return columns.aggregate(query, pool);
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException(e.getMessage());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("enabled", enabled);
+        status.put("ready", ready);
+        status.put("watermark", ready ? watermark : null);
+        lock.readLock().lock();
+        try {
+            status.put("bookings", columns.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+        return status;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+}
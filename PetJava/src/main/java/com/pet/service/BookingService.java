@@ -4,10 +4,12 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pet.common.Money;
 import com.pet.common.PageResult;
 import com.pet.dto.CreateBookingRequest;
 import com.pet.entity.Booking;
 import com.pet.entity.Institution;
+import com.pet.entity.Notification;
 import com.pet.entity.Pet;
 import com.pet.entity.ServicePackage;
 import com.pet.entity.User;
@@ -24,7 +26,6 @@ import lombok.SneakyThrows;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
@@ -45,6 +46,8 @@ public class BookingService {
     private final ObjectMapper objectMapper;
     private final WalletService walletService;
     private final NotificationService notificationService;
+    private final DailyMetricsService dailyMetricsService;
+    private final SettlementService settlementService;
 
     @SneakyThrows
     public Map<String, Object> create(String userId, CreateBookingRequest request) {
@@ -58,12 +61,12 @@ public class BookingService {
         
         // 使用 PriceCalculator 计算价格
         Map<String, Object> priceResult = PriceCalculator.calculateBookingPriceByDates(
-                pkg.getPricePerDay(), startDate, endDate);
+                Money.ofYuan(pkg.getPricePerDay()), startDate, endDate);
         
         int totalDays = (int) priceResult.get("totalDays");
-        BigDecimal basePrice = (BigDecimal) priceResult.get("subtotal");
-        BigDecimal discount = (BigDecimal) priceResult.get("discount");
-        BigDecimal totalPrice = (BigDecimal) priceResult.get("totalPrice");
+        Money basePrice = (Money) priceResult.get("subtotal");
+        Money discount = (Money) priceResult.get("discount");
+        Money totalPrice = (Money) priceResult.get("totalPrice");
 
         Booking booking = new Booking();
         // 使用 OrderNumberGenerator 生成订单号
@@ -84,6 +87,7 @@ public class BookingService {
         booking.setEmergencyContact(objectMapper.writeValueAsString(request.getEmergencyContact()));
 
         bookingMapper.insert(booking);
+        dailyMetricsService.recordOrder(booking);
         
         // 发送通知给用户
         Institution inst = institutionMapper.selectById(request.getInstitutionId());
@@ -147,7 +151,7 @@ public class BookingService {
             throw new RuntimeException((String) canCancelResult.get("reason"));
         }
 
-        BigDecimal refundAmount = BigDecimal.ZERO;
+        Money refundAmount = Money.ZERO;
         if ("paid".equals(booking.getPaymentStatus())) {
             // 使用 RefundCalculator 计算退款金额
             Map<String, Object> refundResult = RefundCalculator.calculateRefund(
@@ -156,7 +160,7 @@ public class BookingService {
                     booking.getEndDate(),
                     LocalDateTime.now());
             
-            refundAmount = (BigDecimal) refundResult.get("refundAmount");
+            refundAmount = (Money) refundResult.get("refundAmount");
             booking.setRefundAmount(refundAmount);
             booking.setRefundedAt(LocalDateTime.now());
             
@@ -166,25 +170,12 @@ public class BookingService {
             } else if ("partial".equals(refundType)) {
                 booking.setPaymentStatus("partial_refund");
             }
-            
-            // 退款到用户钱包
-            if (refundAmount.compareTo(BigDecimal.ZERO) > 0) {
-                int refundAmountInFen = refundAmount.multiply(new BigDecimal(100)).intValue();
-                walletService.addIncome(booking.getUserId(), refundAmountInFen, 
-                    "订单退款 - " + booking.getOrderNumber(), booking.getId());
-            }
         }
 
         booking.setStatus("cancelled");
         booking.setCancelReason(reason);
         bookingMapper.updateById(booking);
-        
-        // 发送通知给用户
-        String notifyContent = "您的订单 " + booking.getOrderNumber() + " 已取消";
-        if (refundAmount.compareTo(BigDecimal.ZERO) > 0) {
-            notifyContent += "，退款 ¥" + refundAmount + " 已退回钱包";
-        }
-        notificationService.send(booking.getUserId(), "booking", "订单已取消", notifyContent, "/order/" + booking.getId());
+        afterCancelled(Collections.singletonList(booking), null);
 
         Map<String, Object> result = new HashMap<>();
         result.put("booking", toBookingVO(booking));
@@ -192,6 +183,50 @@ public class BookingService {
         return result;
     }
 
+    /**
+     * 订单取消后的退款入账、退款统计和用户通知，用户取消与机构批量取消共用
+     * 调用前订单已写入退款金额并更新为已取消
+     * @param reason 写入通知的取消原因，为空时不显示
+     */
+    public void afterCancelled(List<Booking> bookings, String reason) {
+        List<WalletService.RefundItem> refunds = new ArrayList<>();
+        for (Booking booking : bookings) {
+            Money refundAmount = booking.getRefundAmount();
+            if (refundAmount != null && refundAmount.isPositive()) {
+                refunds.add(new WalletService.RefundItem(booking.getUserId(), refundAmount,
+                        "订单退款 - " + booking.getOrderNumber(), booking.getId()));
+            }
+        }
+        walletService.refundBatch(refunds);
+        dailyMetricsService.recordRefunds(bookings);
+
+        // 用户取消单个订单时走 send 以合并同一订单的通知；批量取消一条语句写入整批通知
+        List<Notification> notifications = new ArrayList<>(bookings.size());
+        for (Booking booking : bookings) {
+            Money refundAmount = booking.getRefundAmount();
+            String notifyContent = "您的订单 " + booking.getOrderNumber() + " 已取消";
+            if (StringUtils.hasText(reason)) {
+                notifyContent += "，原因：" + reason;
+            }
+            if (refundAmount != null && refundAmount.isPositive()) {
+                notifyContent += "，退款 ¥" + refundAmount + " 已退回钱包";
+            }
+            Notification notification = new Notification();
+            notification.setUserId(booking.getUserId());
+            notification.setType("booking");
+            notification.setTitle("订单已取消");
+            notification.setContent(notifyContent);
+            notification.setLink("/order/" + booking.getId());
+            notifications.add(notification);
+        }
+        if (notifications.size() == 1) {
+            Notification n = notifications.get(0);
+            notificationService.send(n.getUserId(), n.getType(), n.getTitle(), n.getContent(), n.getLink());
+        } else {
+            notificationService.sendBatch(notifications);
+        }
+    }
+
     public Map<String, Object> pay(String id, String paymentMethod) {
         Booking booking = bookingMapper.selectById(id);
         if (booking == null) {
@@ -204,14 +239,15 @@ public class BookingService {
         // 如果使用钱包支付，检查余额并扣款
         if ("wallet".equals(paymentMethod)) {
             String userId = booking.getUserId();
-            int amountInFen = booking.getTotalPrice().multiply(new BigDecimal(100)).intValue();
             
             // 检查余额并扣款
-            boolean success = walletService.deductBalance(userId, amountInFen, 
+            boolean success = walletService.deductBalance(userId, booking.getTotalPrice(), 
                 "订单支付 - " + booking.getOrderNumber(), booking.getId());
             if (!success) {
                 throw new RuntimeException("余额不足");
             }
+        } else {
+            walletService.recordExternalPayment(booking.getTotalPrice(), booking.getId());
         }
 
         booking.setPaymentStatus("paid");
@@ -245,7 +281,7 @@ public class BookingService {
         booking.setStatus("cancelled");
         booking.setCancelReason(reason);
         
-        BigDecimal refundAmount = BigDecimal.ZERO;
+        Money refundAmount = Money.ZERO;
         if ("paid".equals(booking.getPaymentStatus())) {
             refundAmount = booking.getTotalPrice();
             booking.setRefundAmount(refundAmount);
@@ -253,15 +289,15 @@ public class BookingService {
             booking.setPaymentStatus("refunded");
             
             // 退款到用户钱包
-            int refundAmountInFen = refundAmount.multiply(new BigDecimal(100)).intValue();
-            walletService.addIncome(booking.getUserId(), refundAmountInFen, 
+            walletService.refund(booking.getUserId(), refundAmount, 
                 "订单退款 - " + booking.getOrderNumber(), booking.getId());
         }
         bookingMapper.updateById(booking);
+        dailyMetricsService.recordRefund(booking.getInstitutionId(), refundAmount);
         
         // 发送通知给用户
         String notifyContent = "您的订单 " + booking.getOrderNumber() + " 已被取消，原因：" + reason;
-        if (refundAmount.compareTo(BigDecimal.ZERO) > 0) {
+        if (refundAmount.isPositive()) {
             notifyContent += "，退款 ¥" + refundAmount + " 已退回钱包";
         }
         notificationService.send(booking.getUserId(), "booking", "订单已取消", notifyContent, "/order/" + booking.getId());
@@ -311,11 +347,7 @@ public class BookingService {
                        .last("LIMIT 1");
             User staffUser = userMapper.selectOne(userWrapper);
             if (staffUser != null) {
-                int amountInFen = booking.getTotalPrice().multiply(new BigDecimal(100)).intValue();
-                walletService.addIncome(staffUser.getId(), 
-                    amountInFen,
-                    "订单收入 - " + booking.getOrderNumber(),
-                    booking.getId());
+                settlementService.settleOnCheckout(booking, staffUser.getId());
             }
         }
         
@@ -439,13 +471,8 @@ public class BookingService {
             "/order/" + booking.getId());
         
         // 将订单金额转入机构员工钱包（执行离店操作的员工）
-        if ("paid".equals(booking.getPaymentStatus()) && booking.getTotalPrice() != null && staffUserId != null) {
-            int amountInFen = booking.getTotalPrice().multiply(new BigDecimal(100)).intValue();
-            walletService.addIncome(staffUserId, 
-                amountInFen,
-                "订单收入 - " + booking.getOrderNumber(),
-                booking.getId());
-            System.out.println("订单离店收入已转入机构钱包: userId=" + staffUserId + ", amount=" + amountInFen + "分");
+        if (settlementService.settleOnCheckout(booking, staffUserId)) {
+            System.out.println("订单离店收入已转入机构钱包: userId=" + staffUserId + ", amount=" + booking.getTotalPrice().getFen() + "分");
         }
         
         return toBookingVO(booking);
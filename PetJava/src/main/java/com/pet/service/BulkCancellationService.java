@@ -0,0 +1,308 @@
+package com.pet.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.pet.common.Money;
+import com.pet.entity.Booking;
+import com.pet.entity.BulkCancelJob;
+import com.pet.entity.Institution;
+import com.pet.mapper.BookingMapper;
+import com.pet.mapper.BulkCancelJobMapper;
+import com.pet.mapper.InstitutionMapper;
+import com.pet.util.RefundCalculator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 批量取消服务
+ * 机构停业时取消其全部未来订单并退款：每批在一个事务内加锁选取仍可取消的订单、并行计算退款、
+ * 批量更新订单，退款入账、统计和通知走与用户取消相同的 BookingService.afterCancelled。
+ * 已取消的订单不再被选中，反复选取直到没有可取消的订单，任务进行中新增的订单也会被处理；
+ * 任务中断（重启、异常）后重新选取即可继续
+ */
+@Slf4j
+@Service
+public class BulkCancellationService {
+
+    private static final List<String> CANCELLABLE_STATUSES = Arrays.asList("pending", "confirmed");
+
+    private final BookingMapper bookingMapper;
+    private final BulkCancelJobMapper jobMapper;
+    private final InstitutionMapper institutionMapper;
+    private final BookingService bookingService;
+    private final NotificationService notificationService;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskExecutor backgroundExecutor;
+
+    @Value("${booking.bulk-cancel.batch-size:200}")
+    private int batchSize;
+
+    /** 本实例中正在执行的任务 */
+    private final Set<String> runningJobs = ConcurrentHashMap.newKeySet();
+
+    public BulkCancellationService(BookingMapper bookingMapper,
+                                   BulkCancelJobMapper jobMapper,
+                                   InstitutionMapper institutionMapper,
+                                   BookingService bookingService,
+                                   NotificationService notificationService,
+                                   PlatformTransactionManager transactionManager,
+                                   @Qualifier("backgroundExecutor") TaskExecutor backgroundExecutor) {
+        this.bookingMapper = bookingMapper;
+        this.jobMapper = jobMapper;
+        this.institutionMapper = institutionMapper;
+        this.bookingService = bookingService;
+        this.notificationService = notificationService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.backgroundExecutor = backgroundExecutor;
+    }
+
+    /**
+     * 创建并启动批量取消任务
+     * @param fullRefund 是否全额退款（机构原因停业通常全额退款），否则按退款规则计算
+     */
+    public Map<String, Object> start(String institutionId, String reason, boolean fullRefund) {
+        Institution institution = institutionMapper.selectById(institutionId);
+        if (institution == null) {
+            throw new RuntimeException("机构不存在");
+        }
+        Long active = jobMapper.selectCount(new LambdaQueryWrapper<BulkCancelJob>()
+                .eq(BulkCancelJob::getInstitutionId, institutionId)
+                .eq(BulkCancelJob::getStatus, "running"));
+        if (active != null && active > 0) {
+            throw new RuntimeException("该机构已有进行中的批量取消任务");
+        }
+
+        BulkCancelJob job = new BulkCancelJob();
+        job.setInstitutionId(institutionId);
+        job.setReason(reason != null && !reason.isEmpty() ? reason : "机构暂停营业");
+        job.setFullRefund(fullRefund);
+        job.setCutoffDate(LocalDate.now());
+        job.setStatus("running");
+        job.setTotalCount(Math.toIntExact(bookingMapper.selectCount(affectedBookings(job))));
+        job.setProcessedCount(0);
+        job.setRefundedCount(0);
+        job.setRefundTotal(0L);
+        jobMapper.insert(job);
+
+        log.info("创建批量取消任务: jobId={}, institutionId={}, total={}", job.getId(), institutionId, job.getTotalCount());
+        submit(job.getId());
+        return toVO(job);
+    }
+
+    /**
+     * 继续执行已中断或失败的任务
+     */
+    public Map<String, Object> resume(String jobId) {
+        BulkCancelJob job = getJob(jobId);
+        if ("completed".equals(job.getStatus())) {
+            throw new RuntimeException("任务已完成");
+        }
+        if (runningJobs.contains(jobId)) {
+            throw new RuntimeException("任务正在执行中");
+        }
+        job.setStatus("running");
+        job.setLastError(null);
+        jobMapper.updateById(job);
+        submit(jobId);
+        return toVO(job);
+    }
+
+    public Map<String, Object> getProgress(String jobId) {
+        return toVO(getJob(jobId));
+    }
+
+    public List<Map<String, Object>> getJobs(String institutionId) {
+        LambdaQueryWrapper<BulkCancelJob> wrapper = new LambdaQueryWrapper<>();
+        if (institutionId != null && !institutionId.isEmpty()) {
+            wrapper.eq(BulkCancelJob::getInstitutionId, institutionId);
+        }
+        wrapper.orderByDesc(BulkCancelJob::getCreatedAt).last("LIMIT 50");
+        List<Map<String, Object>> list = new ArrayList<>();
+        for (BulkCancelJob job : jobMapper.selectList(wrapper)) {
+            list.add(toVO(job));
+        }
+        return list;
+    }
+
+    /**
+     * 启动时继续上次未执行完的任务
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterrupted() {
+        List<BulkCancelJob> jobs = jobMapper.selectList(new LambdaQueryWrapper<BulkCancelJob>()
+                .eq(BulkCancelJob::getStatus, "running"));
+        for (BulkCancelJob job : jobs) {
+            log.info("继续执行中断的批量取消任务: jobId={}, processed={}", job.getId(), job.getProcessedCount());
+            try {
+                submit(job.getId());
+            } catch (RuntimeException e) {
+                log.warn("批量取消任务提交失败: jobId={}, {}", job.getId(), e.getMessage());
+            }
+        }
+    }
+
+    private BulkCancelJob getJob(String jobId) {
+        BulkCancelJob job = jobMapper.selectById(jobId);
+        if (job == null) {
+            throw new RuntimeException("任务不存在");
+        }
+        return job;
+    }
+
+    private void submit(String jobId) {
+        if (!runningJobs.add(jobId)) {
+            return;
+        }
+        try {
+            backgroundExecutor.execute(() -> run(jobId));
+        } catch (RejectedExecutionException e) {
+            runningJobs.remove(jobId);
+            throw new RuntimeException("后台任务繁忙，请稍后继续执行");
+        }
+    }
+
+    private void run(String jobId) {
+        try {
+            boolean more = true;
+            while (more) {
+                // 关闭应用时停在批次边界，状态保持 running，下次启动继续
+                if (Thread.currentThread().isInterrupted()) {
+                    log.info("批量取消任务中断: jobId={}", jobId);
+                    return;
+                }
+                more = Boolean.TRUE.equals(transactionTemplate.execute(status -> processBatch(jobId)));
+            }
+            BulkCancelJob job = jobMapper.selectById(jobId);
+            if (job == null || !"completed".equals(job.getStatus())) {
+                return;
+            }
+            log.info("批量取消任务完成: jobId={}, processed={}, refunded={}, refundTotal={}",
+                    jobId, job.getProcessedCount(), job.getRefundedCount(), job.getRefundTotal());
+            notificationService.sendToAdmins("system", "批量取消已完成",
+                    "共取消订单 " + job.getProcessedCount() + " 个，退款 " + job.getRefundedCount() + " 笔，合计 ¥"
+                            + Money.ofFen(job.getRefundTotal()),
+                    "/admin/orders");
+        } catch (Exception e) {
+            log.error("批量取消任务失败: jobId={}", jobId, e);
+            BulkCancelJob failed = new BulkCancelJob();
+            failed.setId(jobId);
+            failed.setStatus("failed");
+            String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            failed.setLastError(message.length() > 500 ? message.substring(0, 500) : message);
+            jobMapper.updateById(failed);
+        } finally {
+            runningJobs.remove(jobId);
+        }
+    }
+
+    /**
+     * 处理一批订单，与任务游标在同一事务中提交
+     * @return 是否需要继续下一批（没有待处理订单时标记任务完成并返回 false）
+     */
+    private boolean processBatch(String jobId) {
+        BulkCancelJob job = jobMapper.selectById(jobId);
+        if (job == null || !"running".equals(job.getStatus())) {
+            return false;
+        }
+
+        // 本批处理后的订单状态变为已取消，下一批从头选取即可，不依赖游标
+        LambdaQueryWrapper<Booking> wrapper = affectedBookings(job);
+        wrapper.orderByAsc(Booking::getId).last("LIMIT " + batchSize + " FOR UPDATE");
+        List<Booking> bookings = bookingMapper.selectList(wrapper);
+
+        if (bookings.isEmpty()) {
+            job.setStatus("completed");
+            job.setFinishedAt(LocalDateTime.now());
+            jobMapper.updateById(job);
+            return false;
+        }
+
+        // 退款计算彼此独立，并行执行
+        LocalDateTime refundedAt = LocalDateTime.now();
+        bookings.parallelStream().forEach(b -> applyRefund(b, job, refundedAt));
+
+        bookingMapper.cancelBatch(bookings, job.getReason());
+        bookingService.afterCancelled(bookings, job.getReason());
+
+        int refunded = 0;
+        long refundTotal = 0;
+        for (Booking booking : bookings) {
+            Money refundAmount = booking.getRefundAmount();
+            if (refundAmount != null && refundAmount.isPositive()) {
+                refunded++;
+                refundTotal += refundAmount.getFen();
+            }
+        }
+
+        job.setProcessedCount(job.getProcessedCount() + bookings.size());
+        job.setRefundedCount(job.getRefundedCount() + refunded);
+        job.setRefundTotal(job.getRefundTotal() + refundTotal);
+        jobMapper.updateById(job);
+        return true;
+    }
+
+    /**
+     * 计算单个订单的退款并写入订单对象
+     * 按退款规则计算时以任务创建时间作为取消时间，续跑的批次与首批口径一致
+     */
+    private void applyRefund(Booking booking, BulkCancelJob job, LocalDateTime refundedAt) {
+        if (!"paid".equals(booking.getPaymentStatus()) || booking.getTotalPrice() == null) {
+            return;
+        }
+        Money refundAmount;
+        String refundType;
+        if (Boolean.TRUE.equals(job.getFullRefund())) {
+            refundAmount = booking.getTotalPrice();
+            refundType = "full";
+        } else {
+            Map<String, Object> refundResult = RefundCalculator.calculateRefund(
+                    booking.getTotalPrice(), booking.getStartDate(), booking.getEndDate(), job.getCreatedAt());
+            refundAmount = (Money) refundResult.get("refundAmount");
+            refundType = (String) refundResult.get("type");
+        }
+        booking.setRefundAmount(refundAmount);
+        booking.setRefundedAt(refundedAt);
+        if ("full".equals(refundType)) {
+            booking.setPaymentStatus("refunded");
+        } else if ("partial".equals(refundType)) {
+            booking.setPaymentStatus("partial_refund");
+        }
+    }
+
+    private LambdaQueryWrapper<Booking> affectedBookings(BulkCancelJob job) {
+        return new LambdaQueryWrapper<Booking>()
+                .eq(Booking::getInstitutionId, job.getInstitutionId())
+                .in(Booking::getStatus, CANCELLABLE_STATUSES)
+                .ge(Booking::getStartDate, job.getCutoffDate());
+    }
+
+    private Map<String, Object> toVO(BulkCancelJob job) {
+        Map<String, Object> vo = new HashMap<>();
+        vo.put("id", job.getId());
+        vo.put("institutionId", job.getInstitutionId());
+        vo.put("reason", job.getReason());
+        vo.put("fullRefund", job.getFullRefund());
+        vo.put("status", job.getStatus());
+        vo.put("totalCount", job.getTotalCount());
+        vo.put("processedCount", job.getProcessedCount());
+        vo.put("refundedCount", job.getRefundedCount());
+        vo.put("refundTotal", job.getRefundTotal());
+        vo.put("lastError", job.getLastError());
+        vo.put("createdAt", job.getCreatedAt());
+        vo.put("finishedAt", job.getFinishedAt());
+        vo.put("running", runningJobs.contains(job.getId()));
+        return vo;
+    }
+}
@@ -35,6 +35,7 @@ public class ComplaintService {
     private final ObjectMapper objectMapper;
     private final NotificationService notificationService;
     private final InstitutionService institutionService;
+    private final ModerationService moderationService;
 
     /**
      * 用户提交投诉/工单
@@ -42,6 +43,7 @@ public class ComplaintService {
     @SneakyThrows
     public Map<String, Object> submitComplaint(String userId, Map<String, Object> data) {
         log.info("提交投诉 - 用户ID: {}, 数据: {}", userId, data);
+        moderationService.checkBlocked((String) data.get("description"));
         
         Complaint complaint = new Complaint();
         
@@ -107,6 +109,7 @@ public class ComplaintService {
         }
         
         complaintMapper.insert(complaint);
+        moderationService.screenAsync("complaint", complaint.getId(), userId, complaint.getDescription());
         
         log.info("投诉保存成功 - 投诉ID: {}, 编号: {}, 机构ID: {}, 状态: {}", 
             complaint.getId(), complaint.getComplaintNumber(), complaint.getInstitutionId(), complaint.getStatus());
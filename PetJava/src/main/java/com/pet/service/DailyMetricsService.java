@@ -0,0 +1,281 @@
+package com.pet.service;
+
+import com.pet.common.Money;
+import com.pet.entity.Booking;
+import com.pet.entity.DailyMetrics;
+import com.pet.mapper.DailyMetricsMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 每日指标汇总服务
+ * 下单、退款、注册、提现时在同一事务内对当天的汇总行做原子累加，管理后台的财务和趋势图表只读汇总行；
+ * 回填任务按天从明细表重算（每天一个事务），用于首次启用、补历史数据和修正偏差，
+ * 每天凌晨重算前一天作为校对
+ */
+@Slf4j
+@Service
+public class DailyMetricsService {
+
+    /** 平台服务费率 */
+    public static final BigDecimal PLATFORM_FEE_RATE = new BigDecimal("0.1");
+
+    private final DailyMetricsMapper metricsMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskExecutor backgroundExecutor;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    public DailyMetricsService(DailyMetricsMapper metricsMapper,
+                               PlatformTransactionManager transactionManager,
+                               @Qualifier("backgroundExecutor") TaskExecutor backgroundExecutor) {
+        this.metricsMapper = metricsMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.backgroundExecutor = backgroundExecutor;
+    }
+
+    // ========== 增量 ==========
+
+    /**
+     * 新订单
+     */
+    public void recordOrder(Booking booking) {
+        if (booking.getTotalPrice() == null) {
+            return;
+        }
+        long gmv = booking.getTotalPrice().getFen();
+        DailyMetrics delta = delta(dayOf(booking.getCreatedAt()), booking.getInstitutionId());
+        delta.setOrderCount(1);
+        delta.setGmv(gmv);
+        delta.setPlatformFee(platformFee(gmv));
+        metricsMapper.addDelta(delta);
+    }
+
+    /**
+     * 订单退款，记在退款当天
+     */
+    public void recordRefund(String institutionId, Money amount) {
+        if (amount == null || !amount.isPositive()) {
+            return;
+        }
+        DailyMetrics delta = delta(LocalDate.now(), institutionId);
+        delta.setRefundCount(1);
+        delta.setRefundAmount(amount.getFen());
+        metricsMapper.addDelta(delta);
+    }
+
+    /**
+     * 一批订单退款，同一机构合并为一次累加
+     */
+    public void recordRefunds(List<Booking> bookings) {
+        Map<String, DailyMetrics> deltas = new HashMap<>();
+        for (Booking booking : bookings) {
+            Money amount = booking.getRefundAmount();
+            if (amount == null || !amount.isPositive()) {
+                continue;
+            }
+            DailyMetrics delta = deltas.computeIfAbsent(booking.getInstitutionId(),
+                    id -> delta(LocalDate.now(), id));
+            delta.setRefundCount(delta.getRefundCount() + 1);
+            delta.setRefundAmount(delta.getRefundAmount() + amount.getFen());
+        }
+        for (DailyMetrics delta : deltas.values()) {
+            metricsMapper.addDelta(delta);
+        }
+    }
+
+    /**
+     * 新用户注册
+     */
+    public void recordNewUser() {
+        DailyMetrics delta = delta(LocalDate.now(), DailyMetrics.PLATFORM);
+        delta.setNewUsers(1);
+        metricsMapper.addDelta(delta);
+    }
+
+    /**
+     * 提现申请
+     * @param amount 提现金额（分）
+     */
+    public void recordWithdrawal(long amount) {
+        DailyMetrics delta = delta(LocalDate.now(), DailyMetrics.PLATFORM);
+        delta.setWithdrawalCount(1);
+        delta.setWithdrawalAmount(amount);
+        metricsMapper.addDelta(delta);
+    }
+
+    public static long platformFee(long gmv) {
+        return BigDecimal.valueOf(gmv).multiply(PLATFORM_FEE_RATE).setScale(0, RoundingMode.HALF_UP).longValue();
+    }
+
+    private DailyMetrics delta(LocalDate day, String institutionId) {
+        DailyMetrics delta = new DailyMetrics();
+        delta.setStatDate(day);
+        delta.setInstitutionId(institutionId != null ? institutionId : DailyMetrics.PLATFORM);
+        delta.setOrderCount(0);
+        delta.setGmv(0L);
+        delta.setPlatformFee(0L);
+        delta.setRefundCount(0);
+        delta.setRefundAmount(0L);
+        delta.setNewUsers(0);
+        delta.setWithdrawalCount(0);
+        delta.setWithdrawalAmount(0L);
+        return delta;
+    }
+
+    private LocalDate dayOf(LocalDateTime time) {
+        return time != null ? time.toLocalDate() : LocalDate.now();
+    }
+
+    // ========== 读取 ==========
+
+    /**
+     * 时间段内全平台合计（金额单位：分）
+     */
+    public Map<String, Object> sumRange(LocalDate from, LocalDate to) {
+        Map<String, Object> row = metricsMapper.sumRange(from, to);
+        Map<String, Object> result = new HashMap<>();
+        for (String key : Arrays.asList("orderCount", "gmv", "platformFee", "refundCount", "refundAmount",
+                "newUsers", "withdrawalCount", "withdrawalAmount")) {
+            Object value = row != null ? row.get(key) : null;
+            result.put(key, value != null ? ((Number) value).longValue() : 0L);
+        }
+        return result;
+    }
+
+    /**
+     * 近 N 个月的月度合计，按月份先后排列，没有数据的月份补 0（金额单位：分）
+     */
+    public List<Map<String, Object>> monthlyTrend(int months) {
+        LocalDate now = LocalDate.now();
+        LocalDate from = now.minusMonths(months - 1).withDayOfMonth(1);
+        Map<String, Map<String, Object>> byMonth = new HashMap<>();
+        for (Map<String, Object> row : metricsMapper.sumByMonth(from, now)) {
+            byMonth.put((String) row.get("month"), row);
+        }
+        List<Map<String, Object>> trend = new ArrayList<>();
+        for (int i = months - 1; i >= 0; i--) {
+            LocalDate month = now.minusMonths(i).withDayOfMonth(1);
+            Map<String, Object> row = byMonth.get(String.format("%d-%02d", month.getYear(), month.getMonthValue()));
+            Map<String, Object> point = new HashMap<>();
+            point.put("month", month);
+            for (String key : Arrays.asList("orderCount", "gmv", "platformFee", "refundAmount", "newUsers")) {
+                Object value = row != null ? row.get(key) : null;
+                point.put(key, value != null ? ((Number) value).longValue() : 0L);
+            }
+            trend.add(point);
+        }
+        return trend;
+    }
+
+    // ========== 回填 ==========
+
+    /**
+     * 启动时汇总表为空则回填全部历史
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void bootstrap() {
+        try {
+            if (metricsMapper.selectCount(null) > 0) {
+                return;
+            }
+            LocalDate first = metricsMapper.selectFirstBookingDate();
+            if (first != null) {
+                log.info("每日指标汇总为空，回填 {} 至今", first);
+                startRebuild(first, LocalDate.now());
+            }
+        } catch (Exception e) {
+            log.warn("每日指标回填启动失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 每天凌晨重算前一天，修正增量累加与明细的偏差（如订单被删除）
+     */
+    @Scheduled(cron = "${analytics.daily-metrics.rebuild-cron:0 30 4 * * ?}")
+    public void rebuildYesterday() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            rebuildDay(LocalDate.now().minusDays(1));
+        } catch (Exception e) {
+            log.error("重算每日指标失败", e);
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    /**
+     * 后台按天重算 [from, to]
+     */
+    public Map<String, Object> startRebuild(LocalDate from, LocalDate to) {
+        if (from == null || to == null || from.isAfter(to)) {
+            throw new RuntimeException("无效的日期范围");
+        }
+        if (!rebuilding.compareAndSet(false, true)) {
+            throw new RuntimeException("任务正在执行中");
+        }
+        try {
+            backgroundExecutor.execute(() -> {
+                try {
+                    int days = 0;
+                    for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+                        if (Thread.currentThread().isInterrupted()) {
+                            log.info("每日指标回填中断: 已完成至 {}", day.minusDays(1));
+                            return;
+                        }
+                        rebuildDay(day);
+                        days++;
+                    }
+                    log.info("每日指标回填完成: {} 至 {}，共{}天", from, to, days);
+                } catch (Exception e) {
+                    log.error("每日指标回填失败", e);
+                } finally {
+                    rebuilding.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rebuilding.set(false);
+            throw new RuntimeException("后台任务繁忙，请稍后继续执行");
+        }
+        Map<String, Object> result = new HashMap<>();
+        result.put("from", from);
+        result.put("to", to);
+        return result;
+    }
+
+    public boolean isRebuilding() {
+        return rebuilding.get();
+    }
+
+    /**
+     * 在一个事务内删除并重算某一天的全部汇总行
+     */
+    private void rebuildDay(LocalDate day) {
+        LocalDateTime from = day.atStartOfDay();
+        LocalDateTime to = day.plusDays(1).atStartOfDay();
+        transactionTemplate.executeWithoutResult(status -> {
+            metricsMapper.deleteDay(day);
+            metricsMapper.rebuildOrders(day, from, to, PLATFORM_FEE_RATE);
+            metricsMapper.rebuildRefunds(day, from, to);
+            metricsMapper.rebuildNewUsers(day, from, to);
+            metricsMapper.rebuildWithdrawals(day, from, to);
+        });
+    }
+}
@@ -0,0 +1,268 @@
+package com.pet.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 仪表盘结果缓存（stale-while-revalidate）
+ * 按 (接口, 范围, 周期, 日期) 缓存计算结果：
+ * 新鲜期内直接返回；过了新鲜期但仍在可容忍的陈旧期内，先返回旧结果，同时在 dashboardExecutor 中后台刷新；
+ * 超过陈旧期或没有缓存时在请求线程中计算。同一个键同一时刻只有一次计算，并发请求等待同一结果。
+ * 各接口的新鲜期、陈旧期分别配置（dashboard.cache.endpoints.&lt;接口&gt;.fresh-seconds / stale-seconds），
+ * 新鲜期为 0 表示该接口不缓存。缓存在本实例内存中，结果对象在调用方之间共享，调用方不能修改
+ */
+@Slf4j
+@Service
+public class DashboardCacheService {
+
+    private final TaskExecutor dashboardExecutor;
+    private final Environment environment;
+
+    @Value("${dashboard.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${dashboard.cache.fresh-seconds:30}")
+    private long defaultFreshSeconds;
+
+    @Value("${dashboard.cache.stale-seconds:300}")
+    private long defaultStaleSeconds;
+
+    @Value("${dashboard.cache.max-entries:10000}")
+    private int maxEntries;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    /** 正在计算的键，保证同一个键只有一次计算 */
+    private final Map<String, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+    private final Map<String, Policy> policies = new ConcurrentHashMap<>();
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+
+    public DashboardCacheService(@Qualifier("dashboardExecutor") TaskExecutor dashboardExecutor,
+                                 Environment environment) {
+        this.dashboardExecutor = dashboardExecutor;
+        this.environment = environment;
+    }
+
+    /**
+     * 缓存键，各部分以 | 连接，null 记为空串
+     */
+    public static String key(Object... parts) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                sb.append('|');
+            }
+            if (parts[i] != null) {
+                sb.append(parts[i]);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 读取缓存结果，必要时计算或后台刷新
+     * @param endpoint 接口名，决定缓存策略并分别统计命中率
+     * @param key 范围、周期、日期等组成的键
+     * @param loader 计算结果，异常时不写入缓存
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String endpoint, String key, Supplier<T> loader) {
+        Policy policy = policy(endpoint);
+        Stats counter = stats.computeIfAbsent(endpoint, e -> new Stats());
+        if (!enabled || policy.freshMillis <= 0) {
+            counter.bypass.incrementAndGet();
+            return loader.get();
+        }
+
+        String cacheKey = endpoint + "#" + key;
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(cacheKey);
+        if (entry != null) {
+            long age = now - entry.loadedAt;
+            if (age < policy.freshMillis) {
+                counter.hits.incrementAndGet();
+                return (T) entry.value;
+            }
+            if (age < policy.staleMillis) {
+                counter.staleHits.incrementAndGet();
+                refreshAsync(cacheKey, loader, counter);
+                return (T) entry.value;
+            }
+        }
+        counter.misses.incrementAndGet();
+        return (T) load(cacheKey, loader, counter);
+    }
+
+    /**
+     * 在请求线程中计算；已有同键计算在进行时等待其结果
+     */
+    private Object load(String cacheKey, Supplier<?> loader, Stats counter) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = loading.putIfAbsent(cacheKey, future);
+        if (existing != null) {
+            counter.coalesced.incrementAndGet();
+            try {
+                return existing.join();
+            } catch (Exception e) {
+                // 他人的计算失败时自行计算一次，异常原样抛给调用方
+                return loader.get();
+            }
+        }
+        try {
+            Object value = compute(cacheKey, loader, counter);
+            future.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(cacheKey, future);
+        }
+    }
+
+    /**
+     * 后台刷新；已有同键计算在进行时不重复提交，线程池繁忙时本次不刷新，下次请求再试
+     */
+    private void refreshAsync(String cacheKey, Supplier<?> loader, Stats counter) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        if (loading.putIfAbsent(cacheKey, future) != null) {
+            return;
+        }
+        try {
+            dashboardExecutor.execute(() -> {
+                try {
+                    future.complete(compute(cacheKey, loader, counter));
+                } catch (Exception e) {
+                    counter.refreshFailures.incrementAndGet();
+                    log.warn("仪表盘缓存后台刷新失败: key={}, error={}", cacheKey, e.getMessage());
+                    future.completeExceptionally(e);
+                } finally {
+                    loading.remove(cacheKey, future);
+                }
+            });
+            counter.refreshes.incrementAndGet();
+        } catch (RejectedExecutionException e) {
+            loading.remove(cacheKey, future);
+            future.cancel(false);
+            counter.refreshRejected.incrementAndGet();
+        }
+    }
+
+    private Object compute(String cacheKey, Supplier<?> loader, Stats counter) {
+        long start = System.currentTimeMillis();
+        Object value = loader.get();
+        long loadedAt = System.currentTimeMillis();
+        counter.loads.incrementAndGet();
+        counter.loadMillis.addAndGet(loadedAt - start);
+        if (value != null) {
+            if (entries.size() >= maxEntries) {
+                entries.clear();
+            }
+            entries.put(cacheKey, new Entry(value, loadedAt));
+        }
+        return value;
+    }
+
+    /**
+     * 清除某个接口的全部缓存，endpoint 为空时清除全部
+     */
+    public void invalidate(String endpoint) {
+        if (endpoint == null || endpoint.isEmpty()) {
+            entries.clear();
+            return;
+        }
+        String prefix = endpoint + "#";
+        entries.keySet().removeIf(k -> k.startsWith(prefix));
+    }
+
+    /**
+     * 各接口的缓存策略和命中统计，hitRate 为（新鲜命中 + 陈旧命中）/ 请求数
+     */
+    public Map<String, Object> getStats() {
+        List<Map<String, Object>> endpoints = new ArrayList<>();
+        for (Map.Entry<String, Stats> e : new TreeMap<>(stats).entrySet()) {
+            Stats s = e.getValue();
+            Policy policy = policy(e.getKey());
+            long hits = s.hits.get();
+            long staleHits = s.staleHits.get();
+            long misses = s.misses.get();
+            long requests = hits + staleHits + misses;
+            long loads = s.loads.get();
+
+            Map<String, Object> item = new HashMap<>();
+            item.put("endpoint", e.getKey());
+            item.put("freshSeconds", policy.freshMillis / 1000);
+            item.put("staleSeconds", policy.staleMillis / 1000);
+            item.put("requests", requests);
+            item.put("hits", hits);
+            item.put("staleHits", staleHits);
+            item.put("misses", misses);
+            item.put("bypass", s.bypass.get());
+            item.put("coalesced", s.coalesced.get());
+            item.put("refreshes", s.refreshes.get());
+            item.put("refreshRejected", s.refreshRejected.get());
+            item.put("refreshFailures", s.refreshFailures.get());
+            item.put("hitRate", requests == 0 ? 0.0 : (double) (hits + staleHits) / requests);
+            item.put("avgLoadMillis", loads == 0 ? 0 : s.loadMillis.get() / loads);
+            endpoints.add(item);
+        }
+        Map<String, Object> result = new HashMap<>();
+        result.put("enabled", enabled);
+        result.put("entries", entries.size());
+        result.put("loading", loading.size());
+        result.put("endpoints", endpoints);
+        return result;
+    }
+
+    private Policy policy(String endpoint) {
+        return policies.computeIfAbsent(endpoint, e -> {
+            String prefix = "dashboard.cache.endpoints." + e + ".";
+            long fresh = environment.getProperty(prefix + "fresh-seconds", Long.class, defaultFreshSeconds);
+            long stale = environment.getProperty(prefix + "stale-seconds", Long.class, defaultStaleSeconds);
+            return new Policy(fresh * 1000, Math.max(fresh, stale) * 1000);
+        });
+    }
+
+    private static final class Entry {
+        private final Object value;
+        private final long loadedAt;
+
+        private Entry(Object value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private static final class Policy {
+        private final long freshMillis;
+        private final long staleMillis;
+
+        private Policy(long freshMillis, long staleMillis) {
+            this.freshMillis = freshMillis;
+            this.staleMillis = staleMillis;
+        }
+    }
+
+    private static final class Stats {
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong staleHits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final AtomicLong bypass = new AtomicLong();
+        private final AtomicLong coalesced = new AtomicLong();
+        private final AtomicLong refreshes = new AtomicLong();
+        private final AtomicLong refreshRejected = new AtomicLong();
+        private final AtomicLong refreshFailures = new AtomicLong();
+        private final AtomicLong loads = new AtomicLong();
+        private final AtomicLong loadMillis = new AtomicLong();
+    }
+}
@@ -0,0 +1,356 @@
+package com.pet.service;
+
+import com.pet.common.Money;
+import com.pet.entity.*;
+import com.pet.mapper.*;
+import com.pet.util.CsvWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 管理后台 CSV 导出
+ * 在只读事务内用 MyBatis 流式游标逐行读取，每攒满一块（export.chunk-size 行）批量查询这一块涉及的
+ * 用户、机构、套餐等名称后写出并刷新，内存占用与导出总行数无关。
+ * 流式读取期间游标所在连接不能执行其他语句，名称查询放在 REQUIRES_NEW 事务中使用另一个连接；
+ * 每个导出同时占用两个连接，同时进行的导出数由 export.max-concurrent 限制
+ */
+@Slf4j
+@Service
+public class ExportService {
+
+    /**
+     * 导出输出，在通过参数校验和并发限制之后才打开，打开前出错时仍可正常返回错误响应
+     */
+    @FunctionalInterface
+    public interface Output {
+        Writer open() throws IOException;
+    }
+
+    private final BookingMapper bookingMapper;
+    private final WalletTransactionMapper transactionMapper;
+    private final ComplaintMapper complaintMapper;
+    private final UserMapper userMapper;
+    private final InstitutionMapper institutionMapper;
+    private final ServicePackageMapper servicePackageMapper;
+    private final PetMapper petMapper;
+    private final TransactionTemplate streamTransaction;
+    private final TransactionTemplate lookupTransaction;
+
+    @Value("${export.chunk-size:500}")
+    private int chunkSize;
+
+    private final Semaphore permits;
+
+    public ExportService(BookingMapper bookingMapper,
+                         WalletTransactionMapper transactionMapper,
+                         ComplaintMapper complaintMapper,
+                         UserMapper userMapper,
+                         InstitutionMapper institutionMapper,
+                         ServicePackageMapper servicePackageMapper,
+                         PetMapper petMapper,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${export.max-concurrent:2}") int maxConcurrent) {
+        this.bookingMapper = bookingMapper;
+        this.transactionMapper = transactionMapper;
+        this.complaintMapper = complaintMapper;
+        this.userMapper = userMapper;
+        this.institutionMapper = institutionMapper;
+        this.servicePackageMapper = servicePackageMapper;
+        this.petMapper = petMapper;
+        this.streamTransaction = new TransactionTemplate(transactionManager);
+        this.streamTransaction.setReadOnly(true);
+        this.lookupTransaction = new TransactionTemplate(transactionManager);
+        this.lookupTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.lookupTransaction.setReadOnly(true);
+        this.permits = new Semaphore(Math.max(1, maxConcurrent));
+    }
+
+    // ========== 订单 ==========
+
+    /**
+     * 导出订单，按下单时间过滤
+     * @return 导出的数据行数
+     */
+    public long exportOrders(LocalDate startDate, LocalDate endDate, String status, String paymentStatus,
+                             String institutionId, Output output) {
+        LocalDateTime from = startOf(startDate);
+        LocalDateTime to = endOf(endDate);
+        return export("orders", output, csv -> {
+            csv.writeRow("订单号", "下单时间", "用户", "机构", "套餐", "宠物", "入住日期", "离店日期", "天数",
+                    "订单状态", "支付状态", "支付方式", "支付时间", "订单金额", "退款金额", "退款时间");
+            try (Cursor<Booking> cursor = bookingMapper.streamForExport(from, to, blankToNull(status),
+                    blankToNull(paymentStatus), blankToNull(institutionId))) {
+                return streamChunks(cursor, csv, chunk -> writeOrders(csv, chunk));
+            }
+        });
+    }
+
+    private void writeOrders(CsvWriter csv, List<Booking> chunk) throws IOException {
+        Set<String> userIds = new HashSet<>();
+        Set<String> institutionIds = new HashSet<>();
+        Set<String> packageIds = new HashSet<>();
+        Set<String> petIds = new HashSet<>();
+        for (Booking b : chunk) {
+            addIfPresent(userIds, b.getUserId());
+            addIfPresent(institutionIds, b.getInstitutionId());
+            addIfPresent(packageIds, b.getServicePackageId());
+            addIfPresent(petIds, b.getPetId());
+        }
+        Names names = lookup(() -> {
+            Names n = new Names();
+            n.users = index(userIds, userMapper::selectBatchIds, User::getId, User::getName);
+            n.institutions = index(institutionIds, institutionMapper::selectBatchIds, Institution::getId, Institution::getName);
+            n.packages = index(packageIds, servicePackageMapper::selectBatchIds, ServicePackage::getId, ServicePackage::getName);
+            n.pets = index(petIds, petMapper::selectBatchIds, Pet::getId, Pet::getName);
+            return n;
+        });
+        for (Booking b : chunk) {
+            csv.writeRow(b.getOrderNumber(), b.getCreatedAt(),
+                    names.users.get(b.getUserId()), names.institutions.get(b.getInstitutionId()),
+                    names.packages.get(b.getServicePackageId()), names.pets.get(b.getPetId()),
+                    b.getStartDate(), b.getEndDate(), b.getTotalDays(),
+                    b.getStatus(), b.getPaymentStatus(), b.getPaymentMethod(), b.getPaidAt(),
+                    yuan(b.getTotalPrice()), yuan(b.getRefundAmount()), b.getRefundedAt());
+        }
+    }
+
+    // ========== 交易记录 ==========
+
+    /**
+     * 导出钱包交易记录，金额单位为元
+     * @return 导出的数据行数
+     */
+    public long exportTransactions(LocalDate startDate, LocalDate endDate, String type, String status,
+                                   Output output) {
+        LocalDateTime from = startOf(startDate);
+        LocalDateTime to = endOf(endDate);
+        return export("transactions", output, csv -> {
+            csv.writeRow("交易ID", "交易时间", "类型", "用户", "机构", "金额", "手续费", "变动前余额", "变动后余额",
+                    "状态", "说明", "关联订单号", "关联提现ID");
+            try (Cursor<WalletTransaction> cursor = transactionMapper.streamForExport(from, to,
+                    blankToNull(type), blankToNull(status))) {
+                return streamChunks(cursor, csv, chunk -> writeTransactions(csv, chunk));
+            }
+        });
+    }
+
+    private void writeTransactions(CsvWriter csv, List<WalletTransaction> chunk) throws IOException {
+        Set<String> userIds = new HashSet<>();
+        Set<String> orderIds = new HashSet<>();
+        for (WalletTransaction t : chunk) {
+            addIfPresent(userIds, t.getUserId());
+            addIfPresent(orderIds, t.getRelatedOrderId());
+        }
+        Names names = lookup(() -> {
+            Names n = new Names();
+            Map<String, String> userInstitution = new HashMap<>();
+            n.users = new HashMap<>();
+            if (!userIds.isEmpty()) {
+                for (User user : userMapper.selectBatchIds(userIds)) {
+                    n.users.put(user.getId(), user.getName());
+                    if ("institution_staff".equals(user.getRole()) && user.getInstitutionId() != null) {
+                        userInstitution.put(user.getId(), user.getInstitutionId());
+                    }
+                }
+            }
+            Map<String, String> institutionNames = index(new HashSet<>(userInstitution.values()),
+                    institutionMapper::selectBatchIds, Institution::getId, Institution::getName);
+            n.institutions = new HashMap<>();
+            for (Map.Entry<String, String> e : userInstitution.entrySet()) {
+                n.institutions.put(e.getKey(), institutionNames.get(e.getValue()));
+            }
+            n.orders = index(orderIds, bookingMapper::selectBatchIds, Booking::getId, Booking::getOrderNumber);
+            return n;
+        });
+        for (WalletTransaction t : chunk) {
+            csv.writeRow(t.getId(), t.getCreatedAt(), t.getType(),
+                    names.users.get(t.getUserId()), names.institutions.get(t.getUserId()),
+                    fenToYuan(t.getAmount()), fenToYuan(t.getFee()),
+                    fenToYuan(t.getBalanceBefore()), fenToYuan(t.getBalanceAfter()),
+                    t.getStatus(), t.getDescription(),
+                    t.getRelatedOrderId() != null ? names.orders.get(t.getRelatedOrderId()) : null,
+                    t.getRelatedWithdrawalId());
+        }
+    }
+
+    // ========== 投诉 ==========
+
+    /**
+     * 导出投诉，按提交时间过滤
+     * @return 导出的数据行数
+     */
+    public long exportComplaints(LocalDate startDate, LocalDate endDate, String status, String category,
+                                 Output output) {
+        LocalDateTime from = startOf(startDate);
+        LocalDateTime to = endOf(endDate);
+        return export("complaints", output, csv -> {
+            csv.writeRow("投诉编号", "提交时间", "类型", "投诉人", "机构", "关联订单号", "状态",
+                    "投诉内容", "期望处理", "机构回复", "更新时间");
+            try (Cursor<Complaint> cursor = complaintMapper.streamForExport(from, to,
+                    blankToNull(status), blankToNull(category))) {
+                return streamChunks(cursor, csv, chunk -> writeComplaints(csv, chunk));
+            }
+        });
+    }
+
+    private void writeComplaints(CsvWriter csv, List<Complaint> chunk) throws IOException {
+        Set<String> userIds = new HashSet<>();
+        Set<String> institutionIds = new HashSet<>();
+        Set<String> orderIds = new HashSet<>();
+        for (Complaint c : chunk) {
+            addIfPresent(userIds, c.getUserId());
+            addIfPresent(institutionIds, c.getInstitutionId());
+            addIfPresent(orderIds, c.getBookingId());
+        }
+        Names names = lookup(() -> {
+            Names n = new Names();
+            n.users = index(userIds, userMapper::selectBatchIds, User::getId, User::getName);
+            n.institutions = index(institutionIds, institutionMapper::selectBatchIds, Institution::getId, Institution::getName);
+            n.orders = index(orderIds, bookingMapper::selectBatchIds, Booking::getId, Booking::getOrderNumber);
+            return n;
+        });
+        for (Complaint c : chunk) {
+            csv.writeRow(c.getComplaintNumber(), c.getCreatedAt(), c.getCategory(),
+                    names.users.get(c.getUserId()), names.institutions.get(c.getInstitutionId()),
+                    c.getBookingId() != null ? names.orders.get(c.getBookingId()) : null, c.getStatus(),
+                    c.getDescription(), c.getExpectation(), c.getInstitutionResponse(), c.getUpdatedAt());
+        }
+    }
+
+    // ========== 公共 ==========
+
+    @FunctionalInterface
+    private interface Body {
+        long write(CsvWriter csv) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface ChunkWriter<T> {
+        void write(List<T> chunk) throws IOException;
+    }
+
+    /**
+     * 取得并发许可后打开输出，在只读事务内执行导出并关闭输出
+     */
+    private long export(String name, Output output, Body body) {
+        if (!permits.tryAcquire()) {
+            throw new RuntimeException("导出任务繁忙，请稍后再试");
+        }
+        long start = System.currentTimeMillis();
+        try (CsvWriter csv = new CsvWriter(output.open())) {
+            csv.writeBom();
+            Long rows = streamTransaction.execute(status -> {
+                try {
+                    return body.write(csv);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            log.info("导出{}完成: rows={}, 耗时{}ms", name, rows, System.currentTimeMillis() - start);
+            return rows != null ? rows : 0;
+        } catch (IOException | UncheckedIOException e) {
+            // 多为客户端中途断开，响应已开始写出，无法再返回错误信息
+            log.warn("导出{}中断: {}", name, e.getMessage());
+            return 0;
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * 从游标按块读取，每块写出后刷新到客户端
+     * @return 读取的行数
+     */
+    private <T> long streamChunks(Cursor<T> cursor, CsvWriter csv, ChunkWriter<T> writer) throws IOException {
+        List<T> chunk = new ArrayList<>(chunkSize);
+        long rows = 0;
+        for (T row : cursor) {
+            chunk.add(row);
+            if (chunk.size() >= chunkSize) {
+                writer.write(chunk);
+                csv.flush();
+                rows += chunk.size();
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            writer.write(chunk);
+            rows += chunk.size();
+        }
+        return rows;
+    }
+
+    /**
+     * 当前块涉及的名称，键为ID
+     */
+    private static class Names {
+        Map<String, String> users = Collections.emptyMap();
+        Map<String, String> institutions = Collections.emptyMap();
+        Map<String, String> packages = Collections.emptyMap();
+        Map<String, String> pets = Collections.emptyMap();
+        Map<String, String> orders = Collections.emptyMap();
+    }
+
+    /**
+     * 在另一个连接上执行名称查询，不干扰游标所在连接上的流式读取
+     */
+    private Names lookup(Supplier<Names> query) {
+        return lookupTransaction.execute(status -> query.get());
+    }
+
+    private static <E> Map<String, String> index(Set<String> ids, Function<Collection<String>, List<E>> loader,
+                                                 Function<E, String> idOf, Function<E, String> nameOf) {
+        Map<String, String> names = new HashMap<>();
+        if (ids.isEmpty()) {
+            return names;
+        }
+        for (E entity : loader.apply(ids)) {
+            names.put(idOf.apply(entity), nameOf.apply(entity));
+        }
+        return names;
+    }
+
+    private static void addIfPresent(Set<String> ids, String id) {
+        if (id != null && !id.isEmpty()) {
+            ids.add(id);
+        }
+    }
+
+    private static String blankToNull(String value) {
+        return value != null && !value.trim().isEmpty() ? value.trim() : null;
+    }
+
+    private static LocalDateTime startOf(LocalDate date) {
+        return date != null ? date.atStartOfDay() : null;
+    }
+
+    /**
+     * 结束日期当天也包含在内
+     */
+    private static LocalDateTime endOf(LocalDate date) {
+        return date != null ? date.plusDays(1).atStartOfDay() : null;
+    }
+
+    private static Object yuan(Money money) {
+        return money != null ? money.toYuan() : null;
+    }
+
+    private static Object fenToYuan(Long fen) {
+        return fen != null ? Money.ofFen(fen).toYuan() : null;
+    }
+}
@@ -0,0 +1,179 @@
+package com.pet.service;
+
+import com.pet.common.Money;
+import com.pet.common.PageResult;
+import com.pet.entity.Institution;
+import com.pet.mapper.DailyMetricsMapper;
+import com.pet.mapper.InstitutionMapper;
+import com.pet.util.TopK;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * 机构收入排名
+ * 各机构的订单数、下单金额、退款金额由 DailyMetricsService 在下单/退款时按天增量累加，
+ * 任意时间段的排名只读取每日汇总，按机构合计后流式逐行送入容量为 page * pageSize 的堆取出前若干名，
+ * 内存占用与机构数无关；当前页的机构资料一次批量查询
+ */
+@Service
+public class InstitutionRankingService {
+
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final LocalDate BEGINNING = LocalDate.of(2000, 1, 1);
+
+    private final DailyMetricsMapper metricsMapper;
+    private final InstitutionMapper institutionMapper;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public InstitutionRankingService(DailyMetricsMapper metricsMapper,
+                                     InstitutionMapper institutionMapper,
+                                     PlatformTransactionManager transactionManager) {
+        this.metricsMapper = metricsMapper;
+        this.institutionMapper = institutionMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * 一个机构在时间段内的合计（金额单位：分）
+     */
+    private static class Entry {
+        String institutionId;
+        long orderCount;
+        long gmv;
+        long refundAmount;
+
+        long score(String metric) {
+            switch (metric) {
+                case "orders":
+                    return orderCount;
+                case "gmv":
+                    return gmv;
+                default:
+                    return gmv - refundAmount;
+            }
+        }
+    }
+
+    /**
+     * 机构排名的一页
+     * @param metric revenue（默认，下单金额减退款）、gmv、orders
+     * @param period week、month、quarter、year、all，指定 startDate 时忽略
+     * @param startDate 开始日期（含），可选
+     * @param endDate 结束日期（含），默认今天
+     */
+    public PageResult<Map<String, Object>> getRanking(String metric, String period,
+                                                      LocalDate startDate, LocalDate endDate,
+                                                      int page, int pageSize) {
+        String rankBy = metric != null && Arrays.asList("gmv", "orders").contains(metric) ? metric : "revenue";
+        LocalDate to = endDate != null ? endDate : LocalDate.now();
+        LocalDate from = startDate != null ? startDate : periodStart(to, period);
+        if (from.isAfter(to)) {
+            throw new RuntimeException("无效的日期范围");
+        }
+        page = Math.max(page, 1);
+        pageSize = Math.max(1, Math.min(pageSize, MAX_PAGE_SIZE));
+
+        // 每个机构一行逐行读取，堆中只保留到当前页为止的前 page * pageSize 名（堆大小不超过机构数）
+        long offset = (long) (page - 1) * pageSize;
+        int k = (int) Math.min((long) page * pageSize, Integer.MAX_VALUE);
+        TopK<Entry> ranked = new TopK<>(k, order(rankBy));
+        readOnlyTransaction.execute(status -> {
+            try (Cursor<Map<String, Object>> cursor = metricsMapper.streamSumByInstitution(from, to)) {
+                for (Map<String, Object> row : cursor) {
+                    Entry entry = new Entry();
+                    entry.institutionId = (String) row.get("institutionId");
+                    entry.orderCount = toLong(row.get("orderCount"));
+                    entry.gmv = toLong(row.get("gmv"));
+                    entry.refundAmount = toLong(row.get("refundAmount"));
+                    ranked.offer(entry);
+                }
+            } catch (java.io.IOException e) {
+                throw new RuntimeException("关闭排名游标失败", e);
+            }
+            return null;
+        });
+        if (offset >= ranked.offered()) {
+            return PageResult.of(new ArrayList<>(), page, pageSize, ranked.offered());
+        }
+        List<Entry> pageEntries = ranked.slice((int) offset, pageSize);
+
+        Map<String, Institution> institutions = new HashMap<>();
+        if (!pageEntries.isEmpty()) {
+            List<String> ids = new ArrayList<>();
+            for (Entry entry : pageEntries) {
+                ids.add(entry.institutionId);
+            }
+            for (Institution inst : institutionMapper.selectBatchIds(ids)) {
+                institutions.put(inst.getId(), inst);
+            }
+        }
+
+        List<Map<String, Object>> list = new ArrayList<>();
+        for (int i = 0; i < pageEntries.size(); i++) {
+            Entry entry = pageEntries.get(i);
+            Institution inst = institutions.get(entry.institutionId);
+            Map<String, Object> item = new HashMap<>();
+            item.put("rank", (int) offset + i + 1);
+            item.put("institutionId", entry.institutionId);
+            item.put("name", inst != null ? inst.getName() : "已删除机构");
+            item.put("logo", inst != null ? inst.getLogo() : null);
+            item.put("rating", inst != null ? inst.getRating() : null);
+            item.put("orderCount", entry.orderCount);
+            item.put("gmv", Money.ofFen(entry.gmv).toYuan());
+            item.put("refundAmount", Money.ofFen(entry.refundAmount).toYuan());
+            item.put("revenue", Money.ofFen(entry.gmv - entry.refundAmount).toYuan());
+            list.add(item);
+        }
+        return PageResult.of(list, page, pageSize, ranked.offered());
+    }
+
+    /**
+     * 全部历史中下单金额最高的 limit 个机构，供财务概览图表使用
+     * @return name、value（元，取整）
+     */
+    public List<Map<String, Object>> topByGmv(int limit) {
+        PageResult<Map<String, Object>> ranking = getRanking("gmv", "all", null, null, 1, limit);
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Map<String, Object> row : ranking.getList()) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("name", row.get("name"));
+            item.put("value", ((BigDecimal) row.get("gmv")).longValue());
+            result.add(item);
+        }
+        return result;
+    }
+
+    /**
+     * 指标倒序，相同时按机构ID升序，保证翻页稳定
+     */
+    private static Comparator<Entry> order(String rankBy) {
+        return Comparator.<Entry>comparingLong(e -> -e.score(rankBy))
+                .thenComparing(e -> e.institutionId);
+    }
+
+    private static LocalDate periodStart(LocalDate to, String period) {
+        switch (period != null ? period.toLowerCase() : "all") {
+            case "week":
+                return to.minusDays(to.getDayOfWeek().getValue() - 1);
+            case "month":
+                return to.withDayOfMonth(1);
+            case "quarter":
+                return to.withMonth(((to.getMonthValue() - 1) / 3) * 3 + 1).withDayOfMonth(1);
+            case "year":
+                return to.withDayOfYear(1);
+            default:
+                return BEGINNING;
+        }
+    }
+
+    private static long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
+    }
+}
@@ -4,6 +4,7 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pet.common.Money;
 import com.pet.common.PageResult;
 import com.pet.entity.Booking;
 import com.pet.entity.Institution;
@@ -17,6 +18,7 @@ import com.pet.mapper.PetMapper;
 import com.pet.mapper.ReviewMapper;
 import com.pet.mapper.ServicePackageMapper;
 import com.pet.mapper.UserMapper;
+import com.pet.util.BookingColumns;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import org.springframework.stereotype.Service;
@@ -38,6 +40,8 @@ public class InstitutionService {
     private final PetMapper petMapper;
     private final ObjectMapper objectMapper;
     private final GeocodingService geocodingService;
+    private final BookingCubeService bookingCubeService;
+    private final DashboardCacheService dashboardCacheService;
 
     @SneakyThrows
     public PageResult<Map<String, Object>> search(String keyword, String petType, BigDecimal minRating,
@@ -64,6 +68,9 @@ public class InstitutionService {
             wrapper.orderByDesc(Institution::getRating);
         } else if ("reviewCount".equals(sortBy)) {
             wrapper.orderByDesc(Institution::getReviewCount);
+        } else if ("recommended".equals(sortBy)) {
+            wrapper.orderByDesc(Institution::getRecommendationScore)
+                    .orderByDesc(Institution::getReviewCount);
         } else {
             wrapper.orderByDesc(Institution::getRating);
         }
@@ -209,6 +216,7 @@ public class InstitutionService {
         vo.put("currentOccupancy", parseJsonObject(inst.getCurrentOccupancy()));
         vo.put("rating", inst.getRating());
         vo.put("reviewCount", inst.getReviewCount());
+        vo.put("recommendationScore", inst.getRecommendationScore());
         vo.put("verified", inst.getVerified());
         vo.put("status", inst.getStatus());
         vo.put("features", parseJsonArray(inst.getFeatures()));
@@ -491,6 +499,12 @@ public class InstitutionService {
 
     public Map<String, Object> getDashboardStats(String staffUserId, String period) {
         String institutionId = getInstitutionIdByStaff(staffUserId);
+        return dashboardCacheService.get("institution-dashboard",
+                DashboardCacheService.key(institutionId, period, LocalDate.now()),
+                () -> computeDashboardStats(institutionId, period));
+    }
+
+    private Map<String, Object> computeDashboardStats(String institutionId, String period) {
         Institution inst = institutionMapper.selectById(institutionId);
         
         Map<String, Object> stats = new HashMap<>();
@@ -520,70 +534,23 @@ public class InstitutionService {
                 break;
         }
         
-        System.out.println("=== getDashboardStats ===");
-        System.out.println("period: " + period);
-        System.out.println("startDate: " + startDate);
-        System.out.println("endDate: " + endDate);
-        
-        // 查询订单统计
-        List<Booking> allBookings = bookingMapper.selectList(
-                new LambdaQueryWrapper<Booking>().eq(Booking::getInstitutionId, institutionId));
-        
-        System.out.println("allBookings.size(): " + allBookings.size());
-        
-        // 过滤指定时间范围内的订单 - 使用 startDate（寄养开始日期）更合理
-        final LocalDate finalStartDate = startDate;
-        final LocalDate finalEndDate = endDate;
-        List<Booking> periodBookings = allBookings.stream()
-                .filter(b -> {
-                    LocalDate bookingDate = b.getStartDate() != null ? b.getStartDate() : 
-                            (b.getCreatedAt() != null ? b.getCreatedAt().toLocalDate() : null);
-                    if (bookingDate == null) return false;
-                    
-                    boolean inRange = (bookingDate.isEqual(finalStartDate) || bookingDate.isAfter(finalStartDate)) 
-                            && (bookingDate.isEqual(finalEndDate) || bookingDate.isBefore(finalEndDate));
-                    
-                    return inRange;
-                })
-                .collect(java.util.stream.Collectors.toList());
+        // 订单聚合：分析数据装载完成时在内存列存上计算，否则按时间段在订单表上做索引范围聚合
+        DashboardCounts counts = bookingCubeService.isReady()
+                ? dashboardCountsFromCube(institutionId, startDate, endDate, today)
+                : dashboardCountsFromDatabase(institutionId, startDate, endDate, today);
         
-        System.out.println("periodBookings.size(): " + periodBookings.size());
-        
-        int totalOrders = periodBookings.size();
-        int completedOrders = (int) periodBookings.stream().filter(b -> "completed".equals(b.getStatus())).count();
-        int cancelledOrders = (int) periodBookings.stream().filter(b -> "cancelled".equals(b.getStatus())).count();
-        int inProgressOrdersForPeriod = (int) periodBookings.stream().filter(b -> "in_progress".equals(b.getStatus())).count();
-        int pendingOrders = (int) periodBookings.stream().filter(b -> "pending".equals(b.getStatus())).count();
-        
-        // 所有进行中的订单（用于入住率，不按时间段过滤）
-        int allInProgressOrders = (int) allBookings.stream().filter(b -> "in_progress".equals(b.getStatus())).count();
-        
-        // 指定时间范围内的收入
-        BigDecimal monthlyRevenue = periodBookings.stream()
-                .filter(b -> "paid".equals(b.getPaymentStatus()))
-                .map(Booking::getTotalPrice)
-                .filter(Objects::nonNull)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        // 今日入住/离店
-        int todayCheckIn = (int) allBookings.stream()
-                .filter(b -> b.getStartDate() != null && b.getStartDate().equals(today) 
-                        && ("confirmed".equals(b.getStatus()) || "in_progress".equals(b.getStatus())))
-                .count();
-        int todayCheckOut = (int) allBookings.stream()
-                .filter(b -> b.getEndDate() != null && b.getEndDate().equals(today) 
-                        && "in_progress".equals(b.getStatus()))
-                .count();
-        
-        stats.put("totalOrders", totalOrders);
-        stats.put("monthlyRevenue", monthlyRevenue);
+        Map<String, Long> byStatus = counts.periodStatusCount;
+        long totalOrders = byStatus.values().stream().mapToLong(Long::longValue).sum();
+        
+        stats.put("totalOrders", (int) totalOrders);
+        stats.put("monthlyRevenue", counts.periodRevenue);
         stats.put("averageRating", inst != null ? inst.getRating() : BigDecimal.ZERO);
-        stats.put("completedOrders", completedOrders);
-        stats.put("cancelledOrders", cancelledOrders);
-        stats.put("pendingOrders", pendingOrders);
-        stats.put("inProgressOrders", inProgressOrdersForPeriod);
-        stats.put("todayCheckIn", todayCheckIn);
-        stats.put("todayCheckOut", todayCheckOut);
+        stats.put("completedOrders", byStatus.getOrDefault("completed", 0L).intValue());
+        stats.put("cancelledOrders", byStatus.getOrDefault("cancelled", 0L).intValue());
+        stats.put("pendingOrders", byStatus.getOrDefault("pending", 0L).intValue());
+        stats.put("inProgressOrders", byStatus.getOrDefault("in_progress", 0L).intValue());
+        stats.put("todayCheckIn", counts.todayCheckIn);
+        stats.put("todayCheckOut", counts.todayCheckOut);
         stats.put("ordersTrend", 5);
         stats.put("revenueTrend", 8);
         stats.put("occupancyTrend", 3);
@@ -600,6 +567,7 @@ public class InstitutionService {
         }
         
         // 入住率：所有进行中的订单数 / 总房间数
+        int allInProgressOrders = counts.allInProgress;
         int occupancyRate = totalRooms > 0 ? (allInProgressOrders * 100 / totalRooms) : 0;
         stats.put("occupancyRate", Math.min(occupancyRate, 100));
         
@@ -616,36 +584,16 @@ public class InstitutionService {
         // 收入趋势（近6个月）
         List<Map<String, Object>> revenueTrendData = new ArrayList<>();
         for (int i = 5; i >= 0; i--) {
-            LocalDate monthStart = LocalDate.now().minusMonths(i).withDayOfMonth(1);
-            LocalDate monthEnd = monthStart.plusMonths(1).minusDays(1);
-            final LocalDate ms = monthStart;
-            final LocalDate me = monthEnd;
-            BigDecimal monthRevenue = allBookings.stream()
-                    .filter(b -> "paid".equals(b.getPaymentStatus()) && b.getPaidAt() != null)
-                    .filter(b -> {
-                        LocalDate paidDate = b.getPaidAt().toLocalDate();
-                        return !paidDate.isBefore(ms) && !paidDate.isAfter(me);
-                    })
-                    .map(Booking::getTotalPrice)
-                    .filter(Objects::nonNull)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            LocalDate monthStart = today.minusMonths(i).withDayOfMonth(1);
             Map<String, Object> point = new HashMap<>();
             point.put("name", monthStart.getMonthValue() + "月");
-            point.put("value", monthRevenue);
+            point.put("value", counts.monthlyRevenue.getOrDefault(monthStart, BigDecimal.ZERO));
             revenueTrendData.add(point);
         }
         stats.put("revenueTrendData", revenueTrendData);
         
-        // 服务分布（按套餐统计）
-        Map<String, Long> packageCount = new HashMap<>();
-        for (Booking booking : allBookings) {
-            if (booking.getServicePackageId() != null) {
-                ServicePackage pkg = servicePackageMapper.selectById(booking.getServicePackageId());
-                if (pkg != null) {
-                    packageCount.merge(pkg.getName(), 1L, Long::sum);
-                }
-            }
-        }
+        // 服务分布（近6个月下单，按套餐统计）
+        Map<String, Long> packageCount = countByPackageName(counts.packageCount);
         List<Map<String, Object>> serviceDistributionData = new ArrayList<>();
         packageCount.forEach((name, count) -> {
             Map<String, Object> item = new HashMap<>();
@@ -661,36 +609,19 @@ public class InstitutionService {
         }
         stats.put("serviceDistributionData", serviceDistributionData);
         
-        // 每周订单（按星期统计）
+        // 每周订单（近6个月下单，按星期统计）
         String[] weekDays = {"周一", "周二", "周三", "周四", "周五", "周六", "周日"};
-        Map<Integer, Long> weeklyCount = new HashMap<>();
-        for (int i = 1; i <= 7; i++) weeklyCount.put(i, 0L);
-        for (Booking booking : allBookings) {
-            if (booking.getCreatedAt() != null) {
-                int dayOfWeek = booking.getCreatedAt().getDayOfWeek().getValue();
-                weeklyCount.merge(dayOfWeek, 1L, Long::sum);
-            }
-        }
         List<Map<String, Object>> weeklyOrdersData = new ArrayList<>();
         for (int i = 1; i <= 7; i++) {
             Map<String, Object> item = new HashMap<>();
             item.put("name", weekDays[i - 1]);
-            item.put("value", weeklyCount.get(i));
+            item.put("value", counts.weekdayCount.getOrDefault(i, 0L));
             weeklyOrdersData.add(item);
         }
         stats.put("weeklyOrdersData", weeklyOrdersData);
         
-        // 宠物类型分布
-        Map<String, Long> petTypeCount = new HashMap<>();
-        for (Booking booking : allBookings) {
-            if (booking.getPetId() != null) {
-                Pet pet = petMapper.selectById(booking.getPetId());
-                if (pet != null) {
-                    String species = pet.getSpecies() != null ? pet.getSpecies() : "other";
-                    petTypeCount.merge(species, 1L, Long::sum);
-                }
-            }
-        }
+        // 宠物类型分布（近6个月下单）
+        Map<String, Long> petTypeCount = counts.speciesCount;
         List<Map<String, Object>> petTypeDistributionData = new ArrayList<>();
         long totalPetCount = petTypeCount.values().stream().mapToLong(Long::longValue).sum();
         petTypeCount.forEach((type, count) -> {
@@ -710,6 +641,149 @@ public class InstitutionService {
         return stats;
     }
 
+    /**
+     * 机构仪表盘的订单聚合结果
+     */
+    private static class DashboardCounts {
+        /** 时间段内（按寄养开始日期）各状态的订单数 */
+        private final Map<String, Long> periodStatusCount = new HashMap<>();
+        /** 时间段内已支付订单的金额 */
+        private BigDecimal periodRevenue = BigDecimal.ZERO;
+        /** 当前进行中的订单数，不限时间段 */
+        private int allInProgress;
+        private int todayCheckIn;
+        private int todayCheckOut;
+        /** 近6个月每月已支付金额（按支付时间），键为当月1日 */
+        private final Map<LocalDate, BigDecimal> monthlyRevenue = new HashMap<>();
+        /** 近6个月下单的订单按套餐ID计数 */
+        private final Map<String, Long> packageCount = new HashMap<>();
+        /** 近6个月下单的订单按星期（1-7）计数 */
+        private final Map<Integer, Long> weekdayCount = new HashMap<>();
+        /** 近6个月下单的订单按宠物种类计数 */
+        private final Map<String, Long> speciesCount = new HashMap<>();
+    }
+
+    private DashboardCounts dashboardCountsFromCube(String institutionId, LocalDate startDate, LocalDate endDate,
+                                                    LocalDate today) {
+        DashboardCounts counts = new DashboardCounts();
+        for (BookingColumns.Group group : bookingCubeService.aggregate(new BookingColumns.Query()
+                .institution(institutionId)
+                .dates(BookingColumns.DateField.START, startDate, endDate)
+                .groupBy(BookingColumns.Dimension.STATUS))) {
+            counts.periodStatusCount.put((String) group.get(BookingColumns.Dimension.STATUS), group.getCount());
+        }
+        counts.periodRevenue = Money.ofFen(cubeTotal(new BookingColumns.Query()
+                .institution(institutionId)
+                .dates(BookingColumns.DateField.START, startDate, endDate)
+                .paymentStatus("paid")).getGmv()).toYuan();
+        counts.allInProgress = (int) cubeTotal(new BookingColumns.Query()
+                .institution(institutionId)
+                .status("in_progress")).getCount();
+        counts.todayCheckIn = (int) cubeTotal(new BookingColumns.Query()
+                .institution(institutionId)
+                .dates(BookingColumns.DateField.START, today, today)
+                .status("confirmed", "in_progress")).getCount();
+        counts.todayCheckOut = (int) cubeTotal(new BookingColumns.Query()
+                .institution(institutionId)
+                .dates(BookingColumns.DateField.END, today, today)
+                .status("in_progress")).getCount();
+
+        LocalDate trendStart = today.minusMonths(5).withDayOfMonth(1);
+        for (BookingColumns.Group group : bookingCubeService.aggregate(new BookingColumns.Query()
+                .institution(institutionId)
+                .dates(BookingColumns.DateField.PAID, trendStart, today)
+                .paymentStatus("paid")
+                .groupBy(BookingColumns.Dimension.MONTH))) {
+            counts.monthlyRevenue.put((LocalDate) group.get(BookingColumns.Dimension.MONTH),
+                    Money.ofFen(group.getGmv()).toYuan());
+        }
+        for (BookingColumns.Group group : bookingCubeService.aggregate(new BookingColumns.Query()
+                .institution(institutionId)
+                .dates(BookingColumns.DateField.CREATED, trendStart, today)
+                .groupBy(BookingColumns.Dimension.PACKAGE))) {
+            if (group.get(BookingColumns.Dimension.PACKAGE) != null) {
+                counts.packageCount.put((String) group.get(BookingColumns.Dimension.PACKAGE), group.getCount());
+            }
+        }
+        for (BookingColumns.Group group : bookingCubeService.aggregate(new BookingColumns.Query()
+                .institution(institutionId)
+                .dates(BookingColumns.DateField.CREATED, trendStart, today)
+                .groupBy(BookingColumns.Dimension.WEEKDAY))) {
+            if (group.get(BookingColumns.Dimension.WEEKDAY) != null) {
+                counts.weekdayCount.put((Integer) group.get(BookingColumns.Dimension.WEEKDAY), group.getCount());
+            }
+        }
+        for (BookingColumns.Group group : bookingCubeService.aggregate(new BookingColumns.Query()
+                .institution(institutionId)
+                .dates(BookingColumns.DateField.CREATED, trendStart, today)
+                .groupBy(BookingColumns.Dimension.SPECIES))) {
+            counts.speciesCount.put((String) group.get(BookingColumns.Dimension.SPECIES), group.getCount());
+        }
+        return counts;
+    }
+
+    private DashboardCounts dashboardCountsFromDatabase(String institutionId, LocalDate startDate, LocalDate endDate,
+                                                        LocalDate today) {
+        DashboardCounts counts = new DashboardCounts();
+        for (Map<String, Object> row : bookingMapper.sumByStatusStarting(institutionId, startDate, endDate)) {
+            counts.periodStatusCount.put((String) row.get("status"), ((Number) row.get("count")).longValue());
+            counts.periodRevenue = counts.periodRevenue.add(toDecimal(row.get("revenue")));
+        }
+        counts.allInProgress = (int) bookingMapper.countInProgress(institutionId);
+        counts.todayCheckIn = (int) bookingMapper.countCheckIn(institutionId, today);
+        counts.todayCheckOut = (int) bookingMapper.countCheckOut(institutionId, today);
+
+        LocalDateTime from = today.minusMonths(5).withDayOfMonth(1).atStartOfDay();
+        LocalDateTime to = today.plusDays(1).atStartOfDay();
+        for (Map<String, Object> row : bookingMapper.sumPaidByMonth(institutionId, from, to)) {
+            counts.monthlyRevenue.put(LocalDate.parse(row.get("month") + "-01"), toDecimal(row.get("revenue")));
+        }
+        fillDistributions(institutionId, from, to, counts.packageCount, counts.weekdayCount, counts.speciesCount);
+        return counts;
+    }
+
+    /**
+     * 下单时间在 [from, to) 内的订单按套餐、星期、宠物种类计数
+     */
+    private void fillDistributions(String institutionId, LocalDateTime from, LocalDateTime to,
+                                   Map<String, Long> packageCount, Map<Integer, Long> weekdayCount,
+                                   Map<String, Long> speciesCount) {
+        for (Map<String, Object> row : bookingMapper.countByPackage(institutionId, from, to)) {
+            if (row.get("packageId") != null) {
+                packageCount.put((String) row.get("packageId"), ((Number) row.get("count")).longValue());
+            }
+        }
+        if (weekdayCount != null) {
+            for (Map<String, Object> row : bookingMapper.countByWeekday(institutionId, from, to)) {
+                weekdayCount.put(((Number) row.get("weekday")).intValue(), ((Number) row.get("count")).longValue());
+            }
+        }
+        for (Map<String, Object> row : bookingMapper.countBySpecies(institutionId, from, to)) {
+            speciesCount.put((String) row.get("species"), ((Number) row.get("count")).longValue());
+        }
+    }
+
+    /**
+     * 不分组查询的合计行
+     */
+    private BookingColumns.Group cubeTotal(BookingColumns.Query query) {
+        return bookingCubeService.aggregate(query).get(0);
+    }
+
+    /**
+     * 套餐ID计数换成套餐名计数，套餐名一次批量查出
+     */
+    private Map<String, Long> countByPackageName(Map<String, Long> countById) {
+        Map<String, Long> result = new HashMap<>();
+        if (countById.isEmpty()) {
+            return result;
+        }
+        for (ServicePackage pkg : servicePackageMapper.selectBatchIds(countById.keySet())) {
+            result.merge(pkg.getName(), countById.get(pkg.getId()), Long::sum);
+        }
+        return result;
+    }
+
     public List<Map<String, Object>> getRecentOrders(String staffUserId, int limit) {
         String institutionId = getInstitutionIdByStaff(staffUserId);
         List<Booking> bookings = bookingMapper.selectList(
@@ -763,6 +837,12 @@ public class InstitutionService {
     // 获取报表数据
     public Map<String, Object> getReportData(String staffUserId, String period) {
         String institutionId = getInstitutionIdByStaff(staffUserId);
+        return dashboardCacheService.get("institution-report",
+                DashboardCacheService.key(institutionId, period, LocalDate.now()),
+                () -> computeReportData(institutionId, period));
+    }
+
+    private Map<String, Object> computeReportData(String institutionId, String period) {
         Institution inst = institutionMapper.selectById(institutionId);
         
         // 确定时间范围
@@ -775,32 +855,18 @@ public class InstitutionService {
             default: startDate = endDate.minusMonths(1); break;
         }
         
-        // 查询所有订单（用于计算所有进行中的订单）
-        List<Booking> allBookings = bookingMapper.selectList(
-                new LambdaQueryWrapper<Booking>().eq(Booking::getInstitutionId, institutionId));
-        
-        // 查询时间范围内的订单
-        List<Booking> bookings = bookingMapper.selectList(
-                new LambdaQueryWrapper<Booking>()
-                        .eq(Booking::getInstitutionId, institutionId)
-                        .ge(Booking::getCreatedAt, startDate.atStartOfDay())
-                        .le(Booking::getCreatedAt, endDate.plusDays(1).atStartOfDay()));
+        // 订单聚合：分析数据装载完成时在内存列存上计算，否则按时间段在订单表上做索引范围聚合
+        ReportCounts counts = bookingCubeService.isReady()
+                ? reportCountsFromCube(institutionId, startDate, endDate)
+                : reportCountsFromDatabase(institutionId, startDate, endDate);
         
         Map<String, Object> result = new HashMap<>();
         
         // 核心指标
-        int totalOrders = bookings.size();
-        BigDecimal totalRevenue = bookings.stream()
-                .filter(b -> "paid".equals(b.getPaymentStatus()))
-                .map(Booking::getTotalPrice)
-                .filter(Objects::nonNull)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        int totalOrders = (int) counts.totalOrders;
+        BigDecimal totalRevenue = counts.totalRevenue;
         BigDecimal avgOrderValue = totalOrders > 0 ? 
                 totalRevenue.divide(BigDecimal.valueOf(totalOrders), 2, BigDecimal.ROUND_HALF_UP) : BigDecimal.ZERO;
-        int inProgressCount = (int) bookings.stream().filter(b -> "in_progress".equals(b.getStatus())).count();
-        
-        // 所有进行中的订单（用于入住率，不按时间段过滤）
-        int allInProgressCount = (int) allBookings.stream().filter(b -> "in_progress".equals(b.getStatus())).count();
         
         // 获取总房间数
         int totalRooms = 30;
@@ -813,7 +879,7 @@ public class InstitutionService {
         }
         
         // 入住率：所有进行中的订单数 / 总房间数
-        double occupancyRate = totalRooms > 0 ? (allInProgressCount * 100.0 / totalRooms) : 0;
+        double occupancyRate = totalRooms > 0 ? (counts.allInProgress * 100.0 / totalRooms) : 0;
         
         Map<String, Object> coreMetrics = new HashMap<>();
         coreMetrics.put("totalOrders", totalOrders);
@@ -825,47 +891,28 @@ public class InstitutionService {
         result.put("coreMetrics", coreMetrics);
         
         // 订单趋势（按日期分组）
-        Map<LocalDate, Long> ordersByDate = bookings.stream()
-                .collect(java.util.stream.Collectors.groupingBy(
-                        b -> b.getCreatedAt().toLocalDate(),
-                        java.util.stream.Collectors.counting()));
         List<Map<String, Object>> orderTrend = new ArrayList<>();
         for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
             Map<String, Object> point = new HashMap<>();
             point.put("name", date.getMonthValue() + "月" + date.getDayOfMonth() + "日");
-            point.put("value", ordersByDate.getOrDefault(date, 0L));
+            point.put("value", counts.ordersByDate.getOrDefault(date, 0L));
             orderTrend.add(point);
         }
         result.put("orderTrend", orderTrend);
         
-        // 收入趋势
-        Map<LocalDate, BigDecimal> revenueByDate = bookings.stream()
-                .filter(b -> "paid".equals(b.getPaymentStatus()) && b.getPaidAt() != null)
-                .collect(java.util.stream.Collectors.groupingBy(
-                        b -> b.getPaidAt().toLocalDate(),
-                        java.util.stream.Collectors.reducing(BigDecimal.ZERO, Booking::getTotalPrice, BigDecimal::add)));
+        // 收入趋势（按支付日期）
         List<Map<String, Object>> revenueTrend = new ArrayList<>();
         for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
             Map<String, Object> point = new HashMap<>();
             point.put("name", date.getMonthValue() + "月" + date.getDayOfMonth() + "日");
-            point.put("value", revenueByDate.getOrDefault(date, BigDecimal.ZERO));
+            point.put("value", counts.revenueByDate.getOrDefault(date, BigDecimal.ZERO));
             revenueTrend.add(point);
         }
         result.put("revenueTrend", revenueTrend);
         
         // 宠物类型分布
-        Map<String, Long> petTypeCount = new HashMap<>();
-        for (Booking booking : bookings) {
-            if (booking.getPetId() != null) {
-                com.pet.entity.Pet pet = petMapper.selectById(booking.getPetId());
-                if (pet != null) {
-                    String species = pet.getSpecies() != null ? pet.getSpecies() : "other";
-                    petTypeCount.merge(species, 1L, Long::sum);
-                }
-            }
-        }
         List<Map<String, Object>> petTypeDistribution = new ArrayList<>();
-        petTypeCount.forEach((type, count) -> {
+        counts.speciesCount.forEach((type, count) -> {
             Map<String, Object> item = new HashMap<>();
             item.put("name", "dog".equals(type) ? "狗狗" : "cat".equals(type) ? "猫咪" : "其他");
             item.put("value", count);
@@ -880,15 +927,7 @@ public class InstitutionService {
         result.put("petTypeDistribution", petTypeDistribution);
         
         // 套餐销售排名
-        Map<String, Long> packageCount = new HashMap<>();
-        for (Booking booking : bookings) {
-            if (booking.getServicePackageId() != null) {
-                ServicePackage pkg = servicePackageMapper.selectById(booking.getServicePackageId());
-                if (pkg != null) {
-                    packageCount.merge(pkg.getName(), 1L, Long::sum);
-                }
-            }
-        }
+        Map<String, Long> packageCount = countByPackageName(counts.packageCount);
         List<Map<String, Object>> packageRanking = packageCount.entrySet().stream()
                 .sorted((a, b) -> Long.compare(b.getValue(), a.getValue()))
                 .limit(5)
@@ -910,6 +949,91 @@ public class InstitutionService {
         return result;
     }
 
+    /**
+     * 机构报表的订单聚合结果，时间段按下单日期，收入趋势按支付日期
+     */
+    private static class ReportCounts {
+        private long totalOrders;
+        /** 时间段内下单且已支付的订单金额 */
+        private BigDecimal totalRevenue = BigDecimal.ZERO;
+        /** 当前进行中的订单数，不限时间段 */
+        private int allInProgress;
+        private final Map<LocalDate, Long> ordersByDate = new HashMap<>();
+        private final Map<LocalDate, BigDecimal> revenueByDate = new HashMap<>();
+        /** 宠物种类 -> 订单数 */
+        private final Map<String, Long> speciesCount = new HashMap<>();
+        /** 套餐ID -> 订单数 */
+        private final Map<String, Long> packageCount = new HashMap<>();
+    }
+
+    private ReportCounts reportCountsFromCube(String institutionId, LocalDate startDate, LocalDate endDate) {
+        ReportCounts counts = new ReportCounts();
+        for (BookingColumns.Group group : bookingCubeService.aggregate(new BookingColumns.Query()
+                .institution(institutionId)
+                .dates(BookingColumns.DateField.CREATED, startDate, endDate)
+                .groupBy(BookingColumns.Dimension.DAY))) {
+            counts.totalOrders += group.getCount();
+            counts.ordersByDate.put((LocalDate) group.get(BookingColumns.Dimension.DAY), group.getCount());
+        }
+        counts.totalRevenue = Money.ofFen(cubeTotal(new BookingColumns.Query()
+                .institution(institutionId)
+                .dates(BookingColumns.DateField.CREATED, startDate, endDate)
+                .paymentStatus("paid")).getGmv()).toYuan();
+        counts.allInProgress = (int) cubeTotal(new BookingColumns.Query()
+                .institution(institutionId)
+                .status("in_progress")).getCount();
+        for (BookingColumns.Group group : bookingCubeService.aggregate(new BookingColumns.Query()
+                .institution(institutionId)
+                .dates(BookingColumns.DateField.PAID, startDate, endDate)
+                .paymentStatus("paid")
+                .groupBy(BookingColumns.Dimension.DAY))) {
+            counts.revenueByDate.put((LocalDate) group.get(BookingColumns.Dimension.DAY),
+                    Money.ofFen(group.getGmv()).toYuan());
+        }
+        for (BookingColumns.Group group : bookingCubeService.aggregate(new BookingColumns.Query()
+                .institution(institutionId)
+                .dates(BookingColumns.DateField.CREATED, startDate, endDate)
+                .groupBy(BookingColumns.Dimension.SPECIES, BookingColumns.Dimension.PACKAGE))) {
+            counts.speciesCount.merge((String) group.get(BookingColumns.Dimension.SPECIES), group.getCount(), Long::sum);
+            if (group.get(BookingColumns.Dimension.PACKAGE) != null) {
+                counts.packageCount.merge((String) group.get(BookingColumns.Dimension.PACKAGE), group.getCount(), Long::sum);
+            }
+        }
+        return counts;
+    }
+
+    private ReportCounts reportCountsFromDatabase(String institutionId, LocalDate startDate, LocalDate endDate) {
+        ReportCounts counts = new ReportCounts();
+        LocalDateTime from = startDate.atStartOfDay();
+        LocalDateTime to = endDate.plusDays(1).atStartOfDay();
+        for (Map<String, Object> row : bookingMapper.sumCreatedByDay(institutionId, from, to)) {
+            long count = ((Number) row.get("count")).longValue();
+            counts.totalOrders += count;
+            counts.ordersByDate.put(toLocalDate(row.get("day")), count);
+            counts.totalRevenue = counts.totalRevenue.add(toDecimal(row.get("revenue")));
+        }
+        counts.allInProgress = (int) bookingMapper.countInProgress(institutionId);
+        for (Map<String, Object> row : bookingMapper.sumPaidByDay(institutionId, from, to)) {
+            counts.revenueByDate.put(toLocalDate(row.get("day")), toDecimal(row.get("revenue")));
+        }
+        fillDistributions(institutionId, from, to, counts.packageCount, null, counts.speciesCount);
+        return counts;
+    }
+
+    private static BigDecimal toDecimal(Object value) {
+        if (value == null) {
+            return BigDecimal.ZERO;
+        }
+        return value instanceof BigDecimal ? (BigDecimal) value : new BigDecimal(value.toString());
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        if (value instanceof java.sql.Date) {
+            return ((java.sql.Date) value).toLocalDate();
+        }
+        return value instanceof LocalDate ? (LocalDate) value : LocalDate.parse(value.toString());
+    }
+
     public List<Map<String, Object>> getTodayCheckIn(String staffUserId) {
         String institutionId = getInstitutionIdByStaff(staffUserId);
         LocalDate today = LocalDate.now();
@@ -996,78 +1120,75 @@ public class InstitutionService {
         return result;
     }
 
-    public PageResult<Map<String, Object>> getCustomers(String staffUserId, int page, int pageSize) {
+    /**
+     * 机构客户列表：按用户分组统计订单数、已支付金额、最近下单时间，在数据库中排序分页，
+     * 当前页的用户、最近订单状态、宠物各一次批量查询
+     * @param sortBy lastOrderDate（默认）、orderCount、totalSpent，均为倒序
+     */
+    public PageResult<Map<String, Object>> getCustomers(String staffUserId, int page, int pageSize, String sortBy) {
         String institutionId = getInstitutionIdByStaff(staffUserId);
-        
-        // 从订单中获取所有客户（去重）
-        List<Booking> allBookings = bookingMapper.selectList(
-                new LambdaQueryWrapper<Booking>()
-                        .eq(Booking::getInstitutionId, institutionId)
-                        .orderByDesc(Booking::getCreatedAt));
-        
-        // 按用户ID分组统计
-        Map<String, List<Booking>> bookingsByUser = new HashMap<>();
-        for (Booking booking : allBookings) {
-            if (booking.getUserId() != null) {
-                bookingsByUser.computeIfAbsent(booking.getUserId(), k -> new ArrayList<>()).add(booking);
-            }
+        page = Math.max(page, 1);
+        pageSize = Math.max(1, Math.min(pageSize, 100));
+
+        long total = bookingMapper.countCustomers(institutionId);
+        if (total == 0 || (long) (page - 1) * pageSize >= total) {
+            return PageResult.of(new ArrayList<>(), page, pageSize, total);
         }
-        
+        List<Map<String, Object>> rows = bookingMapper.selectCustomerPage(
+                institutionId, sortBy, (long) (page - 1) * pageSize, pageSize);
+        if (rows.isEmpty()) {
+            return PageResult.of(new ArrayList<>(), page, pageSize, total);
+        }
+
+        List<String> userIds = new ArrayList<>();
+        for (Map<String, Object> row : rows) {
+            userIds.add((String) row.get("userId"));
+        }
+        Map<String, User> users = new HashMap<>();
+        for (User user : userMapper.selectBatchIds(userIds)) {
+            users.put(user.getId(), user);
+        }
+        Map<String, String> lastStatus = new HashMap<>();
+        for (Map<String, Object> row : bookingMapper.selectLastOrderStatus(institutionId, rows)) {
+            lastStatus.putIfAbsent((String) row.get("userId"), (String) row.get("status"));
+        }
+        Map<String, List<Map<String, Object>>> petsByUser = new HashMap<>();
+        for (Pet pet : petMapper.selectList(new LambdaQueryWrapper<Pet>().in(Pet::getUserId, userIds))) {
+            Map<String, Object> petInfo = new HashMap<>();
+            petInfo.put("id", pet.getId());
+            petInfo.put("name", pet.getName());
+            petInfo.put("species", pet.getSpecies());
+            petInfo.put("breed", pet.getBreed());
+            petsByUser.computeIfAbsent(pet.getUserId(), k -> new ArrayList<>()).add(petInfo);
+        }
+
         List<Map<String, Object>> customers = new ArrayList<>();
-        for (Map.Entry<String, List<Booking>> entry : bookingsByUser.entrySet()) {
-            String userId = entry.getKey();
-            List<Booking> userBookings = entry.getValue();
-            
-            User user = userMapper.selectById(userId);
+        for (Map<String, Object> row : rows) {
+            String userId = (String) row.get("userId");
+            User user = users.get(userId);
             if (user == null) continue;
-            
+
             Map<String, Object> customer = new HashMap<>();
             customer.put("id", user.getId());
             customer.put("name", user.getName());
             customer.put("phone", user.getPhone());
             customer.put("email", user.getEmail());
             customer.put("avatar", user.getAvatar());
-            
-            // 统计订单数和消费金额
-            int orderCount = userBookings.size();
-            BigDecimal totalSpent = userBookings.stream()
-                    .filter(b -> "paid".equals(b.getPaymentStatus()))
-                    .map(Booking::getTotalPrice)
-                    .filter(Objects::nonNull)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-            
-            customer.put("orderCount", orderCount);
-            customer.put("totalSpent", totalSpent);
-            
-            // 最近一次订单时间
-            Booking lastBooking = userBookings.get(0);
-            customer.put("lastOrderDate", lastBooking.getCreatedAt());
-            customer.put("lastOrderStatus", lastBooking.getStatus());
-            
-            // 获取用户的宠物信息
-            List<Pet> pets = petMapper.selectList(
-                    new LambdaQueryWrapper<Pet>().eq(Pet::getUserId, userId));
-            List<Map<String, Object>> petList = new ArrayList<>();
-            for (Pet pet : pets) {
-                Map<String, Object> petInfo = new HashMap<>();
-                petInfo.put("id", pet.getId());
-                petInfo.put("name", pet.getName());
-                petInfo.put("species", pet.getSpecies());
-                petInfo.put("breed", pet.getBreed());
-                petList.add(petInfo);
-            }
-            customer.put("pets", petList);
-            
+            customer.put("orderCount", ((Number) row.get("orderCount")).intValue());
+            customer.put("totalSpent", toDecimal(row.get("totalSpent")));
+            customer.put("lastOrderDate", toLocalDateTime(row.get("lastOrderDate")));
+            customer.put("lastOrderStatus", lastStatus.get(userId));
+            customer.put("pets", petsByUser.getOrDefault(userId, new ArrayList<>()));
             customers.add(customer);
         }
-        
-        // 分页
-        int total = customers.size();
-        int start = (page - 1) * pageSize;
-        int end = Math.min(start + pageSize, total);
-        List<Map<String, Object>> pagedList = start < total ? customers.subList(start, end) : new ArrayList<>();
-        
-        return PageResult.of(pagedList, page, pageSize, total);
+        return PageResult.of(customers, page, pageSize, total);
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof java.sql.Timestamp) {
+            return ((java.sql.Timestamp) value).toLocalDateTime();
+        }
+        return (LocalDateTime) value;
     }
 
     // ========== 机构申请/资料 ==========
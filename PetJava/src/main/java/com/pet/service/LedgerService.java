@@ -0,0 +1,370 @@
+package com.pet.service;
+
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
+import com.pet.entity.LedgerEntry;
+import com.pet.entity.LedgerSnapshot;
+import com.pet.entity.LedgerState;
+import com.pet.entity.WalletTransaction;
+import com.pet.mapper.LedgerEntryMapper;
+import com.pet.mapper.LedgerSnapshotMapper;
+import com.pet.mapper.LedgerStateMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * 复式记账服务（账本模式）
+ * 每笔资金变动写入一张借贷平衡的凭证，分录只追加不修改；
+ * 余额 = 最近快照 + 快照之后的分录回放，定时任务周期性生成快照使回放尾部保持很短。
+ * 快照先读取最大序号作为水位线，再等待读取之前开始的写事务全部结束，水位线以下不会再有迟到提交的分录；
+ * 记账事务之间、记账与快照之间没有共享的锁。
+ *
+ * 资金流向：
+ * 充值   外部资金 -> 用户钱包
+ * 支付   用户钱包（或外部支付渠道） -> 平台托管
+ * 退款   平台托管 -> 用户钱包
+ * 收入   平台托管 -> 机构钱包
+ * 提现   钱包 -> 外部资金 + 平台手续费
+ */
+@Slf4j
+@Service
+public class LedgerService {
+
+    public static final String ACCOUNT_EXTERNAL = "platform:external";
+    public static final String ACCOUNT_ESCROW = "platform:escrow";
+    public static final String ACCOUNT_FEE = "platform:fee";
+    public static final String ACCOUNT_OPENING = "platform:opening";
+
+    private static final int OPENING_BATCH_SIZE = 1000;
+
+    private final LedgerEntryMapper entryMapper;
+    private final LedgerSnapshotMapper snapshotMapper;
+    private final LedgerStateMapper stateMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${wallet.ledger.enabled:false}")
+    private boolean enabled;
+
+    /** 快照等待在途写事务结束的最长时间，超时则本次不生成快照 */
+    @Value("${wallet.ledger.snapshot-wait-ms:30000}")
+    private long snapshotWaitMillis;
+
+    public LedgerService(LedgerEntryMapper entryMapper,
+                         LedgerSnapshotMapper snapshotMapper,
+                         LedgerStateMapper stateMapper,
+                         PlatformTransactionManager transactionManager) {
+        this.entryMapper = entryMapper;
+        this.snapshotMapper = snapshotMapper;
+        this.stateMapper = stateMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public static String walletAccount(String walletId) {
+        return "wallet:" + walletId;
+    }
+
+    @Transactional
+    public void postRecharge(String walletId, long amount, String rechargeOrderId) {
+        post("recharge", rechargeOrderId, null,
+                leg(walletAccount(walletId), amount),
+                leg(ACCOUNT_EXTERNAL, -amount));
+    }
+
+    /**
+     * 支付，walletId 为 null 表示通过外部渠道（微信、支付宝等）支付
+     */
+    @Transactional
+    public void postPayment(String walletId, long amount, String orderId) {
+        String source = walletId != null ? walletAccount(walletId) : ACCOUNT_EXTERNAL;
+        post("payment", orderId, null,
+                leg(source, -amount),
+                leg(ACCOUNT_ESCROW, amount));
+    }
+
+    @Transactional
+    public void postRefund(String walletId, long amount, String orderId) {
+        post("refund", orderId, null,
+                leg(ACCOUNT_ESCROW, -amount),
+                leg(walletAccount(walletId), amount));
+    }
+
+    /**
+     * 批量退款记账，每笔退款一张凭证，全部分录一条语句写入
+     * @param refunds 已生成的退款交易记录（使用其 walletId、amount、relatedOrderId）
+     */
+    @Transactional
+    public void postRefunds(List<WalletTransaction> refunds) {
+        if (!enabled || refunds.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<LedgerEntry> entries = new ArrayList<>(refunds.size() * 2);
+        for (WalletTransaction refund : refunds) {
+            entries.addAll(journal("refund", refund.getRelatedOrderId(), null, now,
+                    leg(ACCOUNT_ESCROW, -refund.getAmount()),
+                    leg(walletAccount(refund.getWalletId()), refund.getAmount())));
+        }
+        if (!entries.isEmpty()) {
+            entryMapper.insertBatch(entries);
+        }
+    }
+
+    /**
+     * 批量收入记账，每笔收入一张凭证，全部分录一条语句写入
+     * @param incomes 已生成的收入交易记录（使用其 walletId、amount、relatedOrderId）
+     */
+    @Transactional
+    public void postIncomes(List<WalletTransaction> incomes) {
+        if (!enabled || incomes.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<LedgerEntry> entries = new ArrayList<>(incomes.size() * 2);
+        for (WalletTransaction income : incomes) {
+            entries.addAll(journal("income", income.getRelatedOrderId(), null, now,
+                    leg(ACCOUNT_ESCROW, -income.getAmount()),
+                    leg(walletAccount(income.getWalletId()), income.getAmount())));
+        }
+        if (!entries.isEmpty()) {
+            entryMapper.insertBatch(entries);
+        }
+    }
+
+    @Transactional
+    public void postIncome(String walletId, long amount, String orderId) {
+        post("income", orderId, null,
+                leg(ACCOUNT_ESCROW, -amount),
+                leg(walletAccount(walletId), amount));
+    }
+
+    @Transactional
+    public void postWithdrawal(String walletId, long amount, long fee, String withdrawalId) {
+        post("withdrawal", null, withdrawalId,
+                leg(walletAccount(walletId), -(amount + fee)),
+                leg(ACCOUNT_EXTERNAL, amount),
+                leg(ACCOUNT_FEE, fee));
+    }
+
+    private Leg leg(String account, long amount) {
+        return new Leg(account, amount);
+    }
+
+    private void post(String entryType, String relatedOrderId, String relatedWithdrawalId, Leg... legs) {
+        if (!enabled) {
+            return;
+        }
+        List<LedgerEntry> entries = journal(entryType, relatedOrderId, relatedWithdrawalId, LocalDateTime.now(), legs);
+        if (!entries.isEmpty()) {
+            entryMapper.insertBatch(entries);
+        }
+    }
+
+    /**
+     * 生成一张凭证的分录并校验借贷平衡
+     */
+    private List<LedgerEntry> journal(String entryType, String relatedOrderId, String relatedWithdrawalId,
+                                      LocalDateTime now, Leg... legs) {
+        String journalId = IdWorker.get32UUID();
+        long sum = 0;
+        List<LedgerEntry> entries = new ArrayList<>(legs.length);
+        for (Leg leg : legs) {
+            long amount = leg.amount;
+            if (amount == 0) {
+                continue;
+            }
+            LedgerEntry entry = new LedgerEntry();
+            entry.setJournalId(journalId);
+            entry.setAccount(leg.account);
+            entry.setEntryType(entryType);
+            entry.setAmount(amount);
+            entry.setRelatedOrderId(relatedOrderId);
+            entry.setRelatedWithdrawalId(relatedWithdrawalId);
+            entry.setCreatedAt(now);
+            entries.add(entry);
+            sum += amount;
+        }
+        if (sum != 0) {
+            throw new RuntimeException("记账凭证借贷不平衡");
+        }
+        return entries;
+    }
+
+    /**
+     * 账户当前余额（单位：分）
+     */
+    public long balanceOf(String account) {
+        LedgerSnapshot snapshot = snapshotMapper.selectLatest(account);
+        long base = snapshot != null ? snapshot.getBalance() : 0;
+        long afterSeq = snapshot != null ? snapshot.getLastSeq() : 0;
+        return base + entryMapper.sumAfter(account, afterSeq);
+    }
+
+    /**
+     * 账户在指定时刻的余额（单位：分）
+     */
+    public long balanceAt(String account, LocalDateTime time) {
+        LedgerSnapshot snapshot = snapshotMapper.selectLatestBefore(account, time);
+        long base = snapshot != null ? snapshot.getBalance() : 0;
+        long afterSeq = snapshot != null ? snapshot.getLastSeq() : 0;
+        return base + entryMapper.sumAfterUntil(account, afterSeq, time);
+    }
+
+    /**
+     * 平台资金概览（单位：分）
+     * payment 为进入托管的订单支付，refund/income 为托管流出，withdrawalFee 为提现手续费收入
+     */
+    public Map<String, Object> getPlatformSummary(LocalDateTime from, LocalDateTime to) {
+        long payment = 0;
+        long refund = 0;
+        long income = 0;
+        long refundCount = 0;
+        for (Map<String, Object> row : entryMapper.sumByType(ACCOUNT_ESCROW, from, to)) {
+            String type = (String) row.get("entryType");
+            long amount = ((Number) row.get("amount")).longValue();
+            if ("payment".equals(type)) {
+                payment += amount;
+            } else if ("refund".equals(type)) {
+                refund -= amount;
+                refundCount += ((Number) row.get("count")).longValue();
+            } else if ("income".equals(type)) {
+                income -= amount;
+            }
+        }
+        long withdrawalFee = 0;
+        for (Map<String, Object> row : entryMapper.sumByType(ACCOUNT_FEE, from, to)) {
+            withdrawalFee += ((Number) row.get("amount")).longValue();
+        }
+
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("payment", payment);
+        summary.put("refund", refund);
+        summary.put("refundCount", refundCount);
+        summary.put("income", income);
+        summary.put("withdrawalFee", withdrawalFee);
+        summary.put("escrowBalance", balanceOf(ACCOUNT_ESCROW));
+        return summary;
+    }
+
+    /**
+     * 定时生成余额快照，默认每 10 分钟一次
+     * 先读最大序号再读数据库时间：序号不超过水位线的分录在读取前已分配，所属事务开始于该时间之前，
+     * 等这些写事务全部结束后，水位线以下的分录不会再变化。
+     * 截止时间取区间内分录的最晚记账时间，时点余额不会把截止时间之后的分录算进快照
+     */
+    @Scheduled(fixedDelayString = "${wallet.ledger.snapshot-interval-ms:600000}")
+    public void takeSnapshot() {
+        if (!enabled) {
+            return;
+        }
+        long toSeq = entryMapper.selectMaxSeq();
+        LocalDateTime readAt = entryMapper.selectNow();
+        long fromSeq = snapshotMapper.selectMaxSeq();
+        if (toSeq <= fromSeq) {
+            return;
+        }
+        if (!awaitWritersStartedBefore(readAt)) {
+            log.warn("账本快照跳过: 仍有 {} 之前开始的写事务未结束", readAt);
+            return;
+        }
+        LocalDateTime cutoff = entryMapper.selectMaxCreatedAt(fromSeq, toSeq);
+        int accounts = snapshotMapper.insertSnapshots(fromSeq, toSeq, cutoff);
+        log.info("账本快照完成: seq ({}, {}], 截止时间={}, 账户数={}", fromSeq, toSeq, cutoff, accounts);
+    }
+
+    private boolean awaitWritersStartedBefore(LocalDateTime readAt) {
+        long deadline = System.currentTimeMillis() + snapshotWaitMillis;
+        while (entryMapper.countWritersStartedBefore(readAt) > 0) {
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 启动时记录账本是否启用；首次启用或由停用转为启用时，把钱包余额与账本的差额作为期初分录写入
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void bootstrapOpeningBalances() {
+        stateMapper.insertIfAbsent();
+        if (!enabled) {
+            stateMapper.updateEnabled(false);
+            return;
+        }
+        transactionTemplate.execute(status -> {
+            LedgerState state = stateMapper.lockExclusive();
+            if (state != null && Boolean.TRUE.equals(state.getEnabled())) {
+                return null;
+            }
+            syncWalletBalances();
+            stateMapper.updateEnabled(true);
+            return null;
+        });
+    }
+
+    /**
+     * 差额由单条语句一致性读得出：其他记账事务的钱包变动和分录在同一事务中，要么都可见要么都不可见，
+     * 读到的差额即停用期间的变动；排他锁只防止多个实例重复同步
+     */
+    private void syncWalletBalances() {
+        String journalId = IdWorker.get32UUID();
+        LocalDateTime now = LocalDateTime.now();
+        List<LedgerEntry> entries = new ArrayList<>();
+        long total = 0;
+        int wallets = 0;
+        for (Map<String, Object> row : entryMapper.selectWalletDrift()) {
+            long diff = ((Number) row.get("diff")).longValue();
+            entries.add(openingEntry(journalId, walletAccount((String) row.get("walletId")), diff, now));
+            total += diff;
+            wallets++;
+            if (entries.size() >= OPENING_BATCH_SIZE) {
+                entryMapper.insertBatch(entries);
+                entries.clear();
+            }
+        }
+        if (wallets > 0) {
+            entries.add(openingEntry(journalId, ACCOUNT_OPENING, -total, now));
+            entryMapper.insertBatch(entries);
+        }
+        log.info("账本已启用，钱包余额同步到账本: 钱包数={}, 差额合计={}", wallets, total);
+    }
+
+    private LedgerEntry openingEntry(String journalId, String account, long amount, LocalDateTime now) {
+        LedgerEntry entry = new LedgerEntry();
+        entry.setJournalId(journalId);
+        entry.setAccount(account);
+        entry.setEntryType("opening");
+        entry.setAmount(amount);
+        entry.setCreatedAt(now);
+        return entry;
+    }
+
+    private static final class Leg {
+        private final String account;
+        private final long amount;
+
+        private Leg(String account, long amount) {
+            this.account = account;
+            this.amount = amount;
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.pet.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pet.common.PageResult;
+import com.pet.entity.ModerationFlag;
+import com.pet.entity.ModerationTerm;
+import com.pet.mapper.ModerationFlagMapper;
+import com.pet.mapper.ModerationTermMapper;
+import com.pet.util.AhoCorasick;
+import com.pet.util.TransactionUtils;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * 内容审核服务
+ * 词表编译为 Aho-Corasick 自动机，一次扫描完成匹配，耗时与词条数无关：
+ * block 级词条在提交时同步拦截（命中第一个即返回），flag 级词条在事务提交后异步扫描并生成待复核标记。
+ * 词表修改后立即重建自动机，其他实例定时比对词表版本后热加载
+ */
+@Slf4j
+@Service
+public class ModerationService {
+
+    public static final String LEVEL_BLOCK = "block";
+    public static final String LEVEL_FLAG = "flag";
+
+    private static final int EXCERPT_LENGTH = 500;
+
+    private final ModerationTermMapper termMapper;
+    private final ModerationFlagMapper flagMapper;
+    private final ObjectMapper objectMapper;
+    private final TaskExecutor moderationExecutor;
+
+    /** 当前生效的词表，整体替换保证扫描线程看到一致的快照 */
+    private volatile Dictionary dictionary = new Dictionary(null,
+            AhoCorasick.build(Collections.emptyList()), AhoCorasick.build(Collections.emptyList()));
+
+    public ModerationService(ModerationTermMapper termMapper,
+                             ModerationFlagMapper flagMapper,
+                             ObjectMapper objectMapper,
+                             @Qualifier("moderationExecutor") TaskExecutor moderationExecutor) {
+        this.termMapper = termMapper;
+        this.flagMapper = flagMapper;
+        this.objectMapper = objectMapper;
+        this.moderationExecutor = moderationExecutor;
+    }
+
+    // ========== 审核 ==========
+
+    /**
+     * 同步快速路径：内容命中 block 级词条时拒绝提交
+     */
+    public void checkBlocked(String text) {
+        if (!StringUtils.hasText(text)) {
+            return;
+        }
+        AhoCorasick.Match match = dictionary.blockMatcher.findFirst(text);
+        if (match != null) {
+            log.info("内容命中违禁词被拦截: term={}", match.getTerm());
+            throw new RuntimeException("内容包含违禁词，请修改后重新提交");
+        }
+    }
+
+    /**
+     * 异步扫描 flag 级词条，命中则生成待复核标记；处于事务中时在提交后执行，回滚的内容不会被标记
+     */
+    public void screenAsync(String targetType, String targetId, String userId, String text) {
+        if (!StringUtils.hasText(text) || dictionary.flagMatcher.isEmpty()) {
+            return;
+        }
+        Runnable task = () -> {
+            try {
+                screen(targetType, targetId, userId, text);
+            } catch (Exception e) {
+                log.warn("内容审核扫描失败: targetType={}, targetId={}, error={}", targetType, targetId, e.getMessage());
+            }
+        };
+        TransactionUtils.afterCommit(() -> moderationExecutor.execute(task));
+    }
+
+    @SneakyThrows
+    private void screen(String targetType, String targetId, String userId, String text) {
+        List<AhoCorasick.Match> matches = dictionary.flagMatcher.findAll(text);
+        if (matches.isEmpty()) {
+            return;
+        }
+        Set<String> terms = new LinkedHashSet<>();
+        for (AhoCorasick.Match match : matches) {
+            terms.add(match.getTerm());
+        }
+
+        ModerationFlag flag = new ModerationFlag();
+        flag.setTargetType(targetType);
+        flag.setTargetId(targetId);
+        flag.setUserId(userId);
+        flag.setMatchedTerms(objectMapper.writeValueAsString(terms));
+        flag.setExcerpt(text.length() > EXCERPT_LENGTH ? text.substring(0, EXCERPT_LENGTH) : text);
+        flag.setStatus("pending");
+        flagMapper.insert(flag);
+        log.info("内容命中审核词条: targetType={}, targetId={}, terms={}", targetType, targetId, terms);
+    }
+
+    // ========== 词表热加载 ==========
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        try {
+            reload();
+        } catch (Exception e) {
+            log.warn("加载审核词表失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 定时比对词表版本，其他实例修改过词表时重新加载
+     */
+    @Scheduled(fixedDelayString = "${moderation.reload-interval-ms:60000}")
+    public void refreshIfChanged() {
+        try {
+            String version = termMapper.selectVersion();
+            if (!Objects.equals(version, dictionary.version)) {
+                reload();
+            }
+        } catch (Exception e) {
+            log.warn("检查审核词表版本失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 从数据库重建自动机并原子替换
+     * @return 生效的词条数
+     */
+    public synchronized int reload() {
+        String version = termMapper.selectVersion();
+        List<ModerationTerm> terms = termMapper.selectList(null);
+        List<String> blockTerms = new ArrayList<>();
+        List<String> flagTerms = new ArrayList<>();
+        for (ModerationTerm term : terms) {
+            if (LEVEL_BLOCK.equals(term.getLevel())) {
+                blockTerms.add(term.getTerm());
+            } else {
+                flagTerms.add(term.getTerm());
+            }
+        }
+        dictionary = new Dictionary(version, AhoCorasick.build(blockTerms), AhoCorasick.build(flagTerms));
+        log.info("审核词表已加载: block={}, flag={}", blockTerms.size(), flagTerms.size());
+        return terms.size();
+    }
+
+    // ========== 管理 ==========
+
+    public List<Map<String, Object>> getTerms(String level) {
+        LambdaQueryWrapper<ModerationTerm> wrapper = new LambdaQueryWrapper<>();
+        if (StringUtils.hasText(level)) {
+            wrapper.eq(ModerationTerm::getLevel, level);
+        }
+        wrapper.orderByDesc(ModerationTerm::getCreatedAt);
+
+        List<Map<String, Object>> list = new ArrayList<>();
+        for (ModerationTerm term : termMapper.selectList(wrapper)) {
+            Map<String, Object> vo = new HashMap<>();
+            vo.put("id", term.getId());
+            vo.put("term", term.getTerm());
+            vo.put("level", term.getLevel());
+            vo.put("createdAt", term.getCreatedAt());
+            list.add(vo);
+        }
+        return list;
+    }
+
+    /**
+     * 批量添加词条，已存在的词条更新级别
+     * @return 生效的词条数
+     */
+    public int addTerms(List<String> terms, String level) {
+        if (!LEVEL_BLOCK.equals(level) && !LEVEL_FLAG.equals(level)) {
+            throw new RuntimeException("无效的词条级别");
+        }
+        if (terms == null || terms.isEmpty()) {
+            throw new RuntimeException("词条不能为空");
+        }
+        for (String raw : terms) {
+            if (!StringUtils.hasText(raw)) {
+                continue;
+            }
+            String value = raw.trim();
+            ModerationTerm existing = termMapper.selectOne(new LambdaQueryWrapper<ModerationTerm>()
+                    .eq(ModerationTerm::getTerm, value));
+            if (existing != null) {
+                if (!level.equals(existing.getLevel())) {
+                    existing.setLevel(level);
+                    termMapper.updateById(existing);
+                }
+                continue;
+            }
+            ModerationTerm term = new ModerationTerm();
+            term.setTerm(value);
+            term.setLevel(level);
+            termMapper.insert(term);
+        }
+        return reload();
+    }
+
+    public int removeTerm(String id) {
+        termMapper.deleteById(id);
+        return reload();
+    }
+
+    public PageResult<Map<String, Object>> getFlags(String status, int page, int pageSize) {
+        LambdaQueryWrapper<ModerationFlag> wrapper = new LambdaQueryWrapper<>();
+        if (StringUtils.hasText(status)) {
+            wrapper.eq(ModerationFlag::getStatus, status);
+        }
+        wrapper.orderByDesc(ModerationFlag::getCreatedAt);
+
+        Page<ModerationFlag> pageResult = flagMapper.selectPage(new Page<>(page, pageSize), wrapper);
+        List<Map<String, Object>> list = new ArrayList<>();
+        for (ModerationFlag flag : pageResult.getRecords()) {
+            list.add(toFlagVO(flag));
+        }
+        return PageResult.of(list, page, pageSize, pageResult.getTotal());
+    }
+
+    /**
+     * 复核标记
+     * @param status confirmed（确认违规）或 dismissed（误报）
+     */
+    public Map<String, Object> handleFlag(String id, String status, String adminId) {
+        if (!"confirmed".equals(status) && !"dismissed".equals(status)) {
+            throw new RuntimeException("无效的复核结果");
+        }
+        ModerationFlag flag = flagMapper.selectById(id);
+        if (flag == null) {
+            throw new RuntimeException("审核标记不存在");
+        }
+        flag.setStatus(status);
+        flag.setHandledBy(adminId);
+        flag.setHandledAt(LocalDateTime.now());
+        flagMapper.updateById(flag);
+        return toFlagVO(flag);
+    }
+
+    @SneakyThrows
+    private Map<String, Object> toFlagVO(ModerationFlag flag) {
+        Map<String, Object> vo = new HashMap<>();
+        vo.put("id", flag.getId());
+        vo.put("targetType", flag.getTargetType());
+        vo.put("targetId", flag.getTargetId());
+        vo.put("userId", flag.getUserId());
+        vo.put("matchedTerms", StringUtils.hasText(flag.getMatchedTerms())
+                ? objectMapper.readValue(flag.getMatchedTerms(), new TypeReference<List<String>>() {})
+                : Collections.emptyList());
+        vo.put("excerpt", flag.getExcerpt());
+        vo.put("status", flag.getStatus());
+        vo.put("handledBy", flag.getHandledBy());
+        vo.put("handledAt", flag.getHandledAt());
+        vo.put("createdAt", flag.getCreatedAt());
+        return vo;
+    }
+
+    /**
+     * 词表快照
+     */
+    private static class Dictionary {
+        private final String version;
+        private final AhoCorasick blockMatcher;
+        private final AhoCorasick flagMatcher;
+
+        Dictionary(String version, AhoCorasick blockMatcher, AhoCorasick flagMatcher) {
+            this.version = version;
+            this.blockMatcher = blockMatcher;
+            this.flagMatcher = flagMatcher;
+        }
+    }
+}
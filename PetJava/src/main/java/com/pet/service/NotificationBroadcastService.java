@@ -0,0 +1,252 @@
+package com.pet.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.pet.entity.Notification;
+import com.pet.entity.NotificationBroadcast;
+import com.pet.entity.User;
+import com.pet.mapper.NotificationBroadcastMapper;
+import com.pet.mapper.UserMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 群发通知服务
+ * 系统公告等面向大量用户的通知在后台线程按用户ID顺序分批发送：每批一条多行 INSERT，
+ * 与任务游标在同一事务内提交。某批失败时整批回滚，续跑从游标之后开始，已写入的批次不会重复
+ */
+@Slf4j
+@Service
+public class NotificationBroadcastService {
+
+    private static final List<String> AUDIENCES = Arrays.asList("all", "pet_owner", "institution_staff", "admin");
+
+    private final NotificationBroadcastMapper broadcastMapper;
+    private final UserMapper userMapper;
+    private final NotificationService notificationService;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskExecutor backgroundExecutor;
+
+    @Value("${notification.broadcast.batch-size:1000}")
+    private int batchSize;
+
+    /** 本实例中正在执行的任务 */
+    private final Set<String> runningJobs = ConcurrentHashMap.newKeySet();
+
+    public NotificationBroadcastService(NotificationBroadcastMapper broadcastMapper,
+                                        UserMapper userMapper,
+                                        NotificationService notificationService,
+                                        PlatformTransactionManager transactionManager,
+                                        @Qualifier("backgroundExecutor") TaskExecutor backgroundExecutor) {
+        this.broadcastMapper = broadcastMapper;
+        this.userMapper = userMapper;
+        this.notificationService = notificationService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.backgroundExecutor = backgroundExecutor;
+    }
+
+    /**
+     * 创建并启动群发任务
+     * @param audience 接收范围：all、pet_owner、institution_staff、admin，默认 all
+     */
+    public Map<String, Object> start(String audience, String type, String title, String content,
+                                     String link, String createdBy) {
+        if (!StringUtils.hasText(title)) {
+            throw new RuntimeException("通知标题不能为空");
+        }
+        String target = StringUtils.hasText(audience) ? audience : "all";
+        if (!AUDIENCES.contains(target)) {
+            throw new RuntimeException("无效的接收范围");
+        }
+
+        NotificationBroadcast job = new NotificationBroadcast();
+        job.setAudience(target);
+        job.setType(StringUtils.hasText(type) ? type : "system");
+        job.setTitle(title);
+        job.setContent(content);
+        job.setLink(link);
+        job.setStatus("running");
+        job.setTotalCount(Math.toIntExact(userMapper.selectCount(recipients(target))));
+        job.setSentCount(0);
+        job.setCreatedBy(createdBy);
+        broadcastMapper.insert(job);
+
+        log.info("创建群发通知任务: jobId={}, audience={}, total={}", job.getId(), target, job.getTotalCount());
+        submit(job.getId());
+        return toVO(job);
+    }
+
+    /**
+     * 继续执行已中断或失败的任务
+     */
+    public Map<String, Object> resume(String jobId) {
+        NotificationBroadcast job = getJob(jobId);
+        if ("completed".equals(job.getStatus())) {
+            throw new RuntimeException("任务已完成");
+        }
+        if (runningJobs.contains(jobId)) {
+            throw new RuntimeException("任务正在执行中");
+        }
+        job.setStatus("running");
+        job.setLastError(null);
+        broadcastMapper.updateById(job);
+        submit(jobId);
+        return toVO(job);
+    }
+
+    public Map<String, Object> getProgress(String jobId) {
+        return toVO(getJob(jobId));
+    }
+
+    public List<Map<String, Object>> getJobs() {
+        List<Map<String, Object>> list = new ArrayList<>();
+        for (NotificationBroadcast job : broadcastMapper.selectList(new LambdaQueryWrapper<NotificationBroadcast>()
+                .orderByDesc(NotificationBroadcast::getCreatedAt).last("LIMIT 50"))) {
+            list.add(toVO(job));
+        }
+        return list;
+    }
+
+    /**
+     * 启动时继续上次未执行完的任务
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterrupted() {
+        List<NotificationBroadcast> jobs = broadcastMapper.selectList(new LambdaQueryWrapper<NotificationBroadcast>()
+                .eq(NotificationBroadcast::getStatus, "running"));
+        for (NotificationBroadcast job : jobs) {
+            log.info("继续执行中断的群发通知任务: jobId={}, sent={}", job.getId(), job.getSentCount());
+            try {
+                submit(job.getId());
+            } catch (RuntimeException e) {
+                log.warn("群发通知任务提交失败: jobId={}, {}", job.getId(), e.getMessage());
+            }
+        }
+    }
+
+    private NotificationBroadcast getJob(String jobId) {
+        NotificationBroadcast job = broadcastMapper.selectById(jobId);
+        if (job == null) {
+            throw new RuntimeException("任务不存在");
+        }
+        return job;
+    }
+
+    private void submit(String jobId) {
+        if (!runningJobs.add(jobId)) {
+            return;
+        }
+        try {
+            backgroundExecutor.execute(() -> run(jobId));
+        } catch (RejectedExecutionException e) {
+            runningJobs.remove(jobId);
+            throw new RuntimeException("后台任务繁忙，请稍后继续执行");
+        }
+    }
+
+    private void run(String jobId) {
+        try {
+            boolean more = true;
+            while (more) {
+                // 关闭应用时停在批次边界，状态保持 running，下次启动继续
+                if (Thread.currentThread().isInterrupted()) {
+                    log.info("群发通知任务中断: jobId={}", jobId);
+                    return;
+                }
+                more = Boolean.TRUE.equals(transactionTemplate.execute(status -> processBatch(jobId)));
+            }
+            NotificationBroadcast job = broadcastMapper.selectById(jobId);
+            if (job != null && "completed".equals(job.getStatus())) {
+                log.info("群发通知任务完成: jobId={}, sent={}", jobId, job.getSentCount());
+            }
+        } catch (Exception e) {
+            log.error("群发通知任务失败: jobId={}", jobId, e);
+            NotificationBroadcast failed = new NotificationBroadcast();
+            failed.setId(jobId);
+            failed.setStatus("failed");
+            String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            failed.setLastError(message.length() > 500 ? message.substring(0, 500) : message);
+            broadcastMapper.updateById(failed);
+        } finally {
+            runningJobs.remove(jobId);
+        }
+    }
+
+    /**
+     * 发送一批，与任务游标在同一事务中提交
+     * @return 是否需要继续下一批（没有剩余用户时标记任务完成并返回 false）
+     */
+    private boolean processBatch(String jobId) {
+        NotificationBroadcast job = broadcastMapper.selectForUpdate(jobId);
+        if (job == null || !"running".equals(job.getStatus())) {
+            return false;
+        }
+
+        LambdaQueryWrapper<User> wrapper = recipients(job.getAudience()).select(User::getId);
+        if (job.getCursorUserId() != null) {
+            wrapper.gt(User::getId, job.getCursorUserId());
+        }
+        wrapper.orderByAsc(User::getId).last("LIMIT " + batchSize);
+        List<User> users = userMapper.selectList(wrapper);
+
+        if (users.isEmpty()) {
+            job.setStatus("completed");
+            job.setFinishedAt(LocalDateTime.now());
+            broadcastMapper.updateById(job);
+            return false;
+        }
+
+        List<Notification> notifications = new ArrayList<>(users.size());
+        for (User user : users) {
+            Notification notification = new Notification();
+            notification.setUserId(user.getId());
+            notification.setType(job.getType());
+            notification.setTitle(job.getTitle());
+            notification.setContent(job.getContent());
+            notification.setLink(job.getLink());
+            notifications.add(notification);
+        }
+        notificationService.sendBatch(notifications);
+
+        job.setCursorUserId(users.get(users.size() - 1).getId());
+        job.setSentCount(job.getSentCount() + users.size());
+        broadcastMapper.updateById(job);
+        return true;
+    }
+
+    private LambdaQueryWrapper<User> recipients(String audience) {
+        LambdaQueryWrapper<User> wrapper = new LambdaQueryWrapper<>();
+        if (!"all".equals(audience)) {
+            wrapper.eq(User::getRole, audience);
+        }
+        return wrapper;
+    }
+
+    private Map<String, Object> toVO(NotificationBroadcast job) {
+        Map<String, Object> vo = new HashMap<>();
+        vo.put("id", job.getId());
+        vo.put("audience", job.getAudience());
+        vo.put("type", job.getType());
+        vo.put("title", job.getTitle());
+        vo.put("status", job.getStatus());
+        vo.put("totalCount", job.getTotalCount());
+        vo.put("sentCount", job.getSentCount());
+        vo.put("lastError", job.getLastError());
+        vo.put("createdAt", job.getCreatedAt());
+        vo.put("finishedAt", job.getFinishedAt());
+        vo.put("running", runningJobs.contains(job.getId()));
+        return vo;
+    }
+}
@@ -0,0 +1,266 @@
+package com.pet.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pet.util.TransactionUtils;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 通知推送中心（Server-Sent Events）
+ * 客户端保持一条长连接代替定时轮询。空闲连接只占一个异步请求对象，不占线程；
+ * 每条连接有自己的有界事件队列，满了丢弃最旧的事件（客户端收到后续事件时会重新拉取列表），
+ * 慢客户端不会拖住发送方或其他连接。写出在推送线程池中进行，同一连接同时只有一个写出任务。
+ * 推送只在本实例内进行，多实例部署时连接在哪个节点，就只能收到该节点发出的事件，客户端应保留低频轮询兜底
+ */
+@Slf4j
+@Service
+public class NotificationPushHub {
+
+    private final ObjectMapper objectMapper;
+    private final TaskExecutor pushExecutor;
+
+    @Value("${notification.push.queue-capacity:32}")
+    private int queueCapacity;
+
+    @Value("${notification.push.max-connections:20000}")
+    private int maxConnections;
+
+    @Value("${notification.push.max-per-user:5}")
+    private int maxPerUser;
+
+    @Value("${notification.push.timeout-ms:1800000}")
+    private long timeoutMillis;
+
+    /** 用户ID -> 该用户的连接（按建立顺序） */
+    private final Map<String, Deque<Connection>> connections = new ConcurrentHashMap<>();
+
+    private final AtomicInteger connectionCount = new AtomicInteger();
+
+    public NotificationPushHub(ObjectMapper objectMapper,
+                               @Qualifier("pushExecutor") TaskExecutor pushExecutor) {
+        this.objectMapper = objectMapper;
+        this.pushExecutor = pushExecutor;
+    }
+
+    /**
+     * 建立推送连接，同一用户超过连接上限时关闭最早的连接
+     * @param role 用户角色，用于按接收范围推送公告
+     */
+    public SseEmitter subscribe(String userId, String role) {
+        if (connectionCount.incrementAndGet() > maxConnections) {
+            connectionCount.decrementAndGet();
+            throw new RuntimeException("推送连接数已满，请稍后重试");
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Connection connection = new Connection(userId, role, emitter);
+        emitter.onCompletion(() -> remove(connection));
+        emitter.onTimeout(() -> remove(connection));
+        emitter.onError(e -> remove(connection));
+
+        List<Connection> evicted = new ArrayList<>();
+        connections.compute(userId, (key, deque) -> {
+            if (deque == null) {
+                deque = new ConcurrentLinkedDeque<>();
+            }
+            deque.addLast(connection);
+            while (deque.size() > maxPerUser) {
+                evicted.add(deque.pollFirst());
+            }
+            return deque;
+        });
+        for (Connection old : evicted) {
+            close(old);
+        }
+        return emitter;
+    }
+
+    public boolean isConnected(String userId) {
+        return connections.containsKey(userId);
+    }
+
+    public int getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    /**
+     * 向用户的所有连接推送事件；处于事务中时在提交后推送
+     */
+    public void publish(String userId, String event, Object data) {
+        if (!isConnected(userId)) {
+            return;
+        }
+        String json = toJson(data);
+        TransactionUtils.afterCommit(() -> {
+            Deque<Connection> deque = connections.get(userId);
+            if (deque != null) {
+                for (Connection connection : deque) {
+                    connection.offer(new Event(event, json));
+                }
+            }
+        });
+    }
+
+    /**
+     * 向接收范围内的所有在线用户推送事件
+     * @param audience all 或角色名
+     */
+    public void broadcast(String audience, String event, Object data) {
+        String json = toJson(data);
+        TransactionUtils.afterCommit(() -> {
+            Event message = new Event(event, json);
+            for (Deque<Connection> deque : connections.values()) {
+                for (Connection connection : deque) {
+                    if ("all".equals(audience) || audience.equals(connection.role)) {
+                        connection.offer(message);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * 心跳：定期发送注释行，防止代理和负载均衡器关闭空闲连接，同时及时发现已断开的连接
+     */
+    @Scheduled(fixedDelayString = "${notification.push.heartbeat-ms:25000}")
+    public void heartbeat() {
+        for (Deque<Connection> deque : connections.values()) {
+            for (Connection connection : deque) {
+                connection.offer(Event.HEARTBEAT);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Deque<Connection> deque : connections.values()) {
+            for (Connection connection : deque) {
+                close(connection);
+            }
+        }
+    }
+
+    private void close(Connection connection) {
+        remove(connection);
+        try {
+            connection.emitter.complete();
+        } catch (Exception e) {
+            log.debug("关闭推送连接失败: userId={}, error={}", connection.userId, e.getMessage());
+        }
+    }
+
+    private void remove(Connection connection) {
+        if (!connection.closed.compareAndSet(false, true)) {
+            return;
+        }
+        connectionCount.decrementAndGet();
+        connections.computeIfPresent(connection.userId, (key, deque) -> {
+            deque.remove(connection);
+            return deque.isEmpty() ? null : deque;
+        });
+    }
+
+    @SneakyThrows
+    private String toJson(Object data) {
+        return objectMapper.writeValueAsString(data);
+    }
+
+    /**
+     * 待发送的事件，数据预先序列化，推送给多条连接时只序列化一次
+     */
+    private static class Event {
+        private static final Event HEARTBEAT = new Event(null, null);
+
+        private final String name;
+        private final String json;
+
+        Event(String name, String json) {
+            this.name = name;
+            this.json = json;
+        }
+
+        SseEmitter.SseEventBuilder toBuilder() {
+            if (name == null) {
+                return SseEmitter.event().comment("ping");
+            }
+            return SseEmitter.event().name(name).data(json);
+        }
+    }
+
+    private class Connection {
+        private final String userId;
+        private final String role;
+        private final SseEmitter emitter;
+        private final Queue<Event> queue = new ArrayBlockingQueue<>(queueCapacity);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        Connection(String userId, String role, SseEmitter emitter) {
+            this.userId = userId;
+            this.role = role;
+            this.emitter = emitter;
+        }
+
+        /**
+         * 入队并安排写出，队列满时丢弃最旧的事件
+         */
+        void offer(Event event) {
+            if (closed.get()) {
+                return;
+            }
+            if (event == Event.HEARTBEAT && !queue.isEmpty()) {
+                scheduleDrain();
+                return;
+            }
+            while (!queue.offer(event)) {
+                queue.poll();
+            }
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (!draining.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                pushExecutor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // 线程池繁忙，事件留在队列中，下一次推送或心跳时再写出
+                draining.set(false);
+            }
+        }
+
+        private void drain() {
+            try {
+                Event event;
+                while (!closed.get() && (event = queue.poll()) != null) {
+                    emitter.send(event.toBuilder());
+                }
+            } catch (Exception e) {
+                log.debug("推送连接已断开: userId={}, error={}", userId, e.getMessage());
+                close(this);
+                return;
+            } finally {
+                draining.set(false);
+            }
+            // 写出结束前可能又有事件入队
+            if (!queue.isEmpty() && !closed.get()) {
+                scheduleDrain();
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.pet.service;
+
+import com.pet.mapper.NotificationMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 通知保留策略
+ * 定时清理通知表，让热表和索引保持在内存能放下的规模：
+ * 用户已删除（逻辑删除）的通知直接物理删除；超过保留天数的已读通知按配置归档到 notification_archive 后删除，或直接删除。
+ * 每批在一个短事务中按主键处理固定条数，批间暂停，锁持有时间和主从延迟都有上限；多实例同时执行时按主键幂等
+ */
+@Slf4j
+@Service
+public class NotificationRetentionService {
+
+    private final NotificationMapper notificationMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    /** 已读通知保留天数 */
+    @Value("${notification.retention.read-days:90}")
+    private int readDays;
+
+    /** archive：归档后删除；purge：直接删除 */
+    @Value("${notification.retention.mode:archive}")
+    private String mode;
+
+    @Value("${notification.retention.batch-size:500}")
+    private int batchSize;
+
+    @Value("${notification.retention.pause-ms:200}")
+    private long pauseMillis;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public NotificationRetentionService(NotificationMapper notificationMapper,
+                                        PlatformTransactionManager transactionManager) {
+        this.notificationMapper = notificationMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(cron = "${notification.retention.cron:0 0 5 * * ?}")
+    public void scheduledCleanup() {
+        if (!running.compareAndSet(false, true)) {
+            log.info("通知清理正在执行，跳过本次");
+            return;
+        }
+        try {
+            cleanup();
+        } catch (Exception e) {
+            log.error("通知清理失败", e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void cleanup() {
+        long start = System.currentTimeMillis();
+        int purged = sweep(() -> notificationMapper.selectDeletedIds(batchSize), notificationMapper::purgeByIds);
+
+        LocalDateTime before = LocalDateTime.now().minusDays(readDays);
+        boolean archive = !"purge".equals(mode);
+        int expired = sweep(() -> notificationMapper.selectExpiredReadIds(before, batchSize), ids -> {
+            if (archive) {
+                notificationMapper.archiveByIds(ids);
+            }
+            return notificationMapper.purgeByIds(ids);
+        });
+
+        log.info("通知清理完成: 已删除={}, 过期已读={}（{}）, 耗时={}ms",
+                purged, expired, archive ? "归档" : "删除", System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 逐批处理直到没有符合条件的行，每批一个事务
+     * @return 处理的总行数
+     */
+    private int sweep(Supplier<List<String>> selector, Function<List<String>, Integer> action) {
+        int total = 0;
+        while (true) {
+            Integer count = transactionTemplate.execute(status -> {
+                List<String> ids = selector.get();
+                return ids.isEmpty() ? 0 : action.apply(ids);
+            });
+            if (count == null || count == 0) {
+                return total;
+            }
+            total += count;
+            try {
+                Thread.sleep(pauseMillis);
+            } catch (InterruptedException e) {
+                // 关闭应用时停在批次边界，剩余部分下次继续
+                Thread.currentThread().interrupt();
+                return total;
+            }
+        }
+    }
+}
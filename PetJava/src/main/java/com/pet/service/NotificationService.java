@@ -2,25 +2,102 @@ package com.pet.service;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
+import com.pet.common.CursorPage;
 import com.pet.entity.Notification;
 import com.pet.entity.User;
 import com.pet.mapper.NotificationMapper;
 import com.pet.mapper.UserMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 public class NotificationService {
     private final NotificationMapper notificationMapper;
     private final UserMapper userMapper;
+    private final AnnouncementService announcementService;
+    private final UnreadCounterService unreadCounterService;
+    private final NotificationPushHub pushHub;
+
+    /** 多行 INSERT 每块的行数 */
+    private static final int BATCH_SIZE = 1000;
+
+    /** 合并重复消息的通知类型 */
+    @Value("${notification.coalesce.types:health}")
+    private Set<String> coalesceTypes;
+
+    /** 合并窗口：距同一链接上一条通知不超过该时长的新消息合并到上一条 */
+    @Value("${notification.coalesce.window-minutes:30}")
+    private int coalesceWindowMinutes;
+
+    /** 游标分页每页最大条数 */
+    private static final int MAX_PAGE_SIZE = 100;
+
+    /** 按 (创建时间, ID) 倒序，与分页查询的排序一致 */
+    private static final Comparator<Notification> NEWEST_FIRST = Comparator
+            .comparing(Notification::getCreatedAt, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(Notification::getId, Comparator.reverseOrder());
 
     /**
-     * 获取用户的通知列表
+     * 游标分页获取通知列表，个人通知与平台公告按时间合并
+     * 只查询列表展示需要的列，不读取 content 和 data；每页多取一条判断是否还有下一页
+     * @param cursor 上一页返回的 nextCursor，第一页不传
+     */
+    public CursorPage<Map<String, Object>> getPage(String userId, String type, Boolean isRead,
+                                                   String cursor, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        CursorPage.Cursor after = CursorPage.Cursor.decode(cursor);
+
+        LambdaQueryWrapper<Notification> wrapper = new LambdaQueryWrapper<>();
+        wrapper.select(Notification::getId, Notification::getType, Notification::getTitle,
+                        Notification::getIsRead, Notification::getLink, Notification::getRepeatCount,
+                        Notification::getCreatedAt)
+               .eq(Notification::getUserId, userId);
+        if (type != null && !type.isEmpty()) {
+            wrapper.eq(Notification::getType, type);
+        }
+        if (isRead != null) {
+            wrapper.eq(Notification::getIsRead, isRead);
+        }
+        if (after != null) {
+            wrapper.and(w -> w.lt(Notification::getCreatedAt, after.getCreatedAt())
+                    .or(q -> q.eq(Notification::getCreatedAt, after.getCreatedAt())
+                            .lt(Notification::getId, after.getId())));
+        }
+        wrapper.orderByDesc(Notification::getCreatedAt)
+               .orderByDesc(Notification::getId)
+               .last("LIMIT " + (size + 1));
+        List<Notification> rows = new ArrayList<>(notificationMapper.selectList(wrapper));
+        rows.addAll(announcementService.getForUser(userId, type, isRead, after));
+        rows.sort(NEWEST_FIRST);
+
+        boolean hasMore = rows.size() > size;
+        List<Map<String, Object>> list = new ArrayList<>(Math.min(rows.size(), size));
+        for (Notification n : rows.subList(0, Math.min(rows.size(), size))) {
+            list.add(toListVO(n));
+        }
+        String nextCursor = null;
+        if (hasMore) {
+            Notification last = rows.get(size - 1);
+            nextCursor = new CursorPage.Cursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return CursorPage.of(list, nextCursor);
+    }
+
+    /**
+     * 获取用户的全部通知，个人通知与平台公告按时间合并
+     * 通知多的用户数据量很大，列表展示请使用 {@link #getPage}
      */
     public List<Notification> getByUserId(String userId, String type, Boolean isRead) {
         LambdaQueryWrapper<Notification> wrapper = new LambdaQueryWrapper<>();
@@ -32,28 +109,80 @@ public class NotificationService {
             wrapper.eq(Notification::getIsRead, isRead);
         }
         wrapper.orderByDesc(Notification::getCreatedAt);
-        return notificationMapper.selectList(wrapper);
+        List<Notification> list = notificationMapper.selectList(wrapper);
+
+        List<Notification> announcements = announcementService.getForUser(userId, type, isRead);
+        if (announcements.isEmpty()) {
+            return list;
+        }
+        List<Notification> merged = new ArrayList<>(list.size() + announcements.size());
+        merged.addAll(list);
+        merged.addAll(announcements);
+        merged.sort(Comparator.comparing(Notification::getCreatedAt,
+                Comparator.nullsLast(Comparator.reverseOrder())));
+        return merged;
     }
 
     /**
-     * 获取未读数量
+     * 获取未读数量（含未读公告），读取计数缓存，缓存缺失时才查询数据库
      */
     public int getUnreadCount(String userId) {
+        return unreadCounterService.get(userId,
+                () -> countPersonalUnread(userId),
+                () -> announcementService.getUnreadCount(userId));
+    }
+
+    private int countPersonalUnread(String userId) {
         LambdaQueryWrapper<Notification> wrapper = new LambdaQueryWrapper<>();
         wrapper.eq(Notification::getUserId, userId)
                .eq(Notification::getIsRead, false);
         return Math.toIntExact(notificationMapper.selectCount(wrapper));
     }
 
+    /**
+     * 建立推送连接，连接建立后立即推送一次未读数量，客户端无需再轮询
+     */
+    public SseEmitter subscribe(String userId) {
+        User user = userMapper.selectById(userId);
+        if (user == null) {
+            throw new RuntimeException("用户不存在");
+        }
+        SseEmitter emitter = pushHub.subscribe(userId, user.getRole());
+        pushUnreadCount(userId);
+        return emitter;
+    }
+
+    /**
+     * 未读数量变化后推送给在线用户（其他标签页同步角标）
+     */
+    private void pushUnreadCount(String userId) {
+        if (!pushHub.isConnected(userId)) {
+            return;
+        }
+        Map<String, Object> data = new HashMap<>();
+        data.put("count", getUnreadCount(userId));
+        pushHub.publish(userId, "unread-count", data);
+    }
+
     /**
      * 标记为已读
      */
     public void markAsRead(String id, String userId) {
+        if (AnnouncementService.isAnnouncementId(id)) {
+            announcementService.markAsRead(id, userId);
+            pushUnreadCount(userId);
+            return;
+        }
         LambdaUpdateWrapper<Notification> wrapper = new LambdaUpdateWrapper<>();
         wrapper.eq(Notification::getId, id)
                .eq(Notification::getUserId, userId)
+               .eq(Notification::getIsRead, false)
                .set(Notification::getIsRead, true);
-        notificationMapper.update(null, wrapper);
+        int updated = notificationMapper.update(null, wrapper);
+        unreadCounterService.increment(userId, -updated);
+        if (updated > 0) {
+            pushUnreadCount(userId);
+        }
     }
 
     /**
@@ -64,17 +193,32 @@ public class NotificationService {
         wrapper.eq(Notification::getUserId, userId)
                .eq(Notification::getIsRead, false)
                .set(Notification::getIsRead, true);
-        notificationMapper.update(null, wrapper);
+        int updated = notificationMapper.update(null, wrapper);
+        unreadCounterService.increment(userId, -updated);
+        announcementService.markAllAsRead(userId);
+        pushUnreadCount(userId);
     }
 
     /**
      * 删除通知
      */
     public void delete(String id, String userId) {
-        LambdaQueryWrapper<Notification> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(Notification::getId, id)
-               .eq(Notification::getUserId, userId);
-        notificationMapper.delete(wrapper);
+        if (AnnouncementService.isAnnouncementId(id)) {
+            announcementService.hide(id, userId);
+            pushUnreadCount(userId);
+            return;
+        }
+        Notification notification = notificationMapper.selectOne(new LambdaQueryWrapper<Notification>()
+                .eq(Notification::getId, id)
+                .eq(Notification::getUserId, userId));
+        if (notification == null) {
+            return;
+        }
+        int deleted = notificationMapper.deleteById(notification.getId());
+        if (deleted > 0 && !Boolean.TRUE.equals(notification.getIsRead())) {
+            unreadCounterService.increment(userId, -1);
+            pushUnreadCount(userId);
+        }
     }
 
     /**
@@ -85,42 +229,141 @@ public class NotificationService {
         wrapper.eq(Notification::getUserId, userId)
                .eq(Notification::getIsRead, true);
         notificationMapper.delete(wrapper);
+        announcementService.clearRead(userId);
     }
 
     /**
-     * 发送通知
+     * 发送通知，接收人在线时提交后推送
+     * 符合合并规则的重复消息更新已有通知，不新增行
      */
     public Notification send(String userId, String type, String title, String content, String link) {
-        Notification notification = new Notification();
-        notification.setUserId(userId);
-        notification.setType(type);
-        notification.setTitle(title);
-        notification.setContent(content);
-        notification.setLink(link);
+        Notification coalesced = coalesce(userId, type, title, content, link);
+        if (coalesced != null) {
+            return coalesced;
+        }
+        Notification notification = build(userId, type, title, content, link);
         notification.setIsRead(false);
+        notification.setRepeatCount(1);
         notificationMapper.insert(notification);
+        unreadCounterService.increment(userId, 1);
+        pushHub.publish(userId, "notification", toVO(notification));
         return notification;
     }
 
     /**
-     * 发送系统通知给所有用户
+     * 合并规则：配置的类型中，同一用户、同一链接在窗口期内的重复通知合并为一行，
+     * 内容更新为最新一条、重新置为未读并移到列表顶部，repeatCount 记录合并的条数
+     * @return 合并后的通知，没有可合并的通知时返回 null
+     */
+    private Notification coalesce(String userId, String type, String title, String content, String link) {
+        if (link == null || link.isEmpty() || !coalesceTypes.contains(type)) {
+            return null;
+        }
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        Notification existing = notificationMapper.selectOne(new LambdaQueryWrapper<Notification>()
+                .select(Notification::getId, Notification::getIsRead, Notification::getRepeatCount)
+                .eq(Notification::getUserId, userId)
+                .eq(Notification::getType, type)
+                .eq(Notification::getLink, link)
+                .ge(Notification::getCreatedAt, now.minusMinutes(coalesceWindowMinutes))
+                .orderByDesc(Notification::getCreatedAt)
+                .last("LIMIT 1"));
+        if (existing == null || notificationMapper.coalesce(existing.getId(), title, content, now) == 0) {
+            return null;
+        }
+        if (Boolean.TRUE.equals(existing.getIsRead())) {
+            unreadCounterService.increment(userId, 1);
+        }
+
+        Notification notification = build(userId, type, title, content, link);
+        notification.setId(existing.getId());
+        notification.setIsRead(false);
+        notification.setRepeatCount((existing.getRepeatCount() != null ? existing.getRepeatCount() : 1) + 1);
+        notification.setCreatedAt(now);
+        pushHub.publish(userId, "notification", toVO(notification));
+        return notification;
+    }
+
+    /**
+     * 批量发送通知，一条语句写入
+     */
+    public void sendBatch(List<Notification> notifications) {
+        if (notifications.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (Notification notification : notifications) {
+            notification.setId(IdWorker.get32UUID());
+            notification.setIsRead(false);
+            notification.setRepeatCount(1);
+            notification.setCreatedAt(now);
+            notification.setUpdatedAt(now);
+        }
+        notificationMapper.insertBatch(notifications);
+
+        Map<String, Integer> deltas = new HashMap<>();
+        for (Notification notification : notifications) {
+            deltas.merge(notification.getUserId(), 1, Integer::sum);
+            if (pushHub.isConnected(notification.getUserId())) {
+                pushHub.publish(notification.getUserId(), "notification", toVO(notification));
+            }
+        }
+        unreadCounterService.incrementAll(deltas);
+    }
+
+    /**
+     * 发送系统通知给指定的一组用户，按块多行写入
+     * 面向全体用户的公告请使用 NotificationBroadcastService 后台分批发送
      */
     public void sendToAll(List<String> userIds, String type, String title, String content, String link) {
+        List<Notification> chunk = new ArrayList<>();
         for (String userId : userIds) {
-            send(userId, type, title, content, link);
+            chunk.add(build(userId, type, title, content, link));
+            if (chunk.size() == BATCH_SIZE) {
+                sendBatch(chunk);
+                chunk = new ArrayList<>();
+            }
         }
+        sendBatch(chunk);
     }
 
     /**
-     * 发送通知给所有管理员
+     * 发送通知给所有管理员，与 sendToAll 一样按块多行写入
      */
     public void sendToAdmins(String type, String title, String content, String link) {
         List<User> admins = userMapper.selectList(
-            new LambdaQueryWrapper<User>().eq(User::getRole, "admin")
+            new LambdaQueryWrapper<User>().select(User::getId).eq(User::getRole, "admin")
         );
+        List<String> adminIds = new ArrayList<>(admins.size());
         for (User admin : admins) {
-            send(admin.getId(), type, title, content, link);
+            adminIds.add(admin.getId());
         }
+        sendToAll(adminIds, type, title, content, link);
+    }
+
+    private Notification build(String userId, String type, String title, String content, String link) {
+        Notification notification = new Notification();
+        notification.setUserId(userId);
+        notification.setType(type);
+        notification.setTitle(title);
+        notification.setContent(content);
+        notification.setLink(link);
+        return notification;
+    }
+
+    /**
+     * 列表项VO，不含正文
+     */
+    private Map<String, Object> toListVO(Notification n) {
+        Map<String, Object> vo = new HashMap<>();
+        vo.put("id", n.getId());
+        vo.put("type", n.getType());
+        vo.put("title", n.getTitle());
+        vo.put("isRead", n.getIsRead());
+        vo.put("link", n.getLink());
+        vo.put("repeatCount", n.getRepeatCount());
+        vo.put("createdAt", n.getCreatedAt());
+        return vo;
     }
 
     /**
@@ -135,6 +378,7 @@ public class NotificationService {
         vo.put("content", n.getContent());
         vo.put("isRead", n.getIsRead());
         vo.put("link", n.getLink());
+        vo.put("repeatCount", n.getRepeatCount());
         vo.put("createdAt", n.getCreatedAt());
         return vo;
     }
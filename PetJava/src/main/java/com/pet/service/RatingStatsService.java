@@ -0,0 +1,223 @@
+package com.pet.service;
+
+import com.pet.entity.InstitutionRatingStats;
+import com.pet.entity.Review;
+import com.pet.mapper.InstitutionRatingStatsMapper;
+import com.pet.util.RatingCalculator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+
+/**
+ * 机构评分聚合服务
+ * 新增/删除评价时对聚合行做原子增量更新，O(1) 完成，不再加载机构全部评价；
+ * 定时全量重算作为一致性校对，发现偏差的机构在行锁内重算并修正；
+ * 机构页的评价概览直接由聚合行得出，推荐指数同步到机构表供搜索排序
+ */
+@Slf4j
+@Service
+public class RatingStatsService {
+
+    private final InstitutionRatingStatsMapper statsMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    public RatingStatsService(InstitutionRatingStatsMapper statsMapper,
+                              PlatformTransactionManager transactionManager) {
+        this.statsMapper = statsMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * 新增评价后累加
+     */
+    public void addReview(Review review) {
+        applyDelta(review, 1);
+    }
+
+    /**
+     * 删除评价后扣减
+     */
+    public void removeReview(Review review) {
+        applyDelta(review, -1);
+    }
+
+    public InstitutionRatingStats getStats(String institutionId) {
+        return statsMapper.selectById(institutionId);
+    }
+
+    /**
+     * 机构评价概览：各维度平均分、星级分布、推荐指数，只读一行聚合
+     */
+    public Map<String, Object> getSummary(String institutionId) {
+        InstitutionRatingStats stats = statsMapper.selectById(institutionId);
+        if (stats == null) {
+            stats = empty(institutionId);
+        }
+        int count = score(stats.getReviewCount());
+
+        Map<String, BigDecimal> dimensionAverages = new HashMap<>();
+        dimensionAverages.put("overall", average(stats.getOverallSum(), count));
+        dimensionAverages.put("environment", average(stats.getEnvironmentSum(), count));
+        dimensionAverages.put("service", average(stats.getServiceSum(), count));
+        dimensionAverages.put("hygiene", average(stats.getHygieneSum(), count));
+        dimensionAverages.put("communication", average(stats.getCommunicationSum(), count));
+
+        Map<Integer, Integer> distribution = new HashMap<>();
+        distribution.put(1, score(stats.getStar1()));
+        distribution.put(2, score(stats.getStar2()));
+        distribution.put(3, score(stats.getStar3()));
+        distribution.put(4, score(stats.getStar4()));
+        distribution.put(5, score(stats.getStar5()));
+
+        BigDecimal averageRating = dimensionAverages.get("overall");
+        Map<String, Object> result = new HashMap<>();
+        result.put("institutionId", institutionId);
+        result.put("reviewCount", count);
+        result.put("averageRating", averageRating);
+        result.put("dimensionAverages", dimensionAverages);
+        result.put("distribution", distribution);
+        result.put("recommendationScore",
+                RatingCalculator.calculateRecommendationScoreBySum(score(stats.getOverallSum()), count));
+        result.put("ratingLevel", RatingCalculator.getRatingLevel(averageRating.doubleValue()));
+        return result;
+    }
+
+    private BigDecimal average(Integer sum, int count) {
+        if (count == 0) {
+            return BigDecimal.ZERO;
+        }
+        return BigDecimal.valueOf(score(sum)).divide(BigDecimal.valueOf(count), 1, RoundingMode.HALF_UP);
+    }
+
+    private void applyDelta(Review review, int sign) {
+        int overall = score(review.getOverallScore());
+        InstitutionRatingStats delta = new InstitutionRatingStats();
+        delta.setInstitutionId(review.getInstitutionId());
+        delta.setReviewCount(sign);
+        delta.setOverallSum(sign * overall);
+        delta.setEnvironmentSum(sign * score(review.getEnvironmentScore()));
+        delta.setServiceSum(sign * score(review.getServiceScore()));
+        delta.setHygieneSum(sign * score(review.getHygieneScore()));
+        delta.setCommunicationSum(sign * score(review.getCommunicationScore()));
+        delta.setStar1(overall == 1 ? sign : 0);
+        delta.setStar2(overall == 2 ? sign : 0);
+        delta.setStar3(overall == 3 ? sign : 0);
+        delta.setStar4(overall == 4 ? sign : 0);
+        delta.setStar5(overall == 5 ? sign : 0);
+        statsMapper.applyDelta(delta);
+        statsMapper.syncInstitution(review.getInstitutionId());
+    }
+
+    private int score(Integer value) {
+        return value != null ? value : 0;
+    }
+
+    /**
+     * 首次启用时聚合表为空，按评价表全量初始化
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void bootstrap() {
+        try {
+            if (statsMapper.selectCount(null) == 0) {
+                recomputeAll();
+            }
+            // 回填新增的推荐指数列，只在仍有未同步的机构时执行
+            if (statsMapper.hasUnsyncedInstitutions()) {
+                int synced = statsMapper.syncUnsyncedInstitutions();
+                log.info("回填机构推荐指数: {}", synced);
+            }
+        } catch (Exception e) {
+            log.warn("初始化机构评分聚合失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 定时全量校对，默认每天凌晨 4 点
+     * @return 修正的机构数
+     */
+    @Scheduled(cron = "${review.rating-stats.recompute-cron:0 0 4 * * ?}")
+    public int recomputeAll() {
+        Map<String, InstitutionRatingStats> stored = new HashMap<>();
+        for (InstitutionRatingStats stats : statsMapper.selectList(null)) {
+            stored.put(stats.getInstitutionId(), stats);
+        }
+        Set<String> drifted = new LinkedHashSet<>();
+        for (InstitutionRatingStats computed : statsMapper.aggregateAll()) {
+            InstitutionRatingStats current = stored.remove(computed.getInstitutionId());
+            if (current == null || !sameAggregates(current, computed)) {
+                drifted.add(computed.getInstitutionId());
+            }
+        }
+        // 评价已全部删除但聚合仍有计数的机构
+        for (InstitutionRatingStats current : stored.values()) {
+            if (current.getReviewCount() != null && current.getReviewCount() != 0) {
+                drifted.add(current.getInstitutionId());
+            }
+        }
+
+        // 全量聚合期间可能有并发增量，逐个在行锁内复核后再修正
+        int fixed = 0;
+        for (String institutionId : drifted) {
+            Boolean changed = transactionTemplate.execute(status -> recomputeOne(institutionId));
+            if (Boolean.TRUE.equals(changed)) {
+                fixed++;
+            }
+        }
+        log.info("机构评分聚合校对完成: 候选={}, 修正={}", drifted.size(), fixed);
+        return fixed;
+    }
+
+    private boolean recomputeOne(String institutionId) {
+        InstitutionRatingStats current = statsMapper.selectForUpdate(institutionId);
+        InstitutionRatingStats computed = statsMapper.aggregateOne(institutionId);
+        if (computed == null) {
+            computed = empty(institutionId);
+        }
+        if (current != null && sameAggregates(current, computed)) {
+            return false;
+        }
+        log.warn("机构评分聚合偏差已修正: institutionId={}, stored={}, computed={}", institutionId, current, computed);
+        statsMapper.upsert(computed);
+        statsMapper.syncInstitution(institutionId);
+        return true;
+    }
+
+    private InstitutionRatingStats empty(String institutionId) {
+        InstitutionRatingStats stats = new InstitutionRatingStats();
+        stats.setInstitutionId(institutionId);
+        stats.setReviewCount(0);
+        stats.setOverallSum(0);
+        stats.setEnvironmentSum(0);
+        stats.setServiceSum(0);
+        stats.setHygieneSum(0);
+        stats.setCommunicationSum(0);
+        stats.setStar1(0);
+        stats.setStar2(0);
+        stats.setStar3(0);
+        stats.setStar4(0);
+        stats.setStar5(0);
+        return stats;
+    }
+
+    private boolean sameAggregates(InstitutionRatingStats a, InstitutionRatingStats b) {
+        return Objects.equals(a.getReviewCount(), b.getReviewCount())
+                && Objects.equals(a.getOverallSum(), b.getOverallSum())
+                && Objects.equals(a.getEnvironmentSum(), b.getEnvironmentSum())
+                && Objects.equals(a.getServiceSum(), b.getServiceSum())
+                && Objects.equals(a.getHygieneSum(), b.getHygieneSum())
+                && Objects.equals(a.getCommunicationSum(), b.getCommunicationSum())
+                && Objects.equals(a.getStar1(), b.getStar1())
+                && Objects.equals(a.getStar2(), b.getStar2())
+                && Objects.equals(a.getStar3(), b.getStar3())
+                && Objects.equals(a.getStar4(), b.getStar4())
+                && Objects.equals(a.getStar5(), b.getStar5());
+    }
+}
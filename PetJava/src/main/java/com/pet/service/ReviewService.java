@@ -10,13 +10,12 @@ import com.pet.entity.Booking;
 import com.pet.entity.Review;
 import com.pet.entity.User;
 import com.pet.mapper.BookingMapper;
-import com.pet.mapper.InstitutionMapper;
 import com.pet.mapper.ReviewMapper;
 import com.pet.mapper.UserMapper;
-import com.pet.entity.Institution;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
 import java.time.LocalDateTime;
@@ -28,10 +27,15 @@ public class ReviewService {
     private final ReviewMapper reviewMapper;
     private final BookingMapper bookingMapper;
     private final UserMapper userMapper;
-    private final InstitutionMapper institutionMapper;
     private final ObjectMapper objectMapper;
+    private final RatingStatsService ratingStatsService;
+    private final ModerationService moderationService;
 
+    /**
+     * 评价写入与机构评分增量同一事务提交；序列化评分等受检异常同样回滚
+     */
     @SneakyThrows
+    @Transactional(rollbackFor = Exception.class)
     public Map<String, Object> create(String userId, CreateReviewRequest request) {
         Booking booking = bookingMapper.selectById(request.getBookingId());
         if (booking == null) {
@@ -46,12 +50,18 @@ public class ReviewService {
         if (existing != null) {
             throw new RuntimeException("该订单已评价");
         }
+        moderationService.checkBlocked(request.getContent());
 
         Review review = new Review();
         review.setBookingId(request.getBookingId());
         review.setUserId(userId);
         review.setInstitutionId(booking.getInstitutionId());
         review.setRating(objectMapper.writeValueAsString(request.getRating()));
+        review.setOverallScore(score(request.getRating(), "overall"));
+        review.setEnvironmentScore(score(request.getRating(), "environment"));
+        review.setServiceScore(score(request.getRating(), "service"));
+        review.setHygieneScore(score(request.getRating(), "hygiene"));
+        review.setCommunicationScore(score(request.getRating(), "communication"));
         review.setContent(request.getContent());
         review.setImages(request.getImages() != null ? objectMapper.writeValueAsString(request.getImages()) : "[]");
         review.setIsAnonymous(request.getIsAnonymous() != null ? request.getIsAnonymous() : false);
@@ -60,8 +70,9 @@ public class ReviewService {
         reviewMapper.insert(review);
         System.out.println("评价创建成功 - reviewId: " + review.getId());
 
-        // 更新机构的评分和评价数量
-        updateInstitutionRating(booking.getInstitutionId());
+        // 增量更新机构的评分聚合和评价数量
+        ratingStatsService.addReview(review);
+        moderationService.screenAsync("review", review.getId(), userId, review.getContent());
 
         return toReviewVO(review);
     }
@@ -78,10 +89,11 @@ public class ReviewService {
         LambdaQueryWrapper<Review> wrapper = new LambdaQueryWrapper<>();
         wrapper.eq(Review::getInstitutionId, institutionId);
 
+        // 按评分排序走 (institution_id, overall_score, created_at) 索引，无需 filesort
         if ("highest".equals(sortBy)) {
-            wrapper.orderByDesc(Review::getRating);
+            wrapper.orderByDesc(Review::getOverallScore).orderByDesc(Review::getCreatedAt);
         } else if ("lowest".equals(sortBy)) {
-            wrapper.orderByAsc(Review::getRating);
+            wrapper.orderByAsc(Review::getOverallScore).orderByAsc(Review::getCreatedAt);
         } else {
             wrapper.orderByDesc(Review::getCreatedAt);
         }
@@ -113,6 +125,7 @@ public class ReviewService {
         if (review == null) {
             throw new RuntimeException("评价不存在");
         }
+        moderationService.checkBlocked(content);
 
         Map<String, Object> replyObj = new HashMap<>();
         replyObj.put("content", content);
@@ -120,60 +133,24 @@ public class ReviewService {
         review.setReply(objectMapper.writeValueAsString(replyObj));
 
         reviewMapper.updateById(review);
+        moderationService.screenAsync("review_reply", review.getId(), null, content);
         return toReviewVO(review);
     }
 
+    @Transactional
     public void delete(String id) {
         Review review = reviewMapper.selectById(id);
         if (review != null) {
-            String institutionId = review.getInstitutionId();
-            reviewMapper.deleteById(id);
-            // 删除评价后也需要更新机构的评分和评价数量
-            updateInstitutionRating(institutionId);
-        }
-    }
-
-    @SneakyThrows
-    private void updateInstitutionRating(String institutionId) {
-        // 查询该机构的所有评价
-        List<Review> reviews = reviewMapper.selectList(
-                new LambdaQueryWrapper<Review>()
-                        .eq(Review::getInstitutionId, institutionId));
-
-        // 计算评价数量
-        int reviewCount = reviews.size();
-
-        // 计算平均评分
-        java.math.BigDecimal averageRating = java.math.BigDecimal.ZERO;
-        if (reviewCount > 0) {
-            java.math.BigDecimal sum = java.math.BigDecimal.ZERO;
-            for (Review review : reviews) {
-                if (StringUtils.hasText(review.getRating())) {
-                    Map<String, Object> ratingMap = objectMapper.readValue(
-                            review.getRating(),
-                            new com.fasterxml.jackson.core.type.TypeReference<Map<String, Object>>() {});
-                    Object overall = ratingMap.get("overall");
-                    if (overall instanceof Number) {
-                        sum = sum.add(java.math.BigDecimal.valueOf(((Number) overall).doubleValue()));
-                    }
-                }
+            // 逻辑删除返回 0 说明已被并发删除，不能重复扣减
+            if (reviewMapper.deleteById(id) > 0) {
+                ratingStatsService.removeReview(review);
             }
-            averageRating = sum.divide(
-                    java.math.BigDecimal.valueOf(reviewCount),
-                    1,
-                    java.math.RoundingMode.HALF_UP);
         }
+    }
 
-        // 更新机构
-        Institution institution = institutionMapper.selectById(institutionId);
-        if (institution != null) {
-            institution.setRating(averageRating);
-            institution.setReviewCount(reviewCount);
-            institutionMapper.updateById(institution);
-            System.out.println("机构评分已更新 - institutionId: " + institutionId +
-                    ", rating: " + averageRating +
-                    ", reviewCount: " + reviewCount);
-        }
+    private Integer score(Map<String, Integer> rating, String dimension) {
+        Integer value = rating != null ? rating.get(dimension) : null;
+        return value != null ? value : 0;
     }
 
     // 机构端获取评价列表
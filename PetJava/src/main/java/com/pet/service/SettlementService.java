@@ -0,0 +1,366 @@
+package com.pet.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.pet.common.Money;
+import com.pet.entity.Booking;
+import com.pet.entity.Institution;
+import com.pet.entity.SettlementBatch;
+import com.pet.mapper.InstitutionMapper;
+import com.pet.mapper.SettlementBatchMapper;
+import com.pet.mapper.SettlementItemMapper;
+import com.pet.mapper.UserMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 机构结算服务
+ * 已完成且已支付的订单在 settlement_item 中写入一行结算标记（订单ID为主键）后转入机构钱包，
+ * 离店时即时入账和批次结算共用同一标记，任一路径重复执行都不会重复入账。
+ *
+ * 结算批次按机构ID顺序分批，每批在一个事务内完成：一条分组查询取出下一批有待结算订单的机构、
+ * 一次查询收款员工、一条语句写入全部结算标记、按标记汇总金额、批量入账钱包、推进批次游标。
+ * 批次中断（重启、异常）后从游标处继续。
+ * 同一时刻只能有一个 running 批次，由 settlement_batch 上的唯一键保证，多个节点或并发请求同时启动时只有一个成功
+ */
+@Slf4j
+@Service
+public class SettlementService {
+
+    private final SettlementBatchMapper batchMapper;
+    private final SettlementItemMapper itemMapper;
+    private final InstitutionMapper institutionMapper;
+    private final UserMapper userMapper;
+    private final WalletService walletService;
+    private final NotificationService notificationService;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskExecutor backgroundExecutor;
+
+    /** 离店时立即把订单金额转入机构钱包；关闭后订单留待结算批次统一入账 */
+    @Value("${settlement.instant-income:true}")
+    private boolean instantIncome;
+
+    /** 每批处理的机构数 */
+    @Value("${settlement.batch-size:200}")
+    private int batchSize;
+
+    /** 本实例中正在执行的批次 */
+    private final Set<String> runningBatches = ConcurrentHashMap.newKeySet();
+
+    public SettlementService(SettlementBatchMapper batchMapper,
+                             SettlementItemMapper itemMapper,
+                             InstitutionMapper institutionMapper,
+                             UserMapper userMapper,
+                             WalletService walletService,
+                             NotificationService notificationService,
+                             PlatformTransactionManager transactionManager,
+                             @Qualifier("backgroundExecutor") TaskExecutor backgroundExecutor) {
+        this.batchMapper = batchMapper;
+        this.itemMapper = itemMapper;
+        this.institutionMapper = institutionMapper;
+        this.userMapper = userMapper;
+        this.walletService = walletService;
+        this.notificationService = notificationService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.backgroundExecutor = backgroundExecutor;
+    }
+
+    // ========== 离店即时入账 ==========
+
+    /**
+     * 离店时把订单金额转入收款员工钱包，结算标记与入账在同一事务内提交
+     * @return 是否入账（未开启即时入账、订单未支付或已结算时返回 false）
+     */
+    @Transactional
+    public boolean settleOnCheckout(Booking booking, String payeeUserId) {
+        if (!instantIncome || payeeUserId == null
+                || !"paid".equals(booking.getPaymentStatus()) || booking.getTotalPrice() == null) {
+            return false;
+        }
+        if (itemMapper.insertIfAbsent(booking.getId(), null, booking.getInstitutionId(),
+                booking.getTotalPrice().getFen()) == 0) {
+            log.info("订单已结算，跳过离店入账: bookingId={}", booking.getId());
+            return false;
+        }
+        walletService.addIncome(payeeUserId, booking.getTotalPrice(),
+                "订单收入 - " + booking.getOrderNumber(), booking.getId());
+        return true;
+    }
+
+    // ========== 待结算 ==========
+
+    /**
+     * 待结算金额最高的机构
+     */
+    public List<Map<String, Object>> getPending(int limit) {
+        List<Map<String, Object>> rows = itemMapper.selectTopPending(Math.max(1, Math.min(limit, 100)));
+        if (rows.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<String> ids = new ArrayList<>();
+        for (Map<String, Object> row : rows) {
+            ids.add((String) row.get("institutionId"));
+        }
+        Map<String, Institution> institutions = new HashMap<>();
+        for (Institution inst : institutionMapper.selectBatchIds(ids)) {
+            institutions.put(inst.getId(), inst);
+        }
+        Map<String, Object> lastSettled = new HashMap<>();
+        for (Map<String, Object> row : itemMapper.selectLastSettledAt(ids)) {
+            lastSettled.put((String) row.get("institutionId"), row.get("settledAt"));
+        }
+
+        List<Map<String, Object>> list = new ArrayList<>();
+        for (Map<String, Object> row : rows) {
+            String id = (String) row.get("institutionId");
+            Institution inst = institutions.get(id);
+            Object settledAt = lastSettled.get(id);
+            Map<String, Object> item = new HashMap<>();
+            item.put("id", id);
+            item.put("institution", inst != null ? inst.getName() : "已删除机构");
+            item.put("amount", ((Number) row.get("amount")).longValue() / 100);
+            item.put("orders", ((Number) row.get("orders")).longValue());
+            item.put("lastSettlement", settledAt != null ? settledAt.toString().substring(0, 10) : "");
+            list.add(item);
+        }
+        return list;
+    }
+
+    // ========== 结算批次 ==========
+
+    /**
+     * 每月 1 日凌晨结算此前完成、尚未结算的订单
+     */
+    @Scheduled(cron = "${settlement.cron:0 0 3 1 * ?}")
+    public void monthlyRun() {
+        try {
+            start(null);
+        } catch (RuntimeException e) {
+            log.warn("月度结算未启动: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 创建并启动结算批次，截止时间为当前时间
+     * @param institutionId 只结算该机构，为空表示全部机构
+     */
+    public Map<String, Object> start(String institutionId) {
+        if (institutionId != null && institutionMapper.selectById(institutionId) == null) {
+            throw new RuntimeException("机构不存在");
+        }
+        SettlementBatch batch = new SettlementBatch();
+        batch.setInstitutionId(institutionId);
+        batch.setCutoffTime(LocalDateTime.now());
+        batch.setStatus("running");
+        batch.setInstitutionCount(0);
+        batch.setBookingCount(0);
+        batch.setTotalAmount(0L);
+        try {
+            batchMapper.insert(batch);
+        } catch (DuplicateKeyException e) {
+            throw new RuntimeException("已有进行中的结算批次");
+        }
+
+        log.info("创建结算批次: batchId={}, institutionId={}", batch.getId(), institutionId);
+        submit(batch.getId());
+        return toVO(batch);
+    }
+
+    /**
+     * 继续执行已中断或失败的批次
+     */
+    public Map<String, Object> resume(String batchId) {
+        SettlementBatch batch = getBatch(batchId);
+        if ("completed".equals(batch.getStatus())) {
+            throw new RuntimeException("结算批次已完成");
+        }
+        if (runningBatches.contains(batchId)) {
+            throw new RuntimeException("结算批次正在执行中");
+        }
+        batch.setStatus("running");
+        batch.setLastError(null);
+        try {
+            batchMapper.updateById(batch);
+        } catch (DuplicateKeyException e) {
+            throw new RuntimeException("已有进行中的结算批次");
+        }
+        submit(batchId);
+        return toVO(batch);
+    }
+
+    public Map<String, Object> getProgress(String batchId) {
+        return toVO(getBatch(batchId));
+    }
+
+    public List<Map<String, Object>> getBatches() {
+        List<Map<String, Object>> list = new ArrayList<>();
+        for (SettlementBatch batch : batchMapper.selectList(new LambdaQueryWrapper<SettlementBatch>()
+                .orderByDesc(SettlementBatch::getCreatedAt).last("LIMIT 50"))) {
+            list.add(toVO(batch));
+        }
+        return list;
+    }
+
+    /**
+     * 启动时继续上次未执行完的批次
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterrupted() {
+        List<SettlementBatch> batches = batchMapper.selectList(new LambdaQueryWrapper<SettlementBatch>()
+                .eq(SettlementBatch::getStatus, "running"));
+        for (SettlementBatch batch : batches) {
+            log.info("继续执行中断的结算批次: batchId={}, cursor={}", batch.getId(), batch.getCursorId());
+            try {
+                submit(batch.getId());
+            } catch (RuntimeException e) {
+                log.warn("结算批次提交失败: batchId={}, {}", batch.getId(), e.getMessage());
+            }
+        }
+    }
+
+    private SettlementBatch getBatch(String batchId) {
+        SettlementBatch batch = batchMapper.selectById(batchId);
+        if (batch == null) {
+            throw new RuntimeException("结算批次不存在");
+        }
+        return batch;
+    }
+
+    private void submit(String batchId) {
+        if (!runningBatches.add(batchId)) {
+            return;
+        }
+        try {
+            backgroundExecutor.execute(() -> run(batchId));
+        } catch (RejectedExecutionException e) {
+            runningBatches.remove(batchId);
+            throw new RuntimeException("后台任务繁忙，请稍后继续执行");
+        }
+    }
+
+    private void run(String batchId) {
+        long start = System.currentTimeMillis();
+        try {
+            boolean more = true;
+            while (more) {
+                // 关闭应用时停在批次边界，状态保持 running，下次启动继续
+                if (Thread.currentThread().isInterrupted()) {
+                    log.info("结算批次中断: batchId={}", batchId);
+                    return;
+                }
+                more = Boolean.TRUE.equals(transactionTemplate.execute(status -> processChunk(batchId)));
+            }
+            SettlementBatch batch = batchMapper.selectById(batchId);
+            if (batch == null || !"completed".equals(batch.getStatus())) {
+                return;
+            }
+            log.info("结算批次完成: batchId={}, institutions={}, bookings={}, total={}, 耗时{}ms",
+                    batchId, batch.getInstitutionCount(), batch.getBookingCount(), batch.getTotalAmount(),
+                    System.currentTimeMillis() - start);
+            notificationService.sendToAdmins("system", "结算已完成",
+                    "共结算机构 " + batch.getInstitutionCount() + " 家、订单 " + batch.getBookingCount()
+                            + " 个，合计 ¥" + Money.ofFen(batch.getTotalAmount()),
+                    "/admin/finance");
+        } catch (Exception e) {
+            log.error("结算批次失败: batchId={}", batchId, e);
+            SettlementBatch failed = new SettlementBatch();
+            failed.setId(batchId);
+            failed.setStatus("failed");
+            String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            failed.setLastError(message.length() > 500 ? message.substring(0, 500) : message);
+            batchMapper.updateById(failed);
+        } finally {
+            runningBatches.remove(batchId);
+        }
+    }
+
+    /**
+     * 结算下一批机构，与批次游标在同一事务中提交
+     * @return 是否需要继续下一批（没有待结算机构时标记批次完成并返回 false）
+     */
+    private boolean processChunk(String batchId) {
+        SettlementBatch batch = batchMapper.selectById(batchId);
+        if (batch == null || !"running".equals(batch.getStatus())) {
+            return false;
+        }
+
+        List<Map<String, Object>> pending = itemMapper.sumPendingByInstitution(batch.getCutoffTime(),
+                batch.getInstitutionId(), batch.getCursorId() != null ? batch.getCursorId() : "", batchSize);
+        if (pending.isEmpty()) {
+            batch.setStatus("completed");
+            batch.setFinishedAt(LocalDateTime.now());
+            batchMapper.updateById(batch);
+            return false;
+        }
+
+        List<String> institutionIds = new ArrayList<>(pending.size());
+        for (Map<String, Object> row : pending) {
+            institutionIds.add((String) row.get("institutionId"));
+        }
+        Map<String, String> payees = new HashMap<>();
+        for (Map<String, Object> row : userMapper.selectPayeeByInstitution(institutionIds)) {
+            payees.put((String) row.get("institutionId"), (String) row.get("userId"));
+        }
+        // 没有员工账号的机构不写标记，留到下次结算
+        List<String> payable = new ArrayList<>(payees.keySet());
+        if (payable.size() < institutionIds.size()) {
+            log.warn("结算批次 {} 中有 {} 家机构没有员工账号，暂不结算", batchId, institutionIds.size() - payable.size());
+        }
+
+        int bookings = 0;
+        long total = 0;
+        int settled = 0;
+        if (!payable.isEmpty()) {
+            itemMapper.insertPending(batchId, batch.getCutoffTime(), payable);
+            List<WalletService.IncomeItem> incomes = new ArrayList<>();
+            for (Map<String, Object> row : itemMapper.sumBatch(batchId, payable)) {
+                String institutionId = (String) row.get("institutionId");
+                int orders = ((Number) row.get("orders")).intValue();
+                long amount = ((Number) row.get("amount")).longValue();
+                incomes.add(new WalletService.IncomeItem(payees.get(institutionId), Money.ofFen(amount),
+                        "订单结算 - " + orders + " 笔订单"));
+                bookings += orders;
+                total += amount;
+                settled++;
+            }
+            walletService.creditIncomeBatch(incomes);
+        }
+
+        batch.setCursorId(institutionIds.get(institutionIds.size() - 1));
+        batch.setInstitutionCount(batch.getInstitutionCount() + settled);
+        batch.setBookingCount(batch.getBookingCount() + bookings);
+        batch.setTotalAmount(batch.getTotalAmount() + total);
+        batchMapper.updateById(batch);
+        return true;
+    }
+
+    private Map<String, Object> toVO(SettlementBatch batch) {
+        Map<String, Object> vo = new HashMap<>();
+        vo.put("id", batch.getId());
+        vo.put("institutionId", batch.getInstitutionId());
+        vo.put("cutoffTime", batch.getCutoffTime());
+        vo.put("status", batch.getStatus());
+        vo.put("institutionCount", batch.getInstitutionCount());
+        vo.put("bookingCount", batch.getBookingCount());
+        vo.put("totalAmount", batch.getTotalAmount());
+        vo.put("lastError", batch.getLastError());
+        vo.put("createdAt", batch.getCreatedAt());
+        vo.put("finishedAt", batch.getFinishedAt());
+        vo.put("running", runningBatches.contains(batch.getId()));
+        return vo;
+    }
+}
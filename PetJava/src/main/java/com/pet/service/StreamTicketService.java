@@ -0,0 +1,57 @@
+package com.pet.service;
+
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 推送连接票据
+ * 浏览器 EventSource 不能设置请求头，订阅推送时令牌只能放在查询参数里，会留在访问日志、代理和浏览器历史中。
+ * 客户端先带 Authorization 头换取一张短期票据，再用票据建立连接；票据保存在 Redis，有效期很短且只能使用一次
+ */
+@Service
+public class StreamTicketService {
+
+    private static final String TICKET_KEY = "notification:stream-ticket:";
+
+    /** 读取并删除，保证票据只能使用一次 */
+    private static final DefaultRedisScript<String> TAKE = new DefaultRedisScript<>(
+            "local v = redis.call('get', KEYS[1]) " +
+            "if v then redis.call('del', KEYS[1]) end " +
+            "return v", String.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    @Value("${notification.push.ticket-ttl-seconds:30}")
+    private long ticketTtlSeconds;
+
+    public StreamTicketService(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * 为已登录用户签发票据
+     */
+    public String issue(String userId) {
+        String ticket = IdWorker.get32UUID();
+        redisTemplate.opsForValue().set(TICKET_KEY + ticket, userId, ticketTtlSeconds, TimeUnit.SECONDS);
+        return ticket;
+    }
+
+    /**
+     * 兑换票据
+     * @return 票据所属用户ID，票据无效、过期或已使用时返回 null
+     */
+    public String redeem(String ticket) {
+        if (!StringUtils.hasText(ticket)) {
+            return null;
+        }
+        return redisTemplate.execute(TAKE, Collections.singletonList(TICKET_KEY + ticket));
+    }
+}
@@ -0,0 +1,219 @@
+package com.pet.service;
+
+import com.pet.util.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntSupplier;
+
+/**
+ * 未读通知计数缓存
+ * 两级缓存：进程内缓存吸收同一用户多个标签页的轮询，Redis 保存各节点共享的计数。
+ * 个人通知计数在 Redis 中原子增减（键不存在时不创建，由下次读取从数据库加载）；
+ * 公告未读数随全局公告版本失效，发布或撤回公告后各用户在下次读取时重算一次。
+ * 每个用户有一个代数，增减和失效时加一；从数据库加载前读取代数，回填时代数已变则放弃回填，
+ * 避免加载与回填之间发生的增减丢失、旧计数一直保留到过期。
+ * 写操作处于事务中时在提交后更新计数，避免读到未提交的数据；Redis 不可用时回退到数据库
+ */
+@Slf4j
+@Service
+public class UnreadCounterService {
+
+    private static final String PERSONAL_KEY = "notification:unread:";
+    private static final String ANNOUNCEMENT_KEY = "notification:unread:announcement:";
+    private static final String ANNOUNCEMENT_VERSION_KEY = "notification:announcement:version";
+    private static final String GENERATION_KEY = "notification:unread:generation:";
+
+    /** 代数加一；计数键存在时才增减，结果不小于 0。KEYS: 计数, 代数；ARGV: 增量, 代数过期秒数 */
+    private static final DefaultRedisScript<Long> INCREMENT_IF_EXISTS = new DefaultRedisScript<>(
+            "redis.call('incr', KEYS[2]) redis.call('expire', KEYS[2], ARGV[2]) " +
+            "if redis.call('exists', KEYS[1]) == 0 then return -1 end " +
+            "local v = redis.call('incrby', KEYS[1], ARGV[1]) " +
+            "if v < 0 then redis.call('incrby', KEYS[1], -v) v = 0 end " +
+            "return v", Long.class);
+
+    /** INCREMENT_IF_EXISTS 的批量版本。KEYS: 计数1, 代数1, 计数2, 代数2, ...；ARGV: 代数过期秒数, 增量1, 增量2, ... */
+    private static final DefaultRedisScript<Long> INCREMENT_ALL_IF_EXISTS = new DefaultRedisScript<>(
+            "for i = 1, #KEYS, 2 do " +
+            "redis.call('incr', KEYS[i + 1]) redis.call('expire', KEYS[i + 1], ARGV[1]) " +
+            "if redis.call('exists', KEYS[i]) == 1 then " +
+            "local v = redis.call('incrby', KEYS[i], ARGV[(i + 1) / 2 + 1]) " +
+            "if v < 0 then redis.call('incrby', KEYS[i], -v) end " +
+            "end " +
+            "end " +
+            "return #KEYS / 2", Long.class);
+
+    /** 代数与加载前读到的一致时才回填。KEYS: 计数, 代数；ARGV: 加载前的代数, 值, 过期秒数 */
+    private static final DefaultRedisScript<Long> FILL_IF_UNCHANGED = new DefaultRedisScript<>(
+            "local g = redis.call('get', KEYS[2]) or '0' " +
+            "if g ~= ARGV[1] then return 0 end " +
+            "redis.call('set', KEYS[1], ARGV[2], 'EX', ARGV[3]) " +
+            "return 1", Long.class);
+
+    /** 删除计数并把代数加一。KEYS: 计数1, 代数1, 计数2, 代数2, ...；ARGV: 代数过期秒数 */
+    private static final DefaultRedisScript<Long> INVALIDATE = new DefaultRedisScript<>(
+            "for i = 1, #KEYS, 2 do " +
+            "redis.call('del', KEYS[i]) redis.call('incr', KEYS[i + 1]) redis.call('expire', KEYS[i + 1], ARGV[1]) " +
+            "end " +
+            "return #KEYS / 2", Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    @Value("${notification.unread-cache.ttl-seconds:86400}")
+    private long ttlSeconds;
+
+    @Value("${notification.unread-cache.local-ttl-ms:2000}")
+    private long localTtlMillis;
+
+    @Value("${notification.unread-cache.local-max-entries:100000}")
+    private int localMaxEntries;
+
+    private final Map<String, LocalEntry> localCache = new ConcurrentHashMap<>();
+
+    public UnreadCounterService(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * 读取未读总数，缓存缺失时调用加载器从数据库计算并回填
+     */
+    public int get(String userId, IntSupplier personalLoader, IntSupplier announcementLoader) {
+        LocalEntry local = localCache.get(userId);
+        long now = System.currentTimeMillis();
+        if (local != null && local.expiresAt > now) {
+            return local.count;
+        }
+
+        int count;
+        try {
+            count = loadFromRedis(userId, personalLoader, announcementLoader);
+        } catch (Exception e) {
+            log.warn("读取未读计数缓存失败，回退到数据库: userId={}, error={}", userId, e.getMessage());
+            return personalLoader.getAsInt() + announcementLoader.getAsInt();
+        }
+
+        if (localCache.size() >= localMaxEntries) {
+            localCache.clear();
+        }
+        localCache.put(userId, new LocalEntry(count, now + localTtlMillis));
+        return count;
+    }
+
+    private int loadFromRedis(String userId, IntSupplier personalLoader, IntSupplier announcementLoader) {
+        List<String> values = redisTemplate.opsForValue().multiGet(Arrays.asList(
+                PERSONAL_KEY + userId, ANNOUNCEMENT_KEY + userId, ANNOUNCEMENT_VERSION_KEY, GENERATION_KEY + userId));
+        String personalValue = values != null ? values.get(0) : null;
+        String announcementValue = values != null ? values.get(1) : null;
+        String version = values != null && values.get(2) != null ? values.get(2) : "0";
+        String generation = values != null && values.get(3) != null ? values.get(3) : "0";
+
+        int personal;
+        if (personalValue != null) {
+            personal = Integer.parseInt(personalValue);
+        } else {
+            personal = personalLoader.getAsInt();
+            fill(PERSONAL_KEY + userId, userId, generation, String.valueOf(personal));
+        }
+
+        // 公告计数按 "版本:数量" 保存，版本落后时重算
+        int announcement;
+        String prefix = version + ":";
+        if (announcementValue != null && announcementValue.startsWith(prefix)) {
+            announcement = Integer.parseInt(announcementValue.substring(prefix.length()));
+        } else {
+            announcement = announcementLoader.getAsInt();
+            fill(ANNOUNCEMENT_KEY + userId, userId, generation, prefix + announcement);
+        }
+        return personal + announcement;
+    }
+
+    private void fill(String key, String userId, String generation, String value) {
+        redisTemplate.execute(FILL_IF_UNCHANGED, Arrays.asList(key, GENERATION_KEY + userId),
+                generation, value, String.valueOf(ttlSeconds));
+    }
+
+    /**
+     * 个人未读数增减（新通知 +1，标记已读或删除未读 -1）
+     */
+    public void increment(String userId, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        afterCommit(() -> {
+            localCache.remove(userId);
+            redisTemplate.execute(INCREMENT_IF_EXISTS, Arrays.asList(PERSONAL_KEY + userId, GENERATION_KEY + userId),
+                    String.valueOf(delta), String.valueOf(ttlSeconds));
+        });
+    }
+
+    /**
+     * 一批用户的个人未读数增减，一次脚本调用完成（批量发送通知等场景）
+     * 与 increment 一样只更新已缓存的计数，不删除键，广播后各用户的轮询仍然命中缓存
+     */
+    public void incrementAll(Map<String, Integer> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        List<String> keys = new ArrayList<>(deltas.size() * 2);
+        List<String> args = new ArrayList<>(deltas.size() + 1);
+        args.add(String.valueOf(ttlSeconds));
+        for (Map.Entry<String, Integer> entry : deltas.entrySet()) {
+            keys.add(PERSONAL_KEY + entry.getKey());
+            keys.add(GENERATION_KEY + entry.getKey());
+            args.add(String.valueOf(entry.getValue()));
+        }
+        afterCommit(() -> {
+            for (String userId : deltas.keySet()) {
+                localCache.remove(userId);
+            }
+            redisTemplate.execute(INCREMENT_ALL_IF_EXISTS, keys, args.toArray());
+        });
+    }
+
+    /**
+     * 使用户的公告未读数失效（用户标记公告已读、删除公告后）
+     */
+    public void invalidateAnnouncements(String userId) {
+        afterCommit(() -> {
+            localCache.remove(userId);
+            redisTemplate.execute(INVALIDATE, Arrays.asList(ANNOUNCEMENT_KEY + userId, GENERATION_KEY + userId),
+                    String.valueOf(ttlSeconds));
+        });
+    }
+
+    /**
+     * 公告发布或撤回后推进全局版本，所有用户的公告未读数随之失效
+     */
+    public void bumpAnnouncementVersion() {
+        afterCommit(() -> {
+            localCache.clear();
+            redisTemplate.opsForValue().increment(ANNOUNCEMENT_VERSION_KEY);
+        });
+    }
+
+    private void afterCommit(Runnable action) {
+        Runnable safe = () -> {
+            try {
+                action.run();
+            } catch (Exception e) {
+                log.warn("更新未读计数缓存失败: {}", e.getMessage());
+            }
+        };
+        TransactionUtils.afterCommit(safe);
+    }
+
+    private static class LocalEntry {
+        private final int count;
+        private final long expiresAt;
+
+        LocalEntry(int count, long expiresAt) {
+            this.count = count;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -28,6 +28,7 @@ public class UserService {
     private final PetMapper petMapper;
     private final JwtUtil jwtUtil;
     private final PasswordEncoder passwordEncoder;
+    private final DailyMetricsService dailyMetricsService;
 
     /**
      * 用户登录
@@ -73,6 +74,7 @@ public class UserService {
         user.setAvatar("https://api.dicebear.com/7.x/avataaars/svg?seed=" + request.getPhone());
         
         userMapper.insert(user);
+        dailyMetricsService.recordNewUser();
         
         Map<String, Object> result = new HashMap<>();
         result.put("user", toUserVOWithPets(user));
@@ -0,0 +1,248 @@
+package com.pet.service;
+
+import com.pet.entity.Wallet;
+import com.pet.entity.WalletTransaction;
+import com.pet.mapper.WalletMapper;
+import com.pet.mapper.WalletTransactionMapper;
+import com.pet.util.WalletChainChecker;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 钱包对账服务
+ * 通过 MyBatis 游标按钱包顺序流式读取交易记录，按钱包切分成批次后交给 ForkJoin 线程池并行校验：
+ * 1. 每笔交易的 balanceBefore 是否等于上一笔的 balanceAfter
+ * 2. 每笔交易的 balanceAfter 是否等于 balanceBefore 加上本笔金额
+ * 3. 交易链回放结果是否等于钱包当前余额
+ * 内存中最多同时存在 maxInFlightBatches 个批次，与交易总量无关
+ */
+@Slf4j
+@Service
+public class WalletReconciliationService {
+
+    private static final int MAX_REPORTED_ISSUES = 1000;
+
+    private final WalletMapper walletMapper;
+    private final WalletTransactionMapper transactionMapper;
+    private final TransactionTemplate readOnlyTransaction;
+    private final TaskExecutor backgroundExecutor;
+
+    @Value("${wallet.reconciliation.parallelism:2}")
+    private int parallelism;
+
+    @Value("${wallet.reconciliation.batch-rows:20000}")
+    private int batchRows;
+
+    @Value("${wallet.reconciliation.max-in-flight-batches:4}")
+    private int maxInFlightBatches;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private volatile Map<String, Object> lastReport;
+
+    public WalletReconciliationService(WalletMapper walletMapper,
+                                       WalletTransactionMapper transactionMapper,
+                                       PlatformTransactionManager transactionManager,
+                                       @Qualifier("backgroundExecutor") TaskExecutor backgroundExecutor) {
+        this.walletMapper = walletMapper;
+        this.transactionMapper = transactionMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.backgroundExecutor = backgroundExecutor;
+    }
+
+    /**
+     * 定时对账，默认每天凌晨 3:30 业务低峰期执行
+     */
+    @Scheduled(cron = "${wallet.reconciliation.cron:0 30 3 * * ?}")
+    public void scheduledRun() {
+        if (!running.get()) {
+            reconcile();
+        }
+    }
+
+    /**
+     * 手动触发对账，在后台线程执行
+     * @return 是否已提交（已有对账在执行时返回 false）
+     */
+    public boolean triggerAsync() {
+        if (running.get()) {
+            return false;
+        }
+        try {
+            backgroundExecutor.execute(this::reconcile);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    public Map<String, Object> getLastReport() {
+        Map<String, Object> report = new HashMap<>();
+        report.put("running", running.get());
+        report.put("report", lastReport);
+        return report;
+    }
+
+    /**
+     * 执行一次完整对账，同一时刻只允许一个对账任务运行
+     */
+    public Map<String, Object> reconcile() {
+        if (!running.compareAndSet(false, true)) {
+            throw new RuntimeException("对账任务正在执行中");
+        }
+        LocalDateTime startedAt = LocalDateTime.now();
+        RunState state = new RunState(startedAt);
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelism));
+        Semaphore inFlight = new Semaphore(Math.max(1, maxInFlightBatches));
+        List<Future<?>> futures = new ArrayList<>();
+        Map<String, Object> report = new HashMap<>();
+        report.put("startedAt", startedAt);
+
+        try {
+            log.info("开始钱包对账: parallelism={}, batchRows={}", parallelism, batchRows);
+            readOnlyTransaction.execute(status -> {
+                streamBatches(pool, inFlight, futures, state);
+                return null;
+            });
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            checkOrphanBalances(state);
+            report.put("status", "completed");
+        } catch (Exception e) {
+            log.error("钱包对账失败", e);
+            report.put("status", "failed");
+            report.put("error", e.getMessage());
+        } finally {
+            pool.shutdownNow();
+            running.set(false);
+        }
+
+        report.put("finishedAt", LocalDateTime.now());
+        report.put("walletsChecked", state.walletsChecked.get());
+        report.put("transactionsScanned", state.transactionsScanned.get());
+        report.put("skippedConcurrentlyModified", state.skipped.get());
+        report.put("issueCount", state.issueCount.get());
+        report.put("issues", new ArrayList<>(state.issues));
+        lastReport = report;
+        log.info("钱包对账结束: status={}, wallets={}, transactions={}, issues={}",
+                report.get("status"), state.walletsChecked.get(), state.transactionsScanned.get(), state.issueCount.get());
+        return report;
+    }
+
+    /**
+     * 在游标所在线程中按钱包切批；校验和钱包查询在线程池中执行，
+     * 使用独立连接，不会与游标所在的流式连接冲突
+     */
+    private void streamBatches(ForkJoinPool pool, Semaphore inFlight, List<Future<?>> futures, RunState state) {
+        Map<String, List<WalletTransaction>> batch = new LinkedHashMap<>();
+        int batchSize = 0;
+        String currentWalletId = null;
+
+        try (Cursor<WalletTransaction> cursor = transactionMapper.streamOrderedByWallet()) {
+            for (WalletTransaction t : cursor) {
+                state.transactionsScanned.incrementAndGet();
+                // 只在钱包边界切批，保证同一钱包的交易链完整地落在一个批次里
+                if (!t.getWalletId().equals(currentWalletId) && batchSize >= batchRows) {
+                    submitBatch(pool, inFlight, futures, batch, state);
+                    batch = new LinkedHashMap<>();
+                    batchSize = 0;
+                }
+                currentWalletId = t.getWalletId();
+                batch.computeIfAbsent(currentWalletId, k -> new ArrayList<>()).add(t);
+                batchSize++;
+            }
+        } catch (java.io.IOException e) {
+            throw new RuntimeException("关闭对账游标失败", e);
+        }
+        if (!batch.isEmpty()) {
+            submitBatch(pool, inFlight, futures, batch, state);
+        }
+    }
+
+    private void submitBatch(ForkJoinPool pool, Semaphore inFlight, List<Future<?>> futures,
+                             Map<String, List<WalletTransaction>> batch, RunState state) {
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("对账任务被中断", e);
+        }
+        futures.add(pool.submit(() -> {
+            try {
+                checkBatch(batch, state);
+            } finally {
+                inFlight.release();
+            }
+        }));
+    }
+
+    private void checkBatch(Map<String, List<WalletTransaction>> batch, RunState state) {
+        Map<String, Wallet> wallets = walletMapper.selectBatchIds(batch.keySet()).stream()
+                .collect(Collectors.toMap(Wallet::getId, w -> w));
+
+        batch.entrySet().parallelStream().forEach(entry -> {
+            Wallet wallet = wallets.get(entry.getKey());
+            Long balance = wallet != null ? wallet.getBalance() : null;
+            // 对账开始后被修改过的钱包，其余额可能已包含游标快照之外的交易，只校验链路不比对余额
+            if (wallet != null && wallet.getUpdatedAt() != null && wallet.getUpdatedAt().isAfter(state.startedAt)) {
+                balance = null;
+                state.skipped.incrementAndGet();
+            }
+            List<Map<String, Object>> issues = WalletChainChecker.check(entry.getKey(), entry.getValue(), balance);
+            if (wallet == null) {
+                Map<String, Object> issue = new HashMap<>();
+                issue.put("walletId", entry.getKey());
+                issue.put("type", "wallet_missing");
+                issues.add(issue);
+            }
+            state.walletsChecked.incrementAndGet();
+            state.record(issues);
+        });
+    }
+
+    private void checkOrphanBalances(RunState state) {
+        for (Wallet wallet : walletMapper.selectOrphanBalances(MAX_REPORTED_ISSUES)) {
+            if (wallet.getUpdatedAt() != null && wallet.getUpdatedAt().isAfter(state.startedAt)) {
+                continue;
+            }
+            state.record(WalletChainChecker.check(wallet.getId(), Collections.emptyList(), wallet.getBalance()));
+        }
+    }
+
+    private static class RunState {
+        private final LocalDateTime startedAt;
+        private final AtomicLong walletsChecked = new AtomicLong();
+        private final AtomicLong transactionsScanned = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+        private final AtomicLong issueCount = new AtomicLong();
+        private final Queue<Map<String, Object>> issues = new ConcurrentLinkedQueue<>();
+
+        RunState(LocalDateTime startedAt) {
+            this.startedAt = startedAt;
+        }
+
+        void record(List<Map<String, Object>> found) {
+            for (Map<String, Object> issue : found) {
+                // 报告只保留前 MAX_REPORTED_ISSUES 条明细，总数照常累计
+                if (issueCount.incrementAndGet() <= MAX_REPORTED_ISSUES) {
+                    issues.add(issue);
+                }
+            }
+        }
+    }
+}
@@ -1,13 +1,21 @@
 package com.pet.service;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
+import com.pet.common.Money;
 import com.pet.entity.*;
 import com.pet.mapper.*;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -25,46 +33,109 @@ public class WalletService {
     private final WithdrawalAccountMapper accountMapper;
     private final WalletAuditLogMapper auditLogMapper;
     private final PasswordEncoder passwordEncoder;
+    private final CacheManager cacheManager;
+    private final LedgerService ledgerService;
+    private final DailyMetricsService dailyMetricsService;
 
-    private static final int MIN_WITHDRAWAL = 1000;
-    private static final int MAX_DAILY_WITHDRAWAL = 5000000;
+    private static final Money MIN_WITHDRAWAL = Money.ofFen(1000);
+    private static final Money MIN_WITHDRAWAL_FEE = Money.ofFen(100);
+    private static final long MAX_DAILY_WITHDRAWAL = 5000000;
     private static final int MAX_DAILY_WITHDRAWAL_COUNT = 5;
 
-    public Wallet getOrCreateWallet(String userId, String userType) {
-        Wallet wallet = walletMapper.selectOne(new LambdaQueryWrapper<Wallet>()
+    public static final String WALLET_INFO_CACHE = "walletInfo";
+
+    /**
+     * 只读查询钱包，不存在时返回 null，不产生任何写操作
+     */
+    public Wallet findWallet(String userId) {
+        return walletMapper.selectOne(new LambdaQueryWrapper<Wallet>()
                 .eq(Wallet::getUserId, userId));
-        
+    }
+
+    /**
+     * 获取钱包，不存在时通过 upsert 幂等创建，被逻辑删除的钱包随之恢复；已存在的钱包不会被改写
+     */
+    public Wallet getOrCreateWallet(String userId, String userType) {
+        Wallet wallet = findWallet(userId);
         if (wallet == null) {
-            wallet = new Wallet();
-            wallet.setUserId(userId);
-            wallet.setUserType(userType);
-            wallet.setBalance(0);
-            wallet.setFrozenBalance(0);
-            wallet.setTotalIncome(0);
-            wallet.setTotalWithdraw(0);
-            wallet.setStatus("active");
-            wallet.setDailyWithdrawAmount(0);
-            wallet.setDailyWithdrawCount(0);
-            walletMapper.insert(wallet);
-        } else {
-            checkAndResetDailyLimit(wallet);
+            walletMapper.insertIfAbsent(IdWorker.get32UUID(), userId, userType);
+            wallet = requireWallet(findWallet(userId));
         }
-        
         return wallet;
     }
 
-    private void checkAndResetDailyLimit(Wallet wallet) {
-        LocalDate today = LocalDate.now();
-        if (wallet.getLastWithdrawDate() == null || !wallet.getLastWithdrawDate().equals(today)) {
-            wallet.setDailyWithdrawAmount(0);
-            wallet.setDailyWithdrawCount(0);
-            wallet.setLastWithdrawDate(today);
-            walletMapper.updateById(wallet);
+    private Wallet requireWallet(Wallet wallet) {
+        if (wallet == null) {
+            throw new RuntimeException("钱包不可用");
+        }
+        return wallet;
+    }
+
+    /**
+     * 获取并锁定钱包，不存在时先幂等创建；改余额前调用，须在事务中
+     * 批量入账/退款同样加行锁后写回余额，单笔与批量之间不会互相覆盖
+     */
+    private Wallet lockWallet(String userId, String userType) {
+        Wallet wallet = walletMapper.selectByUserIdForUpdate(userId);
+        if (wallet == null) {
+            walletMapper.insertIfAbsent(IdWorker.get32UUID(), userId, userType);
+            wallet = requireWallet(walletMapper.selectByUserIdForUpdate(userId));
+        }
+        return wallet;
+    }
+
+    /**
+     * 今日已提现金额：最后提现日期不是今天时视为 0，按读取时刻推导，无需回写重置
+     */
+    private long getTodayWithdrawAmount(Wallet wallet) {
+        if (!LocalDate.now().equals(wallet.getLastWithdrawDate()) || wallet.getDailyWithdrawAmount() == null) {
+            return 0;
+        }
+        return wallet.getDailyWithdrawAmount();
+    }
+
+    /**
+     * 今日已提现次数，推导规则同 {@link #getTodayWithdrawAmount(Wallet)}
+     */
+    private int getTodayWithdrawCount(Wallet wallet) {
+        if (!LocalDate.now().equals(wallet.getLastWithdrawDate()) || wallet.getDailyWithdrawCount() == null) {
+            return 0;
+        }
+        return wallet.getDailyWithdrawCount();
+    }
+
+    /**
+     * 清除钱包信息缓存；处于事务中时在提交后清除，避免并发读把旧值重新写回缓存
+     */
+    private void evictWalletInfo(String userId) {
+        if (userId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doEvictWalletInfo(userId);
+                }
+            });
+        } else {
+            doEvictWalletInfo(userId);
+        }
+    }
+
+    private void doEvictWalletInfo(String userId) {
+        try {
+            Cache cache = cacheManager.getCache(WALLET_INFO_CACHE);
+            if (cache != null) {
+                cache.evict(userId);
+            }
+        } catch (Exception e) {
+            log.warn("清除钱包缓存失败: userId={}, error={}", userId, e.getMessage());
         }
     }
 
-    public RechargeOrder createRechargeOrder(String userId, int amount, String paymentMethod) {
-        if (amount <= 0) {
+    public RechargeOrder createRechargeOrder(String userId, Money amount, String paymentMethod) {
+        if (!amount.isPositive()) {
             throw new RuntimeException("充值金额必须大于0");
         }
 
@@ -73,7 +144,7 @@ public class WalletService {
         RechargeOrder order = new RechargeOrder();
         order.setWalletId(wallet.getId());
         order.setUserId(userId);
-        order.setAmount(amount);
+        order.setAmount(amount.getFen());
         order.setPaymentMethod(paymentMethod);
         order.setStatus("pending");
         order.setCreatedAt(LocalDateTime.now());
@@ -90,12 +161,12 @@ public class WalletService {
             return false;
         }
 
-        Wallet wallet = walletMapper.selectById(order.getWalletId());
+        Wallet wallet = walletMapper.selectByIdForUpdate(order.getWalletId());
         if (wallet == null) {
             return false;
         }
 
-        int oldBalance = wallet.getBalance();
+        long oldBalance = wallet.getBalance();
         wallet.setBalance(oldBalance + order.getAmount());
         wallet.setUpdatedAt(LocalDateTime.now());
         walletMapper.updateById(wallet);
@@ -104,19 +175,21 @@ public class WalletService {
         order.setPaidAt(LocalDateTime.now());
         rechargeOrderMapper.updateById(order);
 
-        addTransaction(wallet.getId(), wallet.getUserId(), "recharge", order.getAmount(), 0, 
+        addTransaction(wallet.getId(), wallet.getUserId(), "recharge", order.getAmount(), 0L, 
                 oldBalance, wallet.getBalance(), "充值成功", null, null);
+        ledgerService.postRecharge(wallet.getId(), order.getAmount(), order.getId());
+        evictWalletInfo(wallet.getUserId());
 
         return true;
     }
 
     @Transactional
-    public Withdrawal createWithdrawal(String userId, int amount, String accountId, String withdrawPassword) {
-        if (amount < MIN_WITHDRAWAL) {
+    public Withdrawal createWithdrawal(String userId, Money amount, String accountId, String withdrawPassword) {
+        if (amount.isLessThan(MIN_WITHDRAWAL)) {
             throw new RuntimeException("最低提现金额为10元");
         }
 
-        Wallet wallet = getOrCreateWallet(userId, "pet_owner");
+        Wallet wallet = lockWallet(userId, "pet_owner");
         
         if (!"active".equals(wallet.getStatus())) {
             throw new RuntimeException("钱包已被冻结，无法提现");
@@ -128,97 +201,237 @@ public class WalletService {
             }
         }
 
-        checkAndResetDailyLimit(wallet);
-        
-        if (wallet.getDailyWithdrawAmount() + amount > MAX_DAILY_WITHDRAWAL) {
+        long todayAmount = getTodayWithdrawAmount(wallet);
+        int todayCount = getTodayWithdrawCount(wallet);
+
+        if (todayAmount + amount.getFen() > MAX_DAILY_WITHDRAWAL) {
             throw new RuntimeException("超出今日最高提现限额50000元");
         }
         
-        if (wallet.getDailyWithdrawCount() >= MAX_DAILY_WITHDRAWAL_COUNT) {
+        if (todayCount >= MAX_DAILY_WITHDRAWAL_COUNT) {
             throw new RuntimeException("今日提现次数已达上限5次");
         }
 
-        int fee = calculateFee(amount);
-        int totalAmount = amount + fee;
+        Money fee = calculateFee(amount);
+        Money totalAmount = amount.plus(fee);
         
-        if (wallet.getBalance() < totalAmount) {
+        if (wallet.getBalance() < totalAmount.getFen()) {
             throw new RuntimeException("余额不足");
         }
 
-        int actualAmount = amount;
-        
         Withdrawal withdrawal = new Withdrawal();
         withdrawal.setWalletId(wallet.getId());
         withdrawal.setUserId(userId);
-        withdrawal.setAmount(amount);
-        withdrawal.setFee(fee);
-        withdrawal.setActualAmount(actualAmount);
+        withdrawal.setAmount(amount.getFen());
+        withdrawal.setFee(fee.getFen());
+        withdrawal.setActualAmount(amount.getFen());
         withdrawal.setAccountId(accountId);
         withdrawal.setStatus("pending");
         withdrawal.setCreatedAt(LocalDateTime.now());
         withdrawalMapper.insert(withdrawal);
+        dailyMetricsService.recordWithdrawal(withdrawal.getAmount());
 
-        int oldBalance = wallet.getBalance();
-        wallet.setBalance(oldBalance - totalAmount);
-        wallet.setTotalWithdraw(wallet.getTotalWithdraw() + amount);
-        wallet.setDailyWithdrawAmount(wallet.getDailyWithdrawAmount() + amount);
-        wallet.setDailyWithdrawCount(wallet.getDailyWithdrawCount() + 1);
+        long oldBalance = wallet.getBalance();
+        wallet.setBalance(oldBalance - totalAmount.getFen());
+        wallet.setTotalWithdraw(wallet.getTotalWithdraw() + amount.getFen());
+        wallet.setDailyWithdrawAmount(todayAmount + amount.getFen());
+        wallet.setDailyWithdrawCount(todayCount + 1);
         wallet.setLastWithdrawDate(LocalDate.now());
         wallet.setUpdatedAt(LocalDateTime.now());
         walletMapper.updateById(wallet);
 
-        addTransaction(wallet.getId(), wallet.getUserId(), "withdrawal", amount, fee, 
+        addTransaction(wallet.getId(), wallet.getUserId(), "withdrawal", amount.getFen(), fee.getFen(), 
                 oldBalance, wallet.getBalance(), "申请提现", null, withdrawal.getId());
+        ledgerService.postWithdrawal(wallet.getId(), amount.getFen(), fee.getFen(), withdrawal.getId());
+        evictWalletInfo(userId);
 
         return withdrawal;
     }
 
-    private int calculateFee(int amount) {
-        int fee = (int) Math.ceil(amount * 0.01);
-        return Math.max(fee, 100);
+    /**
+     * 提现手续费：1% 向上取整到分，最低 1 元
+     */
+    private Money calculateFee(Money amount) {
+        Money fee = Money.ofFen((amount.getFen() + 99) / 100);
+        return fee.isLessThan(MIN_WITHDRAWAL_FEE) ? MIN_WITHDRAWAL_FEE : fee;
     }
 
     @Transactional
-    public boolean deductBalance(String userId, int amount, String description, String relatedOrderId) {
-        Wallet wallet = getOrCreateWallet(userId, "pet_owner");
+    public boolean deductBalance(String userId, Money amount, String description, String relatedOrderId) {
+        Wallet wallet = lockWallet(userId, "pet_owner");
         
-        if (wallet.getBalance() < amount) {
-            log.warn("余额不足: userId={}, balance={}, required={}", userId, wallet.getBalance(), amount);
+        if (wallet.getBalance() < amount.getFen()) {
+            log.warn("余额不足: userId={}, balance={}, required={}", userId, wallet.getBalance(), amount.getFen());
             return false;
         }
 
-        int oldBalance = wallet.getBalance();
-        wallet.setBalance(oldBalance - amount);
+        long oldBalance = wallet.getBalance();
+        wallet.setBalance(oldBalance - amount.getFen());
         wallet.setUpdatedAt(LocalDateTime.now());
         walletMapper.updateById(wallet);
 
-        addTransaction(wallet.getId(), userId, "payment", amount, 0, 
+        addTransaction(wallet.getId(), userId, "payment", amount.getFen(), 0L, 
                 oldBalance, wallet.getBalance(), description, relatedOrderId, null);
+        ledgerService.postPayment(wallet.getId(), amount.getFen(), relatedOrderId);
+        evictWalletInfo(userId);
 
         log.info("扣款成功: userId={}, amount={}, balanceBefore={}, balanceAfter={}", 
-                userId, amount, oldBalance, wallet.getBalance());
+                userId, amount.getFen(), oldBalance, wallet.getBalance());
+        return true;
+    }
+
+    @Transactional
+    public boolean addIncome(String userId, Money amount, String description, String relatedOrderId) {
+        Wallet wallet = lockWallet(userId, "institution_staff");
+        
+        long oldBalance = wallet.getBalance();
+        wallet.setBalance(oldBalance + amount.getFen());
+        wallet.setTotalIncome(wallet.getTotalIncome() + amount.getFen());
+        wallet.setUpdatedAt(LocalDateTime.now());
+        walletMapper.updateById(wallet);
+
+        addTransaction(wallet.getId(), userId, "income", amount.getFen(), 0L, 
+                oldBalance, wallet.getBalance(), description, relatedOrderId, null);
+        ledgerService.postIncome(wallet.getId(), amount.getFen(), relatedOrderId);
+        evictWalletInfo(userId);
+
         return true;
     }
 
+    /**
+     * 订单退款到用户钱包，交易类型记为 refund，不计入累计收入
+     */
     @Transactional
-    public boolean addIncome(String userId, int amount, String description, String relatedOrderId) {
-        Wallet wallet = getOrCreateWallet(userId, "institution_staff");
+    public boolean refund(String userId, Money amount, String description, String relatedOrderId) {
+        Wallet wallet = lockWallet(userId, "pet_owner");
         
-        int oldBalance = wallet.getBalance();
-        wallet.setBalance(oldBalance + amount);
-        wallet.setTotalIncome(wallet.getTotalIncome() + amount);
+        long oldBalance = wallet.getBalance();
+        wallet.setBalance(oldBalance + amount.getFen());
         wallet.setUpdatedAt(LocalDateTime.now());
         walletMapper.updateById(wallet);
 
-        addTransaction(wallet.getId(), userId, "income", amount, 0, 
+        addTransaction(wallet.getId(), userId, "refund", amount.getFen(), 0L, 
                 oldBalance, wallet.getBalance(), description, relatedOrderId, null);
+        ledgerService.postRefund(wallet.getId(), amount.getFen(), relatedOrderId);
+        evictWalletInfo(userId);
 
         return true;
     }
 
-    private void addTransaction(String walletId, String userId, String type, int amount, int fee, 
-                                 int balanceBefore, int balanceAfter, String description, 
+    /**
+     * 批量退款到用户钱包
+     * 涉及的钱包一次加锁读取，余额、交易记录、账本分录各用一条语句写入；同一用户的多笔退款按顺序串成交易链
+     */
+    @Transactional
+    public void refundBatch(List<RefundItem> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        Set<String> userIds = new TreeSet<>();
+        for (RefundItem item : items) {
+            userIds.add(item.getUserId());
+        }
+        List<Wallet> newWallets = new ArrayList<>(userIds.size());
+        for (String userId : userIds) {
+            Wallet wallet = new Wallet();
+            wallet.setId(IdWorker.get32UUID());
+            wallet.setUserId(userId);
+            wallet.setUserType("pet_owner");
+            newWallets.add(wallet);
+        }
+        walletMapper.insertIfAbsentBatch(newWallets);
+
+        Map<String, Wallet> wallets = new LinkedHashMap<>();
+        for (Wallet wallet : walletMapper.selectByUserIdsForUpdate(userIds)) {
+            wallets.put(wallet.getUserId(), wallet);
+        }
+
+        List<WalletTransaction> transactions = new ArrayList<>(items.size());
+        for (RefundItem item : items) {
+            Wallet wallet = requireWallet(wallets.get(item.getUserId()));
+            long oldBalance = wallet.getBalance();
+            wallet.setBalance(oldBalance + item.getAmount().getFen());
+            WalletTransaction transaction = newTransaction(wallet.getId(), item.getUserId(), "refund",
+                    item.getAmount().getFen(), 0L, oldBalance, wallet.getBalance(),
+                    item.getDescription(), item.getRelatedOrderId(), null);
+            transaction.setId(IdWorker.get32UUID());
+            transactions.add(transaction);
+        }
+
+        walletMapper.updateBalanceBatch(new ArrayList<>(wallets.values()));
+        transactionMapper.insertBatch(transactions);
+        ledgerService.postRefunds(transactions);
+        for (String userId : userIds) {
+            evictWalletInfo(userId);
+        }
+    }
+
+    /**
+     * 批量收入入账到机构员工钱包，用于结算批次
+     * 涉及的钱包一次加锁读取，余额与累计收入、交易记录、账本分录各用一条语句写入
+     */
+    @Transactional
+    public void creditIncomeBatch(List<IncomeItem> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        Set<String> userIds = new TreeSet<>();
+        for (IncomeItem item : items) {
+            userIds.add(item.getUserId());
+        }
+        List<Wallet> newWallets = new ArrayList<>(userIds.size());
+        for (String userId : userIds) {
+            Wallet wallet = new Wallet();
+            wallet.setId(IdWorker.get32UUID());
+            wallet.setUserId(userId);
+            wallet.setUserType("institution_staff");
+            newWallets.add(wallet);
+        }
+        walletMapper.insertIfAbsentBatch(newWallets);
+
+        Map<String, Wallet> wallets = new LinkedHashMap<>();
+        for (Wallet wallet : walletMapper.selectByUserIdsForUpdate(userIds)) {
+            wallets.put(wallet.getUserId(), wallet);
+        }
+
+        List<WalletTransaction> transactions = new ArrayList<>(items.size());
+        for (IncomeItem item : items) {
+            Wallet wallet = requireWallet(wallets.get(item.getUserId()));
+            long oldBalance = wallet.getBalance();
+            wallet.setBalance(oldBalance + item.getAmount().getFen());
+            wallet.setTotalIncome(wallet.getTotalIncome() + item.getAmount().getFen());
+            WalletTransaction transaction = newTransaction(wallet.getId(), item.getUserId(), "income",
+                    item.getAmount().getFen(), 0L, oldBalance, wallet.getBalance(),
+                    item.getDescription(), null, null);
+            transaction.setId(IdWorker.get32UUID());
+            transactions.add(transaction);
+        }
+
+        walletMapper.updateIncomeBatch(new ArrayList<>(wallets.values()));
+        transactionMapper.insertBatch(transactions);
+        ledgerService.postIncomes(transactions);
+        for (String userId : userIds) {
+            evictWalletInfo(userId);
+        }
+    }
+
+    /**
+     * 记录通过外部渠道（微信、支付宝等）完成的订单支付，仅在账本模式下入账到平台托管
+     */
+    public void recordExternalPayment(Money amount, String relatedOrderId) {
+        ledgerService.postPayment(null, amount.getFen(), relatedOrderId);
+    }
+
+    private void addTransaction(String walletId, String userId, String type, long amount, long fee, 
+                                 long balanceBefore, long balanceAfter, String description, 
                                  String relatedOrderId, String relatedWithdrawalId) {
+        transactionMapper.insert(newTransaction(walletId, userId, type, amount, fee,
+                balanceBefore, balanceAfter, description, relatedOrderId, relatedWithdrawalId));
+    }
+
+    private WalletTransaction newTransaction(String walletId, String userId, String type, long amount, long fee,
+                                             long balanceBefore, long balanceAfter, String description,
+                                             String relatedOrderId, String relatedWithdrawalId) {
         WalletTransaction transaction = new WalletTransaction();
         transaction.setWalletId(walletId);
         transaction.setUserId(userId);
@@ -232,14 +445,31 @@ public class WalletService {
         transaction.setRelatedOrderId(relatedOrderId);
         transaction.setRelatedWithdrawalId(relatedWithdrawalId);
         transaction.setCreatedAt(LocalDateTime.now());
-        transactionMapper.insert(transaction);
+        return transaction;
     }
 
+    /**
+     * 钱包概览：纯读路径，钱包尚未创建时返回零值，结果按 userId 缓存，余额变动时清除
+     */
+    @Cacheable(value = WALLET_INFO_CACHE, key = "#userId")
     public Map<String, Object> getWalletInfo(String userId) {
-        Wallet wallet = getOrCreateWallet(userId, "pet_owner");
+        Wallet wallet = findWallet(userId);
+        if (wallet == null) {
+            Map<String, Object> info = new HashMap<>();
+            info.put("balance", 0);
+            info.put("frozenBalance", 0);
+            info.put("totalIncome", 0);
+            info.put("totalWithdraw", 0);
+            info.put("status", "active");
+            info.put("hasWithdrawPassword", false);
+            return info;
+        }
         
         Map<String, Object> info = new HashMap<>();
-        info.put("balance", wallet.getBalance());
+        // 账本模式下余额以账本（快照 + 尾部回放）为准
+        info.put("balance", ledgerService.isEnabled()
+                ? ledgerService.balanceOf(LedgerService.walletAccount(wallet.getId()))
+                : wallet.getBalance());
         info.put("frozenBalance", wallet.getFrozenBalance());
         info.put("totalIncome", wallet.getTotalIncome());
         info.put("totalWithdraw", wallet.getTotalWithdraw());
@@ -249,7 +479,10 @@ public class WalletService {
     }
 
     public List<Map<String, Object>> getTransactions(String userId, String type, int page, int pageSize) {
-        Wallet wallet = getOrCreateWallet(userId, "pet_owner");
+        Wallet wallet = findWallet(userId);
+        if (wallet == null) {
+            return new ArrayList<>();
+        }
         
         LambdaQueryWrapper<WalletTransaction> wrapper = new LambdaQueryWrapper<>();
         wrapper.eq(WalletTransaction::getWalletId, wallet.getId());
@@ -367,28 +600,40 @@ public class WalletService {
     }
 
     public void setWithdrawPassword(String userId, String password) {
+        // 只写密码列，不回写读到的余额
         Wallet wallet = getOrCreateWallet(userId, "pet_owner");
-        wallet.setWithdrawPassword(passwordEncoder.encode(password));
-        wallet.setUpdatedAt(LocalDateTime.now());
-        walletMapper.updateById(wallet);
+        Wallet update = new Wallet();
+        update.setId(wallet.getId());
+        update.setWithdrawPassword(passwordEncoder.encode(password));
+        update.setUpdatedAt(LocalDateTime.now());
+        walletMapper.updateById(update);
+        evictWalletInfo(userId);
     }
 
     public boolean verifyWithdrawPassword(String userId, String password) {
-        Wallet wallet = getOrCreateWallet(userId, "pet_owner");
-        return wallet.getWithdrawPassword() != null && passwordEncoder.matches(password, wallet.getWithdrawPassword());
+        Wallet wallet = findWallet(userId);
+        return wallet != null && wallet.getWithdrawPassword() != null && passwordEncoder.matches(password, wallet.getWithdrawPassword());
     }
 
     public Map<String, Object> getIncomeStatistics(String userId) {
-        Wallet wallet = getOrCreateWallet(userId, "institution_staff");
+        Wallet wallet = findWallet(userId);
+        if (wallet == null) {
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("totalIncome", 0);
+            stats.put("dailyIncome", 0);
+            stats.put("weeklyIncome", 0);
+            stats.put("monthlyIncome", 0);
+            return stats;
+        }
         
         LocalDateTime now = LocalDateTime.now();
         LocalDateTime startOfDay = now.toLocalDate().atStartOfDay();
         LocalDateTime startOfWeek = now.minusDays(now.getDayOfWeek().getValue() - 1).toLocalDate().atStartOfDay();
         LocalDateTime startOfMonth = now.withDayOfMonth(1).toLocalDate().atStartOfDay();
         
-        int dailyIncome = calculateIncomeByDateRange(wallet.getId(), startOfDay, now);
-        int weeklyIncome = calculateIncomeByDateRange(wallet.getId(), startOfWeek, now);
-        int monthlyIncome = calculateIncomeByDateRange(wallet.getId(), startOfMonth, now);
+        long dailyIncome = calculateIncomeByDateRange(wallet.getId(), startOfDay, now);
+        long weeklyIncome = calculateIncomeByDateRange(wallet.getId(), startOfWeek, now);
+        long monthlyIncome = calculateIncomeByDateRange(wallet.getId(), startOfMonth, now);
         
         Map<String, Object> stats = new HashMap<>();
         stats.put("totalIncome", wallet.getTotalIncome());
@@ -398,13 +643,13 @@ public class WalletService {
         return stats;
     }
 
-    private int calculateIncomeByDateRange(String walletId, LocalDateTime start, LocalDateTime end) {
+    private long calculateIncomeByDateRange(String walletId, LocalDateTime start, LocalDateTime end) {
         List<WalletTransaction> transactions = transactionMapper.selectList(new LambdaQueryWrapper<WalletTransaction>()
                 .eq(WalletTransaction::getWalletId, walletId)
                 .eq(WalletTransaction::getType, "income")
                 .between(WalletTransaction::getCreatedAt, start, end));
         
-        return transactions.stream().mapToInt(WalletTransaction::getAmount).sum();
+        return transactions.stream().mapToLong(WalletTransaction::getAmount).sum();
     }
 
     private void addAuditLog(String walletId, String userId, String operation, String details) {
@@ -416,4 +661,27 @@ public class WalletService {
         auditLog.setCreatedAt(LocalDateTime.now());
         auditLogMapper.insert(auditLog);
     }
+
+    /**
+     * 批量退款明细
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static class RefundItem {
+        private final String userId;
+        private final Money amount;
+        private final String description;
+        private final String relatedOrderId;
+    }
+
+    /**
+     * 批量收入的一项
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static class IncomeItem {
+        private final String userId;
+        private final Money amount;
+        private final String description;
+    }
 }
@@ -0,0 +1,183 @@
+package com.pet.util;
+
+import java.util.*;
+
+/**
+ * Aho-Corasick 多模式匹配自动机
+ * 构建后不可变、线程安全；一次扫描文本即可找出全部词条，耗时与文本长度 + 命中数成正比，与词条数无关。
+ * 匹配不区分大小写
+ */
+public class AhoCorasick {
+
+    private static final int ROOT = 0;
+
+    /** 每个状态的转移表 */
+    private final List<Map<Character, Integer>> children;
+    /** 失配跳转 */
+    private final int[] fail;
+    /** 以该状态结尾的词条下标，-1 表示无 */
+    private final int[] termAt;
+    /** 沿失配链最近的一个词条结尾状态，-1 表示无，用于输出被包含的较短词条 */
+    private final int[] dictLink;
+    private final List<String> terms;
+
+    private AhoCorasick(List<Map<Character, Integer>> children, int[] fail, int[] termAt,
+                        int[] dictLink, List<String> terms) {
+        this.children = children;
+        this.fail = fail;
+        this.termAt = termAt;
+        this.dictLink = dictLink;
+        this.terms = terms;
+    }
+
+    /**
+     * 由词条构建自动机，空白词条忽略，重复词条只保留一个
+     */
+    public static AhoCorasick build(Collection<String> source) {
+        List<String> terms = new ArrayList<>();
+        List<Map<Character, Integer>> children = new ArrayList<>();
+        List<Integer> termIndex = new ArrayList<>();
+        children.add(new HashMap<>());
+        termIndex.add(-1);
+
+        if (source != null) {
+            for (String raw : source) {
+                if (raw == null || raw.trim().isEmpty()) {
+                    continue;
+                }
+                String term = raw.trim();
+                int state = ROOT;
+                for (int i = 0; i < term.length(); i++) {
+                    char c = Character.toLowerCase(term.charAt(i));
+                    Integer next = children.get(state).get(c);
+                    if (next == null) {
+                        next = children.size();
+                        children.add(new HashMap<>());
+                        termIndex.add(-1);
+                        children.get(state).put(c, next);
+                    }
+                    state = next;
+                }
+                if (termIndex.get(state) < 0) {
+                    termIndex.set(state, terms.size());
+                    terms.add(term);
+                }
+            }
+        }
+
+        int size = children.size();
+        int[] termAt = new int[size];
+        for (int i = 0; i < size; i++) {
+            termAt[i] = termIndex.get(i);
+        }
+        int[] fail = new int[size];
+        int[] dictLink = new int[size];
+        Arrays.fill(dictLink, -1);
+
+        // 按层序计算失配跳转，父状态总是先于子状态处理
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int child : children.get(ROOT).values()) {
+            fail[child] = ROOT;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (Map.Entry<Character, Integer> edge : children.get(state).entrySet()) {
+                char c = edge.getKey();
+                int child = edge.getValue();
+                int f = fail[state];
+                while (f != ROOT && !children.get(f).containsKey(c)) {
+                    f = fail[f];
+                }
+                Integer target = children.get(f).get(c);
+                fail[child] = target != null && target != child ? target : ROOT;
+                dictLink[child] = termAt[fail[child]] >= 0 ? fail[child] : dictLink[fail[child]];
+                queue.add(child);
+            }
+        }
+        return new AhoCorasick(children, fail, termAt, dictLink, Collections.unmodifiableList(terms));
+    }
+
+    /**
+     * 找出文本中的全部命中（含重叠、嵌套的词条），按结束位置排序
+     */
+    public List<Match> findAll(String text) {
+        List<Match> matches = new ArrayList<>();
+        scan(text, matches, false);
+        return matches;
+    }
+
+    /**
+     * 找到第一个命中即返回，未命中返回 null
+     */
+    public Match findFirst(String text) {
+        List<Match> matches = new ArrayList<>(1);
+        scan(text, matches, true);
+        return matches.isEmpty() ? null : matches.get(0);
+    }
+
+    public boolean containsAny(String text) {
+        return findFirst(text) != null;
+    }
+
+    public List<String> getTerms() {
+        return terms;
+    }
+
+    public boolean isEmpty() {
+        return terms.isEmpty();
+    }
+
+    private void scan(String text, List<Match> matches, boolean firstOnly) {
+        if (text == null || terms.isEmpty()) {
+            return;
+        }
+        int state = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            Integer next = children.get(state).get(c);
+            while (next == null && state != ROOT) {
+                state = fail[state];
+                next = children.get(state).get(c);
+            }
+            state = next != null ? next : ROOT;
+
+            int out = termAt[state] >= 0 ? state : dictLink[state];
+            while (out >= 0) {
+                String term = terms.get(termAt[out]);
+                matches.add(new Match(i - term.length() + 1, i + 1, term));
+                if (firstOnly) {
+                    return;
+                }
+                out = dictLink[out];
+            }
+        }
+    }
+
+    /**
+     * 一次命中：[start, end) 为文本中的区间，term 为词条原文
+     */
+    public static class Match {
+        private final int start;
+        private final int end;
+        private final String term;
+
+        public Match(int start, int end, String term) {
+            this.start = start;
+            this.end = end;
+            this.term = term;
+        }
+
+        public int getStart() {
+            return start;
+        }
+
+        public int getEnd() {
+            return end;
+        }
+
+        public String getTerm() {
+            return term;
+        }
+    }
+}
@@ -0,0 +1,563 @@
+package com.pet.util;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 按列存储的订单分析数据
+ * 维度列（机构、状态、支付状态、套餐、宠物种类）字典编码为 int，日期列存为 epochDay，金额列为 long 分，
+ * 每个订单占各列数组的同一个下标，同一订单再次写入时就地覆盖。
+ * 查询按行区间切分后在 ForkJoin 线程池中并行过滤、分组和累加，全程只访问原始类型数组。
+ * 非线程安全，并发读写由调用方加锁
+ */
+public class BookingColumns {
+
+    /**
+     * 分组维度，DAY/MONTH/WEEKDAY 按查询的日期列取值
+     */
+    public enum Dimension {
+        DAY, MONTH, WEEKDAY, INSTITUTION, STATUS, PAYMENT_STATUS, PACKAGE, SPECIES
+    }
+
+    /**
+     * 日期列：下单日期、寄养开始日期、寄养结束日期、支付日期
+     */
+    public enum DateField {
+        CREATED, START, END, PAID
+    }
+
+    /** 缺失的日期或维度值 */
+    private static final int NONE = -1;
+
+    /** 每个维度的分组编码占用的位数，分组键最多容纳 3 个维度 */
+    private static final int KEY_BITS = 21;
+    private static final int MAX_GROUP_BY = 3;
+
+    /**
+     * 可存储的最大 epochDay：按日分组时编码为 epochDay + 1，需放进 KEY_BITS 位。
+     * 早于 1970-01-01（epochDay 为负，且 -1 与 NONE 冲突）或晚于该值的日期按缺失处理
+     */
+    static final int MAX_DAY = (1 << KEY_BITS) - 2;
+
+    /** 并行扫描时每个子任务处理的行数 */
+    private static final int SPLIT_ROWS = 1 << 15;
+
+    private final Dictionary institutions = new Dictionary();
+    private final Dictionary statuses = new Dictionary();
+    private final Dictionary paymentStatuses = new Dictionary();
+    private final Dictionary packages = new Dictionary();
+    private final Dictionary species = new Dictionary();
+
+    private final Map<String, Integer> rowById = new HashMap<>();
+
+    private int size;
+    private int liveCount;
+
+    private boolean[] live;
+    private int[] institution;
+    private int[] status;
+    private int[] paymentStatus;
+    private int[] servicePackage;
+    private int[] petSpecies;
+    /** 下标为 DateField.ordinal() */
+    private int[][] days;
+    private long[] totalFen;
+    private long[] refundFen;
+
+    public BookingColumns() {
+        this(1024);
+    }
+
+    public BookingColumns(int capacity) {
+        int n = Math.max(capacity, 1);
+        live = new boolean[n];
+        institution = new int[n];
+        status = new int[n];
+        paymentStatus = new int[n];
+        servicePackage = new int[n];
+        petSpecies = new int[n];
+        days = new int[DateField.values().length][n];
+        totalFen = new long[n];
+        refundFen = new long[n];
+    }
+
+    /**
+     * 有效（未删除）订单数
+     */
+    public int size() {
+        return liveCount;
+    }
+
+    /**
+     * 写入一个订单的当前状态，已存在则覆盖，row.deleted 为 1 时从统计中移除
+     */
+    public void put(Row row) {
+        Integer existing = rowById.get(row.getId());
+        boolean deleted = row.getDeleted() != null && row.getDeleted() != 0;
+        if (existing == null && deleted) {
+            return;
+        }
+        int i;
+        if (existing != null) {
+            i = existing;
+            if (live[i]) {
+                liveCount--;
+            }
+        } else {
+            ensureCapacity(size + 1);
+            i = size++;
+            rowById.put(row.getId(), i);
+        }
+
+        live[i] = !deleted;
+        if (deleted) {
+            return;
+        }
+        liveCount++;
+        institution[i] = institutions.encode(row.getInstitutionId());
+        status[i] = statuses.encode(row.getStatus());
+        paymentStatus[i] = paymentStatuses.encode(row.getPaymentStatus());
+        servicePackage[i] = packages.encode(row.getServicePackageId());
+        petSpecies[i] = species.encode(row.getSpecies() != null ? row.getSpecies() : "other");
+
+        int created = epochDay(row.getCreatedAt());
+        days[DateField.CREATED.ordinal()][i] = created;
+        // 没有寄养日期的订单按下单日期计
+        days[DateField.START.ordinal()][i] = row.getStartDate() != null ? epochDay(row.getStartDate()) : created;
+        days[DateField.END.ordinal()][i] = row.getEndDate() != null ? epochDay(row.getEndDate()) : created;
+        days[DateField.PAID.ordinal()][i] = epochDay(row.getPaidAt());
+        totalFen[i] = row.getTotalFen() != null ? row.getTotalFen() : 0L;
+        refundFen[i] = row.getRefundFen() != null ? row.getRefundFen() : 0L;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= live.length) {
+            return;
+        }
+        int capacity = Math.max(required, live.length + (live.length >> 1) + 1);
+        live = Arrays.copyOf(live, capacity);
+        institution = Arrays.copyOf(institution, capacity);
+        status = Arrays.copyOf(status, capacity);
+        paymentStatus = Arrays.copyOf(paymentStatus, capacity);
+        servicePackage = Arrays.copyOf(servicePackage, capacity);
+        petSpecies = Arrays.copyOf(petSpecies, capacity);
+        for (int d = 0; d < days.length; d++) {
+            days[d] = Arrays.copyOf(days[d], capacity);
+        }
+        totalFen = Arrays.copyOf(totalFen, capacity);
+        refundFen = Arrays.copyOf(refundFen, capacity);
+    }
+
+    private static int epochDay(LocalDateTime time) {
+        return time != null ? epochDay(time.toLocalDate()) : NONE;
+    }
+
+    private static int epochDay(LocalDate date) {
+        long day = date.toEpochDay();
+        return day >= 0 && day <= MAX_DAY ? (int) day : NONE;
+    }
+
+    // ========== 查询 ==========
+
+    /**
+     * 过滤后分组聚合
+     * @param pool 并行扫描的线程池，为 null 时在当前线程扫描
+     * @return 每个分组一行，未分组时返回一行合计
+     */
+    public List<Group> aggregate(Query query, ForkJoinPool pool) {
+        if (query.groupBy.size() > MAX_GROUP_BY) {
+            throw new IllegalArgumentException("最多按 " + MAX_GROUP_BY + " 个维度分组");
+        }
+        Scan scan = compile(query);
+        Map<Long, long[]> totals;
+        if (scan == null) {
+            totals = new HashMap<>();
+        } else if (pool == null || size <= SPLIT_ROWS) {
+            totals = scan.run(0, size);
+        } else {
+            totals = pool.invoke(new ScanTask(scan, 0, size));
+        }
+        if (query.groupBy.isEmpty() && totals.isEmpty()) {
+            totals.put(0L, new long[3]);
+        }
+
+        List<Group> groups = new ArrayList<>(totals.size());
+        for (Map.Entry<Long, long[]> entry : totals.entrySet()) {
+            Map<Dimension, Object> keys = new EnumMap<>(Dimension.class);
+            long key = entry.getKey();
+            for (int d = query.groupBy.size() - 1; d >= 0; d--) {
+                int code = (int) (key & ((1L << KEY_BITS) - 1)) + NONE;
+                key >>>= KEY_BITS;
+                Dimension dimension = query.groupBy.get(d);
+                keys.put(dimension, decode(dimension, code));
+            }
+            long[] sums = entry.getValue();
+            groups.add(new Group(keys, sums[0], sums[1], sums[2]));
+        }
+        return groups;
+    }
+
+    /**
+     * 把查询条件翻译为字典编码；过滤值在字典中不存在时不可能命中，返回 null
+     */
+    private Scan compile(Query query) {
+        int institutionCode = NONE;
+        if (query.institutionId != null) {
+            institutionCode = institutions.lookup(query.institutionId);
+            if (institutionCode == NONE) {
+                return null;
+            }
+        }
+        boolean[] statusMask = mask(statuses, query.statuses);
+        boolean[] paymentMask = mask(paymentStatuses, query.paymentStatuses);
+        if ((statusMask != null && !any(statusMask)) || (paymentMask != null && !any(paymentMask))) {
+            return null;
+        }
+
+        int[] dateColumn = days[query.dateField.ordinal()];
+        int from = query.from != null ? (int) query.from.toEpochDay() : Integer.MIN_VALUE;
+        int to = query.to != null ? (int) query.to.toEpochDay() : Integer.MAX_VALUE;
+        boolean dateFiltered = query.from != null || query.to != null;
+
+        int[][] keyColumns = new int[query.groupBy.size()][];
+        int[] keyKinds = new int[query.groupBy.size()];
+        for (int d = 0; d < keyColumns.length; d++) {
+            Dimension dimension = query.groupBy.get(d);
+            keyKinds[d] = dimension.ordinal();
+            keyColumns[d] = column(dimension, dateColumn);
+        }
+        return new Scan(institutionCode, statusMask, paymentMask, dateColumn, dateFiltered, from, to,
+                keyColumns, keyKinds);
+    }
+
+    private int[] column(Dimension dimension, int[] dateColumn) {
+        switch (dimension) {
+            case INSTITUTION: return institution;
+            case STATUS: return status;
+            case PAYMENT_STATUS: return paymentStatus;
+            case PACKAGE: return servicePackage;
+            case SPECIES: return petSpecies;
+            default: return dateColumn;
+        }
+    }
+
+    private static boolean[] mask(Dictionary dictionary, Set<String> values) {
+        if (values == null) {
+            return null;
+        }
+        boolean[] mask = new boolean[dictionary.size()];
+        for (String value : values) {
+            int code = dictionary.lookup(value);
+            if (code != NONE) {
+                mask[code] = true;
+            }
+        }
+        return mask;
+    }
+
+    private static boolean any(boolean[] mask) {
+        for (boolean b : mask) {
+            if (b) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Object decode(Dimension dimension, int code) {
+        switch (dimension) {
+            case DAY: return code == NONE ? null : LocalDate.ofEpochDay(code);
+            case MONTH: return code == NONE ? null : LocalDate.of(code / 12, code % 12 + 1, 1);
+            case WEEKDAY: return code == NONE ? null : code;
+            case INSTITUTION: return institutions.value(code);
+            case STATUS: return statuses.value(code);
+            case PAYMENT_STATUS: return paymentStatuses.value(code);
+            case PACKAGE: return packages.value(code);
+            default: return species.value(code);
+        }
+    }
+
+    /**
+     * epochDay 所在月份，编码为 年 * 12 + 月 - 1（纯算术，扫描时不创建 LocalDate）
+     */
+    static int monthOf(int epochDay) {
+        // civil_from_days 算法，以 0000-03-01 为纪元
+        long z = epochDay + 719468L;
+        long era = Math.floorDiv(z, 146097);
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        long month = mp < 10 ? mp + 3 : mp - 9;
+        long year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+        return (int) (year * 12 + month - 1);
+    }
+
+    /**
+     * epochDay 是星期几，1 为周一，7 为周日（1970-01-01 为周四）
+     */
+    static int weekdayOf(int epochDay) {
+        return Math.floorMod(epochDay + 3, 7) + 1;
+    }
+
+    /**
+     * 编译后的扫描，只引用列数组和编码后的条件
+     */
+    private class Scan {
+        private final int institutionCode;
+        private final boolean[] statusMask;
+        private final boolean[] paymentMask;
+        private final int[] dateColumn;
+        private final boolean dateFiltered;
+        private final int from;
+        private final int to;
+        private final int[][] keyColumns;
+        private final int[] keyKinds;
+
+        Scan(int institutionCode, boolean[] statusMask, boolean[] paymentMask, int[] dateColumn,
+             boolean dateFiltered, int from, int to, int[][] keyColumns, int[] keyKinds) {
+            this.institutionCode = institutionCode;
+            this.statusMask = statusMask;
+            this.paymentMask = paymentMask;
+            this.dateColumn = dateColumn;
+            this.dateFiltered = dateFiltered;
+            this.from = from;
+            this.to = to;
+            this.keyColumns = keyColumns;
+            this.keyKinds = keyKinds;
+        }
+
+        /**
+         * 扫描 [start, end) 行，返回 分组键 -> {订单数, 金额, 退款}
+         */
+        Map<Long, long[]> run(int start, int end) {
+            Map<Long, long[]> totals = new HashMap<>();
+            long[] single = keyColumns.length == 0 ? new long[3] : null;
+            for (int i = start; i < end; i++) {
+                if (!live[i]
+                        || (institutionCode != NONE && institution[i] != institutionCode)
+                        || (statusMask != null && !matches(statusMask, status[i]))
+                        || (paymentMask != null && !matches(paymentMask, paymentStatus[i]))) {
+                    continue;
+                }
+                if (dateFiltered) {
+                    int day = dateColumn[i];
+                    if (day == NONE || day < from || day > to) {
+                        continue;
+                    }
+                }
+                long[] sums = single;
+                if (sums == null) {
+                    long key = 0;
+                    for (int d = 0; d < keyColumns.length; d++) {
+                        key = (key << KEY_BITS) | (keyCode(d, i) - NONE);
+                    }
+                    sums = totals.get(key);
+                    if (sums == null) {
+                        sums = new long[3];
+                        totals.put(key, sums);
+                    }
+                }
+                sums[0]++;
+                sums[1] += totalFen[i];
+                sums[2] += refundFen[i];
+            }
+            if (single != null && single[0] > 0) {
+                totals.put(0L, single);
+            }
+            return totals;
+        }
+
+        private boolean matches(boolean[] mask, int code) {
+            return code != NONE && mask[code];
+        }
+
+        private int keyCode(int d, int row) {
+            int value = keyColumns[d][row];
+            if (value == NONE) {
+                return NONE;
+            }
+            if (keyKinds[d] == Dimension.MONTH.ordinal()) {
+                return monthOf(value);
+            }
+            if (keyKinds[d] == Dimension.WEEKDAY.ordinal()) {
+                return weekdayOf(value);
+            }
+            return value;
+        }
+    }
+
+    private class ScanTask extends RecursiveTask<Map<Long, long[]>> {
+        private final Scan scan;
+        private final int start;
+        private final int end;
+
+        ScanTask(Scan scan, int start, int end) {
+            this.scan = scan;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected Map<Long, long[]> compute() {
+            if (end - start <= SPLIT_ROWS) {
+                return scan.run(start, end);
+            }
+            int mid = (start + end) >>> 1;
+            ScanTask left = new ScanTask(scan, start, mid);
+            left.fork();
+            Map<Long, long[]> right = new ScanTask(scan, mid, end).compute();
+            Map<Long, long[]> merged = left.join();
+            for (Map.Entry<Long, long[]> entry : right.entrySet()) {
+                long[] sums = merged.get(entry.getKey());
+                if (sums == null) {
+                    merged.put(entry.getKey(), entry.getValue());
+                } else {
+                    for (int k = 0; k < sums.length; k++) {
+                        sums[k] += entry.getValue()[k];
+                    }
+                }
+            }
+            return merged;
+        }
+    }
+
+    /**
+     * 字典编码：值按首次出现的顺序编号，null 编为 NONE
+     */
+    private static class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int encode(String value) {
+            if (value == null) {
+                return NONE;
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                codes.put(value, code);
+                values.add(value);
+            }
+            return code;
+        }
+
+        int lookup(String value) {
+            Integer code = value != null ? codes.get(value) : null;
+            return code != null ? code : NONE;
+        }
+
+        String value(int code) {
+            return code == NONE ? null : values.get(code);
+        }
+
+        int size() {
+            return values.size();
+        }
+    }
+
+    /**
+     * 一个订单的分析字段，金额已换算为分
+     */
+    @Data
+    public static class Row {
+        private String id;
+        private String institutionId;
+        private String servicePackageId;
+        private String status;
+        private String paymentStatus;
+        private String species;
+        private LocalDateTime createdAt;
+        private LocalDate startDate;
+        private LocalDate endDate;
+        private LocalDateTime paidAt;
+        private Long totalFen;
+        private Long refundFen;
+        private Integer deleted;
+        private LocalDateTime updatedAt;
+    }
+
+    /**
+     * 查询条件，未设置的条件不过滤
+     */
+    public static class Query {
+        private DateField dateField = DateField.CREATED;
+        private LocalDate from;
+        private LocalDate to;
+        private String institutionId;
+        private Set<String> statuses;
+        private Set<String> paymentStatuses;
+        private final List<Dimension> groupBy = new ArrayList<>();
+
+        /**
+         * 按日期列过滤 [from, to]（含两端），也决定 DAY/MONTH/WEEKDAY 分组取哪一列
+         */
+        public Query dates(DateField field, LocalDate from, LocalDate to) {
+            this.dateField = field;
+            this.from = from;
+            this.to = to;
+            return this;
+        }
+
+        public Query institution(String institutionId) {
+            this.institutionId = institutionId;
+            return this;
+        }
+
+        public Query status(String... values) {
+            this.statuses = new HashSet<>(Arrays.asList(values));
+            return this;
+        }
+
+        public Query paymentStatus(String... values) {
+            this.paymentStatuses = new HashSet<>(Arrays.asList(values));
+            return this;
+        }
+
+        public Query groupBy(Dimension... dimensions) {
+            this.groupBy.addAll(Arrays.asList(dimensions));
+            return this;
+        }
+    }
+
+    /**
+     * 一个分组的聚合结果，金额单位为分
+     */
+    public static class Group {
+        private final Map<Dimension, Object> keys;
+        private final long count;
+        private final long gmv;
+        private final long refund;
+
+        Group(Map<Dimension, Object> keys, long count, long gmv, long refund) {
+            this.keys = keys;
+            this.count = count;
+            this.gmv = gmv;
+            this.refund = refund;
+        }
+
+        /**
+         * 分组维度的取值：DAY 为 LocalDate，MONTH 为当月 1 日，WEEKDAY 为 1-7，其余为原始字符串
+         */
+        public Object get(Dimension dimension) {
+            return keys.get(dimension);
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getGmv() {
+            return gmv;
+        }
+
+        public long getRefund() {
+            return refund;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.pet.util;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * CSV 逐行写出（RFC 4180）
+ * 含逗号、双引号、换行的字段用双引号包裹，字段内的双引号写成两个；
+ * 以 = + - @ 开头的文本字段前加单引号，防止在 Excel 中被当作公式执行（数值字段不处理，负数保持原样）。
+ * 只持有底层 Writer，不缓存行，内存占用与导出行数无关
+ */
+public class CsvWriter implements Closeable, Flushable {
+
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final Writer writer;
+    private long rows;
+
+    public CsvWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * 写入 UTF-8 BOM，Excel 据此识别中文编码，需在第一行之前调用
+     */
+    public CsvWriter writeBom() throws IOException {
+        writer.write('\uFEFF');
+        return this;
+    }
+
+    /**
+     * 写入一行，null 写为空字段，时间格式为 yyyy-MM-dd HH:mm:ss，其他值取 toString()
+     */
+    public void writeRow(Object... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writeField(values[i]);
+        }
+        writer.write("\r\n");
+        rows++;
+    }
+
+    /**
+     * 已写入的行数（含表头）
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    private void writeField(Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof Number) {
+            writer.write(value.toString());
+            return;
+        }
+        String text = value instanceof LocalDateTime ? DATE_TIME.format((LocalDateTime) value) : value.toString();
+        if (!text.isEmpty() && "=+-@".indexOf(text.charAt(0)) >= 0) {
+            text = "'" + text;
+        }
+        if (needsQuote(text)) {
+            writer.write('"');
+            writer.write(text.replace("\"", "\"\""));
+            writer.write('"');
+        } else {
+            writer.write(text);
+        }
+    }
+
+    private static boolean needsQuote(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
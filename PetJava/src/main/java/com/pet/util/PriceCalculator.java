@@ -1,5 +1,7 @@
 package com.pet.util;
 
+import com.pet.common.Money;
+
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
@@ -32,6 +34,44 @@ public class PriceCalculator {
         return BigDecimal.ZERO;
     }
 
+    /**
+     * 根据天数获取折扣（万分比），规则同 {@link #getDiscountRate(int)}
+     */
+    public static int getDiscountBasisPoints(int days) {
+        if (days >= 30) return 1500;
+        if (days >= 14) return 1000;
+        if (days >= 7) return 500;
+        return 0;
+    }
+
+    /**
+     * 计算预约价格（Money 版本，全程整数分运算）
+     * 返回的 subtotal、discount、totalPrice 为 Money，且 totalPrice = subtotal - discount 精确成立
+     */
+    public static Map<String, Object> calculateBookingPrice(Money pricePerDay, int days) {
+        int discountBasisPoints = getDiscountBasisPoints(days);
+        Money subtotal = pricePerDay.times(days);
+        Money discount = subtotal.multiplyBasisPoints(discountBasisPoints);
+        Money totalPrice = subtotal.minus(discount);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("basePrice", pricePerDay);
+        result.put("totalDays", days);
+        result.put("subtotal", subtotal);
+        result.put("discount", discount);
+        result.put("discountRate", BigDecimal.valueOf(discountBasisPoints, 4).stripTrailingZeros());
+        result.put("totalPrice", totalPrice);
+        return result;
+    }
+
+    /**
+     * 计算预约价格（Money 版本，通过日期范围）
+     */
+    public static Map<String, Object> calculateBookingPriceByDates(Money pricePerDay, LocalDate startDate, LocalDate endDate) {
+        int days = calculateDays(startDate, endDate);
+        return calculateBookingPrice(pricePerDay, days);
+    }
+
     /**
      * 计算预约价格
      */
@@ -11,6 +11,17 @@ import java.util.Map;
  */
 public class RatingCalculator {
 
+    /**
+     * 推荐指数置信度参数：评价数远小于该值时分数向全局平均收缩
+     * 修改时同步 InstitutionRatingStatsMapper.SYNC_COLUMNS 中的常量
+     */
+    public static final double RECOMMENDATION_CONFIDENCE = 10;
+
+    /**
+     * 推荐指数先验（全局平均评分）
+     */
+    public static final double RECOMMENDATION_PRIOR = 3.5;
+
     /**
      * 计算综合平均评分
      */
@@ -108,6 +119,101 @@ public class RatingCalculator {
         return distribution;
     }
 
+    /**
+     * 一次性计算列存评分的全部聚合：各维度评分之和与总体评分分布，
+     * 评分精确到 0.1 时结果与 calculateAverageRating / calculateDimensionAverages / calculateRatingDistribution 一致
+     * 每个维度是一段连续 short[] 上的 int 累加循环，无分支、无装箱，JIT 可向量化；
+     * 分布只需扫描 overall 一列
+     */
+    public static RatingSummary summarize(RatingColumns columns) {
+        if (columns == null || columns.isEmpty()) {
+            return new RatingSummary(0, new long[RatingColumns.DIMENSIONS.length], new int[6]);
+        }
+
+        int n = columns.size();
+        long[] sums = new long[RatingColumns.DIMENSIONS.length];
+        for (int d = 0; d < sums.length; d++) {
+            sums[d] = sum(columns.column(d), n);
+        }
+
+        // 以 0.1 分为单位四舍五入归入 1-5 星（0.5 ≤ 评分 < 5.5），与 Map 版本的 Math.round 口径一致
+        int[] distribution = new int[6];
+        short[] overall = columns.column(0);
+        for (int i = 0; i < n; i++) {
+            int tenths = overall[i];
+            if (tenths >= 5 && tenths < 55) {
+                distribution[(tenths + 5) / 10]++;
+            }
+        }
+        return new RatingSummary(n, sums, distribution);
+    }
+
+    private static long sum(short[] column, int n) {
+        // 单条绝对值不超过 32768，int 累加在 65536 条以内不会溢出，分段累加后再并入 long
+        long total = 0;
+        for (int start = 0; start < n; start += 1 << 16) {
+            int end = Math.min(n, start + (1 << 16));
+            int partial = 0;
+            for (int i = start; i < end; i++) {
+                partial += column[i];
+            }
+            total += partial;
+        }
+        return total;
+    }
+
+    /**
+     * 列存评分的聚合结果
+     */
+    public static class RatingSummary {
+        private final int count;
+        private final long[] sums;
+        private final int[] distribution;
+
+        RatingSummary(int count, long[] sums, int[] distribution) {
+            this.count = count;
+            this.sums = sums;
+            this.distribution = distribution;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * 维度评分之和（乘以 10），维度下标与 RatingColumns.DIMENSIONS 一致
+         */
+        public long getSumTenths(int dimension) {
+            return sums[dimension];
+        }
+
+        /**
+         * 维度平均分，保留一位小数，无评价时为 0
+         */
+        public BigDecimal average(int dimension) {
+            if (count == 0) {
+                return BigDecimal.ZERO;
+            }
+            return BigDecimal.valueOf(sums[dimension]).divide(BigDecimal.valueOf(count * 10L), 1, RoundingMode.HALF_UP);
+        }
+
+        public Map<String, BigDecimal> getDimensionAverages() {
+            Map<String, BigDecimal> result = new HashMap<>();
+            for (int d = 0; d < RatingColumns.DIMENSIONS.length; d++) {
+                result.put(RatingColumns.DIMENSIONS[d], average(d));
+            }
+            return result;
+        }
+
+        public Map<Integer, Integer> getDistribution() {
+            Map<Integer, Integer> result = new HashMap<>();
+            for (int star = 1; star <= 5; star++) {
+                result.put(star, distribution[star]);
+            }
+            return result;
+        }
+    }
+
     /**
      * 获取评分等级描述
      */
@@ -166,10 +272,25 @@ public class RatingCalculator {
             return BigDecimal.ZERO;
         }
 
-        double C = 10; // 置信度参数
-        double m = 3.5; // 全局平均评分
+        double C = RECOMMENDATION_CONFIDENCE; // 置信度参数
+        double m = RECOMMENDATION_PRIOR; // 全局平均评分
 
         double score = (reviewCount * averageRating + C * m) / (reviewCount + C);
         return BigDecimal.valueOf(score).setScale(1, RoundingMode.HALF_UP);
     }
+
+    /**
+     * 按总体评分之和计算推荐指数，与机构表 recommendation_score 的同步公式一致，
+     * 避免先把平均分四舍五入再代入带来的误差
+     */
+    public static BigDecimal calculateRecommendationScoreBySum(long overallSum, int reviewCount) {
+        if (reviewCount == 0) {
+            return BigDecimal.ZERO;
+        }
+
+        BigDecimal confidence = BigDecimal.valueOf(RECOMMENDATION_CONFIDENCE);
+        BigDecimal numerator = BigDecimal.valueOf(overallSum)
+                .add(confidence.multiply(BigDecimal.valueOf(RECOMMENDATION_PRIOR)));
+        return numerator.divide(BigDecimal.valueOf(reviewCount).add(confidence), 1, RoundingMode.HALF_UP);
+    }
 }
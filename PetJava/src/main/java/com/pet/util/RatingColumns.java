@@ -0,0 +1,108 @@
+package com.pet.util;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按列存储的评价评分
+ * 每个维度一个 short[]，下标 i 为第 i 条评价的评分乘以 10（精确到 0.1，如 4.5 记 45，缺失记 0），
+ * 供 RatingCalculator 在原始类型数组上一次遍历完成聚合，避免逐条拆箱和 BigDecimal 累加
+ */
+public class RatingColumns {
+
+    public static final String[] DIMENSIONS = {"overall", "environment", "service", "hygiene", "communication"};
+
+    private short[][] columns;
+    private int size;
+
+    public RatingColumns() {
+        this(16);
+    }
+
+    public RatingColumns(int capacity) {
+        columns = new short[DIMENSIONS.length][Math.max(capacity, 1)];
+    }
+
+    /**
+     * 由已有的列数组构造（评分乘以 10），数组按 DIMENSIONS 顺序传入且长度一致
+     */
+    public static RatingColumns of(short[] overall, short[] environment, short[] service,
+                                   short[] hygiene, short[] communication) {
+        int size = overall.length;
+        if (environment.length != size || service.length != size
+                || hygiene.length != size || communication.length != size) {
+            throw new IllegalArgumentException("各维度评分数组长度不一致");
+        }
+        RatingColumns result = new RatingColumns(0);
+        result.columns = new short[][]{overall, environment, service, hygiene, communication};
+        result.size = size;
+        return result;
+    }
+
+    /**
+     * 从 Map 形式的评价列表转换（与 RatingCalculator 旧接口的入参格式一致），小数评分保留一位小数
+     */
+    public static RatingColumns fromReviews(List<Map<String, Object>> reviews) {
+        if (reviews == null) {
+            return new RatingColumns();
+        }
+        RatingColumns result = new RatingColumns(reviews.size());
+        short[] row = new short[DIMENSIONS.length];
+        for (Map<String, Object> review : reviews) {
+            Arrays.fill(row, (short) 0);
+            Object ratingObj = review.get("rating");
+            if (ratingObj instanceof Map) {
+                Map<?, ?> rating = (Map<?, ?>) ratingObj;
+                for (int d = 0; d < DIMENSIONS.length; d++) {
+                    Object value = rating.get(DIMENSIONS[d]);
+                    if (value instanceof Number) {
+                        row[d] = (short) Math.round(((Number) value).doubleValue() * 10);
+                    }
+                }
+            }
+            result.addTenths(row[0], row[1], row[2], row[3], row[4]);
+        }
+        return result;
+    }
+
+    /**
+     * 追加一条整数评分的评价
+     */
+    public void add(int overall, int environment, int service, int hygiene, int communication) {
+        addTenths(overall * 10, environment * 10, service * 10, hygiene * 10, communication * 10);
+    }
+
+    /**
+     * 追加一条评价，各维度为评分乘以 10
+     */
+    public void addTenths(int overall, int environment, int service, int hygiene, int communication) {
+        if (size == columns[0].length) {
+            int capacity = size + (size >> 1) + 1;
+            for (int d = 0; d < columns.length; d++) {
+                columns[d] = Arrays.copyOf(columns[d], capacity);
+            }
+        }
+        columns[0][size] = (short) overall;
+        columns[1][size] = (short) environment;
+        columns[2][size] = (short) service;
+        columns[3][size] = (short) hygiene;
+        columns[4][size] = (short) communication;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 维度的原始列（评分乘以 10），有效长度为 size()，调用方不应修改
+     */
+    public short[] column(int dimension) {
+        return columns[dimension];
+    }
+}
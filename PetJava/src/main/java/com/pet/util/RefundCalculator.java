@@ -1,5 +1,7 @@
 package com.pet.util;
 
+import com.pet.common.Money;
+
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
@@ -94,6 +96,72 @@ public class RefundCalculator {
         return result;
     }
 
+    /**
+     * 计算退款金额（Money 版本，全程整数分运算）
+     * 规则同 BigDecimal 版本；退款金额四舍五入到分，手续费 = 订单总价 - 退款金额，两者之和恒等于订单总价
+     */
+    public static Map<String, Object> calculateRefund(Money totalPrice, LocalDate startDate, LocalDate endDate, LocalDateTime cancelTime) {
+        if (cancelTime == null) {
+            cancelTime = LocalDateTime.now();
+        }
+
+        long hoursUntilStart = getHoursUntilStart(startDate, cancelTime);
+        Map<String, Object> result = new HashMap<>();
+
+        // 入住前48小时以上取消: 全额退款
+        if (hoursUntilStart > 48) {
+            result.put("refundAmount", totalPrice);
+            result.put("cancellationFee", Money.ZERO);
+            result.put("refundRate", BigDecimal.ONE);
+            result.put("reason", "入住前48小时以上取消，全额退款");
+            result.put("type", "full");
+            result.put("estimatedDays", 5);
+            return result;
+        }
+
+        // 入住前48小时内取消: 退款70%
+        if (hoursUntilStart > 0) {
+            Money refundAmount = totalPrice.multiplyRatio(7, 10);
+
+            result.put("refundAmount", refundAmount);
+            result.put("cancellationFee", totalPrice.minus(refundAmount));
+            result.put("refundRate", new BigDecimal("0.7"));
+            result.put("reason", "入住前48小时内取消，收取30%手续费");
+            result.put("type", "partial");
+            result.put("estimatedDays", 5);
+            return result;
+        }
+
+        // 入住后取消: 按剩余天数比例退款
+        int totalDays = (int) ChronoUnit.DAYS.between(startDate, endDate) + 1;
+        int usedDays = (int) ChronoUnit.DAYS.between(startDate, cancelTime.toLocalDate()) + 1;
+        int remainingDays = Math.max(0, totalDays - usedDays);
+
+        if (remainingDays > 0) {
+            // 退款 = 总价 × 剩余天数 / 总天数 × 70%，只在最后一步取整
+            Money refundAmount = totalPrice.multiplyRatio(remainingDays * 7L, totalDays * 10L);
+            BigDecimal refundRate = BigDecimal.valueOf(remainingDays * 7L)
+                    .divide(BigDecimal.valueOf(totalDays * 10L), 4, RoundingMode.HALF_UP);
+
+            result.put("refundAmount", refundAmount);
+            result.put("cancellationFee", totalPrice.minus(refundAmount));
+            result.put("refundRate", refundRate);
+            result.put("reason", "入住后取消，按剩余" + remainingDays + "天比例退款70%");
+            result.put("type", "partial");
+            result.put("estimatedDays", 7);
+            return result;
+        }
+
+        // 已完成或无剩余天数: 不退款
+        result.put("refundAmount", Money.ZERO);
+        result.put("cancellationFee", totalPrice);
+        result.put("refundRate", BigDecimal.ZERO);
+        result.put("reason", "服务已完成或已使用，不予退款");
+        result.put("type", "none");
+        result.put("estimatedDays", 0);
+        return result;
+    }
+
     /**
      * 判断是否可以取消订单
      */
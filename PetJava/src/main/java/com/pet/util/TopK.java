@@ -0,0 +1,83 @@
+package com.pet.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 取前 K 名
+ * 用容量为 K 的小顶堆保存当前排名最靠前的 K 个元素，堆顶是其中排名最靠后的一个，
+ * 新元素只有排在堆顶之前才替换堆顶；N 个元素耗时 O(N log K)，内存 O(K)，不需要对全部元素排序
+ *
+ * @param <T> 元素类型
+ */
+public class TopK<T> {
+
+    /** 堆的初始容量上限，k 很大而元素很少时不预先分配 k 个槽位，超出后由堆自行扩容 */
+    private static final int MAX_INITIAL_CAPACITY = 1024;
+
+    private final int k;
+    private final Comparator<? super T> order;
+    private final PriorityQueue<T> heap;
+    private long offered;
+
+    /**
+     * @param k 保留的个数
+     * @param order 排名顺序，排在前面的元素比较结果更小
+     */
+    public TopK(int k, Comparator<? super T> order) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k 不能为负数");
+        }
+        this.k = k;
+        this.order = order;
+        // 堆顶为排名最靠后的元素
+        this.heap = new PriorityQueue<>(Math.max(1, Math.min(k, MAX_INITIAL_CAPACITY)), order.reversed());
+    }
+
+    public void offer(T element) {
+        offered++;
+        if (k == 0) {
+            return;
+        }
+        if (heap.size() < k) {
+            heap.offer(element);
+        } else if (order.compare(element, heap.peek()) < 0) {
+            heap.poll();
+            heap.offer(element);
+        }
+    }
+
+    /**
+     * 已提交的元素总数（含未进入前 K 名的）
+     */
+    public long offered() {
+        return offered;
+    }
+
+    public int size() {
+        return heap.size();
+    }
+
+    /**
+     * 按排名顺序返回保留的元素
+     */
+    public List<T> sorted() {
+        List<T> result = new ArrayList<>(heap);
+        result.sort(order);
+        return result;
+    }
+
+    /**
+     * 按排名顺序返回第 from 名（从 0 开始）起的至多 count 个元素，用于分页
+     */
+    public List<T> slice(int from, int count) {
+        List<T> all = sorted();
+        if (from >= all.size()) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(all.subList(from, Math.min(from + count, all.size())));
+    }
+}
@@ -0,0 +1,27 @@
+package com.pet.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 事务工具
+ */
+public class TransactionUtils {
+
+    /**
+     * 处于事务中时在提交后执行（回滚则不执行），否则立即执行
+     * 用于缓存更新、消息推送等不应看到未提交数据的副作用
+     */
+    public static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
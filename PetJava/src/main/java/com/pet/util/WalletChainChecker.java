@@ -0,0 +1,125 @@
+package com.pet.util;
+
+import com.pet.entity.WalletTransaction;
+
+import java.util.*;
+
+/**
+ * 钱包交易链校验工具
+ * 按时间顺序回放单个钱包的交易记录，检查余额链是否连续、每笔金额是否与前后余额一致，
+ * 以及回放结果是否等于钱包当前余额
+ */
+public class WalletChainChecker {
+
+    public static final String ISSUE_CHAIN_BREAK = "chain_break";
+    public static final String ISSUE_AMOUNT_MISMATCH = "amount_mismatch";
+    public static final String ISSUE_BALANCE_MISMATCH = "balance_mismatch";
+    public static final String ISSUE_REPLAY_MISMATCH = "replay_mismatch";
+
+    /**
+     * 计算单笔交易对可用余额的影响（单位：分）
+     * 充值、收入、退款增加余额；支付减少余额；提现同时扣除手续费
+     */
+    public static long balanceDelta(WalletTransaction transaction) {
+        long amount = transaction.getAmount() != null ? transaction.getAmount() : 0;
+        long fee = transaction.getFee() != null ? transaction.getFee() : 0;
+        String type = transaction.getType();
+        if ("recharge".equals(type) || "income".equals(type) || "refund".equals(type)) {
+            return amount;
+        }
+        if ("payment".equals(type)) {
+            return -amount;
+        }
+        if ("withdrawal".equals(type)) {
+            return -(amount + fee);
+        }
+        return 0;
+    }
+
+    /**
+     * 校验单个钱包的交易链
+     *
+     * @param walletId      钱包ID
+     * @param transactions  该钱包的交易记录，按 createdAt 升序
+     * @param walletBalance 钱包当前余额，为 null 时跳过最终余额比对
+     * @return 发现的问题列表，无问题时为空
+     */
+    public static List<Map<String, Object>> check(String walletId, List<WalletTransaction> transactions,
+                                                  Long walletBalance) {
+        List<Map<String, Object>> issues = new ArrayList<>();
+        long running = 0;
+        long replayed = 0;
+        boolean hasTransactions = false;
+
+        for (List<WalletTransaction> group : groupBySecond(transactions)) {
+            // created_at 只精确到秒，同一秒内的交易按余额链接续关系排序
+            LinkedList<WalletTransaction> pending = new LinkedList<>(group);
+            while (!pending.isEmpty()) {
+                WalletTransaction next = pollLinked(pending, running);
+                long before = next.getBalanceBefore() != null ? next.getBalanceBefore() : 0;
+                long after = next.getBalanceAfter() != null ? next.getBalanceAfter() : 0;
+                long delta = balanceDelta(next);
+
+                if (before != running) {
+                    issues.add(issue(walletId, next.getId(), ISSUE_CHAIN_BREAK, running, before));
+                }
+                if (after != before + delta) {
+                    issues.add(issue(walletId, next.getId(), ISSUE_AMOUNT_MISMATCH, before + delta, after));
+                }
+
+                // 以记录的交易后余额继续，避免一处断链导致后续每笔都报错
+                running = after;
+                replayed += delta;
+                hasTransactions = true;
+            }
+        }
+
+        if (walletBalance != null) {
+            if (hasTransactions && running != walletBalance) {
+                issues.add(issue(walletId, null, ISSUE_BALANCE_MISMATCH, running, walletBalance));
+            }
+            if (replayed != walletBalance) {
+                issues.add(issue(walletId, null, ISSUE_REPLAY_MISMATCH, replayed, walletBalance));
+            }
+        }
+        return issues;
+    }
+
+    private static List<List<WalletTransaction>> groupBySecond(List<WalletTransaction> transactions) {
+        List<List<WalletTransaction>> groups = new ArrayList<>();
+        List<WalletTransaction> current = null;
+        Object currentTime = null;
+        for (WalletTransaction t : transactions) {
+            if (current == null || !Objects.equals(currentTime, t.getCreatedAt())) {
+                current = new ArrayList<>();
+                groups.add(current);
+                currentTime = t.getCreatedAt();
+            }
+            current.add(t);
+        }
+        return groups;
+    }
+
+    private static WalletTransaction pollLinked(LinkedList<WalletTransaction> pending, long running) {
+        Iterator<WalletTransaction> it = pending.iterator();
+        while (it.hasNext()) {
+            WalletTransaction t = it.next();
+            if (t.getBalanceBefore() != null && t.getBalanceBefore() == running) {
+                it.remove();
+                return t;
+            }
+        }
+        return pending.removeFirst();
+    }
+
+    private static Map<String, Object> issue(String walletId, String transactionId, String type,
+                                             long expected, long actual) {
+        Map<String, Object> issue = new HashMap<>();
+        issue.put("walletId", walletId);
+        issue.put("transactionId", transactionId);
+        issue.put("type", type);
+        issue.put("expected", expected);
+        issue.put("actual", actual);
+        return issue;
+    }
+}
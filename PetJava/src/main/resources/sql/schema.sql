@@ -22,7 +22,8 @@ CREATE TABLE IF NOT EXISTS `user` (
     `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP,
     `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     `deleted` TINYINT DEFAULT 0,
-    INDEX `idx_phone_role` (`phone`, `role`)
+    INDEX `idx_phone_role` (`phone`, `role`),
+    INDEX `idx_created_at` (`created_at`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
 -- 宠物表
@@ -77,6 +78,7 @@ CREATE TABLE IF NOT EXISTS `institution` (
     `current_occupancy` JSON,
     `rating` DECIMAL(2,1) DEFAULT 0,
     `review_count` INT DEFAULT 0,
+    `recommendation_score` DECIMAL(2,1) DEFAULT 0 COMMENT '推荐指数（贝叶斯平均），由评分聚合同步',
     `verified` TINYINT DEFAULT 0,
     `status` VARCHAR(20) DEFAULT 'pending' COMMENT 'pending, active, suspended, rejected',
     `features` JSON,
@@ -85,7 +87,8 @@ CREATE TABLE IF NOT EXISTS `institution` (
     `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     `deleted` TINYINT DEFAULT 0,
     INDEX `idx_status` (`status`),
-    INDEX `idx_rating` (`rating`)
+    INDEX `idx_rating` (`rating`),
+    INDEX `idx_status_recommendation` (`status`, `recommendation_score`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
 -- 服务套餐表
@@ -134,8 +137,15 @@ CREATE TABLE IF NOT EXISTS `booking` (
     `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     `deleted` TINYINT DEFAULT 0,
     INDEX `idx_user_id` (`user_id`),
-    INDEX `idx_institution_id` (`institution_id`),
-    INDEX `idx_status` (`status`)
+    INDEX `idx_status` (`status`),
+    INDEX `idx_created_at` (`created_at`),
+    INDEX `idx_institution_created` (`institution_id`, `created_at`),
+    INDEX `idx_institution_start` (`institution_id`, `start_date`),
+    INDEX `idx_institution_paid` (`institution_id`, `paid_at`),
+    INDEX `idx_institution_status` (`institution_id`, `status`),
+    INDEX `idx_institution_user` (`institution_id`, `user_id`, `created_at`),
+    INDEX `idx_refunded_at` (`refunded_at`),
+    INDEX `idx_updated_at` (`updated_at`, `id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
 -- 健康记录表
@@ -166,6 +176,11 @@ CREATE TABLE IF NOT EXISTS `review` (
     `user_id` VARCHAR(36) NOT NULL,
     `institution_id` VARCHAR(36) NOT NULL,
     `rating` JSON NOT NULL COMMENT '{"overall":5,"environment":5,"service":5,"hygiene":5,"communication":5}',
+    `overall_score` TINYINT COMMENT '总体评分（取自 rating，用于排序和聚合）',
+    `environment_score` TINYINT COMMENT '环境评分',
+    `service_score` TINYINT COMMENT '服务评分',
+    `hygiene_score` TINYINT COMMENT '卫生评分',
+    `communication_score` TINYINT COMMENT '沟通评分',
     `content` TEXT NOT NULL,
     `images` JSON,
     `reply` JSON COMMENT '{"content":"...","repliedAt":"..."}',
@@ -174,9 +189,43 @@ CREATE TABLE IF NOT EXISTS `review` (
     `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     `deleted` TINYINT DEFAULT 0,
     INDEX `idx_institution_id` (`institution_id`),
+    INDEX `idx_institution_overall_created` (`institution_id`, `overall_score`, `created_at`),
     INDEX `idx_user_id` (`user_id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
+-- 机构评分聚合表
+CREATE TABLE IF NOT EXISTS `institution_rating_stats` (
+    `institution_id` VARCHAR(36) PRIMARY KEY,
+    `review_count` INT NOT NULL DEFAULT 0 COMMENT '评价数',
+    `overall_sum` INT NOT NULL DEFAULT 0 COMMENT '总体评分之和',
+    `environment_sum` INT NOT NULL DEFAULT 0 COMMENT '环境评分之和',
+    `service_sum` INT NOT NULL DEFAULT 0 COMMENT '服务评分之和',
+    `hygiene_sum` INT NOT NULL DEFAULT 0 COMMENT '卫生评分之和',
+    `communication_sum` INT NOT NULL DEFAULT 0 COMMENT '沟通评分之和',
+    `star1` INT NOT NULL DEFAULT 0 COMMENT '总体1星评价数',
+    `star2` INT NOT NULL DEFAULT 0 COMMENT '总体2星评价数',
+    `star3` INT NOT NULL DEFAULT 0 COMMENT '总体3星评价数',
+    `star4` INT NOT NULL DEFAULT 0 COMMENT '总体4星评价数',
+    `star5` INT NOT NULL DEFAULT 0 COMMENT '总体5星评价数',
+    `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- 每日指标汇总表（机构ID为空串的行记录平台级指标：新用户、提现）
+CREATE TABLE IF NOT EXISTS `daily_metrics` (
+    `stat_date` DATE NOT NULL COMMENT '统计日期',
+    `institution_id` VARCHAR(36) NOT NULL DEFAULT '' COMMENT '机构ID',
+    `order_count` INT NOT NULL DEFAULT 0 COMMENT '下单数',
+    `gmv` BIGINT NOT NULL DEFAULT 0 COMMENT '下单金额（分）',
+    `platform_fee` BIGINT NOT NULL DEFAULT 0 COMMENT '平台服务费（分）',
+    `refund_count` INT NOT NULL DEFAULT 0 COMMENT '退款订单数',
+    `refund_amount` BIGINT NOT NULL DEFAULT 0 COMMENT '退款金额（分）',
+    `new_users` INT NOT NULL DEFAULT 0 COMMENT '新注册用户数',
+    `withdrawal_count` INT NOT NULL DEFAULT 0 COMMENT '提现申请数',
+    `withdrawal_amount` BIGINT NOT NULL DEFAULT 0 COMMENT '提现申请金额（分）',
+    `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    PRIMARY KEY (`stat_date`, `institution_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
 -- 收藏表
 CREATE TABLE IF NOT EXISTS `favorite` (
     `id` VARCHAR(36) PRIMARY KEY,
@@ -206,7 +255,8 @@ CREATE TABLE IF NOT EXISTS `complaint` (
     `deleted` TINYINT DEFAULT 0,
     INDEX `idx_user_id` (`user_id`),
     INDEX `idx_institution_id` (`institution_id`),
-    INDEX `idx_status` (`status`)
+    INDEX `idx_status` (`status`),
+    INDEX `idx_created_at` (`created_at`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
 -- 钱包表
@@ -214,13 +264,13 @@ CREATE TABLE IF NOT EXISTS `wallet` (
     `id` VARCHAR(36) PRIMARY KEY,
     `user_id` VARCHAR(36) NOT NULL UNIQUE COMMENT '用户ID',
     `user_type` VARCHAR(20) NOT NULL COMMENT '用户类型: pet_owner, institution_staff',
-    `balance` INT DEFAULT 0 COMMENT '可用余额（单位：分）',
-    `frozen_balance` INT DEFAULT 0 COMMENT '冻结余额（单位：分）',
-    `total_income` INT DEFAULT 0 COMMENT '累计收入（单位：分）',
-    `total_withdraw` INT DEFAULT 0 COMMENT '累计提现（单位：分）',
+    `balance` BIGINT DEFAULT 0 COMMENT '可用余额（单位：分）',
+    `frozen_balance` BIGINT DEFAULT 0 COMMENT '冻结余额（单位：分）',
+    `total_income` BIGINT DEFAULT 0 COMMENT '累计收入（单位：分）',
+    `total_withdraw` BIGINT DEFAULT 0 COMMENT '累计提现（单位：分）',
     `withdraw_password` VARCHAR(100) COMMENT '提现密码',
     `status` VARCHAR(20) DEFAULT 'active' COMMENT '状态: active, frozen',
-    `daily_withdraw_amount` INT DEFAULT 0 COMMENT '今日已提现金额（单位：分）',
+    `daily_withdraw_amount` BIGINT DEFAULT 0 COMMENT '今日已提现金额（单位：分）',
     `daily_withdraw_count` INT DEFAULT 0 COMMENT '今日已提现次数',
     `last_withdraw_date` DATE COMMENT '最后提现日期',
     `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP,
@@ -236,16 +286,17 @@ CREATE TABLE IF NOT EXISTS `wallet_transaction` (
     `wallet_id` VARCHAR(36) NOT NULL COMMENT '钱包ID',
     `user_id` VARCHAR(36) NOT NULL COMMENT '用户ID',
     `type` VARCHAR(20) NOT NULL COMMENT '交易类型: recharge, withdrawal, income, payment, refund',
-    `amount` INT NOT NULL COMMENT '金额（单位：分）',
-    `fee` INT DEFAULT 0 COMMENT '手续费（单位：分）',
-    `balance_before` INT NOT NULL COMMENT '交易前余额',
-    `balance_after` INT NOT NULL COMMENT '交易后余额',
+    `amount` BIGINT NOT NULL COMMENT '金额（单位：分）',
+    `fee` BIGINT DEFAULT 0 COMMENT '手续费（单位：分）',
+    `balance_before` BIGINT NOT NULL COMMENT '交易前余额',
+    `balance_after` BIGINT NOT NULL COMMENT '交易后余额',
     `status` VARCHAR(20) DEFAULT 'success' COMMENT '状态: pending, success, failed',
     `description` VARCHAR(500) COMMENT '描述',
     `related_order_id` VARCHAR(36) COMMENT '关联订单ID',
     `related_withdrawal_id` VARCHAR(36) COMMENT '关联提现ID',
     `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP,
     INDEX `idx_wallet_id` (`wallet_id`),
+    INDEX `idx_wallet_created` (`wallet_id`, `created_at`),
     INDEX `idx_user_id` (`user_id`),
     INDEX `idx_type` (`type`),
     INDEX `idx_created_at` (`created_at`)
@@ -256,7 +307,7 @@ CREATE TABLE IF NOT EXISTS `recharge_order` (
     `id` VARCHAR(36) PRIMARY KEY,
     `wallet_id` VARCHAR(36) NOT NULL COMMENT '钱包ID',
     `user_id` VARCHAR(36) NOT NULL COMMENT '用户ID',
-    `amount` INT NOT NULL COMMENT '充值金额（单位：分）',
+    `amount` BIGINT NOT NULL COMMENT '充值金额（单位：分）',
     `payment_method` VARCHAR(20) NOT NULL COMMENT '支付方式: alipay, wechat',
     `status` VARCHAR(20) DEFAULT 'pending' COMMENT '状态: pending, paid, failed, expired',
     `payment_order_id` VARCHAR(100) COMMENT '第三方支付订单号',
@@ -273,9 +324,9 @@ CREATE TABLE IF NOT EXISTS `withdrawal` (
     `id` VARCHAR(36) PRIMARY KEY,
     `wallet_id` VARCHAR(36) NOT NULL COMMENT '钱包ID',
     `user_id` VARCHAR(36) NOT NULL COMMENT '用户ID',
-    `amount` INT NOT NULL COMMENT '提现金额（单位：分）',
-    `fee` INT NOT NULL COMMENT '手续费（单位：分）',
-    `actual_amount` INT NOT NULL COMMENT '实际到账金额（单位：分）',
+    `amount` BIGINT NOT NULL COMMENT '提现金额（单位：分）',
+    `fee` BIGINT NOT NULL COMMENT '手续费（单位：分）',
+    `actual_amount` BIGINT NOT NULL COMMENT '实际到账金额（单位：分）',
     `account_id` VARCHAR(36) NOT NULL COMMENT '提现账户ID',
     `status` VARCHAR(20) DEFAULT 'pending' COMMENT '状态: pending, processing, success, failed, cancelled',
     `audit_remark` VARCHAR(500) COMMENT '审核备注',
@@ -321,6 +372,122 @@ CREATE TABLE IF NOT EXISTS `wallet_audit_log` (
     INDEX `idx_created_at` (`created_at`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
+-- 复式记账分录表（只追加）
+CREATE TABLE IF NOT EXISTS `ledger_entry` (
+    `seq` BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '全局递增序号',
+    `journal_id` VARCHAR(36) NOT NULL COMMENT '凭证ID',
+    `account` VARCHAR(64) NOT NULL COMMENT '账户: wallet:{walletId}, platform:external, platform:escrow, platform:fee, platform:opening',
+    `entry_type` VARCHAR(20) NOT NULL COMMENT '业务类型: recharge, payment, refund, income, withdrawal, opening',
+    `amount` BIGINT NOT NULL COMMENT '金额（单位：分），正数增加，负数减少',
+    `related_order_id` VARCHAR(36) COMMENT '关联订单ID',
+    `related_withdrawal_id` VARCHAR(36) COMMENT '关联提现ID',
+    `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP,
+    INDEX `idx_account_seq` (`account`, `seq`),
+    INDEX `idx_account_created` (`account`, `created_at`),
+    INDEX `idx_journal_id` (`journal_id`),
+    INDEX `idx_created_at` (`created_at`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- 账户余额快照表
+CREATE TABLE IF NOT EXISTS `ledger_snapshot` (
+    `id` BIGINT AUTO_INCREMENT PRIMARY KEY,
+    `account` VARCHAR(64) NOT NULL COMMENT '账户',
+    `last_seq` BIGINT NOT NULL COMMENT '快照覆盖到的最大分录序号',
+    `balance` BIGINT NOT NULL COMMENT '快照余额（单位：分）',
+    `cutoff_at` DATETIME NOT NULL COMMENT '快照截止时间',
+    `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP,
+    INDEX `idx_account_seq` (`account`, `last_seq`),
+    INDEX `idx_account_cutoff` (`account`, `cutoff_at`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- 账本状态表（单行）：记录最近一次启动时是否启用账本，启用时的余额同步在该行排他锁下执行
+CREATE TABLE IF NOT EXISTS `ledger_state` (
+    `id` INT PRIMARY KEY,
+    `enabled` TINYINT COMMENT '最近一次启动时是否启用账本，NULL 表示未知',
+    `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- 批量取消任务表
+CREATE TABLE IF NOT EXISTS `bulk_cancel_job` (
+    `id` VARCHAR(36) PRIMARY KEY,
+    `institution_id` VARCHAR(36) NOT NULL COMMENT '机构ID',
+    `reason` VARCHAR(500) COMMENT '取消原因',
+    `full_refund` TINYINT DEFAULT 1 COMMENT '是否全额退款',
+    `cutoff_date` DATE NOT NULL COMMENT '只处理开始日期不早于该日期的订单',
+    `status` VARCHAR(20) NOT NULL COMMENT '状态: running, completed, failed',
+    `total_count` INT DEFAULT 0 COMMENT '启动时待处理订单数',
+    `processed_count` INT DEFAULT 0 COMMENT '已处理订单数',
+    `refunded_count` INT DEFAULT 0 COMMENT '已退款笔数',
+    `refund_total` BIGINT DEFAULT 0 COMMENT '累计退款（单位：分）',
+    `last_error` VARCHAR(500) COMMENT '最近一次失败原因',
+    `finished_at` DATETIME COMMENT '完成时间',
+    `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP,
+    `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    `deleted` TINYINT DEFAULT 0,
+    INDEX `idx_institution_id` (`institution_id`),
+    INDEX `idx_status` (`status`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- 结算批次表
+CREATE TABLE IF NOT EXISTS `settlement_batch` (
+    `id` VARCHAR(36) PRIMARY KEY,
+    `institution_id` VARCHAR(36) COMMENT '只结算该机构，为空表示全部机构',
+    `cutoff_time` DATETIME NOT NULL COMMENT '只结算离店时间早于该时间的订单',
+    `status` VARCHAR(20) NOT NULL COMMENT '状态: running, completed, failed',
+    `cursor_id` VARCHAR(36) COMMENT '已处理的最后一个机构ID',
+    `institution_count` INT DEFAULT 0 COMMENT '已结算机构数',
+    `booking_count` INT DEFAULT 0 COMMENT '已结算订单数',
+    `total_amount` BIGINT DEFAULT 0 COMMENT '结算总额（单位：分）',
+    `last_error` VARCHAR(500) COMMENT '最近一次失败原因',
+    `finished_at` DATETIME COMMENT '完成时间',
+    `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP,
+    `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    `deleted` TINYINT DEFAULT 0,
+    `running_lock` TINYINT AS (IF(`status` = 'running', 1, NULL)) STORED COMMENT '进行中的批次为 1，唯一键保证同时只有一个',
+    INDEX `idx_status` (`status`),
+    UNIQUE KEY `uk_running_lock` (`running_lock`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- 订单结算标记表（每个订单至多一行，防止重复入账）
+CREATE TABLE IF NOT EXISTS `settlement_item` (
+    `booking_id` VARCHAR(36) PRIMARY KEY,
+    `batch_id` VARCHAR(36) COMMENT '结算批次ID，离店时即时入账的为空',
+    `institution_id` VARCHAR(36) NOT NULL COMMENT '机构ID',
+    `amount` BIGINT NOT NULL COMMENT '入账金额（单位：分）',
+    `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP,
+    INDEX `idx_batch_institution` (`batch_id`, `institution_id`),
+    INDEX `idx_institution_created` (`institution_id`, `created_at`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- 内容审核词条表
+CREATE TABLE IF NOT EXISTS `moderation_term` (
+    `id` VARCHAR(36) PRIMARY KEY,
+    `term` VARCHAR(100) NOT NULL COMMENT '词条',
+    `level` VARCHAR(20) NOT NULL COMMENT '级别: block（提交时拦截）, flag（异步标记待复核）',
+    `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP,
+    `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    `deleted` TINYINT DEFAULT 0,
+    INDEX `idx_term` (`term`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- 内容审核标记表
+CREATE TABLE IF NOT EXISTS `moderation_flag` (
+    `id` VARCHAR(36) PRIMARY KEY,
+    `target_type` VARCHAR(20) NOT NULL COMMENT '内容类型: review, review_reply, complaint',
+    `target_id` VARCHAR(36) NOT NULL COMMENT '内容ID',
+    `user_id` VARCHAR(36) COMMENT '发布者ID',
+    `matched_terms` JSON COMMENT '命中的词条',
+    `excerpt` VARCHAR(500) COMMENT '内容摘录',
+    `status` VARCHAR(20) NOT NULL DEFAULT 'pending' COMMENT '状态: pending, confirmed, dismissed',
+    `handled_by` VARCHAR(36) COMMENT '复核管理员ID',
+    `handled_at` DATETIME COMMENT '复核时间',
+    `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP,
+    `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    `deleted` TINYINT DEFAULT 0,
+    INDEX `idx_status_created` (`status`, `created_at`),
+    INDEX `idx_target` (`target_type`, `target_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
 -- 通知表
 CREATE TABLE IF NOT EXISTS `notification` (
     `id` VARCHAR(36) PRIMARY KEY,
@@ -331,10 +498,75 @@ CREATE TABLE IF NOT EXISTS `notification` (
     `is_read` TINYINT DEFAULT 0 COMMENT '是否已读',
     `link` VARCHAR(500) COMMENT '链接',
     `data` JSON COMMENT '额外数据',
+    `repeat_count` INT NOT NULL DEFAULT 1 COMMENT '合并的消息条数',
     `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP,
     `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     `deleted` TINYINT DEFAULT 0,
     INDEX `idx_user_id` (`user_id`),
     INDEX `idx_type` (`type`),
-    INDEX `idx_is_read` (`is_read`)
+    INDEX `idx_is_read` (`is_read`),
+    INDEX `idx_user_read` (`user_id`, `is_read`),
+    INDEX `idx_user_created` (`user_id`, `deleted`, `created_at`, `id`, `type`, `is_read`),
+    INDEX `idx_deleted_read_created` (`deleted`, `is_read`, `created_at`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- 通知归档表（超过保留期的已读通知）
+CREATE TABLE IF NOT EXISTS `notification_archive` (
+    `id` VARCHAR(36) PRIMARY KEY,
+    `user_id` VARCHAR(36) NOT NULL COMMENT '用户ID',
+    `type` VARCHAR(20) NOT NULL COMMENT '类型',
+    `title` VARCHAR(200) NOT NULL COMMENT '标题',
+    `content` TEXT COMMENT '内容',
+    `link` VARCHAR(500) COMMENT '链接',
+    `data` JSON COMMENT '额外数据',
+    `repeat_count` INT NOT NULL DEFAULT 1 COMMENT '合并的消息条数',
+    `created_at` DATETIME COMMENT '通知时间',
+    `archived_at` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '归档时间',
+    INDEX `idx_user_created` (`user_id`, `created_at`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- 平台公告表（读时扇出，群发只写一行）
+CREATE TABLE IF NOT EXISTS `announcement` (
+    `id` BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '自增ID，即发布顺序',
+    `audience` VARCHAR(20) NOT NULL COMMENT '接收范围: all, pet_owner, institution_staff, admin',
+    `type` VARCHAR(20) NOT NULL COMMENT '通知类型',
+    `title` VARCHAR(200) NOT NULL COMMENT '标题',
+    `content` TEXT COMMENT '内容',
+    `link` VARCHAR(500) COMMENT '链接',
+    `created_by` VARCHAR(36) COMMENT '发布管理员ID',
+    `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP,
+    `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    `deleted` TINYINT DEFAULT 0,
+    INDEX `idx_audience_created` (`audience`, `created_at`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- 公告已读标记表（每用户一行）
+CREATE TABLE IF NOT EXISTS `announcement_read_marker` (
+    `user_id` VARCHAR(36) PRIMARY KEY,
+    `last_read_id` BIGINT NOT NULL DEFAULT 0 COMMENT '已读高水位：ID 不大于该值的公告均已读',
+    `cleared_id` BIGINT NOT NULL DEFAULT 0 COMMENT '清除线：ID 不大于该值的公告已清除',
+    `read_ids` JSON COMMENT '高水位之上单独已读的公告ID',
+    `hidden_ids` JSON COMMENT '清除线之上单独删除的公告ID',
+    `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- 群发通知任务表
+CREATE TABLE IF NOT EXISTS `notification_broadcast` (
+    `id` VARCHAR(36) PRIMARY KEY,
+    `audience` VARCHAR(20) NOT NULL COMMENT '接收范围: all, pet_owner, institution_staff, admin',
+    `type` VARCHAR(20) NOT NULL COMMENT '通知类型',
+    `title` VARCHAR(200) NOT NULL COMMENT '标题',
+    `content` TEXT COMMENT '内容',
+    `link` VARCHAR(500) COMMENT '链接',
+    `status` VARCHAR(20) NOT NULL COMMENT '状态: running, completed, failed',
+    `cursor_user_id` VARCHAR(36) COMMENT '已发送的最后一个用户ID',
+    `total_count` INT DEFAULT 0 COMMENT '启动时接收人数',
+    `sent_count` INT DEFAULT 0 COMMENT '已发送人数',
+    `last_error` VARCHAR(500) COMMENT '最近一次失败原因',
+    `created_by` VARCHAR(36) COMMENT '发起管理员ID',
+    `finished_at` DATETIME COMMENT '完成时间',
+    `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP,
+    `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    `deleted` TINYINT DEFAULT 0,
+    INDEX `idx_status` (`status`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
@@ -0,0 +1,68 @@
+package com.pet.common;
+
+import org.junit.jupiter.api.Test;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CursorPage 游标分页结果测试
+ */
+public class CursorPageTest {
+
+    @Test
+    public void testCursorPageWithNext() {
+        CursorPage<String> page = CursorPage.of(Arrays.asList("item1", "item2"), "abc");
+
+        assertEquals(2, page.getList().size());
+        assertEquals("abc", page.getNextCursor());
+        assertTrue(page.isHasMore());
+    }
+
+    @Test
+    public void testCursorPageLastPage() {
+        CursorPage<String> page = CursorPage.of(Collections.emptyList(), null);
+
+        assertEquals(0, page.getList().size());
+        assertNull(page.getNextCursor());
+        assertFalse(page.isHasMore());
+    }
+
+    @Test
+    public void testCursorEncodeDecode() {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 3, 1, 12, 30, 45);
+        CursorPage.Cursor cursor = new CursorPage.Cursor(createdAt, "announcement-12");
+
+        String encoded = cursor.encode();
+        CursorPage.Cursor decoded = CursorPage.Cursor.decode(encoded);
+
+        assertFalse(encoded.contains("+") || encoded.contains("/") || encoded.contains("="), "游标应该是 URL 安全的");
+        assertEquals(createdAt, decoded.getCreatedAt());
+        assertEquals("announcement-12", decoded.getId());
+    }
+
+    @Test
+    public void testCursorDecode_Empty() {
+        assertNull(CursorPage.Cursor.decode(null), "未传游标表示第一页");
+        assertNull(CursorPage.Cursor.decode(""), "未传游标表示第一页");
+    }
+
+    @Test
+    public void testCursorDecode_Invalid() {
+        RuntimeException e = assertThrows(RuntimeException.class, () -> CursorPage.Cursor.decode("not-a-cursor"));
+        assertEquals("无效的分页游标", e.getMessage());
+    }
+
+    @Test
+    public void testCursorPrecedes() {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 3, 1, 12, 0);
+        CursorPage.Cursor cursor = new CursorPage.Cursor(createdAt, "m");
+
+        assertTrue(cursor.precedes(createdAt.minusSeconds(1), "z"), "更早的记录属于后续页");
+        assertTrue(cursor.precedes(createdAt, "a"), "同一时间 ID 更小的记录属于后续页");
+        assertFalse(cursor.precedes(createdAt, "m"), "游标本身不属于后续页");
+        assertFalse(cursor.precedes(createdAt.plusSeconds(1), "a"), "更晚的记录已在前面的页中");
+        assertFalse(cursor.precedes(null, "a"), "没有创建时间的记录不参与分页");
+    }
+}
@@ -0,0 +1,85 @@
+package com.pet.common;
+
+import org.junit.jupiter.api.Test;
+import java.math.BigDecimal;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Money 金额类测试
+ */
+public class MoneyTest {
+
+    @Test
+    public void testOfYuanAndToYuan() {
+        Money money = Money.ofYuan("12.5");
+
+        assertEquals(1250, money.getFen());
+        assertEquals(new BigDecimal("12.50"), money.toYuan());
+        assertEquals("12.50", money.toString());
+    }
+
+    @Test
+    public void testOfYuanRoundsHalfUp() {
+        assertEquals(1235, Money.ofYuan("12.345").getFen());
+        assertEquals(1234, Money.ofYuan("12.344").getFen());
+        assertEquals(-1235, Money.ofYuan("-12.345").getFen());
+    }
+
+    @Test
+    public void testOfYuanNull() {
+        assertNull(Money.ofYuan((BigDecimal) null));
+    }
+
+    @Test
+    public void testArithmetic() {
+        Money a = Money.ofFen(1050);
+        Money b = Money.ofFen(250);
+
+        assertEquals(Money.ofFen(1300), a.plus(b));
+        assertEquals(Money.ofFen(800), a.minus(b));
+        assertEquals(Money.ofFen(7350), a.times(7));
+    }
+
+    @Test
+    public void testMultiplyBasisPoints() {
+        // 699.93 × 5% = 34.9965，四舍五入为 35.00
+        assertEquals(Money.ofFen(3500), Money.ofFen(69993).multiplyBasisPoints(500));
+        assertEquals(Money.ZERO, Money.ofFen(69993).multiplyBasisPoints(0));
+    }
+
+    @Test
+    public void testMultiplyRatioRoundsAwayFromZero() {
+        assertEquals(Money.ofFen(3), Money.ofFen(5).multiplyRatio(1, 2));
+        assertEquals(Money.ofFen(-3), Money.ofFen(-5).multiplyRatio(1, 2));
+        assertEquals(Money.ofFen(1), Money.ofFen(4).multiplyRatio(1, 3));
+    }
+
+    @Test
+    public void testMultiplyRatioInvalidDenominator() {
+        assertThrows(IllegalArgumentException.class, () -> Money.ofFen(100).multiplyRatio(1, 0));
+    }
+
+    @Test
+    public void testOverflowThrows() {
+        assertThrows(ArithmeticException.class, () -> Money.ofFen(Long.MAX_VALUE).plus(Money.ofFen(1)));
+    }
+
+    @Test
+    public void testComparison() {
+        Money small = Money.ofFen(100);
+        Money large = Money.ofFen(200);
+
+        assertTrue(small.isLessThan(large));
+        assertTrue(large.isGreaterThan(small));
+        assertTrue(small.compareTo(large) < 0);
+        assertTrue(Money.ZERO.isZero());
+        assertTrue(small.isPositive());
+        assertTrue(Money.ofFen(-1).isNegative());
+    }
+
+    @Test
+    public void testEqualsIgnoresYuanScale() {
+        assertEquals(Money.ofYuan("10"), Money.ofYuan("10.00"));
+        assertEquals(Money.ofYuan("10").hashCode(), Money.ofYuan("10.00").hashCode());
+    }
+}
@@ -1,7 +1,7 @@
 package com.pet.entity;
 
 import org.junit.jupiter.api.Test;
-import java.math.BigDecimal;
+import com.pet.common.Money;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import static org.junit.jupiter.api.Assertions.*;
@@ -24,9 +24,9 @@ public class BookingTest {
         booking.setStartDate(LocalDate.of(2024, 1, 10));
         booking.setEndDate(LocalDate.of(2024, 1, 15));
         booking.setTotalDays(6);
-        booking.setBasePrice(new BigDecimal("100.00"));
-        booking.setDiscount(new BigDecimal("5.00"));
-        booking.setTotalPrice(new BigDecimal("595.00"));
+        booking.setBasePrice(Money.ofYuan("100.00"));
+        booking.setDiscount(Money.ofYuan("5.00"));
+        booking.setTotalPrice(Money.ofYuan("595.00"));
         booking.setPaymentStatus("pending");
         
         assertEquals("test-id-123", booking.getId());
@@ -56,7 +56,7 @@ public class BookingTest {
     public void testBookingPaymentStatus() {
         Booking booking = new Booking();
         booking.setPaymentStatus("pending");
-        booking.setTotalPrice(new BigDecimal("500.00"));
+        booking.setTotalPrice(Money.ofYuan("500.00"));
         
         assertEquals("pending", booking.getPaymentStatus());
         
@@ -83,12 +83,12 @@ public class BookingTest {
     public void testBookingRefund() {
         Booking booking = new Booking();
         booking.setPaymentStatus("paid");
-        booking.setTotalPrice(new BigDecimal("1000.00"));
-        booking.setRefundAmount(new BigDecimal("700.00"));
+        booking.setTotalPrice(Money.ofYuan("1000.00"));
+        booking.setRefundAmount(Money.ofYuan("700.00"));
         booking.setRefundedAt(LocalDateTime.now());
         
         assertEquals("paid", booking.getPaymentStatus());
-        assertEquals(new BigDecimal("700.00"), booking.getRefundAmount());
+        assertEquals(Money.ofYuan("700.00"), booking.getRefundAmount());
         assertNotNull(booking.getRefundedAt());
     }
 
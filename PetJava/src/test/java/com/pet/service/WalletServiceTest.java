@@ -0,0 +1,78 @@
+package com.pet.service;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.pet.entity.Wallet;
+import com.pet.mapper.WalletMapper;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 钱包服务测试（获取或创建钱包）
+ */
+@ExtendWith(MockitoExtension.class)
+public class WalletServiceTest {
+
+    @Mock
+    private WalletMapper walletMapper;
+
+    @InjectMocks
+    private WalletService walletService;
+
+    @BeforeAll
+    public static void initTableInfo() {
+        // LambdaQueryWrapper 解析列名需要实体的表信息
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), Wallet.class);
+    }
+
+    private Wallet wallet(String userId) {
+        Wallet wallet = new Wallet();
+        wallet.setId("w1");
+        wallet.setUserId(userId);
+        wallet.setBalance(500L);
+        wallet.setDeleted(0);
+        return wallet;
+    }
+
+    @Test
+    public void testGetOrCreateWallet_Existing() {
+        Wallet existing = wallet("u1");
+        when(walletMapper.selectOne(any())).thenReturn(existing);
+
+        assertSame(existing, walletService.getOrCreateWallet("u1", "pet_owner"));
+        verify(walletMapper, never()).insertIfAbsent(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    public void testGetOrCreateWallet_SoftDeletedRevived() {
+        // 逻辑删除的钱包查不到，upsert 恢复该行后再次查询得到原钱包（余额保留）
+        Wallet revived = wallet("u1");
+        when(walletMapper.selectOne(any())).thenReturn(null, revived);
+
+        Wallet result = walletService.getOrCreateWallet("u1", "pet_owner");
+
+        assertSame(revived, result);
+        assertEquals(500L, result.getBalance());
+        verify(walletMapper).insertIfAbsent(anyString(), eq("u1"), eq("pet_owner"));
+    }
+
+    @Test
+    public void testGetOrCreateWallet_StillMissingThrows() {
+        when(walletMapper.selectOne(any())).thenReturn(null);
+
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> walletService.getOrCreateWallet("u1", "pet_owner"));
+        assertEquals("钱包不可用", e.getMessage());
+    }
+}
@@ -0,0 +1,81 @@
+package com.pet.util;
+
+import org.junit.jupiter.api.Test;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Aho-Corasick 多模式匹配测试
+ */
+public class AhoCorasickTest {
+
+    private List<String> terms(List<AhoCorasick.Match> matches) {
+        List<String> result = new ArrayList<>();
+        for (AhoCorasick.Match match : matches) {
+            result.add(match.getTerm());
+        }
+        return result;
+    }
+
+    @Test
+    public void testEmptyTerms() {
+        AhoCorasick automaton = AhoCorasick.build(Collections.emptyList());
+
+        assertTrue(automaton.isEmpty(), "没有词条时自动机应该为空");
+        assertTrue(automaton.findAll("任意文本").isEmpty(), "空自动机不应该命中");
+        assertFalse(automaton.containsAny(null), "null 文本不应该命中");
+    }
+
+    @Test
+    public void testFindAll_ChineseTerms() {
+        AhoCorasick automaton = AhoCorasick.build(Arrays.asList("虐待", "骗子", "退钱"));
+
+        List<AhoCorasick.Match> matches = automaton.findAll("这家店是骗子，还虐待宠物，快退钱");
+
+        assertEquals(Arrays.asList("骗子", "虐待", "退钱"), terms(matches), "应该按出现顺序命中全部词条");
+        assertEquals(4, matches.get(0).getStart(), "命中起始位置应该正确");
+        assertEquals(6, matches.get(0).getEnd(), "命中结束位置应该正确");
+    }
+
+    @Test
+    public void testFindAll_OverlappingAndNestedTerms() {
+        AhoCorasick automaton = AhoCorasick.build(Arrays.asList("he", "she", "his", "hers"));
+
+        List<AhoCorasick.Match> matches = automaton.findAll("ushers");
+
+        assertEquals(Arrays.asList("she", "he", "hers"), terms(matches), "重叠和嵌套的词条都应该命中");
+    }
+
+    @Test
+    public void testFindAll_FailureLinks() {
+        AhoCorasick automaton = AhoCorasick.build(Arrays.asList("abcd", "bce"));
+
+        assertEquals(Collections.singletonList("bce"), terms(automaton.findAll("abce")), "失配后应沿失配链继续匹配");
+    }
+
+    @Test
+    public void testCaseInsensitive() {
+        AhoCorasick automaton = AhoCorasick.build(Collections.singletonList("Spam"));
+
+        AhoCorasick.Match match = automaton.findFirst("this is SPAM!");
+
+        assertNotNull(match, "匹配应该不区分大小写");
+        assertEquals("Spam", match.getTerm(), "应该返回词条原文");
+        assertEquals(8, match.getStart(), "命中起始位置应该正确");
+    }
+
+    @Test
+    public void testDuplicateAndBlankTerms() {
+        AhoCorasick automaton = AhoCorasick.build(Arrays.asList("骗子", " 骗子 ", "", null));
+
+        assertEquals(1, automaton.getTerms().size(), "重复和空白词条应该被忽略");
+        assertEquals(1, automaton.findAll("骗子").size(), "重复词条只应命中一次");
+    }
+
+    @Test
+    public void testFindFirst_NoMatch() {
+        AhoCorasick automaton = AhoCorasick.build(Arrays.asList("骗子", "虐待"));
+
+        assertNull(automaton.findFirst("服务很好，环境干净"), "正常内容不应该命中");
+    }
+}
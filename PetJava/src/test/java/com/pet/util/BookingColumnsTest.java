@@ -0,0 +1,282 @@
+package com.pet.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 订单列存分析数据测试
+ */
+public class BookingColumnsTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 15);
+
+    private BookingColumns.Row row(String id, String institutionId, String status, String paymentStatus,
+                                   String species, LocalDate createdDate, long totalFen) {
+        BookingColumns.Row row = new BookingColumns.Row();
+        row.setId(id);
+        row.setInstitutionId(institutionId);
+        row.setServicePackageId("pkg-" + institutionId);
+        row.setStatus(status);
+        row.setPaymentStatus(paymentStatus);
+        row.setSpecies(species);
+        row.setCreatedAt(createdDate.atTime(10, 0));
+        row.setStartDate(createdDate.plusDays(1));
+        row.setEndDate(createdDate.plusDays(3));
+        row.setPaidAt("paid".equals(paymentStatus) ? createdDate.atTime(11, 0) : null);
+        row.setTotalFen(totalFen);
+        row.setRefundFen(0L);
+        row.setDeleted(0);
+        return row;
+    }
+
+    private Map<Object, BookingColumns.Group> byKey(List<BookingColumns.Group> groups, BookingColumns.Dimension dimension) {
+        Map<Object, BookingColumns.Group> result = new HashMap<>();
+        for (BookingColumns.Group group : groups) {
+            result.put(group.get(dimension), group);
+        }
+        return result;
+    }
+
+    @Test
+    public void testTotalWithoutGroupBy() {
+        BookingColumns columns = new BookingColumns();
+        columns.put(row("b1", "i1", "completed", "paid", "dog", DAY, 10000));
+        columns.put(row("b2", "i1", "pending", "pending", "cat", DAY, 5000));
+
+        List<BookingColumns.Group> groups = columns.aggregate(new BookingColumns.Query(), null);
+
+        assertEquals(1, groups.size(), "未分组时应该返回一行合计");
+        assertEquals(2, groups.get(0).getCount());
+        assertEquals(15000, groups.get(0).getGmv());
+    }
+
+    @Test
+    public void testEmptyResultStillReturnsTotalRow() {
+        BookingColumns columns = new BookingColumns();
+        columns.put(row("b1", "i1", "completed", "paid", "dog", DAY, 10000));
+
+        List<BookingColumns.Group> groups = columns.aggregate(
+                new BookingColumns.Query().institution("unknown"), null);
+
+        assertEquals(1, groups.size(), "没有命中时合计行应该为 0");
+        assertEquals(0, groups.get(0).getCount());
+        assertEquals(0, groups.get(0).getGmv());
+    }
+
+    @Test
+    public void testFilterAndGroupByStatus() {
+        BookingColumns columns = new BookingColumns();
+        columns.put(row("b1", "i1", "completed", "paid", "dog", DAY, 10000));
+        columns.put(row("b2", "i1", "completed", "paid", "cat", DAY, 20000));
+        columns.put(row("b3", "i1", "cancelled", "refunded", "dog", DAY, 8000));
+        columns.put(row("b4", "i2", "completed", "paid", "dog", DAY, 30000));
+
+        Map<Object, BookingColumns.Group> groups = byKey(columns.aggregate(new BookingColumns.Query()
+                .institution("i1")
+                .groupBy(BookingColumns.Dimension.STATUS), null), BookingColumns.Dimension.STATUS);
+
+        assertEquals(2, groups.size());
+        assertEquals(2, groups.get("completed").getCount());
+        assertEquals(30000, groups.get("completed").getGmv(), "其他机构的订单不应该计入");
+        assertEquals(1, groups.get("cancelled").getCount());
+    }
+
+    @Test
+    public void testStatusAndPaymentFilters() {
+        BookingColumns columns = new BookingColumns();
+        columns.put(row("b1", "i1", "completed", "paid", "dog", DAY, 10000));
+        columns.put(row("b2", "i1", "in_progress", "paid", "dog", DAY, 20000));
+        columns.put(row("b3", "i1", "pending", "pending", "dog", DAY, 40000));
+
+        List<BookingColumns.Group> groups = columns.aggregate(new BookingColumns.Query()
+                .status("completed", "in_progress", "unknown")
+                .paymentStatus("paid"), null);
+
+        assertEquals(2, groups.get(0).getCount());
+        assertEquals(30000, groups.get(0).getGmv());
+    }
+
+    @Test
+    public void testDatesBefore1970TreatedAsMissing() {
+        BookingColumns columns = new BookingColumns();
+        columns.put(row("b1", "i1", "completed", "paid", "dog", LocalDate.of(1969, 12, 31), 10000));
+        columns.put(row("b2", "i1", "completed", "paid", "dog", DAY, 20000));
+
+        Map<Object, BookingColumns.Group> groups = byKey(columns.aggregate(new BookingColumns.Query()
+                .groupBy(BookingColumns.Dimension.DAY), null), BookingColumns.Dimension.DAY);
+
+        assertEquals(2, groups.size(), "超出范围的日期应该按缺失处理，不与其他日期的分组键冲突");
+        assertEquals(10000, groups.get(null).getGmv());
+        assertEquals(20000, groups.get(DAY).getGmv());
+    }
+
+    @Test
+    public void testDateRangeUsesSelectedColumn() {
+        BookingColumns columns = new BookingColumns();
+        columns.put(row("b1", "i1", "completed", "paid", "dog", DAY, 10000));
+        columns.put(row("b2", "i1", "completed", "paid", "dog", DAY.minusDays(10), 20000));
+
+        List<BookingColumns.Group> created = columns.aggregate(new BookingColumns.Query()
+                .dates(BookingColumns.DateField.CREATED, DAY, DAY), null);
+        List<BookingColumns.Group> start = columns.aggregate(new BookingColumns.Query()
+                .dates(BookingColumns.DateField.START, DAY, DAY), null);
+
+        assertEquals(1, created.get(0).getCount(), "下单日期在范围内的只有 b1");
+        assertEquals(0, start.get(0).getCount(), "b1 的寄养开始日期是次日");
+    }
+
+    @Test
+    public void testUnpaidRowsExcludedFromPaidDateRange() {
+        BookingColumns columns = new BookingColumns();
+        columns.put(row("b1", "i1", "completed", "paid", "dog", DAY, 10000));
+        columns.put(row("b2", "i1", "pending", "pending", "dog", DAY, 20000));
+
+        List<BookingColumns.Group> groups = columns.aggregate(new BookingColumns.Query()
+                .dates(BookingColumns.DateField.PAID, DAY.minusDays(1), DAY.plusDays(1)), null);
+
+        assertEquals(1, groups.get(0).getCount(), "没有支付日期的订单不应该命中支付日期范围");
+    }
+
+    @Test
+    public void testGroupByMonthAndWeekday() {
+        BookingColumns columns = new BookingColumns();
+        columns.put(row("b1", "i1", "completed", "paid", "dog", LocalDate.of(2024, 2, 29), 100));
+        columns.put(row("b2", "i1", "completed", "paid", "dog", LocalDate.of(2024, 3, 1), 200));
+        columns.put(row("b3", "i1", "completed", "paid", "dog", LocalDate.of(2024, 3, 4), 300));
+
+        Map<Object, BookingColumns.Group> months = byKey(columns.aggregate(new BookingColumns.Query()
+                .groupBy(BookingColumns.Dimension.MONTH), null), BookingColumns.Dimension.MONTH);
+        Map<Object, BookingColumns.Group> weekdays = byKey(columns.aggregate(new BookingColumns.Query()
+                .groupBy(BookingColumns.Dimension.WEEKDAY), null), BookingColumns.Dimension.WEEKDAY);
+
+        assertEquals(100, months.get(LocalDate.of(2024, 2, 1)).getGmv());
+        assertEquals(500, months.get(LocalDate.of(2024, 3, 1)).getGmv());
+        assertEquals(100, weekdays.get(4).getGmv(), "2024-02-29 是周四");
+        assertEquals(200, weekdays.get(5).getGmv(), "2024-03-01 是周五");
+        assertEquals(300, weekdays.get(1).getGmv(), "2024-03-04 是周一");
+    }
+
+    @Test
+    public void testGroupByMultipleDimensions() {
+        BookingColumns columns = new BookingColumns();
+        columns.put(row("b1", "i1", "completed", "paid", "dog", DAY, 100));
+        columns.put(row("b2", "i1", "completed", "paid", "cat", DAY, 200));
+        columns.put(row("b3", "i2", "completed", "paid", "dog", DAY, 400));
+        columns.put(row("b4", "i2", "completed", "paid", null, DAY, 800));
+
+        List<BookingColumns.Group> groups = columns.aggregate(new BookingColumns.Query()
+                .groupBy(BookingColumns.Dimension.INSTITUTION, BookingColumns.Dimension.SPECIES), null);
+
+        Map<String, Long> gmv = new HashMap<>();
+        for (BookingColumns.Group group : groups) {
+            gmv.put(group.get(BookingColumns.Dimension.INSTITUTION) + "/" + group.get(BookingColumns.Dimension.SPECIES),
+                    group.getGmv());
+        }
+        assertEquals(4, gmv.size());
+        assertEquals(100L, (long) gmv.get("i1/dog"));
+        assertEquals(200L, (long) gmv.get("i1/cat"));
+        assertEquals(400L, (long) gmv.get("i2/dog"));
+        assertEquals(800L, (long) gmv.get("i2/other"), "没有宠物种类的订单归入 other");
+    }
+
+    @Test
+    public void testTooManyGroupByDimensions() {
+        BookingColumns columns = new BookingColumns();
+
+        assertThrows(IllegalArgumentException.class, () -> columns.aggregate(new BookingColumns.Query()
+                .groupBy(BookingColumns.Dimension.DAY, BookingColumns.Dimension.STATUS,
+                        BookingColumns.Dimension.SPECIES, BookingColumns.Dimension.PACKAGE), null));
+    }
+
+    @Test
+    public void testPutOverwritesAndDeleteRemoves() {
+        BookingColumns columns = new BookingColumns();
+        columns.put(row("b1", "i1", "pending", "pending", "dog", DAY, 10000));
+        columns.put(row("b1", "i1", "cancelled", "refunded", "dog", DAY, 10000));
+
+        assertEquals(1, columns.size(), "同一订单再次写入应该覆盖");
+        Map<Object, BookingColumns.Group> groups = byKey(columns.aggregate(new BookingColumns.Query()
+                .groupBy(BookingColumns.Dimension.STATUS), null), BookingColumns.Dimension.STATUS);
+        assertNull(groups.get("pending"));
+        assertEquals(1, groups.get("cancelled").getCount());
+
+        BookingColumns.Row deleted = row("b1", "i1", "cancelled", "refunded", "dog", DAY, 10000);
+        deleted.setDeleted(1);
+        columns.put(deleted);
+        assertEquals(0, columns.size(), "逻辑删除的订单应该移出统计");
+        assertEquals(0, columns.aggregate(new BookingColumns.Query(), null).get(0).getCount());
+    }
+
+    @Test
+    public void testParallelScanMatchesSequential() {
+        BookingColumns columns = new BookingColumns(16);
+        Random random = new Random(42);
+        String[] statuses = {"pending", "confirmed", "in_progress", "completed", "cancelled"};
+        String[] species = {"dog", "cat", "rabbit"};
+        for (int i = 0; i < 200000; i++) {
+            columns.put(row("b" + i, "i" + random.nextInt(50), statuses[random.nextInt(statuses.length)],
+                    random.nextBoolean() ? "paid" : "pending", species[random.nextInt(species.length)],
+                    DAY.minusDays(random.nextInt(400)), random.nextInt(100000)));
+        }
+        BookingColumns.Query query = new BookingColumns.Query()
+                .dates(BookingColumns.DateField.CREATED, DAY.minusDays(200), DAY)
+                .paymentStatus("paid")
+                .groupBy(BookingColumns.Dimension.MONTH, BookingColumns.Dimension.SPECIES);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Map<String, long[]> sequential = flatten(columns.aggregate(query, null));
+            Map<String, long[]> parallel = flatten(columns.aggregate(query, pool));
+
+            assertEquals(sequential.keySet(), parallel.keySet());
+            for (String key : sequential.keySet()) {
+                assertArrayEquals(sequential.get(key), parallel.get(key), "并行扫描结果应该与单线程一致: " + key);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private Map<String, long[]> flatten(List<BookingColumns.Group> groups) {
+        Map<String, long[]> result = new HashMap<>();
+        for (BookingColumns.Group group : groups) {
+            result.put(group.get(BookingColumns.Dimension.MONTH) + "/" + group.get(BookingColumns.Dimension.SPECIES),
+                    new long[]{group.getCount(), group.getGmv(), group.getRefund()});
+        }
+        return result;
+    }
+
+    @Test
+    public void testMonthAndWeekdayArithmetic() {
+        for (LocalDate date = LocalDate.of(1999, 12, 1); date.isBefore(LocalDate.of(2101, 3, 1)); date = date.plusDays(1)) {
+            int epochDay = (int) date.toEpochDay();
+            assertEquals(date.getYear() * 12 + date.getMonthValue() - 1, BookingColumns.monthOf(epochDay),
+                    "月份计算错误: " + date);
+            assertEquals(date.getDayOfWeek().getValue(), BookingColumns.weekdayOf(epochDay),
+                    "星期计算错误: " + date);
+        }
+    }
+
+    @Test
+    public void testMissingCreatedAtFallsBack() {
+        BookingColumns columns = new BookingColumns();
+        BookingColumns.Row row = row("b1", "i1", "pending", "pending", "dog", DAY, 100);
+        row.setCreatedAt(null);
+        row.setStartDate(null);
+        columns.put(row);
+
+        List<BookingColumns.Group> created = columns.aggregate(new BookingColumns.Query()
+                .dates(BookingColumns.DateField.CREATED, DAY.minusYears(10), DAY.plusYears(10)), null);
+        List<BookingColumns.Group> all = columns.aggregate(new BookingColumns.Query()
+                .groupBy(BookingColumns.Dimension.DAY), null);
+
+        assertEquals(0, created.get(0).getCount(), "没有下单时间的订单不应该命中日期范围");
+        assertEquals(1, all.size());
+        assertNull(all.get(0).get(BookingColumns.Dimension.DAY), "缺失的日期分组键为 null");
+    }
+}
@@ -0,0 +1,74 @@
+package com.pet.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CSV 写出测试
+ */
+public class CsvWriterTest {
+
+    private String write(Object... values) throws IOException {
+        StringWriter out = new StringWriter();
+        new CsvWriter(out).writeRow(values);
+        return out.toString();
+    }
+
+    @Test
+    public void testPlainFields() throws IOException {
+        assertEquals("a,b,c\r\n", write("a", "b", "c"));
+    }
+
+    @Test
+    public void testNullIsEmpty() throws IOException {
+        assertEquals("a,,c\r\n", write("a", null, "c"));
+    }
+
+    @Test
+    public void testQuoteComma() throws IOException {
+        assertEquals("\"广州,天河\",1\r\n", write("广州,天河", 1));
+    }
+
+    @Test
+    public void testEscapeQuote() throws IOException {
+        assertEquals("\"说\"\"你好\"\"\"\r\n", write("说\"你好\""));
+    }
+
+    @Test
+    public void testQuoteNewline() throws IOException {
+        assertEquals("\"第一行\n第二行\"\r\n", write("第一行\n第二行"));
+    }
+
+    @Test
+    public void testFormulaGuard() throws IOException {
+        assertEquals("'=SUM(A1),'@cmd,'+1\r\n", write("=SUM(A1)", "@cmd", "+1"));
+    }
+
+    @Test
+    public void testNegativeNumberUnchanged() throws IOException {
+        assertEquals("-100,-1.50\r\n", write(-100L, new BigDecimal("-1.50")));
+    }
+
+    @Test
+    public void testDateTimeFormat() throws IOException {
+        assertEquals("2024-01-05 08:30:00,2024-01-05\r\n",
+                write(LocalDateTime.of(2024, 1, 5, 8, 30), LocalDate.of(2024, 1, 5)));
+    }
+
+    @Test
+    public void testBomAndRowCount() throws IOException {
+        StringWriter out = new StringWriter();
+        CsvWriter csv = new CsvWriter(out).writeBom();
+        csv.writeRow("订单号", "金额");
+        csv.writeRow("PF001", 10);
+        assertEquals("\uFEFF订单号,金额\r\nPF001,10\r\n", out.toString());
+        assertEquals(2, csv.getRows());
+    }
+}
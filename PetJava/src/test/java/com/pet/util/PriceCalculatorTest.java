@@ -1,5 +1,6 @@
 package com.pet.util;
 
+import com.pet.common.Money;
 import org.junit.jupiter.api.Test;
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -121,4 +122,29 @@ public class PriceCalculatorTest {
         assertNotNull(result.get("totalPrice"), "总价不应该为空");
         assertTrue(result.get("totalPrice") instanceof BigDecimal, "总价应该是 BigDecimal 类型");
     }
+
+    @Test
+    public void testCalculateBookingPrice_Money_Rounding() {
+        Money pricePerDay = Money.ofYuan("99.99");
+        
+        Map<String, Object> result = PriceCalculator.calculateBookingPrice(pricePerDay, 7);
+        
+        assertEquals(Money.ofYuan("699.93"), result.get("subtotal"), "小计应该是 699.93");
+        assertEquals(Money.ofYuan("35.00"), result.get("discount"), "5% 折扣 34.9965 应四舍五入为 35.00");
+        assertEquals(Money.ofYuan("664.93"), result.get("totalPrice"), "总价应该是 664.93");
+        assertEquals(new BigDecimal("0.05"), result.get("discountRate"), "折扣率应该是 5%");
+    }
+
+    @Test
+    public void testCalculateBookingPrice_Money_TotalEqualsSubtotalMinusDiscount() {
+        Money pricePerDay = Money.ofYuan("33.33");
+        
+        Map<String, Object> result = PriceCalculator.calculateBookingPriceByDates(pricePerDay,
+                LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 30));
+        
+        Money subtotal = (Money) result.get("subtotal");
+        Money discount = (Money) result.get("discount");
+        assertEquals(30, result.get("totalDays"), "应该是 30 天");
+        assertEquals(subtotal.minus(discount), result.get("totalPrice"), "总价应该精确等于小计减折扣");
+    }
 }
@@ -0,0 +1,71 @@
+package com.pet.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 评分聚合基准测试：Map 列表版本 vs 列存版本
+ * 不以 Test 结尾，mvn test 不会执行；运行方式见 src/test/README.md
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RatingCalculatorBenchmark {
+
+    @Param({"10000", "1000000"})
+    private int reviewCount;
+
+    private List<Map<String, Object>> reviews;
+    private RatingColumns columns;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        reviews = new ArrayList<>(reviewCount);
+        columns = new RatingColumns(reviewCount);
+        for (int i = 0; i < reviewCount; i++) {
+            int[] row = new int[RatingColumns.DIMENSIONS.length];
+            Map<String, Object> rating = new HashMap<>();
+            for (int d = 0; d < row.length; d++) {
+                row[d] = 1 + random.nextInt(5);
+                rating.put(RatingColumns.DIMENSIONS[d], row[d]);
+            }
+            Map<String, Object> review = new HashMap<>();
+            review.put("rating", rating);
+            reviews.add(review);
+            columns.add(row[0], row[1], row[2], row[3], row[4]);
+        }
+    }
+
+    @Benchmark
+    public void mapBased(Blackhole blackhole) {
+        blackhole.consume(RatingCalculator.calculateAverageRating(reviews));
+        blackhole.consume(RatingCalculator.calculateDimensionAverages(reviews));
+        blackhole.consume(RatingCalculator.calculateRatingDistribution(reviews));
+    }
+
+    @Benchmark
+    public void columnar(Blackhole blackhole) {
+        RatingCalculator.RatingSummary summary = RatingCalculator.summarize(columns);
+        blackhole.consume(summary.average(0));
+        blackhole.consume(summary.getDimensionAverages());
+        blackhole.consume(summary.getDistribution());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(RatingCalculatorBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -150,4 +150,93 @@ public class RatingCalculatorTest {
         assertEquals(1, distribution.get(3), "3 星应该有 1 个");
         assertEquals(0, distribution.get(4), "4 星应该有 0 个");
     }
+
+    @Test
+    public void testSummarize_EmptyColumns() {
+        RatingCalculator.RatingSummary summary = RatingCalculator.summarize(new RatingColumns());
+
+        assertEquals(0, summary.getCount(), "空列存的评价数应该是 0");
+        assertEquals(BigDecimal.ZERO, summary.average(0), "空列存的平均评分应该是 0");
+        assertEquals(BigDecimal.ZERO, summary.getDimensionAverages().get("service"), "空列存的维度平均分应该是 0");
+        assertEquals(0, summary.getDistribution().get(5), "空列存的分布应该全为 0");
+    }
+
+    @Test
+    public void testSummarize_MatchesMapBasedResults() {
+        List<Map<String, Object>> reviews = new ArrayList<>();
+        int[][] scores = {{5, 4, 5, 4, 5}, {4, 5, 4, 5, 4}, {3, 3, 2, 4, 3}, {5, 5, 5, 5, 5}, {1, 2, 1, 2, 1}};
+        for (int[] row : scores) {
+            Map<String, Object> rating = new HashMap<>();
+            for (int d = 0; d < row.length; d++) {
+                rating.put(RatingColumns.DIMENSIONS[d], row[d]);
+            }
+            Map<String, Object> review = new HashMap<>();
+            review.put("rating", rating);
+            reviews.add(review);
+        }
+
+        RatingCalculator.RatingSummary summary = RatingCalculator.summarize(RatingColumns.fromReviews(reviews));
+
+        assertEquals(5, summary.getCount(), "评价数应该是 5");
+        assertEquals(180, summary.getSumTenths(0), "overall 评分之和应该是 18.0");
+        assertEquals(RatingCalculator.calculateAverageRating(reviews), summary.average(0), "平均评分应与 Map 版本一致");
+        assertEquals(RatingCalculator.calculateDimensionAverages(reviews), summary.getDimensionAverages(), "维度平均分应与 Map 版本一致");
+        assertEquals(RatingCalculator.calculateRatingDistribution(reviews), summary.getDistribution(), "评分分布应与 Map 版本一致");
+    }
+
+    @Test
+    public void testSummarize_FractionalScoresMatchMapBasedResults() {
+        List<Map<String, Object>> reviews = new ArrayList<>();
+        double[][] scores = {{4.5, 3.7, 4.2, 5.0, 4.8}, {3.4, 4.6, 2.5, 3.3, 4.1}, {2.5, 1.5, 3.9, 4.4, 2.6}, {4.6, 5.0, 4.4, 3.8, 4.9}};
+        for (double[] row : scores) {
+            Map<String, Object> rating = new HashMap<>();
+            for (int d = 0; d < row.length; d++) {
+                rating.put(RatingColumns.DIMENSIONS[d], row[d]);
+            }
+            Map<String, Object> review = new HashMap<>();
+            review.put("rating", rating);
+            reviews.add(review);
+        }
+
+        RatingCalculator.RatingSummary summary = RatingCalculator.summarize(RatingColumns.fromReviews(reviews));
+
+        assertEquals(150, summary.getSumTenths(0), "overall 评分之和应该是 15.0");
+        // (4.5 + 3.4 + 2.5 + 4.6) / 4 = 3.75，按整数舍入会得到 (5 + 3 + 3 + 5) / 4 = 4.0
+        assertEquals(new BigDecimal("3.8"), summary.average(0), "小数评分的平均分应该是 3.8");
+        assertEquals(RatingCalculator.calculateAverageRating(reviews), summary.average(0), "平均评分应与 Map 版本一致");
+        assertEquals(RatingCalculator.calculateDimensionAverages(reviews), summary.getDimensionAverages(), "维度平均分应与 Map 版本一致");
+        assertEquals(RatingCalculator.calculateRatingDistribution(reviews), summary.getDistribution(), "评分分布应与 Map 版本一致");
+    }
+
+    @Test
+    public void testSummarize_MissingScoresCountAsZero() {
+        RatingColumns columns = new RatingColumns(1);
+        columns.add(4, 0, 0, 0, 0);
+        columns.add(0, 0, 0, 0, 0);
+        columns.add(5, 5, 5, 5, 5);
+
+        RatingCalculator.RatingSummary summary = RatingCalculator.summarize(columns);
+
+        assertEquals(3, summary.getCount(), "扩容后评价数应该是 3");
+        assertEquals(new BigDecimal("3.0"), summary.average(0), "缺失评分按 0 计入平均分");
+        assertEquals(new BigDecimal("1.7"), summary.getDimensionAverages().get("hygiene"), "hygiene 平均分应该是 1.7");
+        assertEquals(1, summary.getDistribution().get(4), "4 星应该有 1 个");
+        assertEquals(1, summary.getDistribution().get(5), "5 星应该有 1 个");
+    }
+
+    @Test
+    public void testRatingColumns_MismatchedLengths() {
+        assertThrows(IllegalArgumentException.class,
+                () -> RatingColumns.of(new short[2], new short[2], new short[1], new short[2], new short[2]),
+                "各维度长度不一致应该抛出异常");
+    }
+
+    @Test
+    public void testCalculateRecommendationScoreBySum() {
+        assertEquals(BigDecimal.ZERO, RatingCalculator.calculateRecommendationScoreBySum(0, 0), "无评价时推荐指数应该是 0");
+        // (2 * 5 + 10 * 3.5) / (2 + 10) = 3.75
+        assertEquals(new BigDecimal("3.8"), RatingCalculator.calculateRecommendationScoreBySum(10, 2), "少量高分评价应向先验收缩");
+        assertEquals(RatingCalculator.calculateRecommendationScore(4.6, 50),
+                RatingCalculator.calculateRecommendationScoreBySum(230, 50), "平均分无舍入时两种算法结果一致");
+    }
 }
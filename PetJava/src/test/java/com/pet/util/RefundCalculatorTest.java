@@ -1,5 +1,6 @@
 package com.pet.util;
 
+import com.pet.common.Money;
 import org.junit.jupiter.api.Test;
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -130,4 +131,45 @@ public class RefundCalculatorTest {
         
         assertFalse((boolean) result.get("canCancel"), "已取消的订单不能再次取消");
     }
+
+    @Test
+    public void testCalculateRefund_Money_Within48Hours() {
+        Money totalPrice = Money.ofYuan("99.99");
+        LocalDate startDate = LocalDate.of(2024, 1, 10);
+        LocalDate endDate = LocalDate.of(2024, 1, 15);
+        LocalDateTime cancelTime = LocalDateTime.of(2024, 1, 9, 10, 0);
+        
+        Map<String, Object> result = RefundCalculator.calculateRefund(totalPrice, startDate, endDate, cancelTime);
+        
+        assertEquals(Money.ofYuan("69.99"), result.get("refundAmount"), "69.993 应四舍五入为 69.99");
+        assertEquals(Money.ofYuan("30.00"), result.get("cancellationFee"), "手续费应该是总价减退款");
+    }
+
+    @Test
+    public void testCalculateRefund_Money_ProportionalSumsToTotal() {
+        Money totalPrice = Money.ofYuan("1000.01");
+        LocalDate startDate = LocalDate.of(2024, 1, 10);
+        LocalDate endDate = LocalDate.of(2024, 1, 15);
+        LocalDateTime cancelTime = LocalDateTime.of(2024, 1, 12, 10, 0);
+        
+        Map<String, Object> result = RefundCalculator.calculateRefund(totalPrice, startDate, endDate, cancelTime);
+        
+        Money refund = (Money) result.get("refundAmount");
+        Money fee = (Money) result.get("cancellationFee");
+        assertEquals(Money.ofYuan("350.00"), refund, "剩余 3/6 天，退款 1000.01 × 0.5 × 0.7 = 350.0035");
+        assertEquals(totalPrice, refund.plus(fee), "退款与手续费之和应等于总价");
+    }
+
+    @Test
+    public void testCalculateRefund_Money_NoRefund() {
+        Money totalPrice = Money.ofYuan("500.00");
+        LocalDate startDate = LocalDate.of(2024, 1, 1);
+        LocalDate endDate = LocalDate.of(2024, 1, 5);
+        LocalDateTime cancelTime = LocalDateTime.of(2024, 1, 6, 10, 0);
+        
+        Map<String, Object> result = RefundCalculator.calculateRefund(totalPrice, startDate, endDate, cancelTime);
+        
+        assertEquals(Money.ZERO, result.get("refundAmount"), "不应该退款");
+        assertEquals(totalPrice, result.get("cancellationFee"), "全部为取消费");
+    }
 }
@@ -0,0 +1,101 @@
+package com.pet.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 前 K 名测试
+ */
+public class TopKTest {
+
+    private static final Comparator<Integer> DESC = Comparator.reverseOrder();
+
+    @Test
+    public void testKeepsLargest() {
+        TopK<Integer> top = new TopK<>(3, DESC);
+        for (int value : new int[]{5, 1, 9, 3, 7, 2, 8}) {
+            top.offer(value);
+        }
+        assertEquals(Arrays.asList(9, 8, 7), top.sorted());
+        assertEquals(7, top.offered());
+        assertEquals(3, top.size());
+    }
+
+    @Test
+    public void testFewerThanK() {
+        TopK<Integer> top = new TopK<>(10, DESC);
+        top.offer(2);
+        top.offer(4);
+        assertEquals(Arrays.asList(4, 2), top.sorted());
+    }
+
+    @Test
+    public void testHugeKDoesNotPreallocate() {
+        TopK<Integer> top = new TopK<>(Integer.MAX_VALUE, DESC);
+        for (int i = 1; i <= 2000; i++) {
+            top.offer(i);
+        }
+        assertEquals(2000, top.size(), "k 远大于元素数时应该保留全部元素");
+        assertEquals(Arrays.asList(2000, 1999), top.slice(0, 2));
+    }
+
+    @Test
+    public void testZeroK() {
+        TopK<Integer> top = new TopK<>(0, DESC);
+        top.offer(1);
+        assertTrue(top.sorted().isEmpty());
+        assertEquals(1, top.offered());
+    }
+
+    @Test
+    public void testNegativeK() {
+        assertThrows(IllegalArgumentException.class, () -> new TopK<>(-1, DESC));
+    }
+
+    @Test
+    public void testSlice() {
+        TopK<Integer> top = new TopK<>(6, DESC);
+        for (int i = 1; i <= 20; i++) {
+            top.offer(i);
+        }
+        assertEquals(Arrays.asList(17, 16, 15), top.slice(3, 3));
+        assertEquals(Arrays.asList(15), top.slice(5, 3));
+        assertTrue(top.slice(6, 3).isEmpty());
+    }
+
+    @Test
+    public void testTieBreakKeepsOrder() {
+        // 金额相同按名称升序
+        Comparator<String[]> order = Comparator.<String[]>comparingInt(e -> -Integer.parseInt(e[1]))
+                .thenComparing(e -> e[0]);
+        TopK<String[]> top = new TopK<>(2, order);
+        top.offer(new String[]{"c", "10"});
+        top.offer(new String[]{"a", "10"});
+        top.offer(new String[]{"b", "10"});
+        List<String[]> result = top.sorted();
+        assertEquals("a", result.get(0)[0]);
+        assertEquals("b", result.get(1)[0]);
+    }
+
+    @Test
+    public void testMatchesFullSort() {
+        Random random = new Random(42);
+        List<Integer> values = new ArrayList<>();
+        TopK<Integer> top = new TopK<>(50, DESC);
+        for (int i = 0; i < 5000; i++) {
+            int value = random.nextInt(100000);
+            values.add(value);
+            top.offer(value);
+        }
+        values.sort(Collections.reverseOrder());
+        assertEquals(values.subList(0, 50), top.sorted());
+    }
+}
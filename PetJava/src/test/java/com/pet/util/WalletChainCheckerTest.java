@@ -0,0 +1,111 @@
+package com.pet.util;
+
+import com.pet.entity.WalletTransaction;
+import org.junit.jupiter.api.Test;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 钱包交易链校验工具测试
+ */
+public class WalletChainCheckerTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 1, 1, 10, 0, 0);
+
+    private WalletTransaction tx(String id, String type, int amount, int fee, int before, int after, LocalDateTime time) {
+        WalletTransaction t = new WalletTransaction();
+        t.setId(id);
+        t.setWalletId("w1");
+        t.setType(type);
+        t.setAmount((long) amount);
+        t.setFee((long) fee);
+        t.setBalanceBefore((long) before);
+        t.setBalanceAfter((long) after);
+        t.setCreatedAt(time);
+        return t;
+    }
+
+    @Test
+    public void testBalanceDelta_ByType() {
+        assertEquals(1000, WalletChainChecker.balanceDelta(tx("1", "recharge", 1000, 0, 0, 1000, T0)));
+        assertEquals(1000, WalletChainChecker.balanceDelta(tx("2", "income", 1000, 0, 0, 1000, T0)));
+        assertEquals(1000, WalletChainChecker.balanceDelta(tx("3", "refund", 1000, 0, 0, 1000, T0)));
+        assertEquals(-1000, WalletChainChecker.balanceDelta(tx("4", "payment", 1000, 0, 1000, 0, T0)));
+        assertEquals(-1100, WalletChainChecker.balanceDelta(tx("5", "withdrawal", 1000, 100, 1100, 0, T0)), "提现应同时扣除手续费");
+    }
+
+    @Test
+    public void testCheck_ValidChain() {
+        List<WalletTransaction> chain = Arrays.asList(
+                tx("1", "recharge", 5000, 0, 0, 5000, T0),
+                tx("2", "payment", 2000, 0, 5000, 3000, T0.plusMinutes(1)),
+                tx("3", "withdrawal", 1000, 100, 3000, 1900, T0.plusMinutes(2)));
+
+        List<Map<String, Object>> issues = WalletChainChecker.check("w1", chain, 1900L);
+
+        assertTrue(issues.isEmpty(), "连续且金额正确的交易链不应报告问题");
+    }
+
+    @Test
+    public void testCheck_ChainBreak() {
+        List<WalletTransaction> chain = Arrays.asList(
+                tx("1", "recharge", 5000, 0, 0, 5000, T0),
+                tx("2", "payment", 2000, 0, 4000, 2000, T0.plusMinutes(1)));
+
+        List<Map<String, Object>> issues = WalletChainChecker.check("w1", chain, null);
+
+        assertEquals(1, issues.size());
+        assertEquals(WalletChainChecker.ISSUE_CHAIN_BREAK, issues.get(0).get("type"));
+        assertEquals("2", issues.get(0).get("transactionId"));
+        assertEquals(5000L, issues.get(0).get("expected"));
+        assertEquals(4000L, issues.get(0).get("actual"));
+    }
+
+    @Test
+    public void testCheck_AmountMismatch() {
+        List<WalletTransaction> chain = Collections.singletonList(
+                tx("1", "recharge", 5000, 0, 0, 6000, T0));
+
+        List<Map<String, Object>> issues = WalletChainChecker.check("w1", chain, null);
+
+        assertEquals(1, issues.size());
+        assertEquals(WalletChainChecker.ISSUE_AMOUNT_MISMATCH, issues.get(0).get("type"));
+    }
+
+    @Test
+    public void testCheck_WalletBalanceMismatch() {
+        List<WalletTransaction> chain = Collections.singletonList(
+                tx("1", "recharge", 5000, 0, 0, 5000, T0));
+
+        List<Map<String, Object>> issues = WalletChainChecker.check("w1", chain, 4000L);
+
+        assertEquals(2, issues.size(), "最终余额和回放结果都应与钱包余额不一致");
+        assertEquals(WalletChainChecker.ISSUE_BALANCE_MISMATCH, issues.get(0).get("type"));
+        assertEquals(WalletChainChecker.ISSUE_REPLAY_MISMATCH, issues.get(1).get("type"));
+    }
+
+    @Test
+    public void testCheck_SameSecondOutOfOrder() {
+        // 同一秒内的交易，ID 顺序与实际发生顺序相反
+        List<WalletTransaction> chain = new ArrayList<>();
+        chain.add(tx("a", "payment", 2000, 0, 5000, 3000, T0));
+        chain.add(tx("b", "recharge", 5000, 0, 0, 5000, T0));
+
+        List<Map<String, Object>> issues = WalletChainChecker.check("w1", chain, 3000L);
+
+        assertTrue(issues.isEmpty(), "同一秒内的交易应按余额链接续关系排序");
+    }
+
+    @Test
+    public void testCheck_OrphanBalance() {
+        List<Map<String, Object>> issues = WalletChainChecker.check("w1", Collections.emptyList(), 1000L);
+
+        assertEquals(1, issues.size(), "没有交易记录但余额不为 0 应报告回放不一致");
+        assertEquals(WalletChainChecker.ISSUE_REPLAY_MISMATCH, issues.get(0).get("type"));
+    }
+}